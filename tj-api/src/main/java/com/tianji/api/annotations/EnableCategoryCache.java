@@ -1,4 +1,18 @@
 package com.tianji.api.annotations;
 
+import com.tianji.api.config.CategoryCacheConfig;
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 启用课程分类缓存CategoryCache的MQ失效通知，每个实例绑定一个匿名队列；未启用时缓存只按有效期过期
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Import(CategoryCacheConfig.CategoryCacheInvalidationConfig.class)
 public @interface EnableCategoryCache {
 }
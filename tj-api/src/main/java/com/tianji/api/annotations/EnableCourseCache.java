@@ -0,0 +1,18 @@
+package com.tianji.api.annotations;
+
+import com.tianji.api.config.CourseCacheConfig;
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 启用课程信息本地缓存CourseCache
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Import({CourseCacheConfig.class, CourseCacheConfig.CourseCacheInvalidationConfig.class})
+public @interface EnableCourseCache {
+}
@@ -0,0 +1,18 @@
+package com.tianji.api.annotations;
+
+import com.tianji.api.config.UserCacheConfig;
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 启用用户信息本地缓存UserCache
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Import({UserCacheConfig.class, UserCacheConfig.UserCacheInvalidationConfig.class})
+public @interface EnableUserCache {
+}
@@ -0,0 +1,135 @@
+package com.tianji.api.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.tianji.common.utils.CollUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按id合并加载：一个时间窗口内所有未命中的id合并为一次批量查询，
+ * 同一个id同时只有一次在途查询；攒满一批时不等窗口结束立即查询
+ *
+ * @param <V> 缓存的数据类型
+ */
+@Slf4j
+public abstract class BatchLoader<V> implements AsyncCacheLoader<Long, V> {
+
+    private final String name;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Object lock = new Object();
+    private Map<Long, CompletableFuture<V>> pending = new HashMap<>();
+    private boolean scheduled;
+    private volatile Executor loadExecutor;
+
+    protected BatchLoader(String name, long windowMillis, int maxBatchSize) {
+        this.name = name;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, name + "-cache-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 批量查询，查不到的数据不返回
+     */
+    protected abstract List<V> queryByIds(List<Long> ids);
+
+    protected abstract Long idOf(V value);
+
+    @Override
+    public CompletableFuture<V> asyncLoad(Long key, Executor executor) {
+        return submit(Collections.singleton(key), executor).get(key);
+    }
+
+    @Override
+    public CompletableFuture<Map<Long, V>> asyncLoadAll(Set<? extends Long> keys, Executor executor) {
+        Map<Long, CompletableFuture<V>> futures = submit(keys, executor);
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                .thenApply(v -> {
+                    Map<Long, V> values = new HashMap<>(futures.size());
+                    futures.forEach((id, future) -> {
+                        V value = future.join();
+                        if (value != null) {
+                            values.put(id, value);
+                        }
+                    });
+                    return values;
+                });
+    }
+
+    private Map<Long, CompletableFuture<V>> submit(Set<? extends Long> keys, Executor executor) {
+        loadExecutor = executor;
+        Map<Long, CompletableFuture<V>> futures = new HashMap<>(keys.size());
+        Map<Long, CompletableFuture<V>> full = null;
+        synchronized (lock) {
+            for (Long key : keys) {
+                futures.put(key, pending.computeIfAbsent(key, k -> new CompletableFuture<>()));
+            }
+            if (pending.size() >= maxBatchSize) {
+                full = pending;
+                pending = new HashMap<>();
+            } else if (!scheduled) {
+                scheduled = true;
+                scheduler.schedule(this::flushWindow, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            Map<Long, CompletableFuture<V>> batch = full;
+            executor.execute(() -> load(batch));
+        }
+        return futures;
+    }
+
+    private void flushWindow() {
+        Map<Long, CompletableFuture<V>> batch;
+        synchronized (lock) {
+            batch = pending;
+            pending = new HashMap<>();
+            scheduled = false;
+        }
+        if (!batch.isEmpty()) {
+            loadExecutor.execute(() -> load(batch));
+        }
+    }
+
+    private void load(Map<Long, CompletableFuture<V>> batch) {
+        List<Long> ids = new ArrayList<>(batch.keySet());
+        for (int i = 0; i < ids.size(); i += maxBatchSize) {
+            List<Long> chunk = ids.subList(i, Math.min(i + maxBatchSize, ids.size()));
+            try {
+                List<V> values = queryByIds(chunk);
+                Map<Long, V> valueMap = new HashMap<>(chunk.size());
+                if (CollUtils.isNotEmpty(values)) {
+                    for (V value : values) {
+                        valueMap.put(idOf(value), value);
+                    }
+                }
+                // * 查不到的数据以null完成，不写入缓存
+                for (Long id : chunk) {
+                    batch.get(id).complete(valueMap.get(id));
+                }
+            } catch (Exception e) {
+                log.error("批量查询{}失败，{}条", name, chunk.size(), e);
+                for (Long id : chunk) {
+                    batch.get(id).completeExceptionally(e);
+                }
+            }
+        }
+    }
+}
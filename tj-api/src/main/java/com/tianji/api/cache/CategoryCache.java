@@ -9,26 +9,33 @@ import lombok.RequiredArgsConstructor;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class CategoryCache {
 
-    private final Cache<String, Map<Long, CategoryBasicDTO>> categoryCaches;
+    private static final String KEY = "CATEGORY";
+
+    private final Cache<String, CategoryIndex> categoryCaches;
 
     private final CategoryClient categoryClient;
 
+    private final AtomicLong versions = new AtomicLong();
+
+    /**
+     * 课程分类索引，分类变更时由MQ通知失效，下次访问整体重建
+     */
+    public CategoryIndex getIndex() {
+        return categoryCaches.get(KEY, key -> CategoryIndex.build(versions.incrementAndGet(), categoryClient.getAllOfOneLevel()));
+    }
+
+    public void invalidate() {
+        categoryCaches.invalidate(KEY);
+    }
+
     public Map<Long, CategoryBasicDTO> getCategoryMap() {
-        return categoryCaches.get("CATEGORY", key -> {
-            // 1.从CategoryClient查询
-            List<CategoryBasicDTO> list = categoryClient.getAllOfOneLevel();
-            if (list == null || list.isEmpty()) {
-                return CollUtils.emptyMap();
-            }
-            // 2.转换数据
-            return list.stream().collect(Collectors.toMap(CategoryBasicDTO::getId, Function.identity()));
-        });
+        return getIndex().asMap();
     }
 
     public String getCategoryNames(List<Long> ids) {
@@ -36,11 +43,11 @@ public class CategoryCache {
             return "";
         }
         // 1.读取分类缓存
-        Map<Long, CategoryBasicDTO> map = getCategoryMap();
+        CategoryIndex index = getIndex();
         // 2.根据id查询分类名称并组装
         StringBuilder sb = new StringBuilder();
         for (Long id : ids) {
-            sb.append(map.get(id).getName()).append("/");
+            sb.append(index.getName(id)).append("/");
         }
         // 3.返回结果
         return sb.deleteCharAt(sb.length() - 1).toString();
@@ -51,11 +58,11 @@ public class CategoryCache {
             return CollUtils.emptyList();
         }
         // 1.读取分类缓存
-        Map<Long, CategoryBasicDTO> map = getCategoryMap();
+        CategoryIndex index = getIndex();
         // 2.根据id查询分类名称并组装
         List<String> list = new ArrayList<>(ids.size());
         for (Long id : ids) {
-            list.add(map.get(id).getName());
+            list.add(index.getName(id));
         }
         // 3.返回结果
         return list;
@@ -65,29 +72,22 @@ public class CategoryCache {
         if (ids == null || ids.size() == 0) {
             return CollUtils.emptyList();
         }
-        Map<Long, CategoryBasicDTO> map = getCategoryMap();
+        CategoryIndex index = getIndex();
         return ids.stream()
-                .map(map::get)
+                .map(index::get)
                 .collect(Collectors.toList());
     }
 
     public List<String> getNameByLv3Ids(List<Long> lv3Ids) {
-        Map<Long, CategoryBasicDTO> map = getCategoryMap();
+        CategoryIndex index = getIndex();
         List<String> list = new ArrayList<>(lv3Ids.size());
         for (Long lv3Id : lv3Ids) {
-            CategoryBasicDTO lv3 = map.get(lv3Id);
-            CategoryBasicDTO lv2 = map.get(lv3.getParentId());
-            CategoryBasicDTO lv1 = map.get(lv2.getParentId());
-            list.add(lv1.getName() + "/" + lv2.getName() + "/" + lv3.getName());
+            list.add(index.getPathName(lv3Id));
         }
         return list;
     }
 
     public String getNameByLv3Id(Long lv3Id) {
-        Map<Long, CategoryBasicDTO> map = getCategoryMap();
-        CategoryBasicDTO lv3 = map.get(lv3Id);
-        CategoryBasicDTO lv2 = map.get(lv3.getParentId());
-        CategoryBasicDTO lv1 = map.get(lv2.getParentId());
-        return lv1.getName() + "/" + lv2.getName() + "/" + lv3.getName();
+        return getIndex().getPathName(lv3Id);
     }
 }
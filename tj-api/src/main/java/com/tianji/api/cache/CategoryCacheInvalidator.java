@@ -0,0 +1,29 @@
+package com.tianji.api.cache;
+
+import com.tianji.common.constants.MqConstants;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+
+/**
+ * 课程分类变更，清除本地分类索引；每个实例使用各自的匿名队列，保证都能收到
+ */
+@RequiredArgsConstructor
+public class CategoryCacheInvalidator {
+
+    private final CategoryCache categoryCache;
+
+    @RabbitListener(
+            bindings = @QueueBinding(
+                    value = @Queue,
+                    exchange = @Exchange(value = MqConstants.Exchange.COURSE_EXCHANGE, type = ExchangeTypes.TOPIC),
+                    key = MqConstants.Key.CATEGORY_CHANGED_KEY
+            )
+    )
+    public void listenCategoryChanged(Long categoryId) {
+        categoryCache.invalidate();
+    }
+}
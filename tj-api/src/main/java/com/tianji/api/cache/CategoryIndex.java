@@ -0,0 +1,159 @@
+package com.tianji.api.cache;
+
+import com.tianji.api.dto.course.CategoryBasicDTO;
+import com.tianji.common.utils.CollUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 不可变的课程分类索引，课程服务与CategoryCache共用
+ * <p>
+ * 分类按传入顺序存放在数组中，父子关系以下标表示，构建时预先拼好 一级/二级/三级 的完整名称；
+ * 数据变化时整体重建新的版本，读取方无需加锁
+ */
+public final class CategoryIndex {
+    public static final int NONE = -1;
+
+    private final long version;
+    private final Map<Long, Integer> slots;
+    private final CategoryBasicDTO[] categories;
+    private final int[] parents;
+    private final int[][] children;
+    private final int[] roots;
+    private final String[] pathNames;
+    private final Map<Long, CategoryBasicDTO> categoryMap;
+
+    private CategoryIndex(long version, List<CategoryBasicDTO> list) {
+        int size = list.size();
+        this.version = version;
+        this.categories = list.toArray(new CategoryBasicDTO[0]);
+        this.parents = new int[size];
+        this.pathNames = new String[size];
+        Map<Long, Integer> slots = new HashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            slots.put(categories[i].getId(), i);
+        }
+        this.slots = slots;
+        // * 1.父节点下标与子节点数量
+        int[] childCounts = new int[size];
+        int rootCount = 0;
+        for (int i = 0; i < size; i++) {
+            Integer parent = slots.get(categories[i].getParentId());
+            parents[i] = parent == null ? NONE : parent;
+            if (parent == null) {
+                rootCount++;
+            } else {
+                childCounts[parent]++;
+            }
+        }
+        // * 2.子节点按传入顺序排列
+        this.children = new int[size][];
+        for (int i = 0; i < size; i++) {
+            children[i] = new int[childCounts[i]];
+            childCounts[i] = 0;
+        }
+        this.roots = new int[rootCount];
+        rootCount = 0;
+        for (int i = 0; i < size; i++) {
+            int parent = parents[i];
+            if (parent == NONE) {
+                roots[rootCount++] = i;
+            } else {
+                children[parent][childCounts[parent]++] = i;
+            }
+        }
+        // * 3.完整名称，父节点在前的顺序不确定，递归计算并复用
+        for (int i = 0; i < size; i++) {
+            pathName(i);
+        }
+        Map<Long, CategoryBasicDTO> map = new HashMap<>(size * 4 / 3 + 1);
+        for (CategoryBasicDTO category : categories) {
+            map.put(category.getId(), category);
+        }
+        this.categoryMap = Collections.unmodifiableMap(map);
+    }
+
+    public static CategoryIndex build(long version, List<CategoryBasicDTO> list) {
+        return new CategoryIndex(version, CollUtils.isEmpty(list) ? CollUtils.emptyList() : list);
+    }
+
+    private String pathName(int slot) {
+        String name = pathNames[slot];
+        if (name != null) {
+            return name;
+        }
+        int parent = parents[slot];
+        name = parent == NONE ? categories[slot].getName() : pathName(parent) + "/" + categories[slot].getName();
+        pathNames[slot] = name;
+        return name;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return categories.length;
+    }
+
+    /**
+     * 分类在索引中的下标，不存在返回NONE
+     */
+    public int slotOf(Long id) {
+        Integer slot = slots.get(id);
+        return slot == null ? NONE : slot;
+    }
+
+    public CategoryBasicDTO categoryAt(int slot) {
+        return categories[slot];
+    }
+
+    public int parentOf(int slot) {
+        return parents[slot];
+    }
+
+    /**
+     * 子节点下标，不要修改返回的数组
+     */
+    public int[] childrenOf(int slot) {
+        return children[slot];
+    }
+
+    /**
+     * 顶层节点下标，不要修改返回的数组
+     */
+    public int[] roots() {
+        return roots;
+    }
+
+    public CategoryBasicDTO get(Long id) {
+        return categoryMap.get(id);
+    }
+
+    public String getName(Long id) {
+        CategoryBasicDTO category = categoryMap.get(id);
+        return category == null ? null : category.getName();
+    }
+
+    /**
+     * 分类的完整名称，如 一级/二级/三级
+     */
+    public String getPathName(Long id) {
+        Integer slot = slots.get(id);
+        return slot == null ? null : pathNames[slot];
+    }
+
+    public Map<Long, CategoryBasicDTO> asMap() {
+        return categoryMap;
+    }
+
+    public List<CategoryBasicDTO> list() {
+        List<CategoryBasicDTO> list = new ArrayList<>(categories.length);
+        Collections.addAll(list, categories);
+        return list;
+    }
+}
@@ -0,0 +1,29 @@
+package com.tianji.api.cache;
+
+import com.tianji.api.client.course.CourseClient;
+import com.tianji.api.dto.course.CourseSimpleInfoDTO;
+
+import java.util.List;
+
+/**
+ * 课程简单信息的合并加载
+ */
+public class CourseBatchLoader extends BatchLoader<CourseSimpleInfoDTO> {
+
+    private final CourseClient courseClient;
+
+    public CourseBatchLoader(CourseClient courseClient, long windowMillis, int maxBatchSize) {
+        super("course", windowMillis, maxBatchSize);
+        this.courseClient = courseClient;
+    }
+
+    @Override
+    protected List<CourseSimpleInfoDTO> queryByIds(List<Long> ids) {
+        return courseClient.getSimpleInfoList(ids);
+    }
+
+    @Override
+    protected Long idOf(CourseSimpleInfoDTO course) {
+        return course.getId();
+    }
+}
@@ -0,0 +1,149 @@
+package com.tianji.api.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.tianji.api.dto.course.CourseFullInfoDTO;
+import com.tianji.api.dto.course.CourseSimpleInfoDTO;
+import com.tianji.common.utils.CollUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 课程信息的本地缓存，用法同CourseClient的getSimpleInfoList与getCourseInfoById
+ * <p>
+ * 简单信息未命中时合并批量查询，详细信息按 课程id+查询选项 缓存；过期前异步刷新，
+ * 课程上架、下架、完结、删除时由MQ通知失效。统计命中率与失效延迟（课程变更到本地缓存清除的时间）
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class CourseCache {
+
+    private final AsyncLoadingCache<Long, CourseSimpleInfoDTO> simpleCaches;
+    private final LoadingCache<FullInfoKey, CourseFullInfoDTO> fullCaches;
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder staleMillis = new LongAdder();
+    private final AtomicLong maxStaleMillis = new AtomicLong();
+
+    public CourseSimpleInfoDTO getSimpleInfo(Long id) {
+        if (id == null) {
+            return null;
+        }
+        return join(simpleCaches.get(id));
+    }
+
+    /**
+     * 批量查询课程简单信息，查不到的课程不返回
+     */
+    public List<CourseSimpleInfoDTO> getSimpleInfoList(Collection<Long> ids) {
+        Map<Long, CourseSimpleInfoDTO> courses = getSimpleInfoMap(ids);
+        if (courses.isEmpty()) {
+            return CollUtils.emptyList();
+        }
+        List<CourseSimpleInfoDTO> list = new ArrayList<>(courses.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            CourseSimpleInfoDTO course = courses.get(id);
+            if (course != null) {
+                list.add(course);
+            }
+        }
+        return list;
+    }
+
+    public Map<Long, CourseSimpleInfoDTO> getSimpleInfoMap(Collection<Long> ids) {
+        if (CollUtils.isEmpty(ids)) {
+            return CollUtils.emptyMap();
+        }
+        Set<Long> keys = ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        return join(simpleCaches.getAll(keys));
+    }
+
+    /**
+     * 查询课程详细信息，课程不存在返回null
+     */
+    public CourseFullInfoDTO getCourseInfoById(Long id, boolean withCatalogue, boolean withTeachers) {
+        if (id == null) {
+            return null;
+        }
+        return fullCaches.get(new FullInfoKey(id, withCatalogue, withTeachers));
+    }
+
+    /**
+     * 课程变更，清除本地缓存
+     *
+     * @param id        课程id
+     * @param changedAt 变更消息的发送时间，毫秒值，未知时传null
+     */
+    public void invalidate(Long id, Long changedAt) {
+        simpleCaches.synchronous().invalidate(id);
+        fullCaches.invalidateAll(List.of(
+                new FullInfoKey(id, false, false),
+                new FullInfoKey(id, true, false),
+                new FullInfoKey(id, false, true),
+                new FullInfoKey(id, true, true)));
+        invalidations.increment();
+        if (changedAt != null) {
+            long stale = Math.max(System.currentTimeMillis() - changedAt, 0);
+            staleMillis.add(stale);
+            maxStaleMillis.accumulateAndGet(stale, Math::max);
+        }
+    }
+
+    public CacheStats simpleStats() {
+        return simpleCaches.synchronous().stats();
+    }
+
+    public CacheStats fullStats() {
+        return fullCaches.stats();
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void logStats() {
+        CacheStats simple = simpleStats();
+        CacheStats full = fullStats();
+        long count = invalidations.sum();
+        log.info("课程缓存统计，简单信息数量：{}，命中率：{}，详细信息数量：{}，命中率：{}，加载失败：{}，" +
+                        "失效次数：{}，平均失效延迟：{}ms，最大失效延迟：{}ms",
+                simpleCaches.synchronous().estimatedSize(), simple.hitRate(),
+                fullCaches.estimatedSize(), full.hitRate(), simple.loadFailureCount() + full.loadFailureCount(),
+                count, count == 0 ? 0 : staleMillis.sum() / count, maxStaleMillis.get());
+    }
+
+    /**
+     * 与直接调用CourseClient一致，查询失败时抛出原异常
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Value
+    public static class FullInfoKey {
+        Long id;
+        boolean withCatalogue;
+        boolean withTeachers;
+    }
+}
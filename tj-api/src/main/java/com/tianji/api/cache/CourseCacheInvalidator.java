@@ -0,0 +1,34 @@
+package com.tianji.api.cache;
+
+import com.tianji.common.constants.MqConstants;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+
+import java.util.Date;
+
+/**
+ * 课程上架、下架、完结、删除，清除本地课程缓存；每个实例使用各自的匿名队列，保证都能收到
+ */
+@RequiredArgsConstructor
+public class CourseCacheInvalidator {
+
+    private final CourseCache courseCache;
+
+    @RabbitListener(
+            bindings = @QueueBinding(
+                    value = @Queue,
+                    exchange = @Exchange(value = MqConstants.Exchange.COURSE_EXCHANGE, type = ExchangeTypes.TOPIC),
+                    key = {MqConstants.Key.COURSE_UP_KEY, MqConstants.Key.COURSE_DOWN_KEY,
+                            MqConstants.Key.COURSE_EXPIRE_KEY, MqConstants.Key.COURSE_DELETE_KEY}
+            )
+    )
+    public void listenCourseChanged(Long courseId, Message message) {
+        Date timestamp = message.getMessageProperties().getTimestamp();
+        courseCache.invalidate(courseId, timestamp == null ? null : timestamp.getTime());
+    }
+}
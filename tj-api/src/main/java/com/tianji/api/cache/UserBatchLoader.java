@@ -0,0 +1,29 @@
+package com.tianji.api.cache;
+
+import com.tianji.api.client.user.UserClient;
+import com.tianji.api.dto.user.UserDTO;
+
+import java.util.List;
+
+/**
+ * 用户信息的合并加载
+ */
+public class UserBatchLoader extends BatchLoader<UserDTO> {
+
+    private final UserClient userClient;
+
+    public UserBatchLoader(UserClient userClient, long windowMillis, int maxBatchSize) {
+        super("user", windowMillis, maxBatchSize);
+        this.userClient = userClient;
+    }
+
+    @Override
+    protected List<UserDTO> queryByIds(List<Long> ids) {
+        return userClient.queryUserByIds(ids);
+    }
+
+    @Override
+    protected Long idOf(UserDTO user) {
+        return user.getId();
+    }
+}
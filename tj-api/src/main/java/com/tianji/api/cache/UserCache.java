@@ -0,0 +1,76 @@
+package com.tianji.api.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.tianji.api.dto.user.UserDTO;
+import com.tianji.common.utils.CollUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * 用户信息的本地缓存，未命中的用户合并批量查询，过期前异步刷新，用户信息变更时由MQ通知失效
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class UserCache {
+
+    private final AsyncLoadingCache<Long, UserDTO> userCaches;
+
+    public UserDTO getUser(Long id) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            return userCaches.get(id).join();
+        } catch (CompletionException e) {
+            log.error("查询用户信息失败，id：{}", id, e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * 批量查询用户，用法同UserClient#queryUserByIds，查不到的用户不返回
+     */
+    public List<UserDTO> queryUserByIds(Collection<Long> ids) {
+        Map<Long, UserDTO> users = getUserMap(ids);
+        if (users.isEmpty()) {
+            return CollUtils.emptyList();
+        }
+        List<UserDTO> list = new ArrayList<>(users.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            UserDTO user = users.get(id);
+            if (user != null) {
+                list.add(user);
+            }
+        }
+        return list;
+    }
+
+    public Map<Long, UserDTO> getUserMap(Collection<Long> ids) {
+        if (CollUtils.isEmpty(ids)) {
+            return CollUtils.emptyMap();
+        }
+        Set<Long> keys = ids.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        try {
+            return userCaches.getAll(keys).join();
+        } catch (CompletionException e) {
+            log.error("批量查询用户信息失败，{}个用户", keys.size(), e.getCause());
+            return CollUtils.emptyMap();
+        }
+    }
+
+    public void invalidate(Long id) {
+        userCaches.synchronous().invalidate(id);
+    }
+}
@@ -0,0 +1,29 @@
+package com.tianji.api.cache;
+
+import com.tianji.common.constants.MqConstants;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+
+/**
+ * 用户信息变更，清除本地用户缓存；每个实例使用各自的匿名队列，保证都能收到
+ */
+@RequiredArgsConstructor
+public class UserCacheInvalidator {
+
+    private final UserCache userCache;
+
+    @RabbitListener(
+            bindings = @QueueBinding(
+                    value = @Queue,
+                    exchange = @Exchange(value = MqConstants.Exchange.USER_EXCHANGE, type = ExchangeTypes.TOPIC),
+                    key = MqConstants.Key.USER_UPDATED_KEY
+            )
+    )
+    public void listenUserUpdated(Long userId) {
+        userCache.invalidate(userId);
+    }
+}
@@ -3,19 +3,21 @@ package com.tianji.api.config;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.tianji.api.cache.CategoryCache;
+import com.tianji.api.cache.CategoryCacheInvalidator;
+import com.tianji.api.cache.CategoryIndex;
 import com.tianji.api.client.course.CategoryClient;
-import com.tianji.api.dto.course.CategoryBasicDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 
 import java.time.Duration;
-import java.util.Map;
 
 public class CategoryCacheConfig {
     /**
      * 课程分类的caffeine缓存
      */
     @Bean
-    public Cache<String, Map<Long, CategoryBasicDTO>> categoryCaches(){
+    public Cache<String, CategoryIndex> categoryCaches(){
         return Caffeine.newBuilder()
                 .initialCapacity(1) // 容量限制
                 .maximumSize(10_000) // 最大内存限制
@@ -27,7 +29,19 @@ public class CategoryCacheConfig {
      */
     @Bean
     public CategoryCache categoryCache(
-            Cache<String, Map<Long, CategoryBasicDTO>> categoryCaches, CategoryClient categoryClient){
+            Cache<String, CategoryIndex> categoryCaches, CategoryClient categoryClient){
         return new CategoryCache(categoryCaches, categoryClient);
     }
+
+    /**
+     * 使用方引入了MQ时，监听课程分类变更清除缓存
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.amqp.rabbit.annotation.RabbitListener")
+    public static class CategoryCacheInvalidationConfig {
+        @Bean
+        public CategoryCacheInvalidator categoryCacheInvalidator(CategoryCache categoryCache) {
+            return new CategoryCacheInvalidator(categoryCache);
+        }
+    }
 }
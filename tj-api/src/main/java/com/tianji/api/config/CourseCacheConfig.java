@@ -0,0 +1,81 @@
+package com.tianji.api.config;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.tianji.api.cache.CourseBatchLoader;
+import com.tianji.api.cache.CourseCache;
+import com.tianji.api.cache.CourseCacheInvalidator;
+import com.tianji.api.client.course.CourseClient;
+import com.tianji.api.dto.course.CourseFullInfoDTO;
+import com.tianji.api.dto.course.CourseSimpleInfoDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+public class CourseCacheConfig {
+    /**
+     * 合并查询的时间窗口与每批最多课程数
+     */
+    private static final long BATCH_WINDOW_MILLIS = 10;
+    private static final int MAX_BATCH_SIZE = 100;
+
+    /**
+     * 课程简单信息的合并加载器
+     */
+    @Bean
+    public CourseBatchLoader courseBatchLoader(CourseClient courseClient) {
+        return new CourseBatchLoader(courseClient, BATCH_WINDOW_MILLIS, MAX_BATCH_SIZE);
+    }
+
+    /**
+     * 课程简单信息的caffeine缓存，写入5分钟后访问时异步刷新，30分钟未刷新则过期
+     */
+    @Bean
+    public AsyncLoadingCache<Long, CourseSimpleInfoDTO> courseSimpleCaches(CourseBatchLoader courseBatchLoader) {
+        return Caffeine.newBuilder()
+                .initialCapacity(1)
+                .maximumSize(10_000)
+                .refreshAfterWrite(Duration.ofMinutes(5))
+                .expireAfterWrite(Duration.ofMinutes(30))
+                .recordStats()
+                .buildAsync(courseBatchLoader);
+    }
+
+    /**
+     * 课程详细信息的caffeine缓存，同一课程的并发查询只加载一次
+     */
+    @Bean
+    public LoadingCache<CourseCache.FullInfoKey, CourseFullInfoDTO> courseFullCaches(CourseClient courseClient) {
+        return Caffeine.newBuilder()
+                .initialCapacity(1)
+                .maximumSize(10_000)
+                .refreshAfterWrite(Duration.ofMinutes(5))
+                .expireAfterWrite(Duration.ofMinutes(30))
+                .recordStats()
+                .build(key -> courseClient.getCourseInfoById(key.getId(), key.isWithCatalogue(), key.isWithTeachers()));
+    }
+
+    /**
+     * 课程信息的缓存工具
+     */
+    @Bean
+    public CourseCache courseCache(AsyncLoadingCache<Long, CourseSimpleInfoDTO> courseSimpleCaches,
+                                   LoadingCache<CourseCache.FullInfoKey, CourseFullInfoDTO> courseFullCaches) {
+        return new CourseCache(courseSimpleCaches, courseFullCaches);
+    }
+
+    /**
+     * 使用方引入了MQ时，监听课程变更清除缓存
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.amqp.rabbit.annotation.RabbitListener")
+    public static class CourseCacheInvalidationConfig {
+        @Bean
+        public CourseCacheInvalidator courseCacheInvalidator(CourseCache courseCache) {
+            return new CourseCacheInvalidator(courseCache);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.tianji.api.config;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tianji.api.cache.UserBatchLoader;
+import com.tianji.api.cache.UserCache;
+import com.tianji.api.cache.UserCacheInvalidator;
+import com.tianji.api.client.user.UserClient;
+import com.tianji.api.dto.user.UserDTO;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+public class UserCacheConfig {
+    /**
+     * 合并查询的时间窗口与每批最多用户数
+     */
+    private static final long BATCH_WINDOW_MILLIS = 10;
+    private static final int MAX_BATCH_SIZE = 200;
+
+    /**
+     * 用户信息的合并加载器
+     */
+    @Bean
+    public UserBatchLoader userBatchLoader(UserClient userClient) {
+        return new UserBatchLoader(userClient, BATCH_WINDOW_MILLIS, MAX_BATCH_SIZE);
+    }
+
+    /**
+     * 用户信息的caffeine缓存，写入5分钟后访问时异步刷新，30分钟未刷新则过期
+     */
+    @Bean
+    public AsyncLoadingCache<Long, UserDTO> userCaches(UserBatchLoader userBatchLoader) {
+        return Caffeine.newBuilder()
+                .initialCapacity(1)
+                .maximumSize(100_000)
+                .refreshAfterWrite(Duration.ofMinutes(5))
+                .expireAfterWrite(Duration.ofMinutes(30))
+                .buildAsync(userBatchLoader);
+    }
+
+    /**
+     * 用户信息的缓存工具
+     */
+    @Bean
+    public UserCache userCache(AsyncLoadingCache<Long, UserDTO> userCaches) {
+        return new UserCache(userCaches);
+    }
+
+    /**
+     * 使用方引入了MQ时，监听用户信息变更清除缓存
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.amqp.rabbit.annotation.RabbitListener")
+    public static class UserCacheInvalidationConfig {
+        @Bean
+        public UserCacheInvalidator userCacheInvalidator(UserCache userCache) {
+            return new UserCacheInvalidator(userCache);
+        }
+    }
+}
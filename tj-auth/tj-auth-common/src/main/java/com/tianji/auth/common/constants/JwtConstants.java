@@ -25,6 +25,8 @@ public class JwtConstants {
     public static final String AUTH_PRIVILEGE_KEY = "auth:privileges";
     public static final String AUTH_PRIVILEGE_VERSION_KEY = "version";
     public static final String LOCK_AUTH_PRIVILEGE_KEY = "lock:auth:privileges";
+    // 权限变更通知的频道，消息内容为最新版本号
+    public static final String AUTH_PRIVILEGE_CHANNEL = "auth:privileges:changed";
     /* 权限缓存 KEY  end */
 
 }
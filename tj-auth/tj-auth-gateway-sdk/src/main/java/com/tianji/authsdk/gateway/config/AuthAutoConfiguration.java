@@ -1,24 +1,72 @@
 package com.tianji.authsdk.gateway.config;
 
+import com.tianji.authsdk.gateway.filter.AuthReadyWebFilter;
 import com.tianji.authsdk.gateway.util.AuthUtil;
 import com.tianji.authsdk.gateway.util.JwtSignerHolder;
+import com.tianji.authsdk.gateway.util.ReactiveAuthLoader;
+import com.tianji.authsdk.gateway.util.VerifiedTokenCache;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 
 @Configuration
 public class AuthAutoConfiguration {
 
+    private static final String REACTIVE_LOADING_PROPERTY = "tj.auth.reactive-loading";
+
     @Bean
     @ConditionalOnClass(DiscoveryClient.class)
+    @ConditionalOnProperty(name = REACTIVE_LOADING_PROPERTY, havingValue = "false", matchIfMissing = true)
     public JwtSignerHolder jwtSignerHolder(DiscoveryClient discoveryClient){
         return new JwtSignerHolder(discoveryClient);
     }
 
     @Bean
-    public AuthUtil authUtil(JwtSignerHolder jwtSignerHolder, StringRedisTemplate stringRedisTemplate){
-        return new AuthUtil(jwtSignerHolder, stringRedisTemplate);
+    public VerifiedTokenCache verifiedTokenCache(JwtSignerHolder jwtSignerHolder){
+        VerifiedTokenCache verifiedTokenCache = new VerifiedTokenCache(100_000);
+        // 秘钥变更后，之前验签的结果不再可信
+        jwtSignerHolder.addSignerChangedListener(verifiedTokenCache::invalidateAll);
+        return verifiedTokenCache;
+    }
+
+    @Bean
+    public AuthUtil authUtil(JwtSignerHolder jwtSignerHolder, StringRedisTemplate stringRedisTemplate,
+                             VerifiedTokenCache verifiedTokenCache){
+        return new AuthUtil(jwtSignerHolder, stringRedisTemplate, verifiedTokenCache);
+    }
+
+    /**
+     * 响应式加载模式，秘钥和权限均由{@link ReactiveAuthLoader}非阻塞加载
+     */
+    @Configuration
+    @ConditionalOnClass({WebClient.class, ReactiveStringRedisTemplate.class})
+    @ConditionalOnProperty(name = REACTIVE_LOADING_PROPERTY, havingValue = "true")
+    public static class ReactiveLoadingConfiguration {
+
+        @Bean
+        public JwtSignerHolder jwtSignerHolder(){
+            return new JwtSignerHolder();
+        }
+
+        @Bean
+        public ReactiveAuthLoader reactiveAuthLoader(
+                JwtSignerHolder jwtSignerHolder, AuthUtil authUtil, ReactiveStringRedisTemplate redisTemplate,
+                ReactiveDiscoveryClient discoveryClient, WebClient.Builder webClientBuilder,
+                ApplicationEventPublisher eventPublisher){
+            return new ReactiveAuthLoader(
+                    jwtSignerHolder, authUtil, redisTemplate, discoveryClient, webClientBuilder, eventPublisher);
+        }
+
+        @Bean
+        public AuthReadyWebFilter authReadyWebFilter(ReactiveAuthLoader reactiveAuthLoader){
+            return new AuthReadyWebFilter(reactiveAuthLoader);
+        }
     }
 }
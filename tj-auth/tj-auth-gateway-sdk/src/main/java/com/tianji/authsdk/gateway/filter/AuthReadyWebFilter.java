@@ -0,0 +1,54 @@
+package com.tianji.authsdk.gateway.filter;
+
+import com.tianji.authsdk.gateway.util.ReactiveAuthLoader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * 响应式加载模式下，jwk秘钥和权限加载完成前拦截请求，避免路由时无法校验登录和权限。
+ * <p>
+ * 未就绪的请求最多等待{@link #READY_TIMEOUT}，仍未就绪则返回503。健康检查等actuator请求不拦截
+ */
+@Slf4j
+public class AuthReadyWebFilter implements WebFilter, Ordered {
+
+    private static final Duration READY_TIMEOUT = Duration.ofSeconds(3);
+    private static final String ACTUATOR_PATH_PREFIX = "/actuator";
+
+    private final ReactiveAuthLoader reactiveAuthLoader;
+
+    public AuthReadyWebFilter(ReactiveAuthLoader reactiveAuthLoader) {
+        this.reactiveAuthLoader = reactiveAuthLoader;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // 1.已就绪，直接放行
+        if (reactiveAuthLoader.isReady()
+                || exchange.getRequest().getPath().value().startsWith(ACTUATOR_PATH_PREFIX)) {
+            return chain.filter(exchange);
+        }
+        // 2.未就绪，等待加载完成后再放行，超时则拒绝
+        return reactiveAuthLoader.ready()
+                .timeout(READY_TIMEOUT)
+                .onErrorResume(e -> {
+                    log.warn("jwk秘钥或权限尚未加载，拒绝请求：{}", exchange.getRequest().getPath());
+                    exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                    return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "服务启动中，请稍后重试"));
+                })
+                .then(Mono.defer(() -> chain.filter(exchange)));
+    }
+
+    @Override
+    public int getOrder() {
+        return HIGHEST_PRECEDENCE;
+    }
+}
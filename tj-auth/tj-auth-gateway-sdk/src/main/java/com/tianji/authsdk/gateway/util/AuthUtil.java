@@ -6,22 +6,23 @@ import cn.hutool.core.collection.CollectionUtil;
 import cn.hutool.core.exceptions.ValidateException;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONObject;
-import cn.hutool.json.JSONUtil;
 import cn.hutool.jwt.JWT;
+import cn.hutool.jwt.JWTPayload;
 import cn.hutool.jwt.JWTValidator;
 import com.tianji.auth.common.domain.PrivilegeRoleDTO;
 import com.tianji.common.domain.R;
 import com.tianji.common.domain.dto.LoginUserDTO;
 import com.tianji.common.exceptions.ForbiddenException;
 import com.tianji.common.exceptions.UnauthorizedException;
+import com.tianji.common.utils.JsonUtils;
 import com.tianji.common.utils.StringUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.BoundHashOperations;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.util.AntPathMatcher;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static com.tianji.auth.common.constants.AuthErrorInfo.Code.EXPIRED_TOKEN_CODE;
@@ -31,22 +32,22 @@ import static com.tianji.auth.common.constants.JwtConstants.*;
 
 @Slf4j
 public class AuthUtil {
-    // 缓存权限信息
-    private Map<String, PrivilegeRoleDTO> privileges = new HashMap<>();
-    // 要拦截的路径匹配符的集合
-    private Set<String> paths = new HashSet<>();
-    // 权限版本信息，减少不必要的缓存处理
-    private int privilegeVersion;
-
-    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    // 权限信息快照，包含权限、路径匹配索引和版本，版本变化时整体替换
+    private volatile PrivilegeSnapshot snapshot = PrivilegeSnapshot.EMPTY;
+    // 是否通过定时任务轮询权限版本
+    private volatile boolean pollingEnabled = true;
+
     private final JwtSignerHolder jwtSignerHolder;
     private final StringRedisTemplate stringRedisTemplate;
     private final BoundHashOperations<String, String, String> hashOps;
+    private final VerifiedTokenCache verifiedTokenCache;
 
-    public AuthUtil(JwtSignerHolder jwtSignerHolder, StringRedisTemplate stringRedisTemplate) {
+    public AuthUtil(JwtSignerHolder jwtSignerHolder, StringRedisTemplate stringRedisTemplate,
+                    VerifiedTokenCache verifiedTokenCache) {
         this.jwtSignerHolder = jwtSignerHolder;
         this.stringRedisTemplate = stringRedisTemplate;
         this.hashOps = stringRedisTemplate.boundHashOps(AUTH_PRIVILEGE_KEY);
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
     public R<LoginUserDTO> parseToken(String token) {
@@ -54,31 +55,38 @@ public class AuthUtil {
         if(StringUtils.isBlank(token)){
             return R.error(INVALID_TOKEN_CODE, INVALID_TOKEN);
         }
+        // 2.查询已验签的缓存，命中则无需再次验签
+        LoginUserDTO cached = verifiedTokenCache.get(token);
+        if (cached != null) {
+            return R.ok(cached);
+        }
+        // * 在获取秘钥之前读取缓存代数，秘钥在验签期间更换时不写入缓存
+        long generation = verifiedTokenCache.generation();
         JWT jwt = null;
         try {
             jwt = JWT.of(token).setSigner(jwtSignerHolder.getJwtSigner());
         } catch (Exception e) {
             return R.error(INVALID_TOKEN_CODE, INVALID_TOKEN);
         }
-        // 2.校验jwt是否有效
+        // 3.校验jwt是否有效
         if (!jwt.verify()) {
             // 验证失败，返回空
             return R.error(INVALID_TOKEN_CODE, INVALID_TOKEN);
         }
-        // 3.校验是否过期
+        // 4.校验是否过期
         try {
             JWTValidator.of(jwt).validateDate();
         } catch (ValidateException e) {
             return R.error(EXPIRED_TOKEN_CODE, EXPIRED_TOKEN);
         }
-        // 4.数据格式校验
+        // 5.数据格式校验
         Object userPayload = jwt.getPayload(PAYLOAD_USER_KEY);
         if (userPayload == null) {
             // 数据为空
             return R.error(INVALID_TOKEN_CODE, INVALID_TOKEN_PAYLOAD);
         }
 
-        // 5.数据解析
+        // 6.数据解析
         LoginUserDTO userDTO;
         try {
             userDTO = ((JSONObject)userPayload).toBean(LoginUserDTO.class);
@@ -87,7 +95,14 @@ public class AuthUtil {
             return R.error(INVALID_TOKEN_CODE, INVALID_TOKEN_PAYLOAD);
         }
 
-        // 6.返回
+        // 7.写入缓存，有效期不超过token的过期时间
+        Long exp = jwt.getPayloads().getLong(JWTPayload.EXPIRES_AT);
+        long expireAt = exp == null
+                ? System.currentTimeMillis() + JWT_TOKEN_TTL.toMillis()
+                : TimeUnit.SECONDS.toMillis(exp);
+        verifiedTokenCache.put(token, userDTO, expireAt, generation);
+
+        // 8.返回
         return R.ok(userDTO);
     }
 
@@ -104,7 +119,7 @@ public class AuthUtil {
             throw new UnauthorizedException(r.getCode(), r.getMsg());
         }
         // 3.获取当前路径所需权限
-        PrivilegeRoleDTO pathPrivilege = findPathPrivilege(matchPath);
+        PrivilegeRoleDTO pathPrivilege = snapshot.privileges.get(matchPath);
 
         // 4.权限判断
         Set<Long> requiredRoles = pathPrivilege.getRoles();
@@ -115,18 +130,7 @@ public class AuthUtil {
     }
 
     private String findMatchPath(String antPath){
-        String matchPath = null;
-        for (String pathPattern : paths) {
-            if(antPathMatcher.match(pathPattern, antPath)){
-                matchPath = pathPattern;
-                break;
-            }
-        }
-        return matchPath;
-    }
-
-    private PrivilegeRoleDTO findPathPrivilege(String path){
-        return privileges.get(path);
+        return snapshot.pathIndex.findMatch(antPath);
     }
 
     private List<PrivilegeRoleDTO> loadPrivileges(){
@@ -135,10 +139,14 @@ public class AuthUtil {
             return Collections.emptyList();
         }
         return values.stream()
-                .map(json -> JSONUtil.toBean(json, PrivilegeRoleDTO.class))
+                .map(AuthUtil::parsePrivilege)
                 .collect(Collectors.toList());
     }
 
+    public static PrivilegeRoleDTO parsePrivilege(String json) {
+        return JsonUtils.fromJson(json, PrivilegeRoleDTO.class);
+    }
+
     private int currentVersion() {
         String version = stringRedisTemplate.opsForValue().get(AUTH_PRIVILEGE_VERSION_KEY);
         if(StrUtil.isEmpty(version)){
@@ -147,30 +155,55 @@ public class AuthUtil {
         return Integer.parseInt(version);
     }
 
+    /**
+     * 关闭定时轮询，由外部（例如响应式加载器）负责刷新权限信息
+     */
+    public void disablePolling() {
+        this.pollingEnabled = false;
+    }
+
+    public int getPrivilegeVersion() {
+        return snapshot.version;
+    }
 
     @Scheduled(fixedDelay = 20000)
     public void refreshTask(){
+        if (!pollingEnabled) {
+            return;
+        }
         // 1.获取版本号
         int currentVersion = currentVersion();
-        if (currentVersion == this.privilegeVersion) {
+        if (currentVersion == snapshot.version) {
             // 版本一致，说明数据没有更新，直接结束任务
             return;
         }
-        // 2.获取最新权限信息
-        List<PrivilegeRoleDTO> privilegeRoleDTOS = loadPrivileges();
-        if(CollUtil.isEmpty(privilegeRoleDTOS)){
-            // 更新版本
-            this.privilegeVersion = currentVersion;
-            return;
-        }
-        // 3.数据处理
-        Map<String, PrivilegeRoleDTO> map = new HashMap<>();
+        // 2.获取最新权限信息并更新
+        refreshPrivileges(currentVersion, loadPrivileges());
+    }
+
+    public void refreshPrivileges(int version, List<PrivilegeRoleDTO> privilegeRoleDTOS) {
+        // 1.数据处理，重新构建路径匹配索引
+        Map<String, PrivilegeRoleDTO> map = new HashMap<>(privilegeRoleDTOS.size());
         for (PrivilegeRoleDTO p : privilegeRoleDTOS) {
             map.put(p.getAntPath(), p);
-            this.privileges = map;
         }
-        this.paths = map.keySet();
-        // 4.更新版本
-        this.privilegeVersion = currentVersion;
+        // 2.整体替换快照，保证权限、索引、版本的一致性
+        this.snapshot = new PrivilegeSnapshot(version, map, PathPatternIndex.of(map.keySet()));
+        log.debug("权限信息已更新，版本：{}，路径数量：{}", version, map.size());
+    }
+
+    private static class PrivilegeSnapshot {
+        private static final PrivilegeSnapshot EMPTY =
+                new PrivilegeSnapshot(0, Collections.emptyMap(), PathPatternIndex.empty());
+
+        private final int version;
+        private final Map<String, PrivilegeRoleDTO> privileges;
+        private final PathPatternIndex pathIndex;
+
+        private PrivilegeSnapshot(int version, Map<String, PrivilegeRoleDTO> privileges, PathPatternIndex pathIndex) {
+            this.version = version;
+            this.privileges = privileges;
+            this.pathIndex = pathIndex;
+        }
     }
 }
@@ -19,6 +19,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.PublicKey;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -31,10 +32,19 @@ public class JwtSignerHolder {
 
     private DiscoveryClient discoveryClient;
 
+    // 秘钥变更监听器，例如清空已验签的token缓存
+    private final List<Runnable> signerChangedListeners = new CopyOnWriteArrayList<>();
+
     public JwtSignerHolder(DiscoveryClient discoveryClient) {
         this.discoveryClient = discoveryClient;
     }
 
+    /**
+     * 不主动加载秘钥，由外部加载后通过{@link #setJwtSigner(JWTSigner)}设置
+     */
+    public JwtSignerHolder() {
+    }
+
     private final ExecutorService ses = new ThreadPoolExecutor(
             1,
             1,
@@ -46,10 +56,39 @@ public class JwtSignerHolder {
 
     @PostConstruct
     public void init(){
+        if (discoveryClient == null) {
+            // 由外部加载秘钥
+            ses.shutdown();
+            return;
+        }
         // 尝试获取jwk秘钥
         ses.submit(new MarkedRunnable(new JwkTask(discoveryClient)));
     }
 
+    public void setJwtSigner(JWTSigner jwtSigner) {
+        this.jwtSigner = jwtSigner;
+        // 通知秘钥已变更
+        for (Runnable listener : signerChangedListeners) {
+            listener.run();
+        }
+    }
+
+    public boolean isLoaded() {
+        return jwtSigner != null;
+    }
+
+    public static JWTSigner createSigner(String jwk) {
+        PublicKey publicKey = KeyUtil.generatePublicKey(
+                AsymmetricAlgorithm.RSA_ECB_PKCS1.getValue(),
+                SecureUtil.decode(jwk)
+        );
+        return JWTSignerUtil.createSigner(JwtConstants.JWT_ALGORITHM, publicKey);
+    }
+
+    public void addSignerChangedListener(Runnable listener) {
+        signerChangedListeners.add(listener);
+    }
+
     public void shutdown(){
         ses.shutdown();
         log.debug("销毁加载秘钥线程 AuthFetchJwkThread");
@@ -92,11 +131,7 @@ public class JwtSignerHolder {
                         continue;
                     }
                     // 解析
-                    PublicKey publicKey = KeyUtil.generatePublicKey(
-                            AsymmetricAlgorithm.RSA_ECB_PKCS1.getValue(),
-                            SecureUtil.decode(result)
-                    );
-                    jwtSigner = JWTSignerUtil.createSigner(JwtConstants.JWT_ALGORITHM, publicKey);
+                    setJwtSigner(createSigner(result));
                     log.info("加载jwk秘钥成功！");
                 } catch (Exception e) {
                     log.error("加载jwk秘钥失败，原因：{}", e.getMessage());
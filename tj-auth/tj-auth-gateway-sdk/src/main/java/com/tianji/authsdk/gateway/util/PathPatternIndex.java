@@ -0,0 +1,128 @@
+package com.tianji.authsdk.gateway.util;
+
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+
+/**
+ * 预编译的ant路径匹配索引，按路径前缀的字面量片段构建前缀树。
+ * <p>
+ * 每个匹配符挂在其最长字面量前缀（首个通配片段之前）对应的节点上，查找时沿请求路径逐段下探，
+ * 只对沿途节点上的候选匹配符调用 {@link AntPathMatcher#match}，而不是扫描全部匹配符。
+ * 多个匹配符同时命中时，按 {@link AntPathMatcher#getPatternComparator} 的规则返回最具体的一个，
+ * 具体程度相同则按字典序，保证结果确定。
+ * <p>
+ * 实例不可变，更新时重新构建新实例并整体替换引用即可。
+ */
+public final class PathPatternIndex {
+
+    private static final String SEPARATOR = AntPathMatcher.DEFAULT_PATH_SEPARATOR;
+    private static final PathPatternIndex EMPTY = new PathPatternIndex(Collections.emptyList());
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    // 按具体程度排好序的匹配符，下标即优先级，越小越具体
+    private final String[] ranked;
+    private final Node root = new Node();
+
+    private PathPatternIndex(Collection<String> source) {
+        // 1.去重并按具体程度排序，具体程度相同的按字典序
+        List<String> sorted = new ArrayList<>(new HashSet<>(source));
+        sorted.sort(antPathMatcher.getPatternComparator("").thenComparing(Comparator.naturalOrder()));
+        this.ranked = sorted.toArray(new String[0]);
+        // 2.按字面量前缀挂到前缀树
+        for (int rank = 0; rank < ranked.length; rank++) {
+            Node node = root;
+            for (String token : StringUtils.tokenizeToStringArray(ranked[rank], SEPARATOR, false, true)) {
+                if (isWildcard(token)) {
+                    break;
+                }
+                node = node.children.computeIfAbsent(token, k -> new Node());
+            }
+            node.add(rank);
+        }
+    }
+
+    public static PathPatternIndex of(Collection<String> patterns) {
+        if (patterns == null || patterns.isEmpty()) {
+            return EMPTY;
+        }
+        return new PathPatternIndex(patterns);
+    }
+
+    public static PathPatternIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 查找与路径匹配的最具体的匹配符
+     *
+     * @param path 请求路径，例如 GET:/users/1
+     * @return 匹配符，没有匹配时返回null
+     */
+    public String findMatch(String path) {
+        if (ranked.length == 0 || path == null) {
+            return null;
+        }
+        int best = Integer.MAX_VALUE;
+        Node node = root;
+        int start = 0, len = path.length();
+        while (node != null) {
+            // 1.检查当前节点上的候选匹配符，只需找到比已有结果更具体的
+            best = node.firstMatch(path, best);
+            // 2.截取下一个路径片段，忽略空片段
+            while (start < len && path.startsWith(SEPARATOR, start)) {
+                start++;
+            }
+            if (start >= len) {
+                break;
+            }
+            int end = path.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                end = len;
+            }
+            node = node.children.get(path.substring(start, end));
+            start = end;
+        }
+        return best == Integer.MAX_VALUE ? null : ranked[best];
+    }
+
+    public boolean matches(String path) {
+        return findMatch(path) != null;
+    }
+
+    public int size() {
+        return ranked.length;
+    }
+
+    private static boolean isWildcard(String token) {
+        return token.indexOf('*') >= 0 || token.indexOf('?') >= 0 || token.indexOf('{') >= 0;
+    }
+
+    private final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private int[] ranks = new int[1];
+        private int size;
+
+        private void add(int rank) {
+            // 构建时按rank递增插入，数组天然有序
+            if (size == ranks.length) {
+                ranks = Arrays.copyOf(ranks, size << 1);
+            }
+            ranks[size++] = rank;
+        }
+
+        private int firstMatch(String path, int best) {
+            for (int i = 0; i < size; i++) {
+                int rank = ranks[i];
+                if (rank >= best) {
+                    break;
+                }
+                if (antPathMatcher.match(ranked[rank], path)) {
+                    return rank;
+                }
+            }
+            return best;
+        }
+    }
+}
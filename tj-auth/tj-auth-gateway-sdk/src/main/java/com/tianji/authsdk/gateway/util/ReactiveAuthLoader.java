@@ -0,0 +1,197 @@
+package com.tianji.authsdk.gateway.util;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.jwt.signers.JWTSigner;
+import com.tianji.auth.common.domain.PrivilegeRoleDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static com.tianji.auth.common.constants.JwtConstants.*;
+
+/**
+ * 响应式的权限及jwk秘钥加载器，替代{@link AuthUtil#refreshTask()}的定时轮询和{@link JwtSignerHolder}的阻塞加载。
+ * <p>
+ * 1.通过ReactiveDiscoveryClient和WebClient非阻塞地获取jwk秘钥，失败时指数退避重试<br>
+ * 2.通过Redis的pub/sub接收权限变更通知，并保留低频的兜底轮询，防止通知丢失<br>
+ * 3.秘钥和首次权限都加载完成前，应用的就绪状态保持为REFUSING_TRAFFIC，
+ * 请求由{@link com.tianji.authsdk.gateway.filter.AuthReadyWebFilter}通过{@link #ready()}等待就绪或拒绝
+ */
+@Slf4j
+public class ReactiveAuthLoader implements ApplicationListener<AvailabilityChangeEvent<ReadinessState>> {
+
+    private static final String AUTH_SERVICE_ID = "auth-service";
+    private static final Duration MIN_BACKOFF = Duration.ofMillis(500);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+    // 兜底轮询间隔，正常情况下依赖pub/sub通知
+    private static final Duration FALLBACK_POLL_INTERVAL = Duration.ofMinutes(5);
+
+    private final JwtSignerHolder jwtSignerHolder;
+    private final AuthUtil authUtil;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ReactiveDiscoveryClient discoveryClient;
+    private final WebClient webClient;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Sinks.Empty<Void> readySink = Sinks.empty();
+    // 首次权限是否已加载
+    private volatile boolean privilegesLoaded;
+    private final AtomicBoolean readyPublished = new AtomicBoolean();
+    private final Disposable.Composite disposables = Disposables.composite();
+
+    public ReactiveAuthLoader(JwtSignerHolder jwtSignerHolder, AuthUtil authUtil,
+                              ReactiveStringRedisTemplate redisTemplate, ReactiveDiscoveryClient discoveryClient,
+                              WebClient.Builder webClientBuilder, ApplicationEventPublisher eventPublisher) {
+        this.jwtSignerHolder = jwtSignerHolder;
+        this.authUtil = authUtil;
+        this.redisTemplate = redisTemplate;
+        this.discoveryClient = discoveryClient;
+        this.webClient = webClientBuilder.build();
+        this.eventPublisher = eventPublisher;
+        // 权限由本加载器刷新，关闭阻塞的定时轮询
+        authUtil.disablePolling();
+    }
+
+    @PostConstruct
+    public void start() {
+        // 1.加载jwk秘钥
+        disposables.add(loadSigner().subscribe(this::onSignerLoaded));
+        // 2.订阅权限变更通知，并在订阅成功后加载一次全量权限
+        Flux<Integer> notified = redisTemplate.listenToChannel(AUTH_PRIVILEGE_CHANNEL)
+                .map(message -> parseVersion(message.getMessage()));
+        Flux<Integer> polled = Flux.interval(Duration.ZERO, FALLBACK_POLL_INTERVAL)
+                .flatMap(i -> currentVersion());
+        disposables.add(Flux.merge(notified, polled)
+                // 首次加载不论版本，权限为空时版本号也为0
+                .filter(version -> !privilegesLoaded || version != authUtil.getPrivilegeVersion())
+                // 通知密集时只处理最新的一次
+                .onBackpressureLatest()
+                .concatMap(version -> refreshPrivileges(), 1)
+                .retryWhen(backoff("订阅权限变更"))
+                .subscribe());
+    }
+
+    @PreDestroy
+    public void stop() {
+        disposables.dispose();
+    }
+
+    /**
+     * 秘钥和首次权限加载完成的信号
+     */
+    public Mono<Void> ready() {
+        return readySink.asMono();
+    }
+
+    public boolean isReady() {
+        return jwtSignerHolder.isLoaded() && privilegesLoaded;
+    }
+
+    @Override
+    public void onApplicationEvent(AvailabilityChangeEvent<ReadinessState> event) {
+        // 应用启动完成会发布ACCEPTING_TRAFFIC，秘钥或权限未加载时撤回就绪状态
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && !isReady()) {
+            log.warn("jwk秘钥或权限尚未加载，暂不接收流量");
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        }
+    }
+
+    private Mono<JWTSigner> loadSigner() {
+        return discoveryClient.getInstances(AUTH_SERVICE_ID)
+                .next()
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("加载auth服务地址失败，原因：数据为空")))
+                .flatMap(this::fetchJwk)
+                // 秘钥解析不占用事件循环线程
+                .publishOn(Schedulers.boundedElastic())
+                .map(JwtSignerHolder::createSigner)
+                .retryWhen(backoff("加载jwk秘钥"));
+    }
+
+    private Mono<String> fetchJwk(ServiceInstance instance) {
+        String jwkUri = String.format("http://%s:%d/jwks", instance.getHost(), instance.getPort());
+        log.info("尝试加载jwk秘钥，{}", jwkUri);
+        return webClient.get()
+                .uri(jwkUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("加载jwk秘钥失败，原因：数据为空")));
+    }
+
+    private void onSignerLoaded(JWTSigner signer) {
+        jwtSignerHolder.setJwtSigner(signer);
+        log.info("加载jwk秘钥成功！");
+        publishReadyIfLoaded();
+    }
+
+    private void onPrivilegesLoaded() {
+        if (!privilegesLoaded) {
+            privilegesLoaded = true;
+            log.info("加载权限信息成功！");
+            publishReadyIfLoaded();
+        }
+    }
+
+    private void publishReadyIfLoaded() {
+        // 秘钥和权限都加载后只发布一次
+        if (isReady() && readyPublished.compareAndSet(false, true)) {
+            readySink.tryEmitEmpty();
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+
+    private Mono<Integer> currentVersion() {
+        return redisTemplate.opsForValue()
+                .get(AUTH_PRIVILEGE_VERSION_KEY)
+                .map(ReactiveAuthLoader::parseVersion)
+                .defaultIfEmpty(0);
+    }
+
+    private Mono<Void> refreshPrivileges() {
+        // 先读版本再读数据，数据可能比版本新，下次通知时会再次刷新
+        return currentVersion()
+                .zipWith(redisTemplate.<String, String>opsForHash()
+                        .values(AUTH_PRIVILEGE_KEY)
+                        .collectList())
+                // JSON解析和索引构建不占用事件循环线程
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(t -> {
+                    List<PrivilegeRoleDTO> privileges = t.getT2().stream()
+                            .map(AuthUtil::parsePrivilege)
+                            .collect(Collectors.toList());
+                    authUtil.refreshPrivileges(t.getT1(), privileges);
+                    onPrivilegesLoaded();
+                })
+                .then();
+    }
+
+    private static Retry backoff(String action) {
+        return Retry.backoff(Long.MAX_VALUE, MIN_BACKOFF)
+                .maxBackoff(MAX_BACKOFF)
+                .doBeforeRetry(signal -> log.error("{}失败，第{}次重试，原因：{}",
+                        action, signal.totalRetries() + 1, signal.failure().getMessage()));
+    }
+
+    private static int parseVersion(String version) {
+        return StrUtil.isEmpty(version) ? 0 : Integer.parseInt(version);
+    }
+}
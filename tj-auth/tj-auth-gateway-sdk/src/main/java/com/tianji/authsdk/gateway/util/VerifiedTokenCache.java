@@ -0,0 +1,135 @@
+package com.tianji.authsdk.gateway.util;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.tianji.common.domain.dto.LoginUserDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已验签token的缓存，key为token的摘要，value为解析后的用户信息。
+ * <p>
+ * 每条缓存的存活时间不超过token自身的exp，签名秘钥更换时需要清空缓存。
+ * 清空时递增代数，验签前读取代数、写入时代数已变化的结果直接丢弃，避免用旧秘钥验签的结果在清空后又被写入。
+ */
+@Slf4j
+public class VerifiedTokenCache {
+
+    private final Cache<String, VerifiedToken> cache;
+    // 缓存代数，每次清空时递增
+    private final AtomicLong generation = new AtomicLong();
+    // 上次输出统计时的累计值，用于计算区间内的命中与未命中
+    private CacheStats lastStats = CacheStats.empty();
+
+    public VerifiedTokenCache(long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .initialCapacity(1024)
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 查询已验签的用户信息
+     *
+     * @param token 原始token
+     * @return 用户信息，未命中或已过期返回null
+     */
+    public LoginUserDTO get(String token) {
+        VerifiedToken verified = cache.getIfPresent(digest(token));
+        if (verified == null || verified.expireAt <= System.currentTimeMillis()) {
+            return null;
+        }
+        return verified.user;
+    }
+
+    /**
+     * 当前缓存代数，需在获取验签秘钥之前读取
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * 缓存验签通过的用户信息
+     *
+     * @param token      原始token
+     * @param user       解析后的用户信息
+     * @param expireAt   token过期时间，毫秒值
+     * @param generation 验签前读取的缓存代数
+     */
+    public void put(String token, LoginUserDTO user, long expireAt, long generation) {
+        if (expireAt <= System.currentTimeMillis() || generation != this.generation.get()) {
+            return;
+        }
+        String key = digest(token);
+        cache.put(key, new VerifiedToken(user, expireAt));
+        // * 写入期间发生了清空，已写入的结果可能来自旧秘钥，移除
+        if (generation != this.generation.get()) {
+            cache.invalidate(key);
+        }
+    }
+
+    public void invalidateAll() {
+        // * 先递增代数，之后开始的写入都会被丢弃
+        generation.incrementAndGet();
+        cache.invalidateAll();
+        log.info("签名秘钥已变更，清空已验签token缓存");
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void logStats() {
+        CacheStats current = cache.stats();
+        CacheStats stats = current.minus(lastStats);
+        lastStats = current;
+        log.info("token缓存统计，数量：{}，命中：{}，未命中：{}，命中率：{}，淘汰：{}，代数：{}",
+                cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount(), generation.get());
+    }
+
+    private static String digest(String token) {
+        return DigestUtil.sha256Hex(token);
+    }
+
+    private static class VerifiedToken {
+        private final LoginUserDTO user;
+        private final long expireAt;
+
+        private VerifiedToken(LoginUserDTO user, long expireAt) {
+            this.user = user;
+            this.expireAt = expireAt;
+        }
+    }
+
+    private static class TokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(value.expireAt - System.currentTimeMillis(), 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
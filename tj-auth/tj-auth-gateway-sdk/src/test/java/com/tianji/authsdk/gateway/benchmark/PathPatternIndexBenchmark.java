@@ -0,0 +1,85 @@
+package com.tianji.authsdk.gateway.benchmark;
+
+import com.tianji.authsdk.gateway.util.PathPatternIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限路径匹配基准测试：线性扫描AntPathMatcher vs 预编译的PathPatternIndex
+ * <p>
+ * 采用SampleTime模式，结果中可以直接看到p99耗时
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathPatternIndexBenchmark {
+
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE"};
+    private static final String[] SERVICES = {"us", "cs", "ls", "ts", "os", "prs", "rs", "es", "ds", "ms", "sms", "as"};
+    private static final String[] SUFFIXES = {"", "/{id}", "/{id}/status", "/page", "/list", "/{id}/**"};
+
+    @Param({"500", "2000", "5000"})
+    public int patternCount;
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    private Set<String> paths;
+    private PathPatternIndex index;
+    private String[] requests;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        paths = new HashSet<>(patternCount);
+        while (paths.size() < patternCount) {
+            paths.add(METHODS[random.nextInt(METHODS.length)] + ":/"
+                    + SERVICES[random.nextInt(SERVICES.length)] + "/resource" + random.nextInt(patternCount / 6 + 1)
+                    + SUFFIXES[random.nextInt(SUFFIXES.length)]);
+        }
+        index = PathPatternIndex.of(paths);
+        // 请求路径中一半能命中权限，一半不需要权限
+        requests = new String[1024];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = METHODS[random.nextInt(METHODS.length)] + ":/"
+                    + SERVICES[random.nextInt(SERVICES.length)] + "/resource" + random.nextInt(patternCount / 3 + 1)
+                    + (random.nextBoolean() ? "/" + random.nextInt(100_000) : "/page");
+        }
+    }
+
+    @Benchmark
+    public String linearScan() {
+        String antPath = nextRequest();
+        for (String pathPattern : paths) {
+            if (antPathMatcher.match(pathPattern, antPath)) {
+                return pathPattern;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String compiledIndex() {
+        return index.findMatch(nextRequest());
+    }
+
+    private String nextRequest() {
+        return requests[ThreadLocalRandom.current().nextInt(requests.length)];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PathPatternIndexBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
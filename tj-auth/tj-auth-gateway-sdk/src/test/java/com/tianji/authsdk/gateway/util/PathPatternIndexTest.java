@@ -0,0 +1,185 @@
+package com.tianji.authsdk.gateway.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PathPatternIndex与逐个AntPathMatcher匹配的结果对比
+ * <p>
+ * 匹配符取自网关的默认放行路径、各服务的excludeLoginPaths以及权限表中 METHOD:/uri 形式的路径
+ */
+class PathPatternIndexTest {
+
+    private static final AntPathMatcher MATCHER = new AntPathMatcher();
+
+    // AuthProperties中的默认放行路径
+    private static final List<String> GATEWAY_EXCLUDE_PATHS = List.of(
+            "/error/**",
+            "/jwks",
+            "/accounts/login",
+            "/accounts/admin/login",
+            "/accounts/refresh"
+    );
+
+    // 各服务bootstrap.yml中的excludeLoginPaths
+    private static final List<String> SERVICE_EXCLUDE_PATHS = List.of(
+            "/students/register",
+            "/users/detail/{isStaff}",
+            "/users/list",
+            "GET:/users/{id}",
+            "/users/{id}/type",
+            "/users/ids",
+            "/users/me",
+            "/medias/signature/play",
+            "/order-details/enrollNum"
+    );
+
+    // 权限表中的路径，格式与PrivilegeCache拼接的一致
+    private static final List<String> PRIVILEGE_PATHS = List.of(
+            "GET:/us/users/page",
+            "GET:/us/users/{id}",
+            "PUT:/us/users/{id}",
+            "POST:/us/users",
+            "DELETE:/us/users/{id}",
+            "GET:/us/users/**",
+            "GET:/cs/courses/**",
+            "GET:/cs/courses/{id}",
+            "GET:/cs/courses/baseInfo/{id}",
+            "POST:/cs/courses/baseInfo/save",
+            "PUT:/cs/courses/{id}/status",
+            "GET:/ls/lessons/page",
+            "GET:/ls/lessons/{courseId}",
+            "GET:/ls/**",
+            "POST:/ps/coupons",
+            "PUT:/ps/coupons/{id}/issue",
+            "GET:/ps/coupons/*/codes",
+            "GET:/ps/coupons/page",
+            "GET:/ts/orders/*",
+            "GET:/ts/orders/page",
+            "POST:/ts/orders/{id}/refund",
+            "GET:/ms/messages/**/read",
+            "GET:/as/accounts/?ist",
+            "GET:/data/board/{type}.json",
+            "POST:/data/**"
+    );
+
+    private static final List<String> REQUEST_PATHS = List.of(
+            "/error", "/error/", "/error/404", "/error/a/b/c",
+            "/jwks", "/jwks/", "/jwks/1",
+            "/accounts/login", "/accounts/admin/login", "/accounts/refresh", "/accounts/logout",
+            "/students/register", "/users/detail/true", "/users/detail", "/users/list", "/users/ids",
+            "/users/me", "/users/1", "/users/1/type", "/users/1/type/2",
+            "/medias/signature/play", "/medias/signature/upload", "/order-details/enrollNum",
+            "/us/users/page", "/us/users/1", "/us/users", "/us/users/1/roles", "/us/users/",
+            "/cs/courses/1", "/cs/courses/baseInfo/1", "/cs/courses/baseInfo/save",
+            "/cs/courses/1/status", "/cs/courses", "/cs/courses/1/catas/2",
+            "/ls/lessons/page", "/ls/lessons/1", "/ls/lessons/1/plans", "/ls", "/ls/",
+            "/ps/coupons", "/ps/coupons/1/issue", "/ps/coupons/1/codes", "/ps/coupons/page",
+            "/ts/orders/1", "/ts/orders/page", "/ts/orders/1/refund", "/ts/orders",
+            "/ms/messages/read", "/ms/messages/1/read", "/ms/messages/1/2/read", "/ms/messages/1/unread",
+            "/as/accounts/list", "/as/accounts/lists", "/as/accounts/xist",
+            "/data/board/points.json", "/data/board/points", "/data/board", "/data",
+            "", "/", "//us//users//1", "/unknown/path"
+    );
+
+    private static final List<String> METHODS = List.of("GET", "POST", "PUT", "DELETE");
+
+    @Test
+    void testExcludePaths() {
+        List<String> patterns = new ArrayList<>(GATEWAY_EXCLUDE_PATHS);
+        patterns.addAll(SERVICE_EXCLUDE_PATHS);
+        PathPatternIndex index = PathPatternIndex.of(patterns);
+        for (String path : REQUEST_PATHS) {
+            // 网关放行判断的路径为 METHOD:/uri，服务内部的放行判断为 /uri，两种都要一致
+            assertEquals(anyMatch(patterns, path), index.matches(path), path);
+            for (String method : METHODS) {
+                String antPath = method + ":" + path;
+                assertEquals(anyMatch(patterns, antPath), index.matches(antPath), antPath);
+            }
+        }
+    }
+
+    @Test
+    void testPrivilegePaths() {
+        PathPatternIndex index = PathPatternIndex.of(PRIVILEGE_PATHS);
+        for (String path : REQUEST_PATHS) {
+            for (String method : METHODS) {
+                String antPath = method + ":" + path;
+                assertEquals(mostSpecificMatch(PRIVILEGE_PATHS, antPath), index.findMatch(antPath), antPath);
+            }
+        }
+    }
+
+    @Test
+    void testMostSpecificWins() {
+        PathPatternIndex index = PathPatternIndex.of(PRIVILEGE_PATHS);
+        assertEquals("GET:/us/users/page", index.findMatch("GET:/us/users/page"));
+        assertEquals("GET:/us/users/{id}", index.findMatch("GET:/us/users/1"));
+        assertEquals("GET:/us/users/**", index.findMatch("GET:/us/users/1/roles"));
+        assertEquals("GET:/ls/lessons/{courseId}", index.findMatch("GET:/ls/lessons/1"));
+        assertEquals("GET:/ls/**", index.findMatch("GET:/ls/lessons/1/plans"));
+        assertNull(index.findMatch("POST:/ls/lessons/1"));
+    }
+
+    @Test
+    void testRandomPatterns() {
+        Random random = new Random(42);
+        String[] segments = {"a", "b", "c", "users", "1", "{id}", "*", "**", "?", "a*", "*.json", "x.json"};
+        for (int round = 0; round < 200; round++) {
+            List<String> patterns = new ArrayList<>();
+            int count = 1 + random.nextInt(30);
+            for (int i = 0; i < count; i++) {
+                patterns.add(METHODS.get(random.nextInt(METHODS.size())) + ":" + randomPath(random, segments));
+            }
+            PathPatternIndex index = PathPatternIndex.of(patterns);
+            for (int i = 0; i < 100; i++) {
+                String path = METHODS.get(random.nextInt(METHODS.size())) + ":" + randomPath(random, segments)
+                        .replace("{id}", "7").replace("**", "q").replace('*', 'z').replace('?', 'y');
+                assertEquals(mostSpecificMatch(patterns, path), index.findMatch(path), patterns + " " + path);
+            }
+        }
+    }
+
+    @Test
+    void testEmpty() {
+        assertNull(PathPatternIndex.of(null).findMatch("GET:/us/users/1"));
+        assertNull(PathPatternIndex.of(Collections.emptyList()).findMatch("GET:/us/users/1"));
+        assertNull(PathPatternIndex.of(PRIVILEGE_PATHS).findMatch(null));
+    }
+
+    private static String randomPath(Random random, String[] segments) {
+        StringBuilder sb = new StringBuilder();
+        int depth = 1 + random.nextInt(4);
+        for (int i = 0; i < depth; i++) {
+            sb.append('/').append(segments[random.nextInt(segments.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static boolean anyMatch(Collection<String> patterns, String path) {
+        for (String pattern : patterns) {
+            if (MATCHER.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 逐个匹配，命中多个时取最具体的，具体程度相同取字典序最小的
+     */
+    private static String mostSpecificMatch(Collection<String> patterns, String path) {
+        Comparator<String> comparator = MATCHER.getPatternComparator("").thenComparing(Comparator.naturalOrder());
+        String best = null;
+        for (String pattern : patterns) {
+            if (MATCHER.match(pattern, path) && (best == null || comparator.compare(pattern, best) < 0)) {
+                best = pattern;
+            }
+        }
+        return best;
+    }
+}
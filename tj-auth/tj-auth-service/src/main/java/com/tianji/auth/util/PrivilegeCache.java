@@ -1,6 +1,5 @@
 package com.tianji.auth.util;
 
-import cn.hutool.json.JSONUtil;
 import com.tianji.auth.common.domain.PrivilegeRoleDTO;
 import com.tianji.auth.domain.po.Privilege;
 import com.tianji.common.utils.CollUtils;
@@ -15,6 +14,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static com.tianji.auth.common.constants.JwtConstants.AUTH_PRIVILEGE_CHANNEL;
 import static com.tianji.auth.common.constants.JwtConstants.AUTH_PRIVILEGE_KEY;
 import static com.tianji.auth.common.constants.JwtConstants.AUTH_PRIVILEGE_VERSION_KEY;
 
@@ -33,7 +33,7 @@ public class PrivilegeCache {
         // 1.组装权限对应角色
         Map<String, String> map = new HashMap<>();
         for (PrivilegeRoleDTO prDTO : list) {
-            map.put(prDTO.getId().toString(), JSONUtil.toJsonStr(prDTO));
+            map.put(prDTO.getId().toString(), JsonUtils.toJson(prDTO));
         }
         // 2.写入 redis
         hashOps.putAll(map);
@@ -48,7 +48,7 @@ public class PrivilegeCache {
             privilegeRoleDTO.setAntPath(p.getMethod() + ":" + p.getUri());
             privilegeRoleDTO.setRoles(roleIds);
             privilegeRoleDTO.setInternal(p.getInternal());
-            hashOps.put(p.getId().toString(), JSONUtil.toJsonStr(privilegeRoleDTO));
+            hashOps.put(p.getId().toString(), JsonUtils.toJson(privilegeRoleDTO));
             incrementVersion();
         } catch (Exception e) {
             log.error("缓存权限信息失败。 ->", e);
@@ -68,7 +68,9 @@ public class PrivilegeCache {
 
 
     private void incrementVersion() {
-        stringRedisTemplate.opsForValue().increment(AUTH_PRIVILEGE_VERSION_KEY, 1);
+        Long version = stringRedisTemplate.opsForValue().increment(AUTH_PRIVILEGE_VERSION_KEY, 1);
+        // 通知网关权限已变更
+        stringRedisTemplate.convertAndSend(AUTH_PRIVILEGE_CHANNEL, String.valueOf(version));
     }
 
     public void removeCacheByRoleId(Long id) {
@@ -82,11 +84,11 @@ public class PrivilegeCache {
         for (Map.Entry<String, String> en : cacheMap.entrySet()) {
             // 获取权限数据
             String value = en.getValue();
-            PrivilegeRoleDTO prDTO = JsonUtils.toBean(value, PrivilegeRoleDTO.class);
+            PrivilegeRoleDTO prDTO = JsonUtils.fromJson(value, PrivilegeRoleDTO.class);
             // 尝试移除角色id
             boolean remove = prDTO.getRoles().remove(id);
             if(remove){
-                modified.put(en.getKey(), JsonUtils.toJsonStr(prDTO));
+                modified.put(en.getKey(), JsonUtils.toJson(prDTO));
             }
         }
         // 写回缓存
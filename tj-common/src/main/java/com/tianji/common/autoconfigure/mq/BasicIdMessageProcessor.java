@@ -6,6 +6,8 @@ import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessagePostProcessor;
 
+import java.util.Date;
+
 import static com.tianji.common.constants.Constant.REQUEST_ID_HEADER;
 
 public class BasicIdMessageProcessor implements MessagePostProcessor {
@@ -17,6 +19,10 @@ public class BasicIdMessageProcessor implements MessagePostProcessor {
         }
         // 写入RequestID标示
         message.getMessageProperties().setHeader(REQUEST_ID_HEADER, requestId);
+        // 写入发送时间，消费方可据此统计消息延迟
+        if (message.getMessageProperties().getTimestamp() == null) {
+            message.getMessageProperties().setTimestamp(new Date());
+        }
         return message;
     }
 }
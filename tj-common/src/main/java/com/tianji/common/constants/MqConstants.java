@@ -25,6 +25,9 @@ public interface MqConstants {
 
 		/*点赞记录有关的交换机*/
 		String LIKE_RECORD_EXCHANGE = "like.record.topic";
+
+		/*用户有关的交换机*/
+		String USER_EXCHANGE = "user.topic";
 	}
 
 	interface Queue {
@@ -43,6 +46,8 @@ public interface MqConstants {
 		String COURSE_DOWN_KEY = "course.down";
 		String COURSE_EXPIRE_KEY = "course.expire";
 		String COURSE_DELETE_KEY = "course.delete";
+		/*课程分类变更*/
+		String CATEGORY_CHANGED_KEY = "category.changed";
 
 		/*订单有关的RoutingKey*/
 		String ORDER_PAY_KEY = "order.pay";
@@ -61,6 +66,10 @@ public interface MqConstants {
 		String NOTE_GATHERED = "note.gathered";
 		String COUPON_RECEIVED = "coupon.received";
 		String COUPON_EXCHANGED = "coupon.exchanged";
+		/*优惠劵限定范围变更*/
+		String COUPON_SCOPE_CHANGED = "coupon.scope.changed";
+		/*优惠劵分片库存重新写入或退回*/
+		String COUPON_STOCK_RESTORED = "coupon.stock.restored";
 
 		/*点赞的RoutingKey*/
 		String LIKED_TIMES_KEY_TEMPLATE = "{}.times.changed";
@@ -81,5 +90,8 @@ public interface MqConstants {
 		String REFUND_CHANGE = "refund.status.change";
 
 		String ORDER_DELAY_KEY = "delay.order.query";
+
+		/*用户信息变更*/
+		String USER_UPDATED_KEY = "user.updated";
 	}
 }
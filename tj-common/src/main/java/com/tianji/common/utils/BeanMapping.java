@@ -0,0 +1,251 @@
+package com.tianji.common.utils;
+
+import cn.hutool.core.annotation.PropIgnore;
+import cn.hutool.core.convert.Convert;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 一对源类型、目标类型之间的属性拷贝，按类型对缓存
+ * <p>
+ * 构造方法、getter、setter 通过 LambdaMetafactory 生成函数对象，拷贝时不再反射；
+ * 属性的匹配规则与 hutool BeanUtil 一致：按字段名匹配，类型不兼容或集合类型的属性交给 hutool 的 Convert 转换。
+ * 无法确定与 hutool 行为一致的类型对（无无参构造、公有字段、transient、@PropIgnore 等）标记为不支持，由调用方回退到 hutool
+ */
+@Slf4j
+final class BeanMapping {
+
+    private static final BeanMapping UNSUPPORTED = new BeanMapping(null, null);
+
+    private static final ClassValue<Map<Class<?>, BeanMapping>> MAPPINGS = new ClassValue<>() {
+        @Override
+        protected Map<Class<?>, BeanMapping> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final Supplier<Object> constructor;
+    private final PropertyCopier[] copiers;
+
+    private BeanMapping(Supplier<Object> constructor, PropertyCopier[] copiers) {
+        this.constructor = constructor;
+        this.copiers = copiers;
+    }
+
+    static BeanMapping of(Class<?> sourceClass, Class<?> targetClass) {
+        return MAPPINGS.get(sourceClass).computeIfAbsent(targetClass, t -> create(sourceClass, t));
+    }
+
+    boolean isSupported() {
+        return this != UNSUPPORTED;
+    }
+
+    Object map(Object source) {
+        Object target = constructor.get();
+        for (PropertyCopier copier : copiers) {
+            copier.copy(source, target);
+        }
+        return target;
+    }
+
+    private static BeanMapping create(Class<?> sourceClass, Class<?> targetClass) {
+        if (!isPlainBean(sourceClass) || !isPlainBean(targetClass)) {
+            return UNSUPPORTED;
+        }
+        try {
+            Constructor<?> noArgs = targetClass.getDeclaredConstructor();
+            Supplier<Object> constructor = constructor(noArgs);
+            Map<String, Field> sourceFields = fields(sourceClass);
+            Map<String, Field> targetFields = fields(targetClass);
+            if (sourceFields == null || targetFields == null) {
+                return UNSUPPORTED;
+            }
+            Map<String, Method> sourceMethods = publicMethods(sourceClass);
+            Map<String, Method> targetMethods = publicMethods(targetClass);
+            List<PropertyCopier> copiers = new ArrayList<>();
+            for (Field targetField : targetFields.values()) {
+                Field sourceField = sourceFields.get(targetField.getName());
+                if (sourceField == null) {
+                    continue;
+                }
+                Method getter = findGetter(sourceField, sourceMethods);
+                Method setter = findSetter(targetField, targetMethods);
+                if (getter == null || setter == null) {
+                    // * 没有访问方法的公有字段hutool会直接读写，不在这里处理
+                    if ((getter == null && Modifier.isPublic(sourceField.getModifiers()))
+                            || (setter == null && Modifier.isPublic(targetField.getModifiers()))) {
+                        return UNSUPPORTED;
+                    }
+                    continue;
+                }
+                copiers.add(new PropertyCopier(getter(getter), setter(setter),
+                        setter.getParameterTypes()[0], setter.getGenericParameterTypes()[0]));
+            }
+            return new BeanMapping(constructor, copiers.toArray(new PropertyCopier[0]));
+        } catch (Throwable e) {
+            log.debug("{} -> {} 无法生成属性拷贝，使用hutool反射拷贝", sourceClass.getName(), targetClass.getName(), e);
+            return UNSUPPORTED;
+        }
+    }
+
+    private static boolean isPlainBean(Class<?> clazz) {
+        return !clazz.isPrimitive() && !clazz.isArray() && !clazz.isInterface() && !clazz.isEnum()
+                && !Modifier.isAbstract(clazz.getModifiers())
+                && !Map.class.isAssignableFrom(clazz) && !Collection.class.isAssignableFrom(clazz)
+                && !clazz.getName().startsWith("java.");
+    }
+
+    /**
+     * 类及父类的实例字段，子类字段优先；有hutool会特殊处理的字段时返回null
+     */
+    private static Map<String, Field> fields(Class<?> clazz) {
+        Map<String, Field> fields = new LinkedHashMap<>();
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || field.isSynthetic()) {
+                    continue;
+                }
+                if (Modifier.isTransient(modifiers) || field.isAnnotationPresent(PropIgnore.class)) {
+                    return null;
+                }
+                fields.putIfAbsent(field.getName(), field);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 公有方法，key为小写的方法名，与hutool一样忽略大小写匹配
+     */
+    private static Map<String, Method> publicMethods(Class<?> clazz) {
+        Map<String, Method> methods = new HashMap<>();
+        for (Method method : clazz.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || method.isBridge() || method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            methods.merge(method.getName().toLowerCase() + "#" + method.getParameterCount(), method, (a, b) -> a);
+        }
+        return methods;
+    }
+
+    private static Method findGetter(Field field, Map<String, Method> methods) {
+        String name = field.getName().toLowerCase();
+        Method getter = methods.get("get" + name + "#0");
+        if (getter == null && isBoolean(field)) {
+            getter = methods.get("is" + name + "#0");
+            if (getter == null && name.startsWith("is")) {
+                getter = methods.get(name + "#0");
+            }
+        }
+        return getter == null || getter.getReturnType() == void.class ? null : getter;
+    }
+
+    private static Method findSetter(Field field, Map<String, Method> methods) {
+        String name = field.getName().toLowerCase();
+        Method setter = methods.get("set" + name + "#1");
+        if (setter == null && isBoolean(field) && name.startsWith("is")) {
+            setter = methods.get("set" + name.substring(2) + "#1");
+        }
+        return setter;
+    }
+
+    private static boolean isBoolean(Field field) {
+        return field.getType() == boolean.class || field.getType() == Boolean.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> constructor(Constructor<?> constructor) throws Throwable {
+        Class<?> clazz = constructor.getDeclaringClass();
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+        MethodHandle handle = lookup.unreflectConstructor(constructor);
+        CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                MethodType.methodType(Supplier.class),
+                MethodType.methodType(Object.class),
+                handle,
+                MethodType.methodType(clazz));
+        return (Supplier<Object>) site.getTarget().invokeExact();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getter(Method method) throws Throwable {
+        Class<?> clazz = method.getDeclaringClass();
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+        MethodHandle handle = lookup.unreflect(method);
+        CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class),
+                handle,
+                MethodType.methodType(wrap(method.getReturnType()), clazz));
+        return (Function<Object, Object>) site.getTarget().invokeExact();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setter(Method method) throws Throwable {
+        Class<?> clazz = method.getDeclaringClass();
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+        MethodHandle handle = lookup.unreflect(method);
+        // * 链式setter的返回值被丢弃
+        CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                MethodType.methodType(BiConsumer.class),
+                MethodType.methodType(void.class, Object.class, Object.class),
+                handle,
+                MethodType.methodType(void.class, clazz, wrap(method.getParameterTypes()[0])));
+        return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    private static final class PropertyCopier {
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+        private final Class<?> targetType;
+        private final Type targetGenericType;
+        private final boolean alwaysConvert;
+        private final Object nullValue;
+
+        private PropertyCopier(Function<Object, Object> getter, BiConsumer<Object, Object> setter,
+                               Class<?> targetType, Type targetGenericType) {
+            this.getter = getter;
+            this.setter = setter;
+            this.targetType = wrap(targetType);
+            this.targetGenericType = targetGenericType;
+            // * 集合类型hutool会转换为新的集合，保持一致
+            this.alwaysConvert = Collection.class.isAssignableFrom(targetType) || Map.class.isAssignableFrom(targetType);
+            // * 基本类型属性的null值，hutool写入默认值
+            this.nullValue = targetType.isPrimitive() ? Convert.convert(targetType, 0) : null;
+        }
+
+        void copy(Object source, Object target) {
+            Object value = getter.apply(source);
+            if (value == null) {
+                value = nullValue;
+            } else if (alwaysConvert || !targetType.isInstance(value)) {
+                value = Convert.convertWithCheck(targetGenericType, value, null, false);
+            }
+            setter.accept(target, value);
+        }
+    }
+}
@@ -2,11 +2,14 @@ package com.tianji.common.utils;
 
 import cn.hutool.core.bean.BeanUtil;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * 继承自 hutool 的BeanUtil，增加了bean转换时自定义转换器的功能
+ * <p>
+ * 普通的bean之间转换使用按类型对缓存的生成式访问器，不支持的类型回退到 hutool 的反射拷贝
  */
 public class BeanUtils extends BeanUtil {
 
@@ -43,11 +46,35 @@ public class BeanUtils extends BeanUtil {
         return toBean(source, clazz);
     }
 
+    /**
+     * 对象转bean，行为与 hutool 的BeanUtil#toBean一致
+     *
+     * @param source 原对象
+     * @param clazz  目标对象的class
+     * @param <T>    目标对象类型
+     * @return 目标对象
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T toBean(Object source, Class<T> clazz) {
+        if (source == null) {
+            return null;
+        }
+        BeanMapping mapping = BeanMapping.of(source.getClass(), clazz);
+        if (mapping.isSupported()) {
+            return (T) mapping.map(source);
+        }
+        return BeanUtil.toBean(source, clazz);
+    }
+
     public static <R, T> List<T> copyList(List<R> list, Class<T> clazz) {
         if (list == null || list.size() == 0) {
             return CollUtils.emptyList();
         }
-        return copyToList(list, clazz);
+        List<T> targets = new ArrayList<>(list.size());
+        for (R r : list) {
+            targets.add(toBean(r, clazz));
+        }
+        return targets;
     }
 
     public static <R, T> List<T> copyList(List<R> list, Class<T> clazz, Convert<R, T> convert) {
@@ -1,6 +1,193 @@
 package com.tianji.common.utils;
 
 import cn.hutool.json.JSONUtil;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * JSON工具，继承自 hutool 的JSONUtil
+ * <p>
+ * 另外提供基于Jackson的序列化方法（toJson、toJsonBytes、fromJson、fromJsonList），用于Redis缓存、ES文档等高频读写的场景：
+ * 共用一个预先配置好的ObjectMapper，按类型缓存reader与writer，支持直接读写字节数组。
+ * 日期格式与JsonConfig一致，读取时兼容 hutool 写入的毫秒时间戳；忽略未知字段、不输出null值，与 hutool 的默认行为一致
+ */
 public class JsonUtils extends JSONUtil {
-}
\ No newline at end of file
+
+    /**
+     * 对象转JSON字符串（Jackson）
+     */
+    public static String toJson(Object obj) {
+        if (obj == null) {
+            return null;
+        }
+        try {
+            return Jackson.writer(obj.getClass()).writeValueAsString(obj);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 对象转UTF-8编码的JSON字节（Jackson），不经过中间字符串
+     */
+    public static byte[] toJsonBytes(Object obj) {
+        if (obj == null) {
+            return null;
+        }
+        try {
+            return Jackson.writer(obj.getClass()).writeValueAsBytes(obj);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * JSON字符串转对象（Jackson）
+     */
+    public static <T> T fromJson(String json, Class<T> clazz) {
+        if (StringUtils.isBlank(json)) {
+            return null;
+        }
+        try {
+            return Jackson.reader(clazz).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * UTF-8编码的JSON字节转对象（Jackson），不经过中间字符串
+     */
+    public static <T> T fromJson(byte[] json, Class<T> clazz) {
+        if (json == null || json.length == 0) {
+            return null;
+        }
+        try {
+            return Jackson.reader(clazz).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * JSON数组字符串转List（Jackson）
+     */
+    public static <T> List<T> fromJsonList(String json, Class<T> elementType) {
+        if (StringUtils.isBlank(json)) {
+            return CollUtils.emptyList();
+        }
+        try {
+            return Jackson.listReader(elementType).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * UTF-8编码的JSON数组字节转List（Jackson）
+     */
+    public static <T> List<T> fromJsonList(byte[] json, Class<T> elementType) {
+        if (json == null || json.length == 0) {
+            return CollUtils.emptyList();
+        }
+        try {
+            return Jackson.listReader(elementType).readValue(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 共用的ObjectMapper及按类型缓存的reader、writer，首次使用Jackson方法时才初始化
+     */
+    private static final class Jackson {
+        private static final ObjectMapper MAPPER = createMapper();
+
+        private static final ClassValue<ObjectReader> READERS = new ClassValue<>() {
+            @Override
+            protected ObjectReader computeValue(Class<?> type) {
+                return MAPPER.readerFor(type);
+            }
+        };
+        private static final ClassValue<ObjectReader> LIST_READERS = new ClassValue<>() {
+            @Override
+            protected ObjectReader computeValue(Class<?> type) {
+                return MAPPER.readerFor(MAPPER.getTypeFactory().constructCollectionType(List.class, type));
+            }
+        };
+        private static final ClassValue<ObjectWriter> WRITERS = new ClassValue<>() {
+            @Override
+            protected ObjectWriter computeValue(Class<?> type) {
+                return MAPPER.writerFor(type);
+            }
+        };
+
+        static ObjectReader reader(Class<?> type) {
+            return READERS.get(type);
+        }
+
+        static ObjectReader listReader(Class<?> elementType) {
+            return LIST_READERS.get(elementType);
+        }
+
+        static ObjectWriter writer(Class<?> type) {
+            return WRITERS.get(type);
+        }
+
+        private static ObjectMapper createMapper() {
+            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern(DateUtils.DEFAULT_DATE_TIME_FORMAT);
+            SimpleModule dateTimeModule = new SimpleModule();
+            dateTimeModule.addSerializer(LocalDateTime.class, new LocalDateTimeSerializer(dateTimeFormatter));
+            dateTimeModule.addDeserializer(LocalDateTime.class, new CompatibleLocalDateTimeDeserializer(dateTimeFormatter));
+            ObjectMapper mapper = new ObjectMapper();
+            mapper.registerModule(new JavaTimeModule());
+            mapper.registerModule(dateTimeModule);
+            mapper.setTimeZone(TimeZone.getTimeZone(DateUtils.TIME_ZONE_8));
+            mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+            mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+            mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+            mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+            return mapper;
+        }
+    }
+
+    /**
+     * 按JsonConfig的格式读取LocalDateTime，同时兼容 hutool 写入的毫秒时间戳
+     * <p>
+     * hutool 按系统默认时区换算毫秒时间戳，这里也用系统默认时区，保证读出的时间与写入时一致
+     */
+    private static final class CompatibleLocalDateTimeDeserializer extends LocalDateTimeDeserializer {
+        CompatibleLocalDateTimeDeserializer(DateTimeFormatter formatter) {
+            super(formatter);
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+                return LocalDateTime.ofInstant(Instant.ofEpochMilli(parser.getLongValue()), ZoneId.systemDefault());
+            }
+            return super.deserialize(parser, context);
+        }
+    }
+}
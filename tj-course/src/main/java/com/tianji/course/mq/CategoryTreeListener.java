@@ -0,0 +1,44 @@
+package com.tianji.course.mq;
+
+import com.tianji.course.utils.CategoryTreeHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import static com.tianji.common.constants.MqConstants.Exchange.COURSE_EXCHANGE;
+import static com.tianji.common.constants.MqConstants.Key.*;
+
+/**
+ * 分类、课程变更时重建本实例的课程分类树；每个实例使用各自的匿名队列，保证都能收到
+ */
+@Slf4j
+@Component
+public class CategoryTreeListener {
+
+    @Autowired
+    private CategoryTreeHolder categoryTreeHolder;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue,
+            exchange = @Exchange(name = COURSE_EXCHANGE, type = ExchangeTypes.TOPIC),
+            key = CATEGORY_CHANGED_KEY
+    ))
+    public void listenCategoryChanged(Long categoryId) {
+        log.debug("监听到课程分类{}变更", categoryId);
+        categoryTreeHolder.categoryChanged();
+    }
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue,
+            exchange = @Exchange(name = COURSE_EXCHANGE, type = ExchangeTypes.TOPIC),
+            key = {COURSE_NEW_KEY, COURSE_UP_KEY, COURSE_DOWN_KEY, COURSE_EXPIRE_KEY, COURSE_DELETE_KEY}
+    ))
+    public void listenCourseChanged(Long courseId) {
+        categoryTreeHolder.courseChanged();
+    }
+}
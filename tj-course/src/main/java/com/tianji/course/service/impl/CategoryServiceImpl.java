@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
 import com.tianji.common.constants.Constant;
 import com.tianji.common.constants.ErrorInfo;
 import com.tianji.common.enums.CommonStatus;
@@ -28,19 +29,24 @@ import com.tianji.course.mapper.SubjectCategoryMapper;
 import com.tianji.course.service.ICategoryService;
 import com.tianji.course.service.ICourseDraftService;
 import com.tianji.course.service.ICourseService;
-import com.tianji.course.utils.CategoryDataWrapper;
-import com.tianji.course.utils.CategoryDataWrapper2;
+import com.tianji.course.utils.CategoryTree;
+import com.tianji.course.utils.CategoryTreeHolder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Resource;
 import java.util.*;
 import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
+import static com.tianji.common.constants.MqConstants.Exchange.COURSE_EXCHANGE;
+import static com.tianji.common.constants.MqConstants.Key.CATEGORY_CHANGED_KEY;
+
 /**
  * <p>
  * 课程分类 服务实现类
@@ -68,36 +74,19 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
     @Resource(name = "taskExecutor")
     private Executor taskExecutor;
 
-    @Override
-    public List<CategoryVO> list(CategoryListDTO categoryListDTO) {
+    @Autowired
+    private CategoryTreeHolder categoryTreeHolder;
 
-        //1.搜索条件根据priority正序排序，id逆序排序
-        LambdaQueryWrapper<Category> queryWrapper =
-                Wrappers.lambdaQuery(Category.class)
-                        .orderByAsc(Category::getPriority)
-                        .orderByDesc(Category::getUpdateTime);
-        //2.查询数据
-        List<Category> list = super.list(queryWrapper);
-        if (CollUtils.isEmpty(list)) {
-            return new ArrayList<>();
-        }
+    @Autowired
+    private RabbitMqHelper rabbitMqHelper;
 
-        //3.获取课程分类拥有的课程数量
-        Map<Long, Long> thirdCategoryNumMap = this.statisticThirdCategory();
-
-        Map<Long, Integer> cateIdAndNumMap = courseService
-                .countCourseNumOfCategory();
-        //4.通过TreeDataUtils组装数据
-        List<CategoryVO> categoryVOS = TreeDataUtils.parseToTree(list, CategoryVO.class,
-                //4.1设置转换
-                (category, categoryVO) -> {
-                    //4.2设置三级分类数量、课程数量、状态描述、排序
-                    categoryVO.setThirdCategoryNum(NumberUtils.null2Zero(thirdCategoryNumMap.get(category.getId())).intValue());
-                    categoryVO.setCourseNum(NumberUtils.null2Zero(cateIdAndNumMap.get(category.getId())));
-                    categoryVO.setStatusDesc(CommonStatus.desc(category.getStatus()));
-                    categoryVO.setIndex(category.getPriority());
-                }, new CategoryDataWrapper2());
-        //5.根据条件过滤
+    @Override
+    public List<CategoryVO> list(CategoryListDTO categoryListDTO) {
+        //1.读取当前版本的分类树，已按priority正序、更新时间逆序排列，三级分类数量和课程数量已预先统计
+        CategoryTree tree = categoryTreeHolder.get();
+        //2.组装数据
+        List<CategoryVO> categoryVOS = toCategoryVOs(tree, tree.roots());
+        //3.根据条件过滤
         if (CollUtils.isNotEmpty(categoryVOS)) {
             return fiter(categoryVOS, categoryListDTO);
         } else {
@@ -139,6 +128,7 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
         if (this.baseMapper.insert(category) <= 0) {
             throw new DbException(null);
         }
+        publishCategoryChanged(category.getId());
     }
 
     @Override
@@ -214,6 +204,7 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
         if (result <= 0) {
             throw new DbException(CourseErrorInfo.Msg.CATEGORY_DELETE_FAILD);
         }
+        publishCategoryChanged(id);
     }
 
     /**
@@ -286,6 +277,7 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
             //5.2更新关联分类状态
             baseMapper.update(updateCategory, updateWrapper);
         }
+        publishCategoryChanged(category.getId());
         //6.课程分类禁用触发课程批量下架
         if (categoryDisableOrEnableDTO.getStatus() == CommonStatus.DISABLE.getValue()) {
             Long userId = UserContext.getUser();
@@ -316,29 +308,20 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
         if (result <= 0) {
             throw new BizIllegalException(ErrorInfo.Msg.DB_UPDATE_EXCEPTION);
         }
+        publishCategoryChanged(category.getId());
     }
 
     @Override
     public List<SimpleCategoryVO> all(Boolean admin) {
-        // 1.查询有课程的课程分类id列表
-        List<Long> categoryIdList = admin ?
-                null :courseService.getCategoryIdListWithCourse();
-        // 1.1.判空
-        if(!admin && CollUtils.isEmpty(categoryIdList)){
+        // 1.读取当前版本的分类树
+        CategoryTree tree = categoryTreeHolder.get();
+        // 1.1.非管理员只查询有课程的课程分类
+        if(!admin && CollUtils.isEmpty(tree.getCategoryIdsWithCourse())){
             return new ArrayList<>();
         }
 
-        // 2.升序查询所有未禁用的课程分类
-        LambdaQueryWrapper<Category> queryWrapper = Wrappers.lambdaQuery(Category.class)
-                .eq(!admin, Category::getStatus, CommonStatus.ENABLE.getValue())
-                .in(CollectionUtil.isNotEmpty(categoryIdList), Category::getId, categoryIdList)
-                .orderByAsc(Category::getPriority)
-                .orderByDesc(Category::getId);
-        List<Category> categories = this.baseMapper.selectList(queryWrapper);
-
-        // 3.将课程分类转换成树状结构
-        List<SimpleCategoryVO> simpleCategoryVOS = TreeDataUtils.parseToTree(categories,
-                SimpleCategoryVO.class, new CategoryDataWrapper());
+        // 2.按priority升序、id降序组装树状结构，非管理员过滤掉禁用和没有课程的分类
+        List<SimpleCategoryVO> simpleCategoryVOS = toSimpleCategoryVOs(tree, tree.rootsByAllOrder(), admin);
         // 4.过滤掉没有三级子课程分类的课程分类
         filter(simpleCategoryVOS);
         return simpleCategoryVOS;
@@ -347,24 +330,26 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
 
     @Override
     public Map<Long, String> getCateIdAndName() {
-        List<Category> categories = this.baseMapper.selectList(null);
-        return categories.stream()
-                .collect(Collectors.toMap(Category::getId, Category::getName));
+        CategoryTree tree = categoryTreeHolder.get();
+        Map<Long, String> map = new HashMap<>(tree.size() * 4 / 3 + 1);
+        for (int slot = 0; slot < tree.size(); slot++) {
+            map.put(tree.categoryAt(slot).getId(), tree.categoryAt(slot).getName());
+        }
+        return map;
     }
 
     @Override
     public List<CategoryVO> allOfOneLevel() {
-        //1.查询数据
-        List<Category> list = super.list();
-        if (CollUtils.isEmpty(list)) {
-            return new ArrayList<>();
-        }
-
-        //2.统计一级二级目录对应的三级目录的数量，做一个三分钟的redis缓存
-        Map<Long, Long> thirdCategoryNumMap = this.statisticThirdCategory();
-        return BeanUtils.copyList(list, CategoryVO.class, (category, categoryVO) -> {
-            categoryVO.setThirdCategoryNum(thirdCategoryNumMap.getOrDefault(category.getId(), 0L).intValue());
-        });
+        //1.读取当前版本的分类树，三级分类数量已预先统计
+        CategoryTree tree = categoryTreeHolder.get();
+        //2.转换数据
+        List<CategoryVO> list = new ArrayList<>(tree.size());
+        for (int slot = 0; slot < tree.size(); slot++) {
+            CategoryVO categoryVO = toCategoryVO(tree, slot);
+            categoryVO.setThirdCategoryNum(tree.thirdCategoryNumAt(slot));
+            list.add(categoryVO);
+        }
+        return list;
     }
 
     @Override
@@ -507,39 +492,75 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
     }
 
     /**
-     * 统计每个一级目录二级目录有多少个三级目录
-     *
-     * @return
+     * 分类树转换为CategoryVO树，带三级分类数量、课程数量、状态描述、排序
      */
-    private Map<Long, Long> statisticThirdCategory() {
-        Map<Long, Long> result = new HashMap<>();
-        // 1.查询所有数据
-        List<Category> categories = baseMapper.selectList(null);
-        // 1.1.判空
-        if(CollUtils.isEmpty(categories)){
-            return result;
-        }
-
-        // 2.二级分类的拥有的三级课程分类数量
-        Map<Long, Long> collect = categories.stream()
-                .filter(category -> category.getLevel() == 3)
-                .collect(Collectors.groupingBy(Category::getParentId, Collectors.counting()));
-        result.putAll(collect);
-        // 3.一级分类拥有的三级课程分类数量
-        Map<Long, List<Category>> category2Map = categories.stream()
-                .filter(category -> category.getLevel() == 2)
-                .collect(Collectors.groupingBy(Category::getParentId));
-        // 3.1.遍历category2Map
-        for (Map.Entry<Long, List<Category>> entry : category2Map.entrySet()){
-            long sum = entry.getValue()
-                    .stream()
-                    .map(category -> NumberUtils.null2Zero(result.get(category.getId())))
-                    .collect(Collectors.summarizingLong(num -> num))
-                    .getSum();
-            result.put(entry.getKey(), sum);
-        }
-        // 4.返回结果
-        return result;
+    private List<CategoryVO> toCategoryVOs(CategoryTree tree, int[] slots) {
+        List<CategoryVO> categoryVOS = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            Category category = tree.categoryAt(slot);
+            CategoryVO categoryVO = toCategoryVO(tree, slot);
+            categoryVO.setThirdCategoryNum(tree.thirdCategoryNumAt(slot));
+            categoryVO.setCourseNum(tree.courseNumAt(slot));
+            categoryVO.setStatusDesc(CommonStatus.desc(category.getStatus()));
+            categoryVO.setIndex(category.getPriority());
+            categoryVO.setChildren(toCategoryVOs(tree, tree.childrenOf(slot)));
+            categoryVOS.add(categoryVO);
+        }
+        return categoryVOS;
+    }
+
+    private CategoryVO toCategoryVO(CategoryTree tree, int slot) {
+        Category category = tree.categoryAt(slot);
+        CategoryVO categoryVO = new CategoryVO();
+        categoryVO.setId(category.getId());
+        categoryVO.setName(category.getName());
+        categoryVO.setStatus(category.getStatus());
+        categoryVO.setCreateTime(category.getCreateTime());
+        categoryVO.setUpdateTime(category.getUpdateTime());
+        categoryVO.setParentId(category.getParentId());
+        categoryVO.setLevel(category.getLevel());
+        return categoryVO;
+    }
+
+    /**
+     * 分类树转换为SimpleCategoryVO树，非管理员只保留启用且有课程的分类
+     */
+    private List<SimpleCategoryVO> toSimpleCategoryVOs(CategoryTree tree, int[] slots, boolean admin) {
+        List<SimpleCategoryVO> simpleCategoryVOS = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            Category category = tree.categoryAt(slot);
+            if (!admin && (category.getStatus() != CommonStatus.ENABLE.getValue() || !tree.withCourseAt(slot))) {
+                continue;
+            }
+            simpleCategoryVOS.add(SimpleCategoryVO.builder()
+                    .id(category.getId())
+                    .name(category.getName())
+                    .level(category.getLevel())
+                    .parentId(category.getParentId())
+                    .children(toSimpleCategoryVOs(tree, tree.childrenByAllOrder(slot), admin))
+                    .build());
+        }
+        return simpleCategoryVOS;
+    }
+
+    /**
+     * 分类变更，事务提交后重建本实例的分类树，并通知其它实例和各服务的CategoryCache
+     */
+    private void publishCategoryChanged(Long categoryId) {
+        Runnable publish = () -> {
+            categoryTreeHolder.rebuildCategoryNow();
+            rabbitMqHelper.sendAsyn(COURSE_EXCHANGE, CATEGORY_CHANGED_KEY, categoryId);
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish.run();
+            }
+        });
     }
 
     /**
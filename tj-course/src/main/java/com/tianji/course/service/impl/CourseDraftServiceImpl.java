@@ -38,6 +38,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.validation.ValidatorFactory;
 import java.util.Arrays;
@@ -173,6 +175,8 @@ public class CourseDraftServiceImpl extends ServiceImpl<CourseDraftMapper, Cours
             baseMapper.insert(courseDraft);
             //3.1.5.插入课程草稿内容
             courseContentDraftMapper.insert(courseContentDraft);
+            //3.1.6.新课程mq，分类的课程数量变化，事务提交后再发送
+            sendCourseNewAfterCommit(id);
         } else {
             //3.2.编辑课程草稿
             //3.2.1.设置课程id
@@ -673,4 +677,22 @@ public class CourseDraftServiceImpl extends ServiceImpl<CourseDraftMapper, Cours
             throw new BadRequestException(CourseErrorInfo.Msg.COURSE_SAVE_NAME_EXISTS);
         }
     }
+
+    /**
+     * 新课程消息在事务提交后发送，消费者重建时能查到草稿，事务回滚则不发送
+     */
+    private void sendCourseNewAfterCommit(Long id) {
+        Runnable publish = () -> rabbitMqHelper.sendAsyn(MqConstants.Exchange.COURSE_EXCHANGE,
+                MqConstants.Key.COURSE_NEW_KEY, id);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish.run();
+            }
+        });
+    }
 }
@@ -0,0 +1,208 @@
+package com.tianji.course.utils;
+
+import com.tianji.api.cache.CategoryIndex;
+import com.tianji.api.dto.course.CategoryBasicDTO;
+import com.tianji.common.utils.CollUtils;
+import com.tianji.course.constants.CourseConstants;
+import com.tianji.course.domain.po.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * 不可变的课程分类树，带版本号
+ * <p>
+ * 结构部分（分类、父子下标、完整名称、三级分类数量）在分类变更时重建，
+ * 课程统计部分（课程数量、有课程的分类）在课程变更时重建并复用结构部分
+ */
+public final class CategoryTree {
+
+    /**
+     * 分类列表的排序：priority正序，更新时间逆序
+     */
+    private static final Comparator<Category> LIST_ORDER = Comparator
+            .comparing(Category::getPriority, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Category::getUpdateTime, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    /**
+     * 所有分类的排序：priority正序，id逆序
+     */
+    private static final Comparator<Category> ALL_ORDER = Comparator
+            .comparing(Category::getPriority, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Category::getId, Comparator.reverseOrder());
+
+    private final long version;
+    private final CategoryIndex index;
+    private final Category[] categories;
+    private final int[] roots;
+    private final int[] rootsByAllOrder;
+    private final int[][] childrenByAllOrder;
+    private final int[] thirdCategoryNums;
+    private final Map<Long, Integer> courseNumMap;
+    private final Set<Long> categoryIdsWithCourse;
+    private final int[] courseNums;
+    private final boolean[] withCourse;
+
+    private CategoryTree(long version, CategoryIndex index, Category[] categories, int[] roots, int[] rootsByAllOrder,
+                         int[][] childrenByAllOrder, int[] thirdCategoryNums,
+                         Map<Long, Integer> courseNumMap, Set<Long> categoryIdsWithCourse) {
+        this.version = version;
+        this.index = index;
+        this.categories = categories;
+        this.roots = roots;
+        this.rootsByAllOrder = rootsByAllOrder;
+        this.childrenByAllOrder = childrenByAllOrder;
+        this.thirdCategoryNums = thirdCategoryNums;
+        this.courseNumMap = courseNumMap;
+        this.categoryIdsWithCourse = categoryIdsWithCourse;
+        this.courseNums = new int[categories.length];
+        this.withCourse = new boolean[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            Integer num = courseNumMap.get(categories[i].getId());
+            courseNums[i] = num == null ? 0 : num;
+            withCourse[i] = categoryIdsWithCourse.contains(categories[i].getId());
+        }
+    }
+
+    /**
+     * 全量构建
+     *
+     * @param version               版本号
+     * @param list                  所有分类
+     * @param courseNumMap          分类id和分类拥有的课程数量
+     * @param categoryIdsWithCourse 有课程的分类id
+     */
+    public static CategoryTree build(long version, List<Category> list,
+                                     Map<Long, Integer> courseNumMap, Collection<Long> categoryIdsWithCourse) {
+        Category[] categories = CollUtils.isEmpty(list) ? new Category[0] : list.toArray(new Category[0]);
+        Arrays.sort(categories, LIST_ORDER);
+        List<CategoryBasicDTO> basics = new ArrayList<>(categories.length);
+        for (Category category : categories) {
+            CategoryBasicDTO basic = new CategoryBasicDTO();
+            basic.setId(category.getId());
+            basic.setName(category.getName());
+            basic.setParentId(category.getParentId());
+            basics.add(basic);
+        }
+        CategoryIndex index = CategoryIndex.build(version, basics);
+        // * 1.顶层分类，父分类不存在的分类不在树中
+        int[] roots = IntStream.range(0, categories.length)
+                .filter(i -> categories[i].getParentId() != null
+                        && categories[i].getParentId() == CourseConstants.CATEGORY_ROOT)
+                .toArray();
+        // * 2.按所有分类的排序重排子节点
+        int[][] childrenByAllOrder = new int[categories.length][];
+        for (int i = 0; i < categories.length; i++) {
+            childrenByAllOrder[i] = sortByAllOrder(categories, index.childrenOf(i));
+        }
+        // * 3.一级、二级分类拥有的三级分类数量
+        int[] thirdCategoryNums = new int[categories.length];
+        for (int i = 0; i < categories.length; i++) {
+            if (categories[i].getLevel() == null || categories[i].getLevel() != 3) {
+                continue;
+            }
+            int parent = index.parentOf(i);
+            if (parent != CategoryIndex.NONE) {
+                thirdCategoryNums[parent]++;
+                int grand = index.parentOf(parent);
+                if (grand != CategoryIndex.NONE) {
+                    thirdCategoryNums[grand]++;
+                }
+            }
+        }
+        return new CategoryTree(version, index, categories, roots, sortByAllOrder(categories, roots),
+                childrenByAllOrder, thirdCategoryNums,
+                Collections.unmodifiableMap(courseNumMap), Collections.unmodifiableSet(new HashSet<>(categoryIdsWithCourse)));
+    }
+
+    /**
+     * 课程变更，复用分类结构，只替换课程统计
+     */
+    public CategoryTree withCourseStats(long version, Map<Long, Integer> courseNumMap, Collection<Long> categoryIdsWithCourse) {
+        return new CategoryTree(version, index, categories, roots, rootsByAllOrder, childrenByAllOrder, thirdCategoryNums,
+                Collections.unmodifiableMap(courseNumMap), Collections.unmodifiableSet(new HashSet<>(categoryIdsWithCourse)));
+    }
+
+    private static int[] sortByAllOrder(Category[] categories, int[] slots) {
+        return Arrays.stream(slots)
+                .boxed()
+                .sorted((a, b) -> ALL_ORDER.compare(categories[a], categories[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public CategoryIndex getIndex() {
+        return index;
+    }
+
+    public int size() {
+        return categories.length;
+    }
+
+    /**
+     * 分类数据，不要修改返回的对象
+     */
+    public Category categoryAt(int slot) {
+        return categories[slot];
+    }
+
+    /**
+     * 顶层分类下标，按分类列表排序
+     */
+    public int[] roots() {
+        return roots;
+    }
+
+    /**
+     * 子分类下标，按分类列表排序
+     */
+    public int[] childrenOf(int slot) {
+        return index.childrenOf(slot);
+    }
+
+    /**
+     * 顶层分类下标，按所有分类排序
+     */
+    public int[] rootsByAllOrder() {
+        return rootsByAllOrder;
+    }
+
+    /**
+     * 子分类下标，按所有分类排序
+     */
+    public int[] childrenByAllOrder(int slot) {
+        return childrenByAllOrder[slot];
+    }
+
+    public int thirdCategoryNumAt(int slot) {
+        return thirdCategoryNums[slot];
+    }
+
+    public int courseNumAt(int slot) {
+        return courseNums[slot];
+    }
+
+    public boolean withCourseAt(int slot) {
+        return withCourse[slot];
+    }
+
+    public Map<Long, Integer> getCourseNumMap() {
+        return courseNumMap;
+    }
+
+    public Set<Long> getCategoryIdsWithCourse() {
+        return categoryIdsWithCourse;
+    }
+}
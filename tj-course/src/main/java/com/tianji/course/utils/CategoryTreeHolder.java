@@ -0,0 +1,176 @@
+package com.tianji.course.utils;
+
+import com.tianji.course.domain.po.Category3PO;
+import com.tianji.course.mapper.CategoryMapper;
+import com.tianji.course.mapper.CourseMapper;
+import com.tianji.course.service.ICourseService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 持有当前版本的课程分类树，读取无锁
+ * <p>
+ * 分类变更只重建分类结构，课程变更只重新统计课程数量，重建完成后整体替换；
+ * 短时间内的多次变更合并为一次重建
+ */
+@Slf4j
+@Component
+public class CategoryTreeHolder {
+
+    /**
+     * 变更后延迟重建的时间，合并这段时间内的变更
+     */
+    private static final long REBUILD_DELAY_MILLIS = 200;
+
+    @Autowired
+    private CategoryMapper categoryMapper;
+
+    @Autowired
+    private CourseMapper courseMapper;
+
+    @Autowired
+    private ICourseService courseService;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "category-tree-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong versions = new AtomicLong();
+    private final Object buildLock = new Object();
+    private final Object dirtyLock = new Object();
+    private volatile CategoryTree current;
+    private boolean categoryDirty;
+    private boolean courseDirty;
+    private boolean scheduled;
+
+    @PreDestroy
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    public CategoryTree get() {
+        CategoryTree tree = current;
+        if (tree != null) {
+            return tree;
+        }
+        synchronized (buildLock) {
+            if (current == null) {
+                current = rebuild(null, true, true);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 分类变更，异步重建分类结构
+     */
+    public void categoryChanged() {
+        markDirty(true, false);
+    }
+
+    /**
+     * 课程变更，异步重新统计课程数量
+     */
+    public void courseChanged() {
+        markDirty(false, true);
+    }
+
+    /**
+     * 分类变更，立即重建，用于发起变更的实例读到自己的修改
+     */
+    public void rebuildCategoryNow() {
+        try {
+            synchronized (buildLock) {
+                if (current != null) {
+                    current = rebuild(current, true, false);
+                }
+            }
+        } catch (Exception e) {
+            log.error("重建课程分类树失败", e);
+            categoryChanged();
+        }
+    }
+
+    /**
+     * 草稿修改分类等没有变更消息的场景，定期重新统计课程数量
+     */
+    @Scheduled(fixedDelay = 300_000)
+    public void refreshCourseStats() {
+        if (current != null) {
+            courseChanged();
+        }
+    }
+
+    private void markDirty(boolean category, boolean course) {
+        synchronized (dirtyLock) {
+            categoryDirty |= category;
+            courseDirty |= course;
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        scheduler.schedule(this::rebuildDirty, REBUILD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void rebuildDirty() {
+        boolean category;
+        boolean course;
+        synchronized (dirtyLock) {
+            category = categoryDirty;
+            course = courseDirty;
+            categoryDirty = false;
+            courseDirty = false;
+            scheduled = false;
+        }
+        try {
+            synchronized (buildLock) {
+                // * 还未被访问过，首次访问时全量构建
+                if (current != null) {
+                    current = rebuild(current, category, course);
+                }
+            }
+        } catch (Exception e) {
+            log.error("重建课程分类树失败", e);
+        }
+    }
+
+    private CategoryTree rebuild(CategoryTree old, boolean category, boolean course) {
+        long begin = System.nanoTime();
+        long version = versions.incrementAndGet();
+        Map<Long, Integer> courseNumMap = course ? courseService.countCourseNumOfCategory() : old.getCourseNumMap();
+        Set<Long> categoryIdsWithCourse = course ? queryCategoryIdsWithCourse() : old.getCategoryIdsWithCourse();
+        CategoryTree tree = category
+                ? CategoryTree.build(version, categoryMapper.selectList(null), courseNumMap, categoryIdsWithCourse)
+                : old.withCourseStats(version, courseNumMap, categoryIdsWithCourse);
+        log.debug("课程分类树版本{}，分类变更：{}，课程变更：{}，{}个分类，耗时{}ms", version, category, course, tree.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        return tree;
+    }
+
+    /**
+     * 有课程的分类id，直接查库，不使用getCategoryIdListWithCourse的redis缓存
+     */
+    private Set<Long> queryCategoryIdsWithCourse() {
+        List<Category3PO> category3s = courseMapper.queryCategoryIdWithCourse();
+        List<Long> categoryIdList = new ArrayList<>();
+        if (category3s != null) {
+            category3s.forEach(category3 -> category3.setId(categoryIdList));
+        }
+        return new HashSet<>(categoryIdList);
+    }
+}
@@ -48,7 +48,7 @@ public class BoardServiceImpl implements BoardService {
             Object originData = redisTemplate.opsForHash().get(KEY_BOARD_DATA + version, type.toString());
             List<Double> data = originData == null
                     ? new ArrayList<>()
-                    : JsonUtils.toList(originData.toString(), Double.class);
+                    : JsonUtils.fromJsonList(originData.toString(), Double.class);
             // 2.3.计算最大最小值
             Double max = NumberUtils.null2Zero(NumberUtils.max(data));
             Double min = NumberUtils.null2Zero(NumberUtils.min(data));
@@ -86,6 +86,6 @@ public class BoardServiceImpl implements BoardService {
         redisTemplate.opsForHash()
                 .put(key,
                         boardDataSetDTO.getType().toString(),
-                        JsonUtils.toJsonStr(boardDataSetDTO.getData()));
+                        JsonUtils.toJson(boardDataSetDTO.getData()));
     }
 }
@@ -34,7 +34,7 @@ public class TodayDataServiceImpl implements TodayDataService {
         if (originData == null) {
             return new TodayDataVO();
         }
-        return JsonUtils.toBean(originData.toString(), TodayDataVO.class);
+        return JsonUtils.fromJson(originData.toString(), TodayDataVO.class);
     }
 
     @Override
@@ -44,6 +44,6 @@ public class TodayDataServiceImpl implements TodayDataService {
         // 2.数据转化
         TodayDataInfo todayDataInfo = BeanUtils.toBean(todayDataDTO, TodayDataInfo.class);
         // 3.数据存储
-        redisTemplate.opsForValue().set(key, JsonUtils.toJsonStr(todayDataInfo));
+        redisTemplate.opsForValue().set(key, JsonUtils.toJson(todayDataInfo));
     }
 }
@@ -1,5 +1,6 @@
 package com.tianji.exam;
 
+import com.tianji.api.annotations.EnableCategoryCache;
 import lombok.extern.slf4j.Slf4j;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
@@ -13,6 +14,7 @@ import java.net.UnknownHostException;
 @Slf4j
 @MapperScan("com.tianji.exam.mapper")
 @SpringBootApplication
+@EnableCategoryCache
 public class ExamApplication {
     public static void main(String[] args) throws UnknownHostException {
         SpringApplication app = new SpringApplicationBuilder(ExamApplication.class).build(args);
@@ -1,15 +1,17 @@
 package com.tianji.gateway.filter;
 
 import com.tianji.authsdk.gateway.util.AuthUtil;
+import com.tianji.authsdk.gateway.util.PathPatternIndex;
 import com.tianji.common.domain.R;
 import com.tianji.common.domain.dto.LoginUserDTO;
 import com.tianji.gateway.config.AuthProperties;
+import org.springframework.cloud.endpoint.event.RefreshScopeRefreshedEvent;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.Ordered;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
@@ -23,11 +25,21 @@ public class AccountAuthFilter implements GlobalFilter, Ordered {
 
     private final AuthUtil authUtil;
     private final AuthProperties authProperties;
-    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    // 无需登录的路径匹配索引，配置刷新后重建
+    private volatile PathPatternIndex excludePathIndex;
 
     public AccountAuthFilter(AuthUtil authUtil, AuthProperties authProperties) {
         this.authUtil = authUtil;
         this.authProperties = authProperties;
+        this.excludePathIndex = PathPatternIndex.of(authProperties.getExcludePath());
+    }
+
+    /**
+     * 配置中心刷新后，AuthProperties已重新绑定，按新的excludePath重建索引
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        this.excludePathIndex = PathPatternIndex.of(authProperties.getExcludePath());
     }
 
     @Override
@@ -64,12 +76,7 @@ public class AccountAuthFilter implements GlobalFilter, Ordered {
     }
 
     private boolean isExcludePath(String antPath) {
-        for (String pathPattern : authProperties.getExcludePath()) {
-            if(antPathMatcher.match(pathPattern, antPath)){
-                return true;
-            }
-        }
-        return false;
+        return excludePathIndex.matches(antPath);
     }
 
     @Override
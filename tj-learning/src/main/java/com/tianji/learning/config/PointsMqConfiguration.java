@@ -0,0 +1,32 @@
+package com.tianji.learning.config;
+
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 积分消息的批量消费配置
+ */
+@Configuration
+public class PointsMqConfiguration {
+    public static final int POINTS_BATCH_SIZE = 200;
+    public static final long POINTS_BATCH_WINDOW_MILLIS = 200;
+
+    /**
+     * 每批最多POINTS_BATCH_SIZE条，或等待POINTS_BATCH_WINDOW_MILLIS后有多少处理多少；整批入账写库成功后才确认
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory pointsBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(POINTS_BATCH_SIZE);
+        factory.setReceiveTimeout(POINTS_BATCH_WINDOW_MILLIS);
+        factory.setPrefetchCount(POINTS_BATCH_SIZE * 2);
+        return factory;
+    }
+}
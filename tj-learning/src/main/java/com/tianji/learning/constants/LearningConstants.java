@@ -11,4 +11,22 @@ public interface LearningConstants {
     int SYNC_POINTS_BOARD_PAGE_SIZE = 100;
     int SHARDING_POINTS_RECORD_DELETE_LIMIT = 1000;
     int SHARDING_POINTS_RECORD_DELETE_DELAY = 15;
+    // * 学习记录延迟持久化：进度多久不变才写库（ms）、队列分区数、持久化线程数、每批数量、领取后的租约时长（ms）
+    long LEARNING_RECORD_PERSIST_DELAY = 20_000;
+    int LEARNING_RECORD_DUE_PARTITIONS = 16;
+    int LEARNING_RECORD_FLUSH_WORKERS = 4;
+    int LEARNING_RECORD_FLUSH_BATCH_SIZE = 500;
+    long LEARNING_RECORD_FLUSH_LEASE = 60_000;
+    // * 学习记录缓存与课表进度快照的过期时间（ms），需要覆盖到期时间加上持久化的排队与重试时间，每次提交进度时刷新
+    long LEARNING_RECORD_CACHE_TTL = 600_000;
+    // * 积分消息幂等key的保留时间（s），覆盖消息重投的时间窗口
+    long POINTS_IDEMPOTENT_TTL = 172_800;
+    // * 赛季存档：榜单每块名次数、榜单并行写入线程数、积分记录每次复制的id跨度、积分记录每秒删除行数上限
+    int POINTS_ARCHIVE_BOARD_CHUNK = 1000;
+    int POINTS_ARCHIVE_BOARD_WORKERS = 4;
+    int POINTS_ARCHIVE_RECORD_CHUNK = 5000;
+    int POINTS_ARCHIVE_DELETE_ROWS_PER_SECOND = 5000;
+    // * 历史赛季榜单快照：预渲染的前N名、本地缓存的赛季数
+    int POINTS_BOARD_SNAPSHOT_TOP = 1000;
+    int POINTS_BOARD_SNAPSHOT_LOCAL_SEASONS = 24;
 }
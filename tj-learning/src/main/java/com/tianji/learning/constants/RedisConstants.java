@@ -8,6 +8,28 @@ package com.tianji.learning.constants;
 public interface RedisConstants {
     String SIGN_RECORD_KEY_PREFIX = "sign:uid:";
     String POINTS_BOARD_KEY_PREFIX = "boards:";
+    // * 积分消息已累加到榜单的标记，key为 {榜单key}:applied:用户id:幂等标识，与榜单在同一slot
+    String POINTS_BOARD_APPLIED_SUFFIX = ":applied:";
     String SYNC_BOARD_XXL_JOB_TIMES = "sync:board:xxl:times";
     String SYNC_BOARD_XXL_SHARD_TOTAL = "sync:board:xxl:total";
+    // * 学习记录缓存，hash的field为小节id，加载完成标记存在时没有条目的小节即为没有学习记录
+    String LEARNING_RECORD_KEY_PREFIX = "learning:record:";
+    String LEARNING_RECORD_LOADED_FIELD = "loaded";
+    // * 课表学习进度快照，hash
+    String LESSON_PROGRESS_KEY_PREFIX = "learning:lesson:progress:";
+    // * 学习记录待持久化队列，按课表id分区的ZSET，member为 课表id:小节id，score为到期时间（ms）
+    String LEARNING_RECORD_DUE_KEY_PREFIX = "learning:record:due:";
+    // * 待持久化记录最后一次提交进度对应的到期时间，hash，field为 课表id:小节id；key以分区ZSET的key为hash tag，二者在同一slot
+    String LEARNING_RECORD_DUE_TIME_KEY_SUFFIX = ":time";
+    // * 用户当日各类型积分计数，hash，key为 前缀{用户id}:yyyyMMdd，次日零点过期
+    String POINTS_DAILY_KEY_PREFIX = "points:daily:";
+    // * 积分消息幂等key，前缀{用户id}:消息幂等标识，value为实际入账积分
+    String POINTS_IDEMPOTENT_KEY_PREFIX = "points:idem:";
+    // * 赛季存档检查点，hash，key为 前缀赛季id；榜单已完成分块的bitmap
+    String POINTS_ARCHIVE_TASK_PREFIX = "points:archive:";
+    String POINTS_ARCHIVE_BOARD_DONE_PREFIX = "points:archive:board:";
+    // * 检查点中榜单已全部写入赛季表的标记字段，之后才能从赛季表构建历史榜单快照
+    String POINTS_ARCHIVE_BOARD_FINISHED = "boardFinished";
+    // * 历史赛季榜单快照，前缀赛季id:top 为前N名渲染结果（同时作为快照就绪标记），前缀赛季id:rank 为用户id->名次:积分的hash
+    String POINTS_BOARD_SNAPSHOT_KEY_PREFIX = "boards:history:";
 }
@@ -2,6 +2,10 @@ package com.tianji.learning.mapper;
 
 import com.tianji.learning.domain.po.InteractionReply;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 /**
  * <p>
@@ -13,4 +17,9 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  */
 public interface InteractionReplyMapper extends BaseMapper<InteractionReply> {
 
+    // * 一条语句批量更新点赞数
+    @Update("<script>UPDATE tj_learning.interaction_reply SET liked_times = CASE id " +
+            "<foreach collection='replies' item='r'>WHEN #{r.id} THEN #{r.likedTimes} </foreach>END WHERE id IN " +
+            "<foreach collection='replies' item='r' open='(' separator=',' close=')'>#{r.id}</foreach></script>")
+    int updateLikedTimesBatch(@Param("replies") List<InteractionReply> replies);
 }
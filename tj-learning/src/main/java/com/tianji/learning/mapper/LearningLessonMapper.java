@@ -5,6 +5,8 @@ import com.tianji.learning.domain.po.LearningLesson;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.Collection;
+
 /**
  * <p>
  * 学生课程表 Mapper 接口
@@ -21,4 +23,7 @@ public interface LearningLessonMapper extends BaseMapper<LearningLesson> {
 
     @Select("SELECT SUM(week_freq) FROM tj_learning.learning_lesson WHERE user_id = #{userId} AND plan_status = 1 AND status IN (0, 1)")
     Integer queryWeekFinishedPlan(@Param("userId") Long userId);
+
+    // * 批量更新最近学习小节与时间，一条语句多行
+    int updateLatestLearnBatch(@Param("lessons") Collection<LearningLesson> lessons);
 }
@@ -22,4 +22,7 @@ public interface LearningRecordMapper extends BaseMapper<LearningRecord> {
     @Select("SELECT lesson_id id, COUNT(*) num FROM tj_learning.learning_record WHERE user_id = #{userId} AND finished = 1 AND finish_time <= #{weekEndTime} AND finish_time >= #{weekBeginTime} GROUP BY lesson_id")
     List<IdAndNumDTO> countWeekLearnedSections(@Param("userId") Long userId, @Param("weekBeginTime") LocalDateTime weekBeginTime, @Param("weekEndTime") LocalDateTime weekEndTime);
 
+    // * 批量更新播放进度，一条语句多行
+    int updateMomentBatch(@Param("records") List<LearningRecord> records);
+
 }
@@ -4,6 +4,9 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.tianji.learning.domain.po.PointsBoard;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 /**
  * <p>
@@ -14,7 +17,7 @@ import org.apache.ibatis.annotations.Param;
  * @since 2024-11-21
  */
 public interface PointsBoardMapper extends BaseMapper<PointsBoard> {
-    @Insert("CREATE TABLE `${tableName}` (" +
+    @Insert("CREATE TABLE IF NOT EXISTS `${tableName}` (" +
             "id BIGINT NOT NULL AUTO_INCREMENT COMMENT '榜单id'," +
             "user_id BIGINT NOT NULL COMMENT '学生id'," +
             "points INT NOT NULL COMMENT '积分值'," +
@@ -26,4 +29,16 @@ public interface PointsBoardMapper extends BaseMapper<PointsBoard> {
             "ENGINE = InnoDB," +
             "ROW_FORMAT = DYNAMIC")
     void createPointsBoardTableBySeason(@Param("tableName") String tableName);
+
+    // * 赛季存档，id即名次，重复写入同一块时忽略
+    @Insert("<script>INSERT IGNORE INTO `${tableName}` (id, user_id, points) VALUES " +
+            "<foreach collection='boards' item='b' separator=','>(#{b.id}, #{b.userId}, #{b.points})</foreach></script>")
+    int insertBoardBatch(@Param("tableName") String tableName, @Param("boards") List<PointsBoard> boards);
+
+    // * 历史赛季查询，显式传入赛季表名；id即名次，按id区间分页
+    @Select("SELECT id, user_id, points FROM `${tableName}` WHERE id > #{fromId} ORDER BY id LIMIT #{limit}")
+    List<PointsBoard> queryBoardAfter(@Param("tableName") String tableName, @Param("fromId") long fromId, @Param("limit") int limit);
+
+    @Select("SELECT id, user_id, points FROM `${tableName}` WHERE user_id = #{userId} LIMIT 1")
+    PointsBoard queryUserBoard(@Param("tableName") String tableName, @Param("userId") Long userId);
 }
@@ -2,10 +2,10 @@ package com.tianji.learning.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.tianji.learning.domain.po.PointsRecord;
-import com.tianji.learning.enums.PointsRecordType;
 import org.apache.ibatis.annotations.*;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -18,12 +18,19 @@ import java.util.List;
  */
 public interface PointsRecordMapper extends BaseMapper<PointsRecord> {
 
-    @Select("SELECT SUM(points) FROM tj_learning.points_record WHERE user_id = #{userId} AND type = #{type} AND create_time >= #{start} AND create_time <= #{end}")
-    Integer queryUserTodayPoints(@Param("userId") Long userId, @Param("type") PointsRecordType type, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-
     @Select("SELECT type, SUM(points) points FROM tj_learning.points_record WHERE user_id = #{userId} AND create_time >= #{start} AND create_time <= #{end} GROUP BY type")
     List<PointsRecord> queryMyPointsToday(Long userId, LocalDateTime start, LocalDateTime end);
 
+    // * 积分入账批量写入与当日计数加载
+    @Insert("<script>INSERT INTO tj_learning.points_record (user_id, type, points) VALUES " +
+            "<foreach collection='records' item='r' separator=','>(#{r.userId}, #{r.type}, #{r.points})</foreach></script>")
+    int insertBatch(@Param("records") List<PointsRecord> records);
+
+    @Select("<script>SELECT user_id, type, SUM(points) points FROM tj_learning.points_record WHERE user_id IN " +
+            "<foreach collection='userIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "AND create_time &gt;= #{start} AND create_time &lt;= #{end} GROUP BY user_id, type</script>")
+    List<PointsRecord> queryUsersTodayPoints(@Param("userIds") Collection<Long> userIds, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
 
     // * 积分记录月初分表存档相关
     // * 分段删除方案
@@ -39,6 +46,19 @@ public interface PointsRecordMapper extends BaseMapper<PointsRecord> {
     @Delete("DELETE FROM tj_learning.points_record WHERE id >= #{minId} AND id <= #{maxId} LIMIT #{limit}")
     Integer deletePointsRecordWithRange(@Param("minId") Long minId, @Param("maxId") Long maxId, @Param("limit") int limit);
 
+    // * 分块流式存档方案，按主键区间复制与删除，每条语句只锁定一小段区间；只处理赛季结束前入账的记录
+    @Select("SELECT MIN(id) FROM tj_learning.points_record WHERE create_time < #{end}")
+    Long queryMinId(@Param("end") LocalDateTime end);
+
+    @Select("SELECT MAX(id) FROM tj_learning.points_record WHERE create_time < #{end}")
+    Long queryMaxId(@Param("end") LocalDateTime end);
+
+    @Insert("INSERT IGNORE INTO tj_learning.points_record_${seasonId} SELECT * FROM tj_learning.points_record WHERE id > #{fromId} AND id <= #{toId} AND create_time < #{end}")
+    int copyRangeToShardingTable(@Param("seasonId") String seasonId, @Param("fromId") long fromId, @Param("toId") long toId, @Param("end") LocalDateTime end);
+
+    @Delete("DELETE FROM tj_learning.points_record WHERE id > #{fromId} AND id <= #{toId} AND create_time < #{end}")
+    int deleteRange(@Param("fromId") long fromId, @Param("toId") long toId, @Param("end") LocalDateTime end);
+
     // * 重命名方案
     @Update("RENAME TABLE tj_learning.points_record TO tj_learning.points_record_${seasonId}")
     void renamePointsRecordTableToSharding(@Param("seasonId") String seasonId);
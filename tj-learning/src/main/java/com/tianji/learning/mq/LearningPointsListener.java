@@ -1,6 +1,7 @@
 package com.tianji.learning.mq;
 
 import com.tianji.common.constants.MqConstants;
+import com.tianji.common.utils.CollUtils;
 import com.tianji.learning.enums.PointsRecordType;
 import com.tianji.learning.mq.message.PointsMessage;
 import com.tianji.learning.service.IPointsRecordService;
@@ -13,6 +14,8 @@ import org.springframework.amqp.rabbit.annotation.QueueBinding;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * @author CamelliaV
  * @since 2024/11/18 / 23:05
@@ -28,17 +31,16 @@ public class LearningPointsListener {
                     exchange = @Exchange(value = MqConstants.Exchange.LEARNING_EXCHANGE, type = ExchangeTypes.TOPIC),
                     value = @Queue(value = MqConstants.Queue.SIGN_POINTS_QUEUE, durable = "true"),
                     key = MqConstants.Key.SIGN_IN
-
-            )
-
+            ),
+            containerFactory = "pointsBatchContainerFactory"
     )
-    public void listenSignMessage(PointsMessage message) {
-        if (message == null) {
+    public void listenSignMessage(List<PointsMessage> messages) {
+        if (CollUtils.isEmpty(messages)) {
             log.error("Sign:PointsMessage为空");
             return;
         }
 
-        pointsRecordService.addPointsRecord(message, PointsRecordType.SIGN);
+        pointsRecordService.addPointsRecords(messages, PointsRecordType.SIGN);
     }
 
     @RabbitListener(
@@ -46,17 +48,16 @@ public class LearningPointsListener {
                     exchange = @Exchange(value = MqConstants.Exchange.LEARNING_EXCHANGE, type = ExchangeTypes.TOPIC),
                     value = @Queue(value = MqConstants.Queue.LEARNING_POINTS_QUEUE, durable = "true"),
                     key = MqConstants.Key.LEARN_SECTION
-
-            )
-
+            ),
+            containerFactory = "pointsBatchContainerFactory"
     )
-    public void listenLearningMessage(PointsMessage message) {
-        if (message == null) {
+    public void listenLearningMessage(List<PointsMessage> messages) {
+        if (CollUtils.isEmpty(messages)) {
             log.error("Learning:PointsMessage为空");
             return;
         }
 
-        pointsRecordService.addPointsRecord(message, PointsRecordType.LEARNING);
+        pointsRecordService.addPointsRecords(messages, PointsRecordType.LEARNING);
     }
 
     @RabbitListener(
@@ -64,16 +65,15 @@ public class LearningPointsListener {
                     exchange = @Exchange(value = MqConstants.Exchange.LEARNING_EXCHANGE, type = ExchangeTypes.TOPIC),
                     value = @Queue(value = MqConstants.Queue.QA_POINTS_QUEUE, durable = "true"),
                     key = MqConstants.Key.WRITE_REPLY
-
-            )
-
+            ),
+            containerFactory = "pointsBatchContainerFactory"
     )
-    public void listenQAMessage(PointsMessage message) {
-        if (message == null) {
+    public void listenQAMessage(List<PointsMessage> messages) {
+        if (CollUtils.isEmpty(messages)) {
             log.error("QA:PointsMessage为空");
             return;
         }
 
-        pointsRecordService.addPointsRecord(message, PointsRecordType.QA);
+        pointsRecordService.addPointsRecords(messages, PointsRecordType.QA);
     }
 }
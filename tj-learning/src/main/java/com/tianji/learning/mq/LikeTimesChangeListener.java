@@ -3,7 +3,6 @@ package com.tianji.learning.mq;
 import com.tianji.api.dto.remark.LikedTimesDTO;
 import com.tianji.common.constants.MqConstants;
 import com.tianji.common.utils.CollUtils;
-import com.tianji.learning.domain.po.InteractionReply;
 import com.tianji.learning.service.IInteractionReplyService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,10 +11,12 @@ import org.springframework.amqp.rabbit.annotation.Exchange;
 import org.springframework.amqp.rabbit.annotation.Queue;
 import org.springframework.amqp.rabbit.annotation.QueueBinding;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author CamelliaV
@@ -28,6 +29,11 @@ public class LikeTimesChangeListener {
 
     private final IInteractionReplyService replyService;
 
+    // * 点赞到数据库中点赞数可见的延迟统计
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder lagMillis = new LongAdder();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
     @RabbitListener(
             bindings = @QueueBinding(
                     value = @Queue(name = "qa.liked.times.queue", durable = "true"),
@@ -41,17 +47,29 @@ public class LikeTimesChangeListener {
             log.error("LikedTimesDTO消息数据有误");
             return;
         }
-        // * 封装更新数据
-        List<InteractionReply> replyList = new ArrayList<>();
+        // * 合并后一条语句更新数据库
+        replyService.updateLikedTimes(dtoList);
+        // * 统计延迟
+        long now = System.currentTimeMillis();
         for (LikedTimesDTO dto : dtoList) {
-            InteractionReply reply = new InteractionReply();
-            reply.setId(dto.getBizId());
-            reply.setLikedTimes(dto.getLikedTimes());
-            replyList.add(reply);
+            if (dto.getChangedAt() == null) {
+                continue;
+            }
+            long lag = Math.max(now - dto.getChangedAt(), 0);
+            updates.increment();
+            lagMillis.add(lag);
+            maxLagMillis.accumulateAndGet(lag, Math::max);
         }
-        // * 更新数据库
-        replyService.updateBatchById(replyList);
+    }
 
+    @Scheduled(fixedDelay = 60000)
+    public void logStats() {
+        // * 每个周期清零，输出的是本周期的统计
+        long count = updates.sumThenReset();
+        long lag = lagMillis.sumThenReset();
+        long maxLag = maxLagMillis.getAndSet(0);
+        log.info("点赞数更新统计，更新次数：{}，平均延迟：{}ms，最大延迟：{}ms",
+                count, count == 0 ? 0 : lag / count, maxLag);
     }
 //    public void listenLikeTimesChange(List<LikedTimesDTO> dtoList) {
 //        // * 健壮性检查
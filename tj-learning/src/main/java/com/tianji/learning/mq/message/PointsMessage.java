@@ -14,4 +14,6 @@ import lombok.NoArgsConstructor;
 public class PointsMessage {
     private Long userId;
     private Integer points;
+    // * 幂等标识，同一业务事件的重投消息相同，用于去重
+    private String idempotentKey;
 }
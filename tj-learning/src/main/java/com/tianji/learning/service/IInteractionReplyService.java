@@ -1,12 +1,15 @@
 package com.tianji.learning.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.tianji.api.dto.remark.LikedTimesDTO;
 import com.tianji.common.domain.dto.PageDTO;
 import com.tianji.learning.domain.dto.ReplyDTO;
 import com.tianji.learning.domain.po.InteractionReply;
 import com.tianji.learning.domain.query.ReplyPageQuery;
 import com.tianji.learning.domain.vo.ReplyVO;
 
+import java.util.List;
+
 /**
  * <p>
  * 互动问题的回答或评论 服务类
@@ -22,4 +25,6 @@ public interface IInteractionReplyService extends IService<InteractionReply> {
     PageDTO<ReplyVO> queryReplyPage(ReplyPageQuery query, boolean isAdmin);
 
     void updateReplyHiddenById(Long id, Boolean hidden);
+
+    void updateLikedTimes(List<LikedTimesDTO> dtoList);
 }
@@ -20,6 +20,8 @@ public interface IPointsRecordService extends IService<PointsRecord> {
 
     void addPointsRecord(PointsMessage message, PointsRecordType type);
 
+    void addPointsRecords(List<PointsMessage> messages, PointsRecordType type);
+
     List<PointsStatisticsVO> queryMyPointsToday();
 
     void pointsRecordArchive();
@@ -80,7 +80,8 @@ public class ISignRecordServiceImpl implements ISignRecordService {
         vo.setRewardPoints(rewardPoints);
 
         // * 积分推送至mq
-        mqHelper.send(MqConstants.Exchange.LEARNING_EXCHANGE, MqConstants.Key.SIGN_IN, PointsMessage.of(userId, vo.totalPoints()));
+        mqHelper.send(MqConstants.Exchange.LEARNING_EXCHANGE, MqConstants.Key.SIGN_IN, PointsMessage.of(userId, vo.totalPoints(),
+                "sign:" + userId + ":" + now.format(DateTimeFormatter.BASIC_ISO_DATE)));
         return vo;
     }
 
@@ -3,10 +3,10 @@ package com.tianji.learning.service.impl;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.tianji.api.cache.CategoryCache;
+import com.tianji.api.cache.CourseCache;
+import com.tianji.api.cache.UserCache;
 import com.tianji.api.client.course.CatalogueClient;
-import com.tianji.api.client.course.CourseClient;
 import com.tianji.api.client.search.SearchClient;
-import com.tianji.api.client.user.UserClient;
 import com.tianji.api.dto.course.CataSimpleInfoDTO;
 import com.tianji.api.dto.course.CourseFullInfoDTO;
 import com.tianji.api.dto.course.CourseSimpleInfoDTO;
@@ -47,8 +47,8 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class InteractionQuestionServiceImpl extends ServiceImpl<InteractionQuestionMapper, InteractionQuestion> implements IInteractionQuestionService {
 
-    private final UserClient userClient;
-    private final CourseClient courseClient;
+    private final UserCache userCache;
+    private final CourseCache courseCache;
     private final SearchClient searchClient;
     private final CatalogueClient catalogueClient;
     private final CategoryCache categoryCache;
@@ -128,7 +128,7 @@ public class InteractionQuestionServiceImpl extends ServiceImpl<InteractionQuest
         userIds.remove(null);
         Map<Long, UserDTO> userDTOMap = new HashMap<>();
         if (CollUtils.isNotEmpty(userIds)) {
-            List<UserDTO> userDTOS = userClient.queryUserByIds(userIds);
+            List<UserDTO> userDTOS = userCache.queryUserByIds(userIds);
             if (CollUtils.isNotEmpty(userDTOS)) {
                 userDTOMap = userDTOS.stream()
                                      .collect(Collectors.toMap(UserDTO::getId, Function.identity()));
@@ -178,7 +178,7 @@ public class InteractionQuestionServiceImpl extends ServiceImpl<InteractionQuest
         // * 构造VO，查用户数据，补全VO信息
         QuestionVO questionVO = BeanUtils.copyBean(question, QuestionVO.class);
         if (!questionVO.getAnonymity()) {
-            UserDTO userDTO = userClient.queryUserById(questionVO.getUserId());
+            UserDTO userDTO = userCache.getUser(questionVO.getUserId());
             if (userDTO != null) {
                 questionVO.setUserIcon(userDTO.getIcon());
                 questionVO.setUserName(userDTO.getUsername());
@@ -226,14 +226,14 @@ public class InteractionQuestionServiceImpl extends ServiceImpl<InteractionQuest
             userIds.add(question.getUserId());
         }
         // * userId查询用户信息
-        List<UserDTO> userDTOS = userClient.queryUserByIds(userIds);
+        List<UserDTO> userDTOS = userCache.queryUserByIds(userIds);
         Map<Long, UserDTO> userDTOMap = new HashMap<>();
         if (CollUtils.isNotEmpty(userDTOS)) {
             userDTOMap = userDTOS.stream()
                                  .collect(Collectors.toMap(UserDTO::getId, Function.identity()));
         }
         // * courseId查询课程信息
-        List<CourseSimpleInfoDTO> courseList = courseClient.getSimpleInfoList(courseIdSet);
+        List<CourseSimpleInfoDTO> courseList = courseCache.getSimpleInfoList(courseIdSet);
         Map<Long, CourseSimpleInfoDTO> courseMap = new HashMap<>();
         if (CollUtils.isNotEmpty(courseList)) {
             courseMap = courseList.stream()
@@ -374,12 +374,12 @@ public class InteractionQuestionServiceImpl extends ServiceImpl<InteractionQuest
         QuestionAdminVO vo = BeanUtils.copyBean(question, QuestionAdminVO.class);
         // * 补全课程相关数据
         if (question.getCourseId() != null) {
-            CourseFullInfoDTO course = courseClient.getCourseInfoById(question.getCourseId(), true, true);
+            CourseFullInfoDTO course = courseCache.getCourseInfoById(question.getCourseId(), true, true);
             if (course != null) {
                 List<Long> teacherIds = course.getTeacherIds();
                 // * 健壮性检查，存在对应教师数据
                 if (CollUtils.isNotEmpty(teacherIds)) {
-                    List<UserDTO> teachers = userClient.queryUserByIds(teacherIds);
+                    List<UserDTO> teachers = userCache.queryUserByIds(teacherIds);
                     // * 补全教师用户名数据
                     if (CollUtils.isNotEmpty(teachers)) {
                         vo.setTeacherName(teachers.stream()
@@ -401,7 +401,7 @@ public class InteractionQuestionServiceImpl extends ServiceImpl<InteractionQuest
         }
         // * 补全用户相关数据
         if (question.getUserId() != null) {
-            UserDTO user = userClient.queryUserById(question.getUserId());
+            UserDTO user = userCache.getUser(question.getUserId());
             if (user != null) {
                 vo.setUserName(user.getUsername());
             }
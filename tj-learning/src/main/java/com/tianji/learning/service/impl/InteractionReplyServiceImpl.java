@@ -3,8 +3,9 @@ package com.tianji.learning.service.impl;
 import com.baomidou.mybatisplus.core.metadata.OrderItem;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.tianji.api.cache.UserCache;
 import com.tianji.api.client.remark.RemarkClient;
-import com.tianji.api.client.user.UserClient;
+import com.tianji.api.dto.remark.LikedTimesDTO;
 import com.tianji.api.dto.user.UserDTO;
 import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
 import com.tianji.common.constants.Constant;
@@ -52,10 +53,13 @@ import java.util.stream.Collectors;
 public class InteractionReplyServiceImpl extends ServiceImpl<InteractionReplyMapper, InteractionReply> implements IInteractionReplyService {
 
     private final IInteractionQuestionService questionService;
-    private final UserClient userClient;
+    private final UserCache userCache;
     private final RemarkClient remarkClient;
     private final RabbitMqHelper mqHelper;
 
+    // * 批量更新点赞数时单条SQL的最大记录数
+    private static final int LIKED_TIMES_BATCH_SIZE = 500;
+
     @Value(Constant.CONFIG_BIZTYPE_QA)
     private String bizType;
 
@@ -106,7 +110,7 @@ public class InteractionReplyServiceImpl extends ServiceImpl<InteractionReplyMap
                        .eq(InteractionQuestion::getId, reply.getQuestionId())
                        .update();
         // * 回答获得积分，推送mq
-        mqHelper.send(MqConstants.Exchange.LEARNING_EXCHANGE, MqConstants.Key.WRITE_REPLY, PointsMessage.of(userId, PointsRecordType.QA.getRewardPoints()));
+        mqHelper.send(MqConstants.Exchange.LEARNING_EXCHANGE, MqConstants.Key.WRITE_REPLY, PointsMessage.of(userId, PointsRecordType.QA.getRewardPoints(), "qa:" + reply.getId()));
     }
 
     /**
@@ -160,7 +164,7 @@ public class InteractionReplyServiceImpl extends ServiceImpl<InteractionReplyMap
             }
         }
         // * 根据完整的用户id集合查询用户信息
-        List<UserDTO> users = userClient.queryUserByIds(userIds);
+        List<UserDTO> users = userCache.queryUserByIds(userIds);
         Map<Long, UserDTO> userMap = users.stream()
                                           .collect(Collectors.toMap(UserDTO::getId, Function.identity()));
         // * 查询点赞过的replyIds
@@ -214,4 +218,27 @@ public class InteractionReplyServiceImpl extends ServiceImpl<InteractionReplyMap
                 .set(InteractionReply::getHidden, hidden)
                 .update();
     }
+
+    /**
+     * 批量更新点赞数，同一评论只保留最后一次的点赞数，每批一条CASE语句
+     */
+    @Override
+    public void updateLikedTimes(List<LikedTimesDTO> dtoList) {
+        if (CollUtils.isEmpty(dtoList)) {
+            return;
+        }
+        // * 合并同一评论的多次更新，点赞数为总数，后到的覆盖先到的
+        Map<Long, Integer> likedTimesMap = new LinkedHashMap<>(dtoList.size() * 4 / 3 + 1);
+        for (LikedTimesDTO dto : dtoList) {
+            if (dto.getBizId() != null && dto.getLikedTimes() != null) {
+                likedTimesMap.put(dto.getBizId(), dto.getLikedTimes());
+            }
+        }
+        List<InteractionReply> replies = new ArrayList<>(likedTimesMap.size());
+        likedTimesMap.forEach((id, likedTimes) -> replies.add(new InteractionReply().setId(id)
+                                                                                   .setLikedTimes(likedTimes)));
+        for (List<InteractionReply> batch : CollUtils.split(replies, LIKED_TIMES_BATCH_SIZE)) {
+            getBaseMapper().updateLikedTimesBatch(batch);
+        }
+    }
 }
@@ -1,11 +1,10 @@
 package com.tianji.learning.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.tianji.api.cache.CourseCache;
 import com.tianji.api.client.course.CatalogueClient;
-import com.tianji.api.client.course.CourseClient;
 import com.tianji.api.dto.IdAndNumDTO;
 import com.tianji.api.dto.course.CataSimpleInfoDTO;
 import com.tianji.api.dto.course.CourseFullInfoDTO;
@@ -29,6 +28,7 @@ import com.tianji.learning.enums.PlanStatus;
 import com.tianji.learning.mapper.LearningLessonMapper;
 import com.tianji.learning.mapper.LearningRecordMapper;
 import com.tianji.learning.service.ILearningLessonService;
+import com.tianji.learning.utils.LessonProgressCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -52,9 +52,10 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class LearningLessonServiceImpl extends ServiceImpl<LearningLessonMapper, LearningLesson> implements ILearningLessonService {
 
-    private final CourseClient courseClient;
+    private final CourseCache courseCache;
     private final LearningRecordMapper recordMapper;
     private final CatalogueClient catalogueClient;
+    private final LessonProgressCache lessonProgressCache;
 
     public static void main(String[] args) {
         System.out.println(LocalDate.now());
@@ -71,7 +72,7 @@ public class LearningLessonServiceImpl extends ServiceImpl<LearningLessonMapper,
     public void addLesson(OrderBasicDTO dto) {
         // * 根据课程id查询对应课程信息（有效期）
         List<Long> courseIds = dto.getCourseIds();
-        List<CourseSimpleInfoDTO> courseList = courseClient.getSimpleInfoList(courseIds);
+        List<CourseSimpleInfoDTO> courseList = courseCache.getSimpleInfoList(courseIds);
         if (CollUtils.isEmpty(courseList)) {
             throw new DbException("课程数据不存在");
         }
@@ -116,7 +117,7 @@ public class LearningLessonServiceImpl extends ServiceImpl<LearningLessonMapper,
                                          .map(LearningLesson::getCourseId)
                                          .collect(Collectors.toList());
 
-        List<CourseSimpleInfoDTO> courseList = courseClient.getSimpleInfoList(courseIds);
+        List<CourseSimpleInfoDTO> courseList = courseCache.getSimpleInfoList(courseIds);
         if (CollUtils.isEmpty(courseList)) {
             throw new DbException("课程信息不存在");
         }
@@ -158,7 +159,7 @@ public class LearningLessonServiceImpl extends ServiceImpl<LearningLessonMapper,
 
         LearningLessonVO vo = BeanUtils.copyBean(lesson, LearningLessonVO.class);
         // * 课程id查课程信息
-        CourseFullInfoDTO course = courseClient.getCourseInfoById(lesson.getCourseId(), false, false);
+        CourseFullInfoDTO course = courseCache.getCourseInfoById(lesson.getCourseId(), false, false);
         if (course == null) {
             throw new DbException("课程数据不存在");
         }
@@ -212,7 +213,7 @@ public class LearningLessonServiceImpl extends ServiceImpl<LearningLessonMapper,
             return null;
         }
         // * 课程id查课程信息
-        CourseFullInfoDTO course = courseClient.getCourseInfoById(lesson.getCourseId(), false, false);
+        CourseFullInfoDTO course = courseCache.getCourseInfoById(lesson.getCourseId(), false, false);
         if (course == null) {
             throw new DbException("课程信息不存在");
         }
@@ -276,14 +277,20 @@ public class LearningLessonServiceImpl extends ServiceImpl<LearningLessonMapper,
         if (userId == null) {
             userId = UserContext.getUser();
         }
-        // * 根据唯一标识(userId, courseId)删除对应课表项
-        boolean success = remove(new QueryWrapper<LearningLesson>()
-                .lambda()
+        // * 根据唯一标识(userId, courseId)查询对应课表项
+        LearningLesson lesson = lambdaQuery()
                 .eq(LearningLesson::getUserId, userId)
-                .eq(LearningLesson::getCourseId, courseId));
+                .eq(LearningLesson::getCourseId, courseId)
+                .one();
+        if (lesson == null) {
+            throw new DbException("删除课表失败");
+        }
+        boolean success = removeById(lesson.getId());
         if (!success) {
             throw new DbException("删除课表失败");
         }
+        // * 清除课表进度快照与学习记录缓存
+        lessonProgressCache.evict(lesson.getId());
     }
 
     /**
@@ -356,7 +363,7 @@ public class LearningLessonServiceImpl extends ServiceImpl<LearningLessonMapper,
         List<Long> courseIds = lessonList.stream()
                                          .map(LearningLesson::getCourseId)
                                          .collect(Collectors.toList());
-        List<CourseSimpleInfoDTO> courseList = courseClient.getSimpleInfoList(courseIds);
+        List<CourseSimpleInfoDTO> courseList = courseCache.getSimpleInfoList(courseIds);
         if (CollUtils.isEmpty(courseList)) {
             throw new DbException("课程信息缺失");
         }
@@ -1,15 +1,13 @@
 package com.tianji.learning.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.tianji.api.client.course.CourseClient;
-import com.tianji.api.dto.course.CourseFullInfoDTO;
 import com.tianji.api.dto.leanring.LearningLessonDTO;
 import com.tianji.api.dto.leanring.LearningRecordDTO;
 import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
 import com.tianji.common.constants.MqConstants;
 import com.tianji.common.exceptions.DbException;
 import com.tianji.common.utils.BeanUtils;
+import com.tianji.common.utils.BooleanUtils;
 import com.tianji.common.utils.CollUtils;
 import com.tianji.common.utils.UserContext;
 import com.tianji.learning.domain.dto.LearningRecordFormDTO;
@@ -23,6 +21,7 @@ import com.tianji.learning.mq.message.PointsMessage;
 import com.tianji.learning.service.ILearningLessonService;
 import com.tianji.learning.service.ILearningRecordService;
 import com.tianji.learning.task.LearningRecordDelayTaskHandler;
+import com.tianji.learning.utils.LessonProgressCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -43,8 +42,8 @@ import java.util.List;
 public class LearningRecordServiceImpl extends ServiceImpl<LearningRecordMapper, LearningRecord> implements ILearningRecordService {
 
     private final ILearningLessonService lessonService;
-    private final CourseClient courseClient;
     private final RabbitMqHelper mqHelper;
+    private final LessonProgressCache lessonProgressCache;
     // * 涉及循环依赖 修改了spring.main.allow-circular-references，使用autowired自动确定注入时机
     // * 偷懒复用批量更新（TaskHandler内部）
     @Autowired
@@ -88,6 +87,7 @@ public class LearningRecordServiceImpl extends ServiceImpl<LearningRecordMapper,
     /**
      * 提交学习记录
      * Update-11.19: 第一次完成计入积分
+     * 课表与学习记录从Redis进度快照读取，一次观看只在第一次提交时回源数据库与课程服务
      */
     @Override
     public void addLearningRecord(LearningRecordFormDTO dto) {
@@ -104,106 +104,79 @@ public class LearningRecordServiceImpl extends ServiceImpl<LearningRecordMapper,
         if (type != SectionType.VIDEO && type != SectionType.EXAM) {
             return;
         }
+        // * 课表进度快照，包含当前小节的学习记录
+        LessonProgressCache.LessonProgress progress = lessonProgressCache.get(dto.getLessonId(), dto.getSectionId());
+        if (progress == null) {
+            throw new DbException("课表数据不存在");
+        }
         // * 是否第一次完成（考试与第一次视频完成都算）
         LearningRecord learningRecord = null;
-        Boolean isFirstLessonFinished = false;
+        boolean isFirstLessonFinished = false;
         if (type == SectionType.VIDEO) {
-            // * 根据lessonId与sectionId查学习记录（Redis）
-            learningRecord = queryLearningRecord(dto.getLessonId(), dto.getSectionId());
+            learningRecord = progress.getRecord();
             // * 以前没有此记录，创建保存
             if (learningRecord == null) {
+                record.setFinished(false);
                 boolean success = save(record);
                 if (!success) {
                     throw new DbException("保存学习记录失败");
                 }
-            } else {
+                learningRecord = record;
+            } else if (!BooleanUtils.isTrue(learningRecord.getFinished()) && record.getMoment() >= dto.getDuration() / 2) {
                 // * 检查是否完成过，只有未完成过且已播放时间达到时长一半计入第一次完成
-                Boolean isFinished = learningRecord.getFinished();
-                if (!isFinished && record.getMoment() >= dto.getDuration() / 2) {
-                    isFirstLessonFinished = true;
-                    record = learningRecord;
-                    record.setMoment(dto.getMoment());
-                }
-                lambdaUpdate()
-                        .eq(LearningRecord::getId, learningRecord.getId())
-                        .update(record);
+                isFirstLessonFinished = true;
+                record.setId(learningRecord.getId());
             }
         }
-        // * 考试提交直接视作第一次完成
+        // * 考试提交，小节未完成过视作第一次完成
         if (type == SectionType.EXAM) {
+            if (progress.isSectionFinished()) {
+                return;
+            }
             isFirstLessonFinished = true;
         }
-
-        // * 查询出课表用于更新
-        LearningLesson lesson = lessonService.lambdaQuery()
-                                             .eq(LearningLesson::getId, record.getLessonId())
-                                             .one();
-        if (lesson == null) {
-            throw new DbException("课表数据不存在");
-        }
-        // * 如果第一次完成
+        // * 首次完成以快照中的完成标记为准，并发的重复完成只有一个能通过，之后才更新数据库与发放积分
+        LessonStatus status = null;
         if (isFirstLessonFinished) {
-            // * 记为已完成此小节学习并保存/更新
-            record.setFinished(true);
-            record.setFinishTime(dto.getCommitTime());
-            boolean success = saveOrUpdate(record);
-            if (!success) {
-                throw new DbException("学习记录保存/更新失败");
-            }
-            // * 更新已学习小节数
-            lesson.setLearnedSections(lesson.getLearnedSections() + 1);
-            // * 获取课程总小节数
-            CourseFullInfoDTO course = courseClient.getCourseInfoById(lesson.getCourseId(), false, false);
-            if (course == null) {
+            status = lessonProgressCache.markSectionFinished(dto.getLessonId(), dto.getSectionId());
+            if (status == null && type == SectionType.EXAM) {
                 return;
             }
-            Integer sectionNum = course.getSectionNum();
-            // * 判断是否已学完更新相关状态
-            if (lesson.getLearnedSections()
-                      .equals(sectionNum)) {
-                lesson.setStatus(LessonStatus.FINISHED);
-            }
-            // * 首次完成，提交mq奖励积分
-            mqHelper.send(MqConstants.Exchange.LEARNING_EXCHANGE, MqConstants.Key.LEARN_SECTION, PointsMessage.of(userId, PointsRecordType.LEARNING.getRewardPoints()));
-        } else {
-            // * 非首次完成，缓存数据至Redis中并提交延迟任务
-            // * 更新课表在延迟任务中完成
+        }
+        if (status == null) {
+            // * 非首次完成，缓存数据至Redis中并登记延迟持久化，更新课表在延迟任务中完成
             record.setId(learningRecord.getId());
-            record.setFinished(learningRecord.getFinished());
+            record.setFinished(isFirstLessonFinished ? Boolean.TRUE : learningRecord.getFinished());
             taskHandler.addLearningRecordTask(record);
             // * 定时任务方案
 //            taskHandler.addLearningRecordTaskScheduled(record);
             return;
         }
-        // * 更新课表最近学习小节与时间
-        lesson.setLatestSectionId(record.getSectionId());
-        lesson.setLatestLearnTime(LocalDateTime.now());
-        // * 第一次学习，更新学习状态
-        if (lesson.getStatus() == LessonStatus.NOT_BEGIN) {
-            lesson.setStatus(LessonStatus.LEARNING);
-        }
-        lessonService.getBaseMapper()
-                     .update(lesson, new QueryWrapper<LearningLesson>().lambda()
-                                                                       .eq(LearningLesson::getId, record.getLessonId()));
-        taskHandler.cleanRecordCache(dto.getLessonId(), dto.getSectionId());
-    }
-
-    // * 查询学习记录
-    private LearningRecord queryLearningRecord(Long lessonId, Long sectionId) {
-        // * 从Redis查询
-        LearningRecord record = taskHandler.readRecordCache(lessonId, sectionId);
-        // * 不在Redis中，从MySQL查询
-        if (record == null) {
-            record = lambdaQuery()
-                    .eq(LearningRecord::getSectionId, sectionId)
-                    .eq(LearningRecord::getLessonId, lessonId)
-                    .one();
-            if (record != null) {
-                // * 更新至Redis
-                taskHandler.writeRecordCache(record);
+        try {
+            // * 第一次完成，记为已完成此小节学习并保存/更新
+            record.setFinished(true);
+            record.setFinishTime(dto.getCommitTime());
+            boolean success = saveOrUpdate(record);
+            if (!success) {
+                throw new DbException("学习记录保存/更新失败");
             }
+            // * 更新课表已学小节数、状态与最近学习小节、时间，状态由快照按已学小节数计算
+            lessonService.lambdaUpdate()
+                         .setSql("learned_sections = learned_sections + 1")
+                         .set(LearningLesson::getStatus, status)
+                         .set(LearningLesson::getLatestSectionId, record.getSectionId())
+                         .set(LearningLesson::getLatestLearnTime, LocalDateTime.now())
+                         .eq(LearningLesson::getId, record.getLessonId())
+                         .update();
+        } catch (RuntimeException e) {
+            // * 快照已标记完成但数据库未更新，清除快照，下次从数据库重新加载
+            lessonProgressCache.evictProgress(dto.getLessonId());
+            throw e;
         }
-
-        return record;
+        if (type == SectionType.VIDEO) {
+            taskHandler.writeRecordCache(record);
+        }
+        // * 首次完成，提交mq奖励积分
+        mqHelper.send(MqConstants.Exchange.LEARNING_EXCHANGE, MqConstants.Key.LEARN_SECTION, PointsMessage.of(userId, PointsRecordType.LEARNING.getRewardPoints(), "learning:" + record.getId()));
     }
 }
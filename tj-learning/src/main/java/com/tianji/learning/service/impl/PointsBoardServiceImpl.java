@@ -1,13 +1,10 @@
 package com.tianji.learning.service.impl;
 
-import com.baomidou.mybatisplus.core.metadata.OrderItem;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.tianji.api.client.user.UserClient;
+import com.tianji.api.cache.UserCache;
 import com.tianji.api.dto.user.UserDTO;
 import com.tianji.common.utils.CollUtils;
 import com.tianji.common.utils.UserContext;
-import com.tianji.learning.constants.LearningConstants;
 import com.tianji.learning.constants.RedisConstants;
 import com.tianji.learning.domain.po.PointsBoard;
 import com.tianji.learning.domain.query.PointsBoardQuery;
@@ -15,7 +12,7 @@ import com.tianji.learning.domain.vo.PointsBoardItemVO;
 import com.tianji.learning.domain.vo.PointsBoardVO;
 import com.tianji.learning.mapper.PointsBoardMapper;
 import com.tianji.learning.service.IPointsBoardService;
-import com.tianji.learning.utils.TableInfoContext;
+import com.tianji.learning.utils.PointsBoardSnapshotStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
@@ -39,7 +36,8 @@ import java.util.stream.Collectors;
 public class PointsBoardServiceImpl extends ServiceImpl<PointsBoardMapper, PointsBoard> implements IPointsBoardService {
 
     private final StringRedisTemplate redisTemplate;
-    private final UserClient userClient;
+    private final UserCache userCache;
+    private final PointsBoardSnapshotStore boardSnapshotStore;
 
     /**
      * 根据赛季id查询用户数据与榜单数据
@@ -96,7 +94,7 @@ public class PointsBoardServiceImpl extends ServiceImpl<PointsBoardMapper, Point
             // * 查询用户名并填补itemvo
             List<PointsBoardItemVO> itemVOList = new ArrayList<>();
             if (CollUtils.isNotEmpty(userIdList)) {
-                List<UserDTO> userDTOS = userClient.queryUserByIds(userIdList);
+                List<UserDTO> userDTOS = userCache.queryUserByIds(userIdList);
                 if (CollUtils.isNotEmpty(userDTOS)) {
                     Map<Long, String> userMap = userDTOS.stream()
                                                         .collect(Collectors.toMap(UserDTO::getId, UserDTO::getUsername));
@@ -115,54 +113,8 @@ public class PointsBoardServiceImpl extends ServiceImpl<PointsBoardMapper, Point
             // * 补全vo
             vo.setBoardList(itemVOList);
         } else {
-            // * 查询历史赛季
-            // * 拼接历史赛季表名，放入ThreadLocal用于拦截器获取表名查询
-            String tableName = LearningConstants.POINTS_BOARD_TABLE_PREFIX + seasonId;
-            TableInfoContext.setInfo(tableName);
-            // * 查询用户自己的数据
-            PointsBoard userBoardItem = lambdaQuery()
-                    .eq(PointsBoard::getUserId, userId)
-                    .one();
-            // * 设置自己排行与积分
-            vo.setRank(userBoardItem != null ? userBoardItem.getId()
-                                                            .intValue() : 0);
-            vo.setPoints(userBoardItem != null ? userBoardItem.getPoints() : 0);
-            // * 分页查询数据库
-            Page<PointsBoard> boardPage = lambdaQuery()
-                    .page(query.toMpPage(new OrderItem("id", true)));
-
-            List<PointsBoardItemVO> itemVOList = new ArrayList<>();
-            List<PointsBoard> records = boardPage.getRecords();
-            // * 数据库记录不为空
-            if (CollUtils.isNotEmpty(records)) {
-                // * 构造userId列表查询用户名
-                List<Long> userIdList = records.stream()
-                                               .map(PointsBoard::getUserId)
-                                               .collect(Collectors.toList());
-                List<UserDTO> userDTOS = userClient.queryUserByIds(userIdList);
-                Map<Long, String> userMap = new HashMap<>();
-                // * 封装映射关系到map
-                if (CollUtils.isNotEmpty(userDTOS)) {
-                    userMap = userDTOS.stream()
-                                      .collect(Collectors.toMap(UserDTO::getId, UserDTO::getUsername));
-                }
-                // * 组装voList
-                for (PointsBoard record : records) {
-                    PointsBoardItemVO itemVO = new PointsBoardItemVO();
-                    itemVO.setRank(record.getId()
-                                         .intValue());
-                    itemVO.setPoints(record.getPoints());
-                    String userName = userMap.get(record.getUserId());
-                    if (userName != null) {
-                        itemVO.setName(userName);
-                    }
-                    itemVOList.add(itemVO);
-                }
-            }
-            // * 组装结果vo
-            vo.setBoardList(itemVOList);
-            // * 删去TL
-            TableInfoContext.remove();
+            // * 查询历史赛季，赛季存档后榜单不变，读取快照
+            vo = boardSnapshotStore.querySeasonBoard(seasonId, userId, query.getPageNo(), query.getPageSize());
         }
         // * 返回vo
         return vo;
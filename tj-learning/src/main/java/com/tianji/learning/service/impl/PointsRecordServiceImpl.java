@@ -1,6 +1,7 @@
 package com.tianji.learning.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.tianji.common.exceptions.BizIllegalException;
 import com.tianji.common.exceptions.DbException;
 import com.tianji.common.utils.CollUtils;
 import com.tianji.common.utils.DateUtils;
@@ -17,16 +18,27 @@ import com.tianji.learning.service.IPointsBoardSeasonService;
 import com.tianji.learning.service.IPointsRecordService;
 import com.tianji.learning.task.PointsRecordDelayTaskHandler;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * <p>
@@ -36,6 +48,7 @@ import java.util.List;
  * @author CamelliaV
  * @since 2024-11-18
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PointsRecordServiceImpl extends ServiceImpl<PointsRecordMapper, PointsRecord> implements IPointsRecordService {
@@ -43,6 +56,10 @@ public class PointsRecordServiceImpl extends ServiceImpl<PointsRecordMapper, Poi
 	private static final int POINTS_RECORD_SHARDING_RESULT_NUM = 2;
 	private static final int MAX_ID_INDEX = 0;
 	private static final int MIN_ID_INDEX = 1;
+	private static final RedisScript<Long> ACCRUE_SCRIPT = RedisScript.of(new ClassPathResource("lua/points_accrue.lua"), Long.class);
+	private static final RedisScript<Long> BOARD_INCR_SCRIPT = RedisScript.of(new ClassPathResource("lua/points_board_incr.lua"), Long.class);
+	private static final long ACCRUE_NOT_LOADED = -2;
+	private static final String DAILY_LOADED_FIELD = "_";
 	private final StringRedisTemplate redisTemplate;
 	private final IPointsBoardSeasonService seasonService;
 	@Autowired
@@ -53,43 +70,209 @@ public class PointsRecordServiceImpl extends ServiceImpl<PointsRecordMapper, Poi
 	 */
 	@Override
 	public void addPointsRecord(PointsMessage message, PointsRecordType type) {
-		// * 判断业务类型是否有积分上限
-		int maxPoints = type.getMaxPoints();
-		int points = message.getPoints();
-		int pointsToAdd = points;
-		Long userId = message.getUserId();
+		addPointsRecords(Collections.singletonList(message), type);
+	}
+
+	/**
+	 * 批量积分入账
+	 * 1.每条消息一次脚本：按幂等标识去重，按Redis中的当日计数校验上限并累加，管道批量执行<br>
+	 * 2.一次脚本累加排行榜，按消息去重<br>
+	 * 3.入账积分一次多行插入积分记录<br>
+	 * 累加榜单或写库失败时回滚本批的计数与幂等key后抛出，整批消息重投；已累加过榜单的消息重投时不会重复累加
+	 */
+	@Override
+	public void addPointsRecords(List<PointsMessage> messages, PointsRecordType type) {
+		List<PointsMessage> validMessages = new ArrayList<>(messages.size());
+		for (PointsMessage message : messages) {
+			if (message == null || message.getUserId() == null || message.getPoints() == null || message.getPoints() <= 0) {
+				log.error("积分消息数据不完整：{}", message);
+				continue;
+			}
+			validMessages.add(message);
+		}
+		if (validMessages.isEmpty()) {
+			return;
+		}
 		LocalDateTime now = LocalDateTime.now();
+		String day = now.format(DateTimeFormatter.BASIC_ISO_DATE);
+		long expireAt = DateUtils.getDayStartTime(now)
+				.plusDays(1)
+				.atZone(ZoneId.systemDefault())
+				.toEpochSecond();
+		// * 去重、校验上限并累加当日计数
+		long[] credited = accruePoints(validMessages, type, day, expireAt, now);
+		// * 构造入账记录与排行榜增量
+		List<PointsRecord> records = new ArrayList<>();
+		String boardKey = RedisConstants.POINTS_BOARD_KEY_PREFIX + now.format(DateTimeFormatter.ofPattern("yyyyMM"));
+		List<String> boardKeys = new ArrayList<>();
+		List<String> boardArgs = new ArrayList<>();
+		boardKeys.add(boardKey);
+		boardArgs.add(String.valueOf(LearningConstants.POINTS_IDEMPOTENT_TTL));
+		for (int i = 0; i < validMessages.size(); i++) {
+			if (credited[i] <= 0) {
+				continue;
+			}
+			Long userId = validMessages.get(i).getUserId();
+			int points = (int) credited[i];
+			records.add(new PointsRecord().setUserId(userId)
+					.setType(type)
+					.setPoints(points));
+			PointsMessage message = validMessages.get(i);
+			boardKeys.add(message.getIdempotentKey() == null
+					? boardKey : "{" + boardKey + "}" + RedisConstants.POINTS_BOARD_APPLIED_SUFFIX + userId + ":" + message.getIdempotentKey());
+			boardArgs.add(userId.toString());
+			boardArgs.add(String.valueOf(points));
+		}
+		if (records.isEmpty()) {
+			return;
+		}
+		try {
+			// * 累加分数到zset 前缀+年月作key 用户id member 分score；先于写库，写库失败重投时按消息去重不会重复累加
+			redisTemplate.execute(BOARD_INCR_SCRIPT, boardKeys, boardArgs.toArray());
+			getBaseMapper().insertBatch(records);
+		} catch (RuntimeException e) {
+			// * 回滚后整批重投，避免重投时被幂等key判为重复
+			rollbackAccrual(validMessages, credited, type, day);
+			throw e;
+		}
+	}
 
-		if (maxPoints > 0) {
-			// * 查询今日此类型业务已获积分
-			Integer todayPoints = getBaseMapper().queryUserTodayPoints(userId, type, DateUtils.getDayStartTime(now), DateUtils.getDayEndTime(now));
-			// * 没有相关数据
-			if (todayPoints == null) {
-				todayPoints = 0;
+	/**
+	 * 管道执行入账脚本，当日计数未加载的用户从数据库加载后重试一次
+	 *
+	 * @return 各消息实际入账积分，小于等于0为未入账
+	 */
+	private long[] accruePoints(List<PointsMessage> messages, PointsRecordType type, String day, long expireAt,
+			LocalDateTime now) {
+		long[] credited = new long[messages.size()];
+		List<Integer> pending = new ArrayList<>(messages.size());
+		for (int i = 0; i < messages.size(); i++) {
+			pending.add(i);
+		}
+		for (int round = 0; ; round++) {
+			List<Object> results = executeAccrueScripts(messages, pending, type, day, expireAt);
+			List<Integer> unloaded = new ArrayList<>();
+			for (int i = 0; i < pending.size(); i++) {
+				long result = (Long) results.get(i);
+				if (result == ACCRUE_NOT_LOADED) {
+					unloaded.add(pending.get(i));
+				} else {
+					credited[pending.get(i)] = result;
+				}
 			}
-			// * 今日分值已达上限
-			if (todayPoints >= maxPoints) {
-				return;
+			if (unloaded.isEmpty()) {
+				return credited;
 			}
-			// * 加完分不超过上限，加原始分数，否则加差值分数
-			if (todayPoints + points > maxPoints) {
-				pointsToAdd = maxPoints - todayPoints;
+			if (round > 0) {
+				throw new BizIllegalException("积分当日计数加载失败");
 			}
+			loadDailyCounters(unloaded.stream()
+					.map(i -> messages.get(i).getUserId())
+					.collect(Collectors.toSet()), day, expireAt, now);
+			pending = unloaded;
 		}
+	}
 
-		// * 构造数据保存
-		PointsRecord record = new PointsRecord();
-		record.setPoints(pointsToAdd)
-				.setType(type)
-				.setUserId(userId);
-		save(record);
+	private List<Object> executeAccrueScripts(List<PointsMessage> messages, List<Integer> indexes,
+			PointsRecordType type, String day, long expireAt) {
+		byte[] typeField = toBytes(type.getValue());
+		byte[] maxPoints = toBytes(type.getMaxPoints());
+		byte[] expire = toBytes(expireAt);
+		byte[] idempotentTtl = toBytes(LearningConstants.POINTS_IDEMPOTENT_TTL);
+		RedisCallback<Object> callback = connection -> {
+			for (Integer index : indexes) {
+				PointsMessage message = messages.get(index);
+				byte[] dailyKey = toBytes(dailyKey(message.getUserId(), day));
+				byte[] points = toBytes(message.getPoints());
+				if (message.getIdempotentKey() == null) {
+					connection.scriptingCommands().evalSha(ACCRUE_SCRIPT.getSha1(), ReturnType.INTEGER, 1,
+							dailyKey, typeField, points, maxPoints, expire, idempotentTtl);
+				} else {
+					connection.scriptingCommands().evalSha(ACCRUE_SCRIPT.getSha1(), ReturnType.INTEGER, 2,
+							dailyKey, toBytes(idempotentKey(message)), typeField, points, maxPoints, expire, idempotentTtl);
+				}
+			}
+			return null;
+		};
+		try {
+			return redisTemplate.executePipelined(callback, null);
+		} catch (DataAccessException e) {
+			if (!isNoScript(e)) {
+				throw e;
+			}
+			// * 脚本未加载（首次执行或Redis重启），所有命令均未执行，加载后重试
+			redisTemplate.execute((RedisCallback<String>) connection -> connection.scriptingCommands()
+					.scriptLoad(toBytes(ACCRUE_SCRIPT.getScriptAsString())));
+			return redisTemplate.executePipelined(callback, null);
+		}
+	}
+
+	/**
+	 * 从数据库加载用户当日各类型积分，先写计数再写加载完成标记，HSETNX不覆盖其他实例已累加的计数
+	 */
+	private void loadDailyCounters(Set<Long> userIds, String day, long expireAt, LocalDateTime now) {
+		List<PointsRecord> todayPoints = getBaseMapper().queryUsersTodayPoints(userIds, DateUtils.getDayStartTime(now),
+				DateUtils.getDayEndTime(now));
+		redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			for (PointsRecord record : todayPoints) {
+				connection.hashCommands().hSetNX(toBytes(dailyKey(record.getUserId(), day)),
+						toBytes(record.getType().getValue()), toBytes(record.getPoints()));
+			}
+			for (Long userId : userIds) {
+				byte[] key = toBytes(dailyKey(userId, day));
+				connection.hashCommands().hSetNX(key, toBytes(DAILY_LOADED_FIELD), toBytes(1));
+				connection.keyCommands().expireAt(key, expireAt);
+			}
+			return null;
+		}, null);
+	}
+
+	/**
+	 * 写库失败，撤销本批脚本累加的计数与写入的幂等key
+	 */
+	private void rollbackAccrual(List<PointsMessage> messages, long[] credited, PointsRecordType type, String day) {
+		byte[] typeField = toBytes(type.getValue());
+		try {
+			redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+				for (int i = 0; i < messages.size(); i++) {
+					if (credited[i] < 0) {
+						continue;
+					}
+					PointsMessage message = messages.get(i);
+					if (credited[i] > 0) {
+						connection.hashCommands().hIncrBy(toBytes(dailyKey(message.getUserId(), day)), typeField, -credited[i]);
+					}
+					if (message.getIdempotentKey() != null) {
+						connection.keyCommands().del(toBytes(idempotentKey(message)));
+					}
+				}
+				return null;
+			}, null);
+		} catch (RuntimeException e) {
+			log.error("积分入账回滚失败，{}条消息重投时将被判为重复", messages.size(), e);
+		}
+	}
+
+	private static String dailyKey(Long userId, String day) {
+		return RedisConstants.POINTS_DAILY_KEY_PREFIX + "{" + userId + "}:" + day;
+	}
 
-		// * 累加分数到zset 前缀+年月作key 用户id member 分score
-		String key = RedisConstants.POINTS_BOARD_KEY_PREFIX + now.format(DateTimeFormatter.ofPattern("yyyyMM"));
-		redisTemplate.opsForZSet()
-				.incrementScore(key, userId.toString(), pointsToAdd);
+	private static String idempotentKey(PointsMessage message) {
+		return RedisConstants.POINTS_IDEMPOTENT_KEY_PREFIX + "{" + message.getUserId() + "}:" + message.getIdempotentKey();
 	}
 
+	private static boolean isNoScript(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static byte[] toBytes(Object value) {
+		return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+	}
 
 	/**
 	 * 查询今日积分情况
@@ -2,35 +2,40 @@ package com.tianji.learning.task;
 
 import com.tianji.common.exceptions.DbException;
 import com.tianji.common.utils.CollUtils;
-import com.tianji.common.utils.JsonUtils;
-import com.tianji.common.utils.StringUtils;
+import com.tianji.learning.constants.LearningConstants;
+import com.tianji.learning.constants.RedisConstants;
 import com.tianji.learning.domain.po.LearningLesson;
 import com.tianji.learning.domain.po.LearningRecord;
+import com.tianji.learning.mapper.LearningLessonMapper;
 import com.tianji.learning.mapper.LearningRecordMapper;
 import com.tianji.learning.service.ILearningLessonService;
 import com.tianji.learning.service.ILearningRecordService;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.tianji.learning.utils.LearningRecordFlushMetrics;
+import com.tianji.learning.utils.RecordCacheCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.DataAccessException;
-import org.springframework.data.redis.core.RedisOperations;
-import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.time.ZoneId;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.DelayQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -38,14 +43,17 @@ import java.util.stream.Collectors;
 @Component
 public class LearningRecordDelayTaskHandler {
 
-    private final static String RECORD_KEY_TEMPLATE = "learning:record:{}";
-    // * 实际核心数，非逻辑处理器数
-    // private final static int CPU_ACTUAL_CORES = 8;
-    private final static int CPU_ACTUAL_CORES = 1;
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_RECORD_SCRIPT = RedisScript.of(new ClassPathResource("lua" +
+            "/claim_learning_record.lua"), List.class);
+    private static final RedisScript<Long> ACK_RECORD_SCRIPT = RedisScript.of(new ClassPathResource("lua" +
+            "/ack_learning_record.lua"), Long.class);
+    private final static long IDLE_MILLIS = 500;
     private static volatile boolean begin = true;
     private final StringRedisTemplate redisTemplate;
-    private final DelayQueue<DelayTask<RecordTaskData>> queue = new DelayQueue<>();
     private final LearningRecordMapper recordMapper;
+    private final LearningLessonMapper lessonMapper;
+    private final LearningRecordFlushMetrics flushMetrics;
     private final ILearningLessonService lessonService;
     // * 涉及循环依赖 修改了spring.main.allow-circular-references，使用autowired自动确定注入时机
     // * 偷懒复用批量更新
@@ -54,16 +62,26 @@ public class LearningRecordDelayTaskHandler {
     // * 仅为实现定时任务（不采用）添加，key为记录id，value为记录
     private final Map<Long, LearningRecord> lastRecords;
 
+    private ExecutorService flushPool;
+
+    /**
+     * 待持久化的学习记录放在Redis的ZSET中，重启不丢失；按课表id分区，每个线程负责固定的几个分区，
+     * 同一实例内同一课表只会被一个线程写库，线程之间没有行锁竞争
+     */
     @PostConstruct
     public void init() {
-        ExecutorService threadPool = Executors.newFixedThreadPool(CPU_ACTUAL_CORES);
-        CompletableFuture.runAsync(this::handleDelayTask, threadPool);
+        flushPool = Executors.newFixedThreadPool(LearningConstants.LEARNING_RECORD_FLUSH_WORKERS);
+        for (int i = 0; i < LearningConstants.LEARNING_RECORD_FLUSH_WORKERS; i++) {
+            int worker = i;
+            CompletableFuture.runAsync(() -> handleDueRecords(worker), flushPool);
+        }
     }
 
     @PreDestroy
     public void destroy() {
         log.debug("关闭学习记录处理的延迟任务");
         begin = false;
+        flushPool.shutdown();
     }
 
     /**
@@ -114,39 +132,141 @@ public class LearningRecordDelayTaskHandler {
         log.info("定时持久化学习记录任务成功");
     }
 
-    private void handleDelayTask() {
+    private void handleDueRecords(int worker) {
         while (begin) {
-            try {
-                // 1.尝试获取任务
-                DelayTask<RecordTaskData> task = queue.take();
-                log.debug("获取到要处理的播放记录任务");
-                RecordTaskData data = task.getData();
-                // 2.读取Redis缓存
-                LearningRecord record = readRecordCache(data.getLessonId(), data.getSectionId());
-                if (record == null) {
-                    continue;
+            int flushed = 0;
+            for (int partition = worker; partition < LearningConstants.LEARNING_RECORD_DUE_PARTITIONS;
+                 partition += LearningConstants.LEARNING_RECORD_FLUSH_WORKERS) {
+                try {
+                    flushed += flushDueRecords(partition);
+                } catch (Exception e) {
+                    // * 未确认的任务租约到期后会被重新领取
+                    log.error("处理播放记录任务发生异常，分区：{}", partition, e);
                 }
-                // 3.比较数据
-                if (!Objects.equals(data.getMoment(), record.getMoment())) {
-                    // 4.如果不一致，播放进度在变化，无需持久化
-                    continue;
+            }
+            // * 负责的分区都没有到期任务，休眠一会
+            if (flushed == 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(IDLE_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
                 }
-                // 5.如果一致，证明用户离开了视频，需要持久化
-                // 5.1.更新学习记录
-                record.setFinished(null);
-                recordMapper.updateById(record);
-                // 5.2.更新课表
+            }
+        }
+    }
+
+    /**
+     * 领取一个分区中到期的学习记录，合并后批量写库，写库成功后确认
+     *
+     * @return 本次领取的任务数
+     */
+    private int flushDueRecords(int partition) {
+        // 1.领取到期任务，同时改为租约时间防止被重复领取；返回的到期时间为最后一次提交进度对应的，不受租约影响
+        String dueKey = RedisConstants.LEARNING_RECORD_DUE_KEY_PREFIX + partition;
+        List<String> keys = List.of(dueKey, dueTimeKey(dueKey));
+        long now = System.currentTimeMillis();
+        String lease = String.valueOf(now + LearningConstants.LEARNING_RECORD_FLUSH_LEASE);
+        @SuppressWarnings("unchecked")
+        List<String> entries = redisTemplate.execute(CLAIM_RECORD_SCRIPT, keys, String.valueOf(now), lease,
+                String.valueOf(LearningConstants.LEARNING_RECORD_FLUSH_BATCH_SIZE));
+        if (CollUtils.isEmpty(entries)) {
+            return 0;
+        }
+        int size = entries.size() / 2;
+        List<String> members = new ArrayList<>(size);
+        long[] dueTimes = new long[size];
+        for (int i = 0; i < size; i++) {
+            members.add(entries.get(2 * i));
+            dueTimes[i] = (long) Double.parseDouble(entries.get(2 * i + 1));
+        }
+        // 2.一次管道读取所有缓存，结果不经过序列化器，直接解码
+        List<Object> caches = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String member : members) {
+                int split = member.indexOf(':');
+                connection.hashCommands().hGet(recordKey(member.substring(0, split)), toBytes(member.substring(split + 1)));
+            }
+            return null;
+        }, null);
+        // 3.组装更新数据，缓存已被删除的（已完成时直接写过库）跳过；同一课表只保留最近学习的小节
+        List<LearningRecord> records = new ArrayList<>(size);
+        Map<Long, LearningLesson> lessons = new HashMap<>();
+        Map<Long, Long> lessonDueTimes = new HashMap<>();
+        long lagSum = 0;
+        long maxLag = 0;
+        for (int i = 0; i < size; i++) {
+            LearningRecord cache = RecordCacheCodec.decode((byte[]) caches.get(i));
+            if (cache == null) {
+                continue;
+            }
+            LearningRecord record = new LearningRecord();
+            record.setId(cache.getId());
+            record.setMoment(cache.getMoment());
+            records.add(record);
+            String member = members.get(i);
+            int split = member.indexOf(':');
+            Long lessonId = Long.valueOf(member.substring(0, split));
+            Long last = lessonDueTimes.get(lessonId);
+            if (last == null || last < dueTimes[i]) {
+                lessonDueTimes.put(lessonId, dueTimes[i]);
                 LearningLesson lesson = new LearningLesson();
-                lesson.setId(data.getLessonId());
-                lesson.setLatestSectionId(data.getSectionId());
-                lesson.setLatestLearnTime(LocalDateTime.now());
-                lessonService.updateById(lesson);
+                lesson.setId(lessonId);
+                lesson.setLatestSectionId(Long.valueOf(member.substring(split + 1)));
+                // * 最近学习时间为最后一次提交进度的时间
+                lesson.setLatestLearnTime(LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(dueTimes[i] - LearningConstants.LEARNING_RECORD_PERSIST_DELAY), ZoneId.systemDefault()));
+                lessons.put(lessonId, lesson);
+            }
+        }
+        // 4.多行更新学习记录与课表
+        if (!records.isEmpty()) {
+            recordMapper.updateMomentBatch(records);
+            lessonMapper.updateLatestLearnBatch(lessons.values());
+        }
+        // 5.确认，期间又有新进度的记录保留
+        redisTemplate.execute(ACK_RECORD_SCRIPT, keys, (Object[]) prepend(lease, members));
+        long end = System.currentTimeMillis();
+        for (long dueTime : dueTimes) {
+            lagSum += end - dueTime;
+            maxLag = Math.max(maxLag, end - dueTime);
+        }
+        flushMetrics.recordFlush(records.size(), lagSum, maxLag, end - now);
+        log.debug("持久化学习记录{}条，分区：{}", records.size(), partition);
+        return size;
+    }
+
+    private static String[] prepend(String first, List<String> rest) {
+        String[] args = new String[rest.size() + 1];
+        args[0] = first;
+        for (int i = 0; i < rest.size(); i++) {
+            args[i + 1] = rest.get(i);
+        }
+        return args;
+    }
 
-                log.debug("准备持久化学习记录信息");
-            } catch (Exception e) {
-                log.error("处理播放记录任务发生异常", e);
+    /**
+     * 每分钟采样队列深度并输出持久化统计
+     */
+    @Scheduled(fixedRate = 60_000)
+    public void reportFlushMetrics() {
+        String now = String.valueOf(System.currentTimeMillis());
+        List<Object> counts = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (int i = 0; i < LearningConstants.LEARNING_RECORD_DUE_PARTITIONS; i++) {
+                String dueKey = RedisConstants.LEARNING_RECORD_DUE_KEY_PREFIX + i;
+                conn.zCard(dueKey);
+                conn.zCount(dueKey, Double.NEGATIVE_INFINITY, Double.parseDouble(now));
             }
+            return null;
+        });
+        long depth = 0;
+        long due = 0;
+        for (int i = 0; i < counts.size(); i += 2) {
+            depth += (Long) counts.get(i);
+            due += (Long) counts.get(i + 1);
         }
+        flushMetrics.updateDepth(depth, due);
+        flushMetrics.logAndReset();
     }
 
     // * 替换addLearningRecordTask采用定时任务方案
@@ -161,31 +281,21 @@ public class LearningRecordDelayTaskHandler {
     private List<LearningRecord> readRecordCacheBatch() {
         try {
             // * 1.批量读取Redis数据，因为没有根据lessonId聚类，这里只一次传输多条单field读取
-            // * 逆天API三个泛型只给传一个
-            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
-                @Override
-                public Object execute(RedisOperations operations) throws DataAccessException {
-                    for (Long recordKey : lastRecords.keySet()) {
-                        LearningRecord record = lastRecords.get(recordKey);
-                        String key = StringUtils.format(RECORD_KEY_TEMPLATE, record.getLessonId());
-                        // * 完全虚假的类型安全
-                        // * 18年的issue 2024还没close😅
-                        // * https://github.com/spring-projects/spring-data-redis/issues/1431
-                        //noinspection unchecked
-                        operations.opsForHash()
-                                  .get(key, record.getSectionId()
-                                                  .toString());
-                    }
-                    return null;
+            // * 缓存为二进制编码，不经过序列化器
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (LearningRecord record : lastRecords.values()) {
+                    connection.hashCommands().hGet(recordKey(record.getLessonId()), toBytes(record.getSectionId()));
                 }
-            });
+                return null;
+            }, null);
             // * Redis中无数据，不进行更新
             if (CollUtils.isEmpty(results)) {
                 return null;
             }
-            // * 反序列化Redis数据用于后续Service数据库数据更新
+            // * 解码Redis数据用于后续Service数据库数据更新
             List<LearningRecord> recordList = results.stream()
-                                                     .map(record -> JsonUtils.toBean(record.toString(), LearningRecord.class))
+                                                     .map(record -> RecordCacheCodec.decode((byte[]) record))
+                                                     .filter(Objects::nonNull)
                                                      .collect(Collectors.toList());
             return recordList;
         } catch (Exception e) {
@@ -196,24 +306,46 @@ public class LearningRecordDelayTaskHandler {
 
 
     public void addLearningRecordTask(LearningRecord record) {
-        // 1.添加数据到Redis缓存
-        writeRecordCache(record);
-        // 2.提交延迟任务到延迟队列 DelayQueue
-        queue.add(new DelayTask<>(new RecordTaskData(record), Duration.ofSeconds(20)));
+        // * 写缓存、刷新过期时间、登记到按课表分区的待持久化队列，一次管道往返
+        // * 每次提交进度都会推后到期时间，进度20秒不变才会写库
+        String dueKey = RedisConstants.LEARNING_RECORD_DUE_KEY_PREFIX
+                + Math.floorMod(record.getLessonId(), LearningConstants.LEARNING_RECORD_DUE_PARTITIONS);
+        String member = record.getLessonId() + ":" + record.getSectionId();
+        long dueTime = System.currentTimeMillis() + LearningConstants.LEARNING_RECORD_PERSIST_DELAY;
+        // * 到期时间另存一份，领取后score会被改为租约时间，重新领取时仍能拿到原到期时间
+        writeRecordCache(record, connection -> {
+            connection.hashCommands().hSet(toBytes(dueTimeKey(dueKey)), toBytes(member), toBytes(dueTime));
+            connection.zSetCommands().zAdd(toBytes(dueKey), dueTime, toBytes(member));
+        });
+    }
+
+    /**
+     * 分区的到期时间hash，以分区ZSET的key为hash tag，领取与确认脚本可同时操作
+     */
+    private static String dueTimeKey(String dueKey) {
+        return "{" + dueKey + "}" + RedisConstants.LEARNING_RECORD_DUE_TIME_KEY_SUFFIX;
     }
 
     public void writeRecordCache(LearningRecord record) {
+        writeRecordCache(record, null);
+    }
+
+    /**
+     * 二进制编码写入缓存并刷新过期时间，与附加的命令在同一管道中发送
+     */
+    private void writeRecordCache(LearningRecord record, Consumer<RedisConnection> extra) {
         log.debug("更新学习记录的缓存数据");
         try {
-            // 1.数据转换
-            String json = JsonUtils.toJsonStr(new RecordCacheData(record));
-            // 2.写入Redis
-            String key = StringUtils.format(RECORD_KEY_TEMPLATE, record.getLessonId());
-            redisTemplate.opsForHash()
-                         .put(key, record.getSectionId()
-                                         .toString(), json);
-            // 3.添加缓存过期时间
-            redisTemplate.expire(key, Duration.ofMinutes(1));
+            byte[] key = recordKey(record.getLessonId());
+            byte[] value = RecordCacheCodec.encode(record);
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.hashCommands().hSet(key, toBytes(record.getSectionId()), value);
+                connection.keyCommands().pExpire(key, LearningConstants.LEARNING_RECORD_CACHE_TTL);
+                if (extra != null) {
+                    extra.accept(connection);
+                }
+                return null;
+            }, null);
         } catch (Exception e) {
             log.error("更新学习记录缓存异常", e);
         }
@@ -221,15 +353,9 @@ public class LearningRecordDelayTaskHandler {
 
     public LearningRecord readRecordCache(Long lessonId, Long sectionId) {
         try {
-            // 1.读取Redis数据
-            String key = StringUtils.format(RECORD_KEY_TEMPLATE, lessonId);
-            Object cacheData = redisTemplate.opsForHash()
-                                            .get(key, sectionId.toString());
-            if (cacheData == null) {
-                return null;
-            }
-            // 2.数据检查和转换
-            return JsonUtils.toBean(cacheData.toString(), LearningRecord.class);
+            byte[] cacheData = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                    connection.hashCommands().hGet(recordKey(lessonId), toBytes(sectionId)));
+            return RecordCacheCodec.decode(cacheData);
         } catch (Exception e) {
             log.error("缓存读取异常", e);
             return null;
@@ -239,36 +365,16 @@ public class LearningRecordDelayTaskHandler {
 
     public void cleanRecordCache(Long lessonId, Long sectionId) {
         // 删除数据
-        String key = StringUtils.format(RECORD_KEY_TEMPLATE, lessonId);
+        String key = RedisConstants.LEARNING_RECORD_KEY_PREFIX + lessonId;
         redisTemplate.opsForHash()
                      .delete(key, sectionId.toString());
     }
 
-    @Data
-    @NoArgsConstructor
-    private static class RecordCacheData {
-        private Long id;
-        private Integer moment;
-        private Boolean finished;
-
-        public RecordCacheData(LearningRecord record) {
-            this.id = record.getId();
-            this.moment = record.getMoment();
-            this.finished = record.getFinished();
-        }
+    public static byte[] recordKey(Object lessonId) {
+        return toBytes(RedisConstants.LEARNING_RECORD_KEY_PREFIX + lessonId);
     }
 
-    @Data
-    @NoArgsConstructor
-    private static class RecordTaskData {
-        private Long lessonId;
-        private Long sectionId;
-        private Integer moment;
-
-        public RecordTaskData(LearningRecord record) {
-            this.lessonId = record.getLessonId();
-            this.sectionId = record.getSectionId();
-            this.moment = record.getMoment();
-        }
+    public static byte[] toBytes(Object value) {
+        return value.toString().getBytes(StandardCharsets.UTF_8);
     }
 }
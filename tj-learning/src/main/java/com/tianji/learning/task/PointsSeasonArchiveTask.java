@@ -0,0 +1,255 @@
+package com.tianji.learning.task;
+
+import com.tianji.common.utils.CollUtils;
+import com.tianji.learning.constants.LearningConstants;
+import com.tianji.learning.constants.RedisConstants;
+import com.tianji.learning.domain.po.PointsBoard;
+import com.tianji.learning.domain.po.PointsBoardSeason;
+import com.tianji.learning.mapper.PointsBoardMapper;
+import com.tianji.learning.mapper.PointsRecordMapper;
+import com.tianji.learning.service.IPointsBoardSeasonService;
+import com.tianji.learning.utils.PointsBoardSnapshotStore;
+import com.xxl.job.core.handler.annotation.XxlJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 上赛季存档：Redis榜单写入赛季榜单表，积分记录复制到赛季分表后限速删除
+ * <p>
+ * 1.榜单按名次分块，多线程分页读取ZSET并多行插入，id即名次<br>
+ * 2.积分记录按主键区间分块 INSERT IGNORE ... SELECT，每条语句只锁定一小段区间；区间与每条语句都限定赛季结束前入账的记录，
+ * 本赛季已入账的记录即使id落在区间内也不会被复制或删除<br>
+ * 3.复制完成后按主键区间删除，按每秒行数预算限速<br>
+ * 每个阶段的进度记录在Redis检查点中，任务中断后再次调度从检查点继续，已完成的存档直接跳过
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PointsSeasonArchiveTask {
+    private static final String BOARD_TOTAL = "boardTotal";
+    private static final String BOARD_FINISHED = RedisConstants.POINTS_ARCHIVE_BOARD_FINISHED;
+    private static final String MAX_ID = "maxId";
+    private static final String COPIED_ID = "copiedId";
+    private static final String DELETED_ID = "deletedId";
+    private static final String FINISHED = "finished";
+
+    private final StringRedisTemplate redisTemplate;
+    private final IPointsBoardSeasonService seasonService;
+    private final PointsBoardMapper boardMapper;
+    private final PointsRecordMapper recordMapper;
+    private final PointsBoardSnapshotStore boardSnapshotStore;
+
+    @XxlJob("pointsSeasonArchive")
+    public void archivePreviousSeason() {
+        // * 上一赛季
+        LocalDate time = LocalDate.now()
+                                  .minusMonths(1);
+        PointsBoardSeason season = seasonService.lambdaQuery()
+                                                .ge(PointsBoardSeason::getEndTime, time)
+                                                .le(PointsBoardSeason::getBeginTime, time)
+                                                .one();
+        if (season == null) {
+            return;
+        }
+        String seasonId = String.valueOf(season.getId());
+        String taskKey = RedisConstants.POINTS_ARCHIVE_TASK_PREFIX + seasonId;
+        String boardKey = RedisConstants.POINTS_BOARD_KEY_PREFIX + season.getBeginTime()
+                                                                         .format(DateTimeFormatter.ofPattern("yyyyMM"));
+        // * 赛季结束时间（不含），之后入账的积分属于本赛季
+        LocalDateTime seasonEnd = season.getEndTime()
+                                        .plusDays(1)
+                                        .atStartOfDay();
+        Map<Object, Object> checkpoint = initCheckpoint(taskKey, boardKey, seasonEnd);
+        if (checkpoint.containsKey(FINISHED)) {
+            return;
+        }
+        if (!checkpoint.containsKey(BOARD_FINISHED)) {
+            archiveBoard(seasonId, taskKey, boardKey, Long.parseLong((String) checkpoint.get(BOARD_TOTAL)));
+        }
+        String maxId = (String) checkpoint.get(MAX_ID);
+        if (maxId != null) {
+            long max = Long.parseLong(maxId);
+            long copied = copyRecords(seasonId, taskKey, Long.parseLong((String) checkpoint.get(COPIED_ID)), max, seasonEnd);
+            if (copied < max) {
+                return;
+            }
+            long deleted = deleteRecords(taskKey, Long.parseLong((String) checkpoint.get(DELETED_ID)), max, seasonEnd);
+            if (deleted < max) {
+                return;
+            }
+        }
+        // * 榜单已存入数据库，历史查询走赛季表
+        redisTemplate.opsForHash()
+                     .put(taskKey, FINISHED, "1");
+        redisTemplate.unlink(boardKey);
+        log.info("赛季{}存档完成", seasonId);
+    }
+
+    /**
+     * 首次执行时固定存档范围：榜单总人数，赛季结束前入账的积分记录的id区间
+     */
+    private Map<Object, Object> initCheckpoint(String taskKey, String boardKey, LocalDateTime seasonEnd) {
+        Map<Object, Object> checkpoint = redisTemplate.opsForHash()
+                                                      .entries(taskKey);
+        if (CollUtils.isNotEmpty(checkpoint)) {
+            return checkpoint;
+        }
+        Long boardTotal = redisTemplate.opsForZSet()
+                                       .zCard(boardKey);
+        redisTemplate.opsForHash()
+                     .putIfAbsent(taskKey, BOARD_TOTAL, String.valueOf(boardTotal == null ? 0 : boardTotal));
+        Long minId = recordMapper.queryMinId(seasonEnd);
+        Long maxId = recordMapper.queryMaxId(seasonEnd);
+        if (minId != null && maxId != null) {
+            redisTemplate.opsForHash()
+                         .putIfAbsent(taskKey, COPIED_ID, String.valueOf(minId - 1));
+            redisTemplate.opsForHash()
+                         .putIfAbsent(taskKey, DELETED_ID, String.valueOf(minId - 1));
+            redisTemplate.opsForHash()
+                         .putIfAbsent(taskKey, MAX_ID, String.valueOf(maxId));
+        }
+        return redisTemplate.opsForHash()
+                            .entries(taskKey);
+    }
+
+    /**
+     * 榜单分块并行写入，完成的块记录在bitmap中
+     */
+    private void archiveBoard(String seasonId, String taskKey, String boardKey, long total) {
+        String tableName = LearningConstants.POINTS_BOARD_TABLE_PREFIX + seasonId;
+        boardMapper.createPointsBoardTableBySeason(tableName);
+        String doneKey = RedisConstants.POINTS_ARCHIVE_BOARD_DONE_PREFIX + seasonId;
+        int chunkSize = LearningConstants.POINTS_ARCHIVE_BOARD_CHUNK;
+        long chunks = (total + chunkSize - 1) / chunkSize;
+        AtomicLong rows = new AtomicLong();
+        long begin = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(LearningConstants.POINTS_ARCHIVE_BOARD_WORKERS);
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (long chunk = 0; chunk < chunks; chunk++) {
+                if (Boolean.TRUE.equals(redisTemplate.opsForValue()
+                                                     .getBit(doneKey, chunk))) {
+                    continue;
+                }
+                long index = chunk;
+                futures.add(CompletableFuture.runAsync(() -> {
+                    rows.addAndGet(archiveBoardChunk(tableName, boardKey, index * chunkSize, chunkSize));
+                    redisTemplate.opsForValue()
+                                 .setBit(doneKey, index, true);
+                }, pool));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                             .join();
+        } finally {
+            pool.shutdown();
+        }
+        logRate("赛季" + seasonId + "榜单", rows.get(), begin);
+        // * 榜单已完整写入赛季表，标记完成后才允许构建快照
+        redisTemplate.opsForHash()
+                     .put(taskKey, BOARD_FINISHED, "1");
+        redisTemplate.delete(doneKey);
+        // * 榜单不再变化，构建历史查询快照；失败不影响存档，查询时回退赛季表并再次构建
+        try {
+            boardSnapshotStore.build(Long.valueOf(seasonId));
+        } catch (RuntimeException e) {
+            log.error("构建赛季{}榜单快照失败", seasonId, e);
+        }
+    }
+
+    private int archiveBoardChunk(String tableName, String boardKey, long start, int size) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = redisTemplate.opsForZSet()
+                                                                     .reverseRangeWithScores(boardKey, start, start + size - 1);
+        if (CollUtils.isEmpty(tuples)) {
+            return 0;
+        }
+        List<PointsBoard> boards = new ArrayList<>(tuples.size());
+        long rank = start + 1;
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            long current = rank++;
+            if (tuple.getValue() == null || tuple.getScore() == null) {
+                continue;
+            }
+            boards.add(new PointsBoard().setId(current)
+                                        .setUserId(Long.valueOf(tuple.getValue()))
+                                        .setPoints(tuple.getScore()
+                                                        .intValue()));
+        }
+        return boards.isEmpty() ? 0 : boardMapper.insertBoardBatch(tableName, boards);
+    }
+
+    /**
+     * 积分记录按主键区间复制到赛季分表，每块一个短事务
+     *
+     * @return 已复制到的id
+     */
+    private long copyRecords(String seasonId, String taskKey, long copiedId, long maxId, LocalDateTime seasonEnd) {
+        if (copiedId >= maxId) {
+            return copiedId;
+        }
+        recordMapper.createPointsRecordShardingTable(seasonId);
+        long rows = 0;
+        long begin = System.nanoTime();
+        while (copiedId < maxId) {
+            long toId = Math.min(copiedId + LearningConstants.POINTS_ARCHIVE_RECORD_CHUNK, maxId);
+            rows += recordMapper.copyRangeToShardingTable(seasonId, copiedId, toId, seasonEnd);
+            copiedId = toId;
+            redisTemplate.opsForHash()
+                         .put(taskKey, COPIED_ID, String.valueOf(copiedId));
+        }
+        logRate("赛季" + seasonId + "积分记录复制", rows, begin);
+        return copiedId;
+    }
+
+    /**
+     * 删除已复制的积分记录，按每秒行数预算限速，避免集中删除造成主从延迟与锁等待
+     *
+     * @return 已删除到的id，被中断时小于maxId
+     */
+    private long deleteRecords(String taskKey, long deletedId, long maxId, LocalDateTime seasonEnd) {
+        long rows = 0;
+        long begin = System.nanoTime();
+        while (deletedId < maxId) {
+            long toId = Math.min(deletedId + LearningConstants.SHARDING_POINTS_RECORD_DELETE_LIMIT, maxId);
+            rows += recordMapper.deleteRange(deletedId, toId, seasonEnd);
+            deletedId = toId;
+            redisTemplate.opsForHash()
+                         .put(taskKey, DELETED_ID, String.valueOf(deletedId));
+            // * 已删除行数按预算应耗费的时间，超前则等待
+            long expectedNanos = rows * TimeUnit.SECONDS.toNanos(1) / LearningConstants.POINTS_ARCHIVE_DELETE_ROWS_PER_SECOND;
+            long aheadNanos = expectedNanos - (System.nanoTime() - begin);
+            if (aheadNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(aheadNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread()
+                          .interrupt();
+                    log.warn("积分记录删除被中断，已删除至id：{}", deletedId);
+                    return deletedId;
+                }
+            }
+        }
+        logRate("积分记录删除", rows, begin);
+        return deletedId;
+    }
+
+    private static void logRate(String stage, long rows, long beginNanos) {
+        long millis = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - beginNanos), 1);
+        log.info("{}：{}行，耗时{}ms，{}行/秒", stage, rows, millis, rows * 1000 / millis);
+    }
+}
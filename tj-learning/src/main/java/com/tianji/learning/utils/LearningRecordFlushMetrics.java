@@ -0,0 +1,75 @@
+package com.tianji.learning.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 学习记录延迟持久化的统计：队列深度、持久化批次、到期到写库的延迟
+ */
+@Slf4j
+@Component
+public class LearningRecordFlushMetrics {
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder lagMillisSum = new LongAdder();
+    private final LongAdder flushMillisSum = new LongAdder();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+    private volatile long queueDepth;
+    private volatile long dueDepth;
+
+    /**
+     * 记录一批持久化
+     *
+     * @param num         本批写库的记录数
+     * @param lagMillis   本批各记录从到期到写库完成的延迟之和
+     * @param maxLag      本批最大延迟
+     * @param flushMillis 本批读缓存、写库的耗时
+     */
+    public void recordFlush(int num, long lagMillis, long maxLag, long flushMillis) {
+        batches.increment();
+        records.add(num);
+        lagMillisSum.add(lagMillis);
+        flushMillisSum.add(flushMillis);
+        maxLagMillis.accumulateAndGet(maxLag, Math::max);
+    }
+
+    /**
+     * 更新队列深度
+     *
+     * @param queueDepth 待持久化的记录数
+     * @param dueDepth   其中已到期的记录数，持续大于0说明持久化跟不上
+     */
+    public void updateDepth(long queueDepth, long dueDepth) {
+        this.queueDepth = queueDepth;
+        this.dueDepth = dueDepth;
+    }
+
+    public long getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getDueDepth() {
+        return dueDepth;
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis.get();
+    }
+
+    /**
+     * 输出并清零本周期的统计
+     */
+    public void logAndReset() {
+        long batchNum = batches.sumThenReset();
+        long recordNum = records.sumThenReset();
+        long lag = lagMillisSum.sumThenReset();
+        long flush = flushMillisSum.sumThenReset();
+        long maxLag = maxLagMillis.getAndSet(0);
+        log.info("学习记录持久化：队列{}条，已到期{}条，本周期{}批{}条，平均延迟{}ms，最大延迟{}ms，平均每批耗时{}ms",
+                queueDepth, dueDepth, batchNum, recordNum, recordNum == 0 ? 0 : lag / recordNum, maxLag,
+                batchNum == 0 ? 0 : flush / batchNum);
+    }
+}
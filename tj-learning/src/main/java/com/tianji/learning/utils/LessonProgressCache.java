@@ -0,0 +1,209 @@
+package com.tianji.learning.utils;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.tianji.api.cache.CourseCache;
+import com.tianji.api.dto.course.CourseFullInfoDTO;
+import com.tianji.common.exceptions.DbException;
+import com.tianji.learning.constants.LearningConstants;
+import com.tianji.learning.constants.RedisConstants;
+import com.tianji.learning.domain.po.LearningLesson;
+import com.tianji.learning.domain.po.LearningRecord;
+import com.tianji.learning.enums.LessonStatus;
+import com.tianji.learning.mapper.LearningLessonMapper;
+import com.tianji.learning.mapper.LearningRecordMapper;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.tianji.learning.task.LearningRecordDelayTaskHandler.recordKey;
+import static com.tianji.learning.task.LearningRecordDelayTaskHandler.toBytes;
+
+/**
+ * 课表学习进度快照
+ * <p>
+ * 快照hash保存课表状态、已学小节数、课程总小节数与已完成小节标记，同时课表下所有学习记录写入学习记录缓存并打上加载完成标记。<br>
+ * 一次观看只在第一次提交进度时回源数据库与课程服务，之后的提交只读Redis：快照与当前小节记录一次管道读取，
+ * 没有条目的小节即为没有学习记录；小节首次完成以快照中的完成标记为准，原子地增量更新快照。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LessonProgressCache {
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> FINISH_SCRIPT = RedisScript.of(new ClassPathResource("lua" +
+            "/lesson_progress_finish.lua"), List.class);
+    private static final String COURSE_ID = "courseId";
+    private static final String STATUS = "status";
+    private static final String LEARNED = "learned";
+    private static final String SECTION_NUM = "sectionNum";
+    private static final String FINISHED_PREFIX = "f:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final LearningLessonMapper lessonMapper;
+    private final LearningRecordMapper recordMapper;
+    private final CourseCache courseCache;
+
+    /**
+     * 读取课表进度与当前小节的学习记录，并刷新过期时间；缓存不完整时从数据库加载
+     *
+     * @return 课表不存在时返回null
+     */
+    public LessonProgress get(Long lessonId, Long sectionId) {
+        byte[] progressKey = toBytes(RedisConstants.LESSON_PROGRESS_KEY_PREFIX + lessonId);
+        byte[] recordKey = recordKey(lessonId);
+        byte[] sectionField = toBytes(sectionId);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.hashCommands().hMGet(progressKey, toBytes(COURSE_ID), toBytes(STATUS), toBytes(LEARNED),
+                    toBytes(SECTION_NUM), toBytes(FINISHED_PREFIX + sectionId));
+            connection.keyCommands().pExpire(progressKey, LearningConstants.LEARNING_RECORD_CACHE_TTL);
+            connection.hashCommands().hGet(recordKey, sectionField);
+            connection.hashCommands().hExists(recordKey, toBytes(RedisConstants.LEARNING_RECORD_LOADED_FIELD));
+            return null;
+        }, null);
+        @SuppressWarnings("unchecked")
+        List<byte[]> fields = (List<byte[]>) results.get(0);
+        boolean recordLoaded = Boolean.TRUE.equals(results.get(3));
+        if (fields == null || fields.get(0) == null || fields.get(1) == null || fields.get(2) == null
+                || fields.get(3) == null || !recordLoaded) {
+            return load(lessonId, sectionId);
+        }
+        LessonProgress progress = new LessonProgress();
+        progress.setLessonId(lessonId);
+        progress.setCourseId(Long.valueOf(toString(fields.get(0))));
+        progress.setStatus(LessonStatus.of(Integer.valueOf(toString(fields.get(1)))));
+        progress.setLearnedSections(Integer.parseInt(toString(fields.get(2))));
+        progress.setSectionNum(Integer.parseInt(toString(fields.get(3))));
+        progress.setSectionFinished(fields.get(4) != null);
+        progress.setRecord(RecordCacheCodec.decode((byte[]) results.get(2)));
+        return progress;
+    }
+
+    /**
+     * 回源数据库与课程服务，HSETNX写入，不覆盖其他请求写入的更新数据
+     */
+    private LessonProgress load(Long lessonId, Long sectionId) {
+        LearningLesson lesson = lessonMapper.selectById(lessonId);
+        if (lesson == null) {
+            return null;
+        }
+        // * 课程总小节数，课程服务不可用时记为0，首次完成时不判断是否学完
+        int sectionNum = 0;
+        CourseFullInfoDTO course = courseCache.getCourseInfoById(lesson.getCourseId(), false, false);
+        if (course != null && course.getSectionNum() != null) {
+            sectionNum = course.getSectionNum();
+        }
+        List<LearningRecord> records = recordMapper.selectList(Wrappers.<LearningRecord>lambdaQuery()
+                .eq(LearningRecord::getLessonId, lessonId));
+        byte[] progressKey = toBytes(RedisConstants.LESSON_PROGRESS_KEY_PREFIX + lessonId);
+        byte[] recordKey = recordKey(lessonId);
+        int learned = lesson.getLearnedSections() == null ? 0 : lesson.getLearnedSections();
+        String status = String.valueOf(lesson.getStatus().getValue());
+        String num = String.valueOf(sectionNum);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            // * 学习记录全部写入后再标记加载完成
+            for (LearningRecord record : records) {
+                connection.hashCommands().hSetNX(recordKey, toBytes(record.getSectionId()), RecordCacheCodec.encode(record));
+            }
+            connection.hashCommands().hSet(recordKey, toBytes(RedisConstants.LEARNING_RECORD_LOADED_FIELD), toBytes(1));
+            connection.keyCommands().pExpire(recordKey, LearningConstants.LEARNING_RECORD_CACHE_TTL);
+            for (LearningRecord record : records) {
+                if (Boolean.TRUE.equals(record.getFinished())) {
+                    connection.hashCommands().hSetNX(progressKey, toBytes(FINISHED_PREFIX + record.getSectionId()), toBytes(1));
+                }
+            }
+            connection.hashCommands().hSetNX(progressKey, toBytes(COURSE_ID), toBytes(lesson.getCourseId()));
+            connection.hashCommands().hSetNX(progressKey, toBytes(STATUS), toBytes(status));
+            connection.hashCommands().hSetNX(progressKey, toBytes(LEARNED), toBytes(learned));
+            connection.hashCommands().hSetNX(progressKey, toBytes(SECTION_NUM), toBytes(num));
+            connection.keyCommands().pExpire(progressKey, LearningConstants.LEARNING_RECORD_CACHE_TTL);
+            return null;
+        }, null);
+        log.debug("加载课表进度快照，lessonId：{}，学习记录{}条", lessonId, records.size());
+        LessonProgress progress = new LessonProgress();
+        progress.setLessonId(lessonId);
+        progress.setCourseId(lesson.getCourseId());
+        progress.setStatus(lesson.getStatus());
+        progress.setLearnedSections(learned);
+        progress.setSectionNum(sectionNum);
+        for (LearningRecord record : records) {
+            if (sectionId.equals(record.getSectionId())) {
+                progress.setRecord(record);
+                progress.setSectionFinished(Boolean.TRUE.equals(record.getFinished()));
+            }
+        }
+        return progress;
+    }
+
+    /**
+     * 在快照中原子地标记小节完成并累加已学小节数，同一小节只有一次调用能成功，快照不存在时重新加载后重试一次
+     *
+     * @return 首次完成时返回更新后的课表状态，该小节已完成过返回null
+     */
+    public LessonStatus markSectionFinished(Long lessonId, Long sectionId) {
+        List<?> result = executeFinishScript(lessonId, sectionId);
+        if (isSnapshotMissing(result)) {
+            if (load(lessonId, sectionId) == null) {
+                throw new DbException("课表数据不存在");
+            }
+            result = executeFinishScript(lessonId, sectionId);
+            if (isSnapshotMissing(result)) {
+                throw new DbException("课表进度快照加载失败");
+            }
+        }
+        if (((Number) result.get(0)).longValue() < 0) {
+            return null;
+        }
+        return LessonStatus.of(((Number) result.get(1)).intValue());
+    }
+
+    private List<?> executeFinishScript(Long lessonId, Long sectionId) {
+        return redisTemplate.execute(FINISH_SCRIPT, List.of(RedisConstants.LESSON_PROGRESS_KEY_PREFIX + lessonId),
+                FINISHED_PREFIX + sectionId, String.valueOf(LessonStatus.NOT_BEGIN.getValue()),
+                String.valueOf(LessonStatus.LEARNING.getValue()), String.valueOf(LessonStatus.FINISHED.getValue()));
+    }
+
+    private static boolean isSnapshotMissing(List<?> result) {
+        return result == null || result.isEmpty() || ((Number) result.get(0)).longValue() == 0;
+    }
+
+    /**
+     * 课表删除时清除快照与学习记录缓存
+     */
+    public void evict(Long lessonId) {
+        redisTemplate.delete(List.of(RedisConstants.LESSON_PROGRESS_KEY_PREFIX + lessonId,
+                RedisConstants.LEARNING_RECORD_KEY_PREFIX + lessonId));
+    }
+
+    /**
+     * 只清除进度快照，学习记录缓存保留
+     */
+    public void evictProgress(Long lessonId) {
+        redisTemplate.delete(RedisConstants.LESSON_PROGRESS_KEY_PREFIX + lessonId);
+    }
+
+    private static String toString(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Data
+    public static class LessonProgress {
+        private Long lessonId;
+        private Long courseId;
+        private LessonStatus status;
+        private Integer learnedSections;
+        // * 课程总小节数，0为未知
+        private Integer sectionNum;
+        // * 当前小节是否已完成
+        private boolean sectionFinished;
+        // * 当前小节的学习记录（只有id、moment、finished），null为没有学习记录
+        private LearningRecord record;
+    }
+}
@@ -0,0 +1,298 @@
+package com.tianji.learning.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tianji.api.client.user.UserClient;
+import com.tianji.api.dto.user.UserDTO;
+import com.tianji.common.exceptions.BizIllegalException;
+import com.tianji.common.utils.CollUtils;
+import com.tianji.common.utils.JsonUtils;
+import com.tianji.learning.constants.LearningConstants;
+import com.tianji.learning.constants.RedisConstants;
+import com.tianji.learning.domain.po.PointsBoard;
+import com.tianji.learning.domain.vo.PointsBoardItemVO;
+import com.tianji.learning.domain.vo.PointsBoardVO;
+import com.tianji.learning.mapper.PointsBoardMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 历史赛季榜单快照
+ * <p>
+ * 赛季存档后榜单不再变化：前N名连同用户名预渲染为一个列表，另存用户id->名次的索引，均存Redis；
+ * 前N名的列表在本地有界缓存，查询自己的名次一次HGET。快照未构建时回退查询赛季表，
+ * 赛季存档检查点标记榜单已全部写入赛季表后才异步构建，存档过程中不会用不完整的赛季表生成快照。
+ * 同一赛季同时只有一个构建任务，构建队列有界，已构建的赛季不会重复构建
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PointsBoardSnapshotStore {
+    private static final int BUILD_CHUNK = 1000;
+    private static final int USER_QUERY_BATCH = 200;
+    private static final Duration BUILD_LOCK_TTL = Duration.ofMinutes(10);
+    private static final int BUILD_QUEUE_CAPACITY = 16;
+
+    private final StringRedisTemplate redisTemplate;
+    private final PointsBoardMapper boardMapper;
+    private final UserClient userClient;
+    private final Cache<Long, List<PointsBoardItemVO>> topCache = Caffeine.newBuilder()
+                                                                          .maximumSize(LearningConstants.POINTS_BOARD_SNAPSHOT_LOCAL_SEASONS)
+                                                                          .build();
+    // * 用户名次，key为 赛季id:用户id，value为 {名次, 积分}，不在榜单上为 {0, 0}
+    private final Cache<String, int[]> rankCache = Caffeine.newBuilder()
+                                                           .maximumSize(100_000)
+                                                           .expireAfterAccess(10, TimeUnit.MINUTES)
+                                                           .build();
+    // * 本实例排队或执行中的构建任务，同一赛季只提交一次；队列满时丢弃，下次查询再提交
+    private final Set<Long> pendingBuilds = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor buildExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(BUILD_QUEUE_CAPACITY));
+
+    @PreDestroy
+    public void destroy() {
+        buildExecutor.shutdownNow();
+    }
+
+    /**
+     * 查询历史赛季榜单与当前用户的名次
+     */
+    public PointsBoardVO querySeasonBoard(Long seasonId, Long userId, int pageNo, int pageSize) {
+        PointsBoardVO vo = new PointsBoardVO();
+        String tableName = LearningConstants.POINTS_BOARD_TABLE_PREFIX + seasonId;
+        int start = (pageNo - 1) * pageSize;
+        List<PointsBoardItemVO> top = getTop(seasonId);
+        if (top == null) {
+            // * 快照未构建，查赛季表；赛季表已完整时才构建快照
+            if (isBoardArchived(seasonId)) {
+                buildAsync(seasonId);
+            }
+            PointsBoard userBoard = boardMapper.queryUserBoard(tableName, userId);
+            vo.setRank(userBoard != null ? userBoard.getId()
+                                                    .intValue() : 0);
+            vo.setPoints(userBoard != null ? userBoard.getPoints() : 0);
+            vo.setBoardList(render(boardMapper.queryBoardAfter(tableName, start, pageSize)));
+            return vo;
+        }
+        int[] rank = getRank(seasonId, userId);
+        vo.setRank(rank[0]);
+        vo.setPoints(rank[1]);
+        if (start + pageSize <= top.size() || top.size() < LearningConstants.POINTS_BOARD_SNAPSHOT_TOP) {
+            // * 在预渲染范围内，或整个赛季都在快照中（快照只从完整的赛季表构建，不足N名即为全部）
+            vo.setBoardList(start >= top.size() ? CollUtils.emptyList()
+                                                : top.subList(start, Math.min(start + pageSize, top.size())));
+        } else {
+            // * 超出预渲染范围的深分页，按名次区间查询
+            vo.setBoardList(render(boardMapper.queryBoardAfter(tableName, start, pageSize)));
+        }
+        return vo;
+    }
+
+    /**
+     * 从赛季表构建快照：按id区间扫描写入名次索引，最后写入前N名（就绪标记），重复构建结果相同。
+     * 加锁前后都检查就绪标记，已构建过的直接返回；榜单尚未完整存档的赛季不构建
+     */
+    public void build(Long seasonId) {
+        String topKey = snapshotKey(seasonId, "top");
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(topKey))) {
+            return;
+        }
+        if (!isBoardArchived(seasonId)) {
+            log.warn("赛季{}榜单尚未完成存档，暂不构建快照", seasonId);
+            return;
+        }
+        String lockKey = snapshotKey(seasonId, "building");
+        Boolean locked = redisTemplate.opsForValue()
+                                      .setIfAbsent(lockKey, "1", BUILD_LOCK_TTL);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            // * 其他实例可能刚构建完并释放了锁
+            if (Boolean.TRUE.equals(redisTemplate.hasKey(topKey))) {
+                return;
+            }
+            String tableName = LearningConstants.POINTS_BOARD_TABLE_PREFIX + seasonId;
+            byte[] rankKey = snapshotKey(seasonId, "rank").getBytes(StandardCharsets.UTF_8);
+            List<PointsBoard> top = new ArrayList<>(LearningConstants.POINTS_BOARD_SNAPSHOT_TOP);
+            long fromId = 0;
+            long rows = 0;
+            while (true) {
+                List<PointsBoard> boards = boardMapper.queryBoardAfter(tableName, fromId, BUILD_CHUNK);
+                if (CollUtils.isEmpty(boards)) {
+                    break;
+                }
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (PointsBoard board : boards) {
+                        connection.hashCommands()
+                                  .hSet(rankKey, toBytes(board.getUserId()), toBytes(board.getId() + ":" + board.getPoints()));
+                    }
+                    return null;
+                }, null);
+                for (PointsBoard board : boards) {
+                    if (top.size() < LearningConstants.POINTS_BOARD_SNAPSHOT_TOP) {
+                        top.add(board);
+                    }
+                }
+                rows += boards.size();
+                fromId = boards.get(boards.size() - 1)
+                               .getId();
+            }
+            // * 快照不再变化，用户名必须完整，缺失时构建失败，下次再构建
+            redisTemplate.opsForValue()
+                         .set(topKey, JsonUtils.toJsonStr(renderComplete(top)));
+            log.info("构建赛季{}榜单快照，共{}名", seasonId, rows);
+        } finally {
+            redisTemplate.delete(lockKey);
+        }
+    }
+
+    private void buildAsync(Long seasonId) {
+        if (!pendingBuilds.add(seasonId)) {
+            return;
+        }
+        try {
+            buildExecutor.execute(() -> {
+                try {
+                    build(seasonId);
+                } catch (Exception e) {
+                    log.error("构建赛季{}榜单快照失败", seasonId, e);
+                } finally {
+                    pendingBuilds.remove(seasonId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingBuilds.remove(seasonId);
+            log.warn("榜单快照构建队列已满，赛季{}稍后再构建", seasonId);
+        }
+    }
+
+    /**
+     * 赛季榜单是否已全部写入赛季表，以存档检查点的标记为准
+     */
+    private boolean isBoardArchived(Long seasonId) {
+        return Boolean.TRUE.equals(redisTemplate.opsForHash()
+                                                .hasKey(RedisConstants.POINTS_ARCHIVE_TASK_PREFIX + seasonId,
+                                                        RedisConstants.POINTS_ARCHIVE_BOARD_FINISHED));
+    }
+
+    private List<PointsBoardItemVO> getTop(Long seasonId) {
+        List<PointsBoardItemVO> top = topCache.getIfPresent(seasonId);
+        if (top != null) {
+            return top;
+        }
+        String json = redisTemplate.opsForValue()
+                                   .get(snapshotKey(seasonId, "top"));
+        if (json == null) {
+            return null;
+        }
+        top = JsonUtils.toList(json, PointsBoardItemVO.class);
+        topCache.put(seasonId, top);
+        return top;
+    }
+
+    private int[] getRank(Long seasonId, Long userId) {
+        return rankCache.get(seasonId + ":" + userId, k -> {
+            Object value = redisTemplate.opsForHash()
+                                        .get(snapshotKey(seasonId, "rank"), userId.toString());
+            if (value == null) {
+                return new int[]{0, 0};
+            }
+            String rank = (String) value;
+            int split = rank.indexOf(':');
+            return new int[]{Integer.parseInt(rank.substring(0, split)), Integer.parseInt(rank.substring(split + 1))};
+        });
+    }
+
+    /**
+     * 补全用户名，id即名次
+     */
+    private List<PointsBoardItemVO> render(List<PointsBoard> boards) {
+        if (CollUtils.isEmpty(boards)) {
+            return CollUtils.emptyList();
+        }
+        return render(boards, queryUserNames(boards.stream()
+                                                   .map(PointsBoard::getUserId)
+                                                   .collect(Collectors.toList())));
+    }
+
+    /**
+     * 补全用户名，用于写入快照：缺失的用户名重新查询一次，仍缺失则失败
+     */
+    private List<PointsBoardItemVO> renderComplete(List<PointsBoard> boards) {
+        if (CollUtils.isEmpty(boards)) {
+            return CollUtils.emptyList();
+        }
+        List<Long> userIds = boards.stream()
+                                   .map(PointsBoard::getUserId)
+                                   .collect(Collectors.toList());
+        Map<Long, String> userMap = queryUserNames(userIds);
+        List<Long> missing = userIds.stream()
+                                    .filter(id -> userMap.get(id) == null)
+                                    .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            userMap.putAll(queryUserNames(missing));
+            missing.removeIf(id -> userMap.get(id) != null);
+            if (!missing.isEmpty()) {
+                throw new BizIllegalException("榜单快照用户名缺失，用户：" + missing);
+            }
+        }
+        return render(boards, userMap);
+    }
+
+    /**
+     * 分批查询用户名，避免请求参数过长
+     */
+    private Map<Long, String> queryUserNames(List<Long> userIds) {
+        Map<Long, String> userMap = new HashMap<>();
+        for (int i = 0; i < userIds.size(); i += USER_QUERY_BATCH) {
+            List<UserDTO> users = userClient.queryUserByIds(userIds.subList(i, Math.min(i + USER_QUERY_BATCH, userIds.size())));
+            if (CollUtils.isNotEmpty(users)) {
+                for (UserDTO user : users) {
+                    userMap.put(user.getId(), user.getUsername());
+                }
+            }
+        }
+        return userMap;
+    }
+
+    private static List<PointsBoardItemVO> render(List<PointsBoard> boards, Map<Long, String> userMap) {
+        List<PointsBoardItemVO> items = new ArrayList<>(boards.size());
+        for (PointsBoard board : boards) {
+            PointsBoardItemVO item = new PointsBoardItemVO();
+            item.setRank(board.getId()
+                              .intValue());
+            item.setPoints(board.getPoints());
+            item.setName(userMap.get(board.getUserId()));
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static String snapshotKey(Long seasonId, String suffix) {
+        return RedisConstants.POINTS_BOARD_SNAPSHOT_KEY_PREFIX + seasonId + ":" + suffix;
+    }
+
+    private static byte[] toBytes(Object value) {
+        return String.valueOf(value)
+                     .getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,67 @@
+package com.tianji.learning.utils;
+
+import com.tianji.common.utils.JsonUtils;
+import com.tianji.learning.domain.po.LearningRecord;
+
+/**
+ * 学习记录缓存的二进制编码，固定14字节：版本(1) + 记录id(8) + 播放进度(4) + 是否完成(1)，大端序
+ * <p>
+ * 缓存只需要这三个字段，相比JSON省去了反射与字符串解析；读取时兼容升级前写入的JSON
+ */
+public final class RecordCacheCodec {
+    public static final int LENGTH = 14;
+    private static final byte VERSION = 1;
+    private static final byte FALSE = 0;
+    private static final byte TRUE = 1;
+    private static final byte NULL = 2;
+
+    private RecordCacheCodec() {
+    }
+
+    public static byte[] encode(LearningRecord record) {
+        return encode(record.getId(), record.getMoment(), record.getFinished());
+    }
+
+    public static byte[] encode(Long id, Integer moment, Boolean finished) {
+        byte[] bytes = new byte[LENGTH];
+        bytes[0] = VERSION;
+        long v = id == null ? 0 : id;
+        for (int i = 8; i >= 1; i--) {
+            bytes[i] = (byte) v;
+            v >>>= 8;
+        }
+        int m = moment == null ? 0 : moment;
+        bytes[9] = (byte) (m >>> 24);
+        bytes[10] = (byte) (m >>> 16);
+        bytes[11] = (byte) (m >>> 8);
+        bytes[12] = (byte) m;
+        bytes[13] = finished == null ? NULL : finished ? TRUE : FALSE;
+        return bytes;
+    }
+
+    /**
+     * 解码，只填充id、moment、finished
+     *
+     * @return 无法识别的数据返回null，视为缓存未命中
+     */
+    public static LearningRecord decode(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length != LENGTH || bytes[0] != VERSION) {
+            // * 升级前写入的JSON
+            return bytes.length > 0 && bytes[0] == '{'
+                    ? JsonUtils.fromJson(bytes, LearningRecord.class) : null;
+        }
+        long id = 0;
+        for (int i = 1; i <= 8; i++) {
+            id = (id << 8) | (bytes[i] & 0xFF);
+        }
+        int moment = (bytes[9] & 0xFF) << 24 | (bytes[10] & 0xFF) << 16 | (bytes[11] & 0xFF) << 8 | (bytes[12] & 0xFF);
+        LearningRecord record = new LearningRecord();
+        record.setId(id);
+        record.setMoment(moment);
+        record.setFinished(bytes[13] == NULL ? null : bytes[13] == TRUE);
+        return record;
+    }
+}
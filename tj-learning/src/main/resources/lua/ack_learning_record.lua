@@ -0,0 +1,16 @@
+--[[
+  确认学习记录已持久化
+  KEYS[1] 分区ZSET | KEYS[2] 到期时间hash | ARGV[1] 租约到期时间ms | ARGV[2...] member
+  只删除score仍为租约时间的member及其到期时间，期间有新心跳刷新过到期时间的保留，等下次到期再持久化
+]]--
+local lease = tonumber(ARGV[1])
+local removed = 0
+for i = 2, #ARGV do
+    local score = redis.call('ZSCORE', KEYS[1], ARGV[i])
+    if (score and tonumber(score) == lease) then
+        redis.call('ZREM', KEYS[1], ARGV[i])
+        redis.call('HDEL', KEYS[2], ARGV[i])
+        removed = removed + 1
+    end
+end
+return removed
@@ -0,0 +1,17 @@
+--[[
+  领取到期的学习记录持久化任务
+  KEYS[1] 分区ZSET（member为 课表id:小节id，score为到期时间ms） | KEYS[2] 到期时间hash（field为member）
+  ARGV[1] 当前时间ms | ARGV[2] 租约到期时间ms | ARGV[3] 每批数量
+  返回 member, 到期时间 交替排列的数组，到期时间取自hash，租约到期后重新领取的任务仍返回原到期时间
+  领取后score改为租约到期时间，持久化成功后按租约确认删除；实例宕机未确认的任务在租约到期后重新被领取
+]]--
+local entries = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'WITHSCORES', 'LIMIT', 0, ARGV[3])
+for i = 1, #entries, 2 do
+    redis.call('ZADD', KEYS[1], 'XX', ARGV[2], entries[i])
+    -- 没有到期时间的（升级前登记的）沿用score
+    local dueTime = redis.call('HGET', KEYS[2], entries[i])
+    if (dueTime) then
+        entries[i + 1] = dueTime
+    end
+end
+return entries
@@ -0,0 +1,22 @@
+--[[
+  课表进度快照中记录小节首次完成，作为首次完成的唯一判断，调用方只在返回成功时更新数据库与发放积分
+  KEYS[1] 快照hash | ARGV[1] 小节完成标记field | ARGV[2] 未学习状态 | ARGV[3] 学习中状态 | ARGV[4] 已学完状态
+  返回 {已学小节数, 课表状态} - 已更新 | {0} - 快照不存在 | {-1} - 该小节已记录过完成
+]]--
+if (redis.call('EXISTS', KEYS[1]) == 0) then
+    return {0}
+end
+if (redis.call('HSETNX', KEYS[1], ARGV[1], '1') == 0) then
+    return {-1}
+end
+local learned = redis.call('HINCRBY', KEYS[1], 'learned', 1)
+-- 课程总小节数为0时未知，不判断是否学完
+local sectionNum = tonumber(redis.call('HGET', KEYS[1], 'sectionNum')) or 0
+local status = redis.call('HGET', KEYS[1], 'status')
+if (sectionNum > 0 and learned >= sectionNum) then
+    status = ARGV[4]
+elseif (status == ARGV[2]) then
+    status = ARGV[3]
+end
+redis.call('HSET', KEYS[1], 'status', status)
+return {learned, tonumber(status)}
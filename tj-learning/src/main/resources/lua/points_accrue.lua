@@ -0,0 +1,26 @@
+--[[
+  积分入账：消息去重 + 按类型的每日上限
+  KEYS[1] 用户当日积分计数hash（field为积分类型，'_'为加载完成标记） | KEYS[2] 消息幂等key（可选）
+  ARGV[1] 积分类型 | ARGV[2] 积分 | ARGV[3] 每日上限（0为不限） | ARGV[4] 计数过期时间（次日零点，秒） | ARGV[5] 幂等key过期时间（秒）
+  返回 >=0 - 实际入账积分（0为已达上限） | -1 - 重复消息 | -2 - 当日计数未加载（由调用方从数据库加载后重试）
+]]--
+if (#KEYS > 1 and redis.call('EXISTS', KEYS[2]) == 1) then
+    return -1
+end
+if (redis.call('HEXISTS', KEYS[1], '_') == 0) then
+    return -2
+end
+local points = tonumber(ARGV[2])
+local max = tonumber(ARGV[3])
+if (max > 0) then
+    local today = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '0')
+    points = math.max(math.min(points, max - today), 0)
+end
+if (points > 0) then
+    redis.call('HINCRBY', KEYS[1], ARGV[1], points)
+end
+redis.call('EXPIREAT', KEYS[1], ARGV[4])
+if (#KEYS > 1) then
+    redis.call('SET', KEYS[2], points, 'EX', ARGV[5])
+end
+return points
@@ -0,0 +1,15 @@
+--[[
+  累加排行榜积分，按消息去重：同一条消息只累加一次，重投时已累加过的跳过
+  KEYS[1] 榜单ZSET | KEYS[2...] 各消息的去重标记key（以榜单key为hash tag，与榜单在同一slot；没有幂等标识的消息传榜单key占位）
+  ARGV[1] 去重标记过期时间（秒） | ARGV[2...] 按 用户id, 积分 两个一组，与KEYS[2...]一一对应
+  返回 本次累加的消息数
+]]--
+local applied = 0
+for i = 2, #KEYS do
+    local markerKey = KEYS[i]
+    if (markerKey == KEYS[1] or redis.call('SET', markerKey, '1', 'NX', 'EX', ARGV[1])) then
+        redis.call('ZINCRBY', KEYS[1], ARGV[2 * i - 1], ARGV[2 * i - 2])
+        applied = applied + 1
+    end
+end
+return applied
@@ -0,0 +1,157 @@
+package com.tianji.learning.benchmark;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.tianji.common.utils.BeanUtils;
+import com.tianji.learning.domain.po.InteractionQuestion;
+import com.tianji.learning.domain.po.InteractionReply;
+import com.tianji.learning.domain.po.LearningLesson;
+import com.tianji.learning.domain.vo.LearningLessonVO;
+import com.tianji.learning.domain.vo.QuestionVO;
+import com.tianji.learning.domain.vo.ReplyVO;
+import com.tianji.learning.enums.LessonStatus;
+import com.tianji.learning.enums.PlanStatus;
+import com.tianji.learning.enums.QuestionStatus;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 属性拷贝基准测试：hutool反射拷贝 vs BeanUtils生成式访问器
+ * <p>
+ * 使用学习服务中实际的PO转VO，分配情况通过GC profiler的gc.alloc.rate.norm查看
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeanCopyBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final int PAGE_SIZE = 20;
+
+    private LearningLesson[] lessons;
+    private InteractionQuestion[] questions;
+    private InteractionReply[] replies;
+    private List<InteractionReply> replyPage;
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        lessons = new LearningLesson[SIZE];
+        questions = new InteractionQuestion[SIZE];
+        replies = new InteractionReply[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            lessons[i] = new LearningLesson()
+                    .setId(random.nextLong())
+                    .setUserId(random.nextLong())
+                    .setCourseId(random.nextLong())
+                    .setStatus(LessonStatus.LEARNING)
+                    .setWeekFreq(random.nextInt(7))
+                    .setPlanStatus(PlanStatus.PLAN_RUNNING)
+                    .setLearnedSections(random.nextInt(100))
+                    .setLatestSectionId(random.nextLong())
+                    .setLatestLearnTime(now)
+                    .setCreateTime(now)
+                    .setExpireTime(now.plusYears(1))
+                    .setUpdateTime(now);
+            questions[i] = new InteractionQuestion()
+                    .setId(random.nextLong())
+                    .setTitle("问题标题" + i)
+                    .setDescription("问题描述" + i)
+                    .setCourseId(random.nextLong())
+                    .setChapterId(random.nextLong())
+                    .setSectionId(random.nextLong())
+                    .setUserId(random.nextLong())
+                    .setLatestAnswerId(random.nextLong())
+                    .setAnswerTimes(random.nextInt(100))
+                    .setAnonymity(random.nextBoolean())
+                    .setHidden(false)
+                    .setStatus(QuestionStatus.UN_CHECK)
+                    .setCreateTime(now)
+                    .setUpdateTime(now);
+            replies[i] = new InteractionReply()
+                    .setId(random.nextLong())
+                    .setQuestionId(random.nextLong())
+                    .setAnswerId(0L)
+                    .setUserId(random.nextLong())
+                    .setContent("回答内容" + i)
+                    .setTargetUserId(0L)
+                    .setTargetReplyId(0L)
+                    .setReplyTimes(random.nextInt(100))
+                    .setLikedTimes(random.nextInt(1000))
+                    .setHidden(false)
+                    .setAnonymity(random.nextBoolean())
+                    .setCreateTime(now)
+                    .setUpdateTime(now);
+        }
+        replyPage = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            replyPage.add(replies[i]);
+        }
+    }
+
+    @Benchmark
+    public LearningLessonVO hutoolLesson() {
+        return BeanUtil.toBean(lessons[next()], LearningLessonVO.class);
+    }
+
+    @Benchmark
+    public LearningLessonVO generatedLesson() {
+        return BeanUtils.copyBean(lessons[next()], LearningLessonVO.class);
+    }
+
+    @Benchmark
+    public QuestionVO hutoolQuestion() {
+        return BeanUtil.toBean(questions[next()], QuestionVO.class);
+    }
+
+    @Benchmark
+    public QuestionVO generatedQuestion() {
+        return BeanUtils.copyBean(questions[next()], QuestionVO.class);
+    }
+
+    @Benchmark
+    public ReplyVO hutoolReply() {
+        return BeanUtil.toBean(replies[next()], ReplyVO.class);
+    }
+
+    @Benchmark
+    public ReplyVO generatedReply() {
+        return BeanUtils.copyBean(replies[next()], ReplyVO.class);
+    }
+
+    @Benchmark
+    public List<ReplyVO> hutoolReplyPage() {
+        return BeanUtil.copyToList(replyPage, ReplyVO.class);
+    }
+
+    @Benchmark
+    public List<ReplyVO> generatedReplyPage() {
+        return BeanUtils.copyList(replyPage, ReplyVO.class);
+    }
+
+    private int next() {
+        return index = (index + 1) & (SIZE - 1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BeanCopyBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
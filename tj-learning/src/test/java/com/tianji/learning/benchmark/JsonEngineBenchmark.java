@@ -0,0 +1,149 @@
+package com.tianji.learning.benchmark;
+
+import com.tianji.common.utils.JsonUtils;
+import com.tianji.learning.domain.po.LearningRecord;
+import com.tianji.learning.domain.vo.PointsBoardItemVO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON序列化基准测试：hutool JSONUtil vs JsonUtils的Jackson方法
+ * <p>
+ * hutool从Redis读出的字节开始，需先转为字符串；Jackson直接读写字节。
+ * 数据为学习记录、积分榜单前100名、15天看板数据
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonEngineBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final int BOARD_SIZE = 100;
+    private static final int DAYS = 15;
+
+    private LearningRecord[] records;
+    private byte[][] recordHutoolBytes;
+    private byte[][] recordJacksonBytes;
+    private List<PointsBoardItemVO> board;
+    private byte[] boardHutoolBytes;
+    private byte[] boardJacksonBytes;
+    private List<Double> boardData;
+    private byte[] boardDataHutoolBytes;
+    private byte[] boardDataJacksonBytes;
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        records = new LearningRecord[SIZE];
+        recordHutoolBytes = new byte[SIZE][];
+        recordJacksonBytes = new byte[SIZE][];
+        for (int i = 0; i < SIZE; i++) {
+            LearningRecord record = new LearningRecord();
+            record.setId(1_850_000_000_000_000_000L + random.nextInt(1_000_000));
+            record.setLessonId(1_850_000_000_000_000_000L + random.nextInt(1_000_000));
+            record.setSectionId(random.nextLong());
+            record.setUserId(random.nextLong());
+            record.setMoment(random.nextInt(7200));
+            record.setFinished(random.nextBoolean());
+            record.setCreateTime(now);
+            record.setUpdateTime(now);
+            records[i] = record;
+            recordHutoolBytes[i] = JsonUtils.toJsonStr(record).getBytes(StandardCharsets.UTF_8);
+            recordJacksonBytes[i] = JsonUtils.toJsonBytes(record);
+        }
+        board = new ArrayList<>(BOARD_SIZE);
+        for (int i = 0; i < BOARD_SIZE; i++) {
+            PointsBoardItemVO item = new PointsBoardItemVO();
+            item.setRank(i + 1);
+            item.setPoints(10_000 - i * 37);
+            item.setName("用户" + random.nextInt(1_000_000));
+            board.add(item);
+        }
+        boardHutoolBytes = JsonUtils.toJsonStr(board).getBytes(StandardCharsets.UTF_8);
+        boardJacksonBytes = JsonUtils.toJsonBytes(board);
+        boardData = new ArrayList<>(DAYS);
+        for (int i = 0; i < DAYS; i++) {
+            boardData.add(Math.round(random.nextDouble() * 1_000_000) / 100.0);
+        }
+        boardDataHutoolBytes = JsonUtils.toJsonStr(boardData).getBytes(StandardCharsets.UTF_8);
+        boardDataJacksonBytes = JsonUtils.toJsonBytes(boardData);
+    }
+
+    @Benchmark
+    public byte[] hutoolWriteRecord() {
+        return JsonUtils.toJsonStr(records[next()]).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] jacksonWriteRecord() {
+        return JsonUtils.toJsonBytes(records[next()]);
+    }
+
+    @Benchmark
+    public LearningRecord hutoolReadRecord() {
+        return JsonUtils.toBean(new String(recordHutoolBytes[next()], StandardCharsets.UTF_8), LearningRecord.class);
+    }
+
+    @Benchmark
+    public LearningRecord jacksonReadRecord() {
+        return JsonUtils.fromJson(recordJacksonBytes[next()], LearningRecord.class);
+    }
+
+    @Benchmark
+    public byte[] hutoolWriteBoard() {
+        return JsonUtils.toJsonStr(board).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] jacksonWriteBoard() {
+        return JsonUtils.toJsonBytes(board);
+    }
+
+    @Benchmark
+    public List<PointsBoardItemVO> hutoolReadBoard() {
+        return JsonUtils.toList(new String(boardHutoolBytes, StandardCharsets.UTF_8), PointsBoardItemVO.class);
+    }
+
+    @Benchmark
+    public List<PointsBoardItemVO> jacksonReadBoard() {
+        return JsonUtils.fromJsonList(boardJacksonBytes, PointsBoardItemVO.class);
+    }
+
+    @Benchmark
+    public List<Double> hutoolReadBoardData() {
+        return JsonUtils.toList(new String(boardDataHutoolBytes, StandardCharsets.UTF_8), Double.class);
+    }
+
+    @Benchmark
+    public List<Double> jacksonReadBoardData() {
+        return JsonUtils.fromJsonList(boardDataJacksonBytes, Double.class);
+    }
+
+    private int next() {
+        return index = (index + 1) & (SIZE - 1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JsonEngineBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
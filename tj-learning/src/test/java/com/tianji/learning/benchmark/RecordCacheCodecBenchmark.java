@@ -0,0 +1,102 @@
+package com.tianji.learning.benchmark;
+
+import com.tianji.common.utils.JsonUtils;
+import com.tianji.learning.domain.po.LearningRecord;
+import com.tianji.learning.utils.RecordCacheCodec;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 学习记录缓存编解码基准测试：Hutool JSON vs 定长二进制
+ * <p>
+ * 编码包含转为写入Redis的字节，解码从Redis读出的字节开始
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordCacheCodecBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private LearningRecord[] records;
+    private byte[][] jsonBytes;
+    private byte[][] binaryBytes;
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        records = new LearningRecord[SIZE];
+        jsonBytes = new byte[SIZE][];
+        binaryBytes = new byte[SIZE][];
+        for (int i = 0; i < SIZE; i++) {
+            LearningRecord record = new LearningRecord();
+            record.setId(1_850_000_000_000_000_000L + random.nextInt(1_000_000));
+            record.setMoment(random.nextInt(7200));
+            record.setFinished(random.nextBoolean());
+            records[i] = record;
+            jsonBytes[i] = JsonUtils.toJsonStr(new RecordCacheData(record)).getBytes(StandardCharsets.UTF_8);
+            binaryBytes[i] = RecordCacheCodec.encode(record);
+        }
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() {
+        return JsonUtils.toJsonStr(new RecordCacheData(records[next()])).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return RecordCacheCodec.encode(records[next()]);
+    }
+
+    @Benchmark
+    public LearningRecord jsonDecode() {
+        return JsonUtils.toBean(new String(jsonBytes[next()], StandardCharsets.UTF_8), LearningRecord.class);
+    }
+
+    @Benchmark
+    public LearningRecord binaryDecode() {
+        return RecordCacheCodec.decode(binaryBytes[next()]);
+    }
+
+    private int next() {
+        return index = (index + 1) & (SIZE - 1);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RecordCacheCodecBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * 原有的JSON缓存结构
+     */
+    @Data
+    @NoArgsConstructor
+    public static class RecordCacheData {
+        private Long id;
+        private Integer moment;
+        private Boolean finished;
+
+        public RecordCacheData(LearningRecord record) {
+            this.id = record.getId();
+            this.moment = record.getMoment();
+            this.finished = record.getFinished();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.tianji.learning.utils;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.tianji.common.utils.BeanUtils;
+import com.tianji.learning.domain.po.InteractionQuestion;
+import com.tianji.learning.domain.po.InteractionReply;
+import com.tianji.learning.domain.po.LearningLesson;
+import com.tianji.learning.domain.vo.LearningLessonVO;
+import com.tianji.learning.domain.vo.QuestionVO;
+import com.tianji.learning.domain.vo.ReplyVO;
+import com.tianji.learning.enums.LessonStatus;
+import com.tianji.learning.enums.PlanStatus;
+import com.tianji.learning.enums.QuestionStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BeanUtils生成式访问器与 hutool 反射拷贝的结果对比，使用学习服务中实际的PO转VO
+ */
+class BeanCopyCompatTest {
+
+    private static final int ROUNDS = 1_000;
+
+    @Test
+    void testLesson() {
+        Random random = new Random(42);
+        for (int i = 0; i < ROUNDS; i++) {
+            LearningLesson lesson = randomLesson(random);
+            assertEquals(BeanUtil.toBean(lesson, LearningLessonVO.class),
+                    BeanUtils.copyBean(lesson, LearningLessonVO.class), "round " + i);
+        }
+    }
+
+    @Test
+    void testQuestion() {
+        Random random = new Random(42);
+        for (int i = 0; i < ROUNDS; i++) {
+            InteractionQuestion question = randomQuestion(random);
+            assertEquals(BeanUtil.toBean(question, QuestionVO.class),
+                    BeanUtils.copyBean(question, QuestionVO.class), "round " + i);
+        }
+    }
+
+    @Test
+    void testReply() {
+        Random random = new Random(42);
+        for (int i = 0; i < ROUNDS; i++) {
+            InteractionReply reply = randomReply(random);
+            assertEquals(BeanUtil.toBean(reply, ReplyVO.class),
+                    BeanUtils.copyBean(reply, ReplyVO.class), "round " + i);
+        }
+    }
+
+    @Test
+    void testReplyList() {
+        Random random = new Random(7);
+        List<InteractionReply> replies = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            replies.add(randomReply(random));
+        }
+        assertEquals(BeanUtil.copyToList(replies, ReplyVO.class), BeanUtils.copyList(replies, ReplyVO.class));
+        assertTrue(BeanUtils.copyList(null, ReplyVO.class).isEmpty());
+        assertTrue(BeanUtils.copyList(new ArrayList<InteractionReply>(), ReplyVO.class).isEmpty());
+    }
+
+    @Test
+    void testEmptySource() {
+        // * 全部字段为null时，两种方式都得到全null的目标对象
+        assertEquals(BeanUtil.toBean(new LearningLesson(), LearningLessonVO.class),
+                BeanUtils.copyBean(new LearningLesson(), LearningLessonVO.class));
+        assertEquals(BeanUtil.toBean(new InteractionQuestion(), QuestionVO.class),
+                BeanUtils.copyBean(new InteractionQuestion(), QuestionVO.class));
+        assertEquals(BeanUtil.toBean(new InteractionReply(), ReplyVO.class),
+                BeanUtils.copyBean(new InteractionReply(), ReplyVO.class));
+        assertNull(BeanUtils.copyBean(null, ReplyVO.class));
+    }
+
+    @Test
+    void testConvert() {
+        InteractionReply reply = randomReply(new Random(11));
+        ReplyVO vo = BeanUtils.copyBean(reply, ReplyVO.class, (r, v) -> v.setUserName("用户" + r.getUserId()));
+        assertEquals("用户" + reply.getUserId(), vo.getUserName());
+        assertEquals(reply.getContent(), vo.getContent());
+    }
+
+    /**
+     * 随机填充字段，约五分之一的字段为null
+     */
+    private static LearningLesson randomLesson(Random random) {
+        LocalDateTime now = LocalDateTime.now();
+        return new LearningLesson()
+                .setId(random.nextLong())
+                .setUserId(nullable(random, random.nextLong()))
+                .setCourseId(random.nextLong())
+                .setStatus(nullable(random, LessonStatus.values()[random.nextInt(LessonStatus.values().length)]))
+                .setWeekFreq(nullable(random, random.nextInt(7)))
+                .setPlanStatus(nullable(random, PlanStatus.values()[random.nextInt(PlanStatus.values().length)]))
+                .setLearnedSections(random.nextInt(100))
+                .setLatestSectionId(nullable(random, random.nextLong()))
+                .setLatestLearnTime(nullable(random, now.minusMinutes(random.nextInt(10_000))))
+                .setCreateTime(now)
+                .setExpireTime(nullable(random, now.plusYears(1)))
+                .setUpdateTime(now);
+    }
+
+    private static InteractionQuestion randomQuestion(Random random) {
+        LocalDateTime now = LocalDateTime.now();
+        return new InteractionQuestion()
+                .setId(random.nextLong())
+                .setTitle("问题标题" + random.nextInt())
+                .setDescription(nullable(random, "问题描述" + random.nextInt()))
+                .setCourseId(random.nextLong())
+                .setChapterId(nullable(random, random.nextLong()))
+                .setSectionId(nullable(random, random.nextLong()))
+                .setUserId(random.nextLong())
+                .setLatestAnswerId(nullable(random, random.nextLong()))
+                .setAnswerTimes(random.nextInt(100))
+                .setAnonymity(nullable(random, random.nextBoolean()))
+                .setHidden(random.nextBoolean())
+                .setStatus(nullable(random, QuestionStatus.values()[random.nextInt(QuestionStatus.values().length)]))
+                .setCreateTime(now)
+                .setUpdateTime(nullable(random, now));
+    }
+
+    private static InteractionReply randomReply(Random random) {
+        LocalDateTime now = LocalDateTime.now();
+        return new InteractionReply()
+                .setId(random.nextLong())
+                .setQuestionId(random.nextLong())
+                .setAnswerId(nullable(random, random.nextLong()))
+                .setUserId(random.nextLong())
+                .setContent("回答内容" + random.nextInt())
+                .setTargetUserId(nullable(random, random.nextLong()))
+                .setTargetReplyId(nullable(random, random.nextLong()))
+                .setReplyTimes(random.nextInt(100))
+                .setLikedTimes(nullable(random, random.nextInt(1000)))
+                .setHidden(random.nextBoolean())
+                .setAnonymity(nullable(random, random.nextBoolean()))
+                .setCreateTime(now)
+                .setUpdateTime(nullable(random, now));
+    }
+
+    private static <T> T nullable(Random random, T value) {
+        return random.nextInt(5) == 0 ? null : value;
+    }
+}
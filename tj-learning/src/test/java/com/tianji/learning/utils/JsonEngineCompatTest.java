@@ -0,0 +1,127 @@
+package com.tianji.learning.utils;
+
+import com.tianji.common.utils.JsonUtils;
+import com.tianji.learning.domain.po.LearningRecord;
+import com.tianji.learning.domain.vo.PointsBoardItemVO;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JsonUtils的Jackson方法与 hutool 互相读写的结果对比
+ * <p>
+ * 缓存中已有 hutool 写入的数据，切换后Jackson要能读出相同的值；滚动发布期间旧实例仍用 hutool 读取Jackson写入的数据
+ */
+class JsonEngineCompatTest {
+
+    private static final int ROUNDS = 1_000;
+
+    @Test
+    void testRecordRoundTrip() {
+        Random random = new Random(42);
+        for (int i = 0; i < ROUNDS; i++) {
+            LearningRecord record = randomRecord(random);
+            assertEquals(record, JsonUtils.fromJson(JsonUtils.toJsonBytes(record), LearningRecord.class), "round " + i);
+            assertEquals(record, JsonUtils.fromJson(JsonUtils.toJson(record), LearningRecord.class), "round " + i);
+        }
+    }
+
+    @Test
+    void testReadHutoolRecord() {
+        Random random = new Random(42);
+        for (int i = 0; i < ROUNDS; i++) {
+            LearningRecord record = randomRecord(random);
+            byte[] hutool = JsonUtils.toJsonStr(record).getBytes(StandardCharsets.UTF_8);
+            assertEquals(record, JsonUtils.fromJson(hutool, LearningRecord.class), "round " + i);
+        }
+    }
+
+    @Test
+    void testHutoolReadsJackson() {
+        Random random = new Random(42);
+        for (int i = 0; i < ROUNDS; i++) {
+            LearningRecord record = randomRecord(random);
+            assertEquals(record, JsonUtils.toBean(JsonUtils.toJson(record), LearningRecord.class), "round " + i);
+        }
+    }
+
+    @Test
+    void testEpochMillis() {
+        // * hutool 按系统默认时区写入毫秒时间戳
+        LocalDateTime time = LocalDateTime.of(2026, 1, 31, 23, 59, 58);
+        long millis = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String json = "{\"id\":1,\"createTime\":" + millis + "}";
+        LearningRecord record = JsonUtils.fromJson(json, LearningRecord.class);
+        assertEquals(time, record.getCreateTime());
+        assertEquals(1L, record.getId());
+        // * 写出时使用JsonConfig的日期格式，不输出null值
+        String written = JsonUtils.toJson(record);
+        assertTrue(written.contains("\"createTime\":\"2026-01-31 23:59:58\""), written);
+        assertFalse(written.contains("null"), written);
+    }
+
+    @Test
+    void testUnknownProperties() {
+        String json = "{\"id\":7,\"moment\":42,\"unknown\":{\"a\":[1,2]},\"other\":\"x\"}";
+        LearningRecord record = JsonUtils.fromJson(json.getBytes(StandardCharsets.UTF_8), LearningRecord.class);
+        assertEquals(7L, record.getId());
+        assertEquals(42, record.getMoment());
+    }
+
+    @Test
+    void testBoard() {
+        Random random = new Random(7);
+        List<PointsBoardItemVO> board = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            PointsBoardItemVO item = new PointsBoardItemVO();
+            item.setRank(i + 1);
+            item.setPoints(10_000 - i * 37);
+            item.setName("用户" + random.nextInt(1_000_000));
+            board.add(item);
+        }
+        byte[] hutool = JsonUtils.toJsonStr(board).getBytes(StandardCharsets.UTF_8);
+        assertEquals(board, JsonUtils.fromJsonList(hutool, PointsBoardItemVO.class));
+        assertEquals(board, JsonUtils.fromJsonList(JsonUtils.toJsonBytes(board), PointsBoardItemVO.class));
+        assertEquals(board, JsonUtils.toList(JsonUtils.toJson(board), PointsBoardItemVO.class));
+    }
+
+    @Test
+    void testBoardData() {
+        Random random = new Random(11);
+        List<Double> data = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            data.add(Math.round(random.nextDouble() * 1_000_000) / 100.0);
+        }
+        data.add(0.0);
+        byte[] hutool = JsonUtils.toJsonStr(data).getBytes(StandardCharsets.UTF_8);
+        assertEquals(data, JsonUtils.fromJsonList(hutool, Double.class));
+        assertEquals(data, JsonUtils.fromJsonList(JsonUtils.toJsonBytes(data), Double.class));
+    }
+
+    /**
+     * 随机学习记录，时间精确到秒，与JsonConfig的日期格式一致
+     */
+    private static LearningRecord randomRecord(Random random) {
+        LocalDateTime base = LocalDateTime.of(2026, 1, 1, 0, 0);
+        LearningRecord record = new LearningRecord();
+        record.setId(1_850_000_000_000_000_000L + random.nextInt(1_000_000));
+        record.setLessonId(random.nextLong());
+        record.setSectionId(random.nextLong());
+        record.setUserId(random.nextLong());
+        record.setMoment(random.nextInt(7200));
+        record.setFinished(random.nextBoolean());
+        record.setCreateTime(base.plusSeconds(random.nextInt(30_000_000)));
+        if (record.getFinished()) {
+            record.setFinishTime(record.getCreateTime().plusSeconds(random.nextInt(100_000)));
+        }
+        record.setUpdateTime(base.plusSeconds(random.nextInt(30_000_000)));
+        return record;
+    }
+}
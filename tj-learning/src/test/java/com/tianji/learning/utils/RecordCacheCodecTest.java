@@ -0,0 +1,110 @@
+package com.tianji.learning.utils;
+
+import com.tianji.common.utils.JsonUtils;
+import com.tianji.learning.domain.po.LearningRecord;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RecordCacheCodec编码解码正确性，包括边界值与升级前写入的JSON
+ */
+class RecordCacheCodecTest {
+
+    private static final long[] IDS = {0, 1, -1, 255, 256, Integer.MAX_VALUE, 1_850_000_000_000_000_000L,
+            Long.MAX_VALUE, Long.MIN_VALUE};
+    private static final int[] MOMENTS = {0, 1, -1, 127, 128, 255, 256, 65_535, Integer.MAX_VALUE, Integer.MIN_VALUE};
+    private static final Boolean[] FINISHED = {Boolean.TRUE, Boolean.FALSE, null};
+
+    @Test
+    void testRoundTripBoundaries() {
+        for (long id : IDS) {
+            for (int moment : MOMENTS) {
+                for (Boolean finished : FINISHED) {
+                    byte[] bytes = RecordCacheCodec.encode(id, moment, finished);
+                    assertEquals(RecordCacheCodec.LENGTH, bytes.length);
+                    assertRecord(id, moment, finished, RecordCacheCodec.decode(bytes));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRoundTripRandom() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long id = random.nextLong();
+            int moment = random.nextInt();
+            Boolean finished = FINISHED[random.nextInt(FINISHED.length)];
+            assertRecord(id, moment, finished, RecordCacheCodec.decode(RecordCacheCodec.encode(id, moment, finished)));
+        }
+    }
+
+    @Test
+    void testEncodeRecord() {
+        LearningRecord record = new LearningRecord();
+        record.setId(1_850_000_000_000_000_123L);
+        record.setMoment(3_600);
+        record.setFinished(true);
+        record.setLessonId(1L);
+        record.setSectionId(2L);
+        LearningRecord decoded = RecordCacheCodec.decode(RecordCacheCodec.encode(record));
+        assertRecord(record.getId(), record.getMoment(), record.getFinished(), decoded);
+        // * 只填充缓存需要的三个字段
+        assertNull(decoded.getLessonId());
+        assertNull(decoded.getSectionId());
+    }
+
+    @Test
+    void testNullFieldsEncodeAsZero() {
+        assertRecord(0, 0, null, RecordCacheCodec.decode(RecordCacheCodec.encode(null, null, null)));
+    }
+
+    @Test
+    void testLegacyJson() {
+        LearningRecord record = new LearningRecord();
+        record.setId(1_850_000_000_000_000_123L);
+        record.setMoment(1_234);
+        record.setFinished(false);
+        // * 升级前缓存由 hutool 写入JSON字符串
+        byte[] json = JsonUtils.toJsonStr(record).getBytes(StandardCharsets.UTF_8);
+        assertEquals('{', json[0]);
+        assertRecord(record.getId(), record.getMoment(), record.getFinished(), RecordCacheCodec.decode(json));
+
+        byte[] minimal = "{\"id\":7,\"moment\":42}".getBytes(StandardCharsets.UTF_8);
+        assertRecord(7, 42, null, RecordCacheCodec.decode(minimal));
+    }
+
+    @Test
+    void testLegacyJsonOfCodecLength() {
+        // * 长度恰好为14的JSON，首字节不是版本号，仍按JSON读取
+        byte[] json = "{\"moment\":123}".getBytes(StandardCharsets.UTF_8);
+        assertEquals(RecordCacheCodec.LENGTH, json.length);
+        LearningRecord decoded = RecordCacheCodec.decode(json);
+        assertNotNull(decoded);
+        assertEquals(123, decoded.getMoment());
+        assertNull(decoded.getId());
+    }
+
+    @Test
+    void testUnrecognized() {
+        assertNull(RecordCacheCodec.decode(null));
+        assertNull(RecordCacheCodec.decode(new byte[0]));
+        assertNull(RecordCacheCodec.decode(new byte[RecordCacheCodec.LENGTH - 1]));
+        assertNull(RecordCacheCodec.decode(new byte[RecordCacheCodec.LENGTH + 1]));
+        byte[] wrongVersion = RecordCacheCodec.encode(1L, 1, true);
+        wrongVersion[0] = 2;
+        assertNull(RecordCacheCodec.decode(wrongVersion));
+        assertNull(RecordCacheCodec.decode("null".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void assertRecord(long id, int moment, Boolean finished, LearningRecord record) {
+        assertNotNull(record);
+        assertEquals(id, record.getId());
+        assertEquals(moment, record.getMoment());
+        assertEquals(finished, record.getFinished());
+    }
+}
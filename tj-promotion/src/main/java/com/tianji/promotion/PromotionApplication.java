@@ -1,5 +1,6 @@
 package com.tianji.promotion;
 
+import com.tianji.api.annotations.EnableCategoryCache;
 import lombok.extern.slf4j.Slf4j;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
@@ -14,6 +15,7 @@ import java.net.UnknownHostException;
 
 @MapperScan("com.tianji.promotion.mapper")
 @SpringBootApplication
+@EnableCategoryCache
 @Slf4j
 @EnableAsync
 @EnableAspectJAutoProxy(exposeProxy = true)
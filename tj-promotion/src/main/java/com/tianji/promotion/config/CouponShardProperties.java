@@ -0,0 +1,26 @@
+package com.tianji.promotion.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 热点优惠劵分片库存配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "tj.promotion.coupon-shard")
+public class CouponShardProperties {
+	/**
+	 * 是否开启分片库存，默认关闭
+	 */
+	private boolean enable = false;
+	/**
+	 * 分片数量，最多64
+	 */
+	private int shardNum = 8;
+	/**
+	 * 发放总量达到该值的手动领取优惠劵才分片
+	 */
+	private int minTotalNum = 10000;
+}
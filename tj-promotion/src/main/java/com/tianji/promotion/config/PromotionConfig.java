@@ -1,6 +1,9 @@
 package com.tianji.promotion.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -11,6 +14,8 @@ import java.util.concurrent.ThreadPoolExecutor;
 @Slf4j
 @Configuration
 public class PromotionConfig {
+	public static final int RECEIVE_BATCH_SIZE = 500;
+	public static final long RECEIVE_WINDOW_MILLIS = 200;
 
 	@Bean
 	public Executor generateExchangeCodeExecutor() {
@@ -29,20 +34,36 @@ public class PromotionConfig {
 		return executor;
 	}
 
+	/**
+	 * 兑换码批量生成时的编码线程池，只做CPU计算，线程数与核数一致
+	 */
 	@Bean
-	public Executor discountSolutionExecutor() {
+	public Executor exchangeCodeEncodeExecutor() {
 		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-		// 1.核心线程池大小
-		executor.setCorePoolSize(12);
-		// 2.最大线程池大小
-		executor.setMaxPoolSize(12);
-		// 3.队列大小
-		executor.setQueueCapacity(99999);
-		// 4.线程名称
-		executor.setThreadNamePrefix("discount-solution-calculator-");
-		// 5.拒绝策略
-		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+		int processors = Runtime.getRuntime().availableProcessors();
+		executor.setCorePoolSize(processors);
+		executor.setMaxPoolSize(processors);
+		// * 提交方自行限制在途批次数量，队列无需很大
+		executor.setQueueCapacity(64);
+		executor.setThreadNamePrefix("exchange-code-encoder-");
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
 		executor.initialize();
 		return executor;
 	}
+
+	/**
+	 * 领劵消息的批量消费：每批最多RECEIVE_BATCH_SIZE条，或等待RECEIVE_WINDOW_MILLIS后有多少处理多少
+	 */
+	@Bean
+	public SimpleRabbitListenerContainerFactory couponReceiveBatchContainerFactory(
+			SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory) {
+		SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+		configurer.configure(factory, connectionFactory);
+		factory.setBatchListener(true);
+		factory.setConsumerBatchEnabled(true);
+		factory.setBatchSize(RECEIVE_BATCH_SIZE);
+		factory.setReceiveTimeout(RECEIVE_WINDOW_MILLIS);
+		factory.setPrefetchCount(RECEIVE_BATCH_SIZE * 2);
+		return factory;
+	}
 }
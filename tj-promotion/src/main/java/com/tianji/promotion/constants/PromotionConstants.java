@@ -9,5 +9,17 @@ public interface PromotionConstants {
 	// * 优惠卷与用户卷缓存
 	String COUPON_CACHE_PREFIX = "prs:coupon:";
 	String USER_COUPON_CACHE_PREFIX = "prs:user:coupon:";
-	String EXCHANGE_COUPON_CACHE_PREFIX = "prs:coupon:exchange:";
+	// * 用户卷hash中的加载完成标记，存在时没有条目的用户视为领取数为0
+	String USER_COUPON_LOADED_FIELD = "loaded";
+	// * 分片库存：优惠劵分片数标记，库存分片hash与用户领取数分片hash（key后缀{优惠劵id:分片号}为hash tag，同一分片的两个key在同一slot）
+	String COUPON_SHARD_NUM_PREFIX = "prs:coupon:shards:";
+	String COUPON_SHARD_CACHE_PREFIX = "prs:coupon:shard:";
+	String USER_COUPON_SHARD_CACHE_PREFIX = "prs:user:coupon:shard:";
+	// * 超出总量未能入库的领取消息，标记已补偿（按消息id）
+	String COUPON_OVERFLOW_RELEASED_PREFIX = "prs:coupon:overflow:";
+	// * 兑换码序列号区间（member为 优惠劵id:起始序列号，score为结束序列号）与已使用兑换码bitmap
+	String EXCHANGE_CODE_RANGE_KEY = "prs:coupon:code:range";
+	String EXCHANGE_CODE_USED_KEY = "prs:coupon:code:used";
+	// * 兑换码批量生成任务锁
+	String EXCHANGE_CODE_TASK_LOCK_PREFIX = "coupon:code:task:lock:";
 }
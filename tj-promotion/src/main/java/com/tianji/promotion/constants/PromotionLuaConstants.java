@@ -14,6 +14,8 @@ public interface PromotionLuaConstants {
 	int INVALID_TIME = 3;
 	int INVALID_INVENTORY = 4;
 	int EXCEED_USER_LIMIT = 5;
+	int CODE_USED = 7;
+	int SHARD_EMPTY = 8;
 	int SUCCESS = 0;
 	// * 原则上应该在nacos配置，简化起见就放这了
 	ZoneId ZONE_ID = ZoneId.of("Asia/Shanghai");
@@ -3,6 +3,7 @@ package com.tianji.promotion.controller;
 
 import com.tianji.common.domain.dto.PageDTO;
 import com.tianji.promotion.domain.query.CodeQuery;
+import com.tianji.promotion.domain.vo.CodeGenerateProgressVO;
 import com.tianji.promotion.domain.vo.CodeVO;
 import com.tianji.promotion.service.IExchangeCodeService;
 import io.swagger.annotations.Api;
@@ -10,6 +11,7 @@ import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -33,4 +35,10 @@ public class ExchangeCodeController {
 	public PageDTO<CodeVO> queryCodePage(@Validated CodeQuery query) {
 		return exchangeCodeService.queryCodePage(query);
 	}
+
+	@ApiOperation("查询兑换码生成进度")
+	@GetMapping("/{couponId}/progress")
+	public CodeGenerateProgressVO queryGenerateProgress(@PathVariable("couponId") Long couponId) {
+		return exchangeCodeService.queryGenerateProgress(couponId);
+	}
 }
@@ -0,0 +1,18 @@
+package com.tianji.promotion.domain.dto;
+
+import lombok.Data;
+
+/**
+ * 用户对某张优惠劵的领取数量
+ */
+@Data
+public class UserCouponCountDTO {
+	/**
+	 * 用户id
+	 */
+	private Long userId;
+	/**
+	 * 已领取数量
+	 */
+	private Integer num;
+}
@@ -4,6 +4,10 @@ import lombok.Data;
 
 @Data
 public class UserCouponDTO {
+	/**
+	 * 消息id，由发送方生成并作为用户卷id入库，重复投递时据此去重
+	 */
+	private Long messageId;
 	/**
 	 * 用户id
 	 */
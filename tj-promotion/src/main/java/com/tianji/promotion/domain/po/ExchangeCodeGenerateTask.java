@@ -0,0 +1,69 @@
+package com.tianji.promotion.domain.po;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * <p>
+ * 兑换码生成任务，与优惠劵发放在同一事务中登记，记录预留的序列号区间和已写入的进度
+ * </p>
+ *
+ * @author CamelliaV
+ * @since 2024-11-26
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("exchange_code_generate_task")
+public class ExchangeCodeGenerateTask implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 优惠劵id，每张优惠劵只有一个生成任务
+	 */
+	@TableId(value = "coupon_id", type = IdType.INPUT)
+	private Long couponId;
+
+	/**
+	 * 起始序列号（含）
+	 */
+	private Long beginSerial;
+
+	/**
+	 * 结束序列号（含）
+	 */
+	private Long endSerial;
+
+	/**
+	 * 兑换码过期时间
+	 */
+	private LocalDateTime expiredTime;
+
+	/**
+	 * 已写入的兑换码数量，从起始序列号开始连续
+	 */
+	private Long generatedNum;
+
+	/**
+	 * 是否生成完毕
+	 */
+	private Boolean finished;
+
+	/**
+	 * 创建时间
+	 */
+	private LocalDateTime createTime;
+
+	/**
+	 * 更新时间
+	 */
+	private LocalDateTime updateTime;
+}
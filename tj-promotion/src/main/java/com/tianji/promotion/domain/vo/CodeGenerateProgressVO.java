@@ -0,0 +1,18 @@
+package com.tianji.promotion.domain.vo;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+
+@Data
+@ApiModel(description = "兑换码生成进度")
+public class CodeGenerateProgressVO {
+	@ApiModelProperty("优惠劵id")
+	private Long couponId;
+	@ApiModelProperty("兑换码总数")
+	private Long total;
+	@ApiModelProperty("已生成数量")
+	private Long generated;
+	@ApiModelProperty("是否生成完毕")
+	private Boolean finished;
+}
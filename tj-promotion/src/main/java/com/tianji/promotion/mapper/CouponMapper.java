@@ -31,4 +31,10 @@ public interface CouponMapper extends BaseMapper<Coupon> {
 	Integer updateCouponFinishStatusByPage(@Param("shardIndex") int shardIndex, @Param("shardTotal") int shardTotal,
 	                                       @Param("size") int size, @Param("oldStatus") CouponStatus oldStatus,
 	                                       @Param("now") LocalDateTime now, @Param("newStatus") CouponStatus newStatus);
+
+	/**
+	 * 合并多次领取的发放数量，一次更新，超出总量则不更新
+	 */
+	@Update("UPDATE coupon SET issue_num = issue_num + #{num} WHERE id = #{id} AND issue_num + #{num} <= total_num")
+	int incrIssueNum(@Param("id") Long id, @Param("num") int num);
 }
@@ -0,0 +1,25 @@
+package com.tianji.promotion.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.tianji.promotion.domain.po.ExchangeCodeGenerateTask;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+/**
+ * <p>
+ * 兑换码生成任务 Mapper 接口
+ * </p>
+ *
+ * @author CamelliaV
+ * @since 2024-11-26
+ */
+public interface ExchangeCodeGenerateTaskMapper extends BaseMapper<ExchangeCodeGenerateTask> {
+
+	/**
+	 * 推进已写入数量，只前进不后退
+	 */
+	@Update("UPDATE exchange_code_generate_task SET generated_num = #{generatedNum}, finished = #{finished} " +
+			"WHERE coupon_id = #{couponId} AND generated_num <= #{generatedNum}")
+	int updateProgress(@Param("couponId") Long couponId, @Param("generatedNum") long generatedNum,
+	                   @Param("finished") boolean finished);
+}
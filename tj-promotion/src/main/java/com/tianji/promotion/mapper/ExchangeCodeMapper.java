@@ -2,6 +2,9 @@ package com.tianji.promotion.mapper;
 
 import com.tianji.promotion.domain.po.ExchangeCode;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * <p>
@@ -13,4 +16,8 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  */
 public interface ExchangeCodeMapper extends BaseMapper<ExchangeCode> {
 
+	/**
+	 * 多行插入兑换码，已存在的id忽略（断点续传时重复写入同一批次是安全的）
+	 */
+	int insertIgnoreBatch(@Param("codes") List<ExchangeCode> codes);
 }
@@ -1,6 +1,7 @@
 package com.tianji.promotion.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.tianji.promotion.domain.dto.UserCouponCountDTO;
 import com.tianji.promotion.domain.po.Coupon;
 import com.tianji.promotion.domain.po.UserCoupon;
 import com.tianji.promotion.enums.UserCouponStatus;
@@ -43,4 +44,17 @@ public interface UserCouponMapper extends BaseMapper<UserCoupon> {
 	List<Coupon> queryCouponByUserCouponIds(
 			@Param("userCouponIds") List<Long> userCouponIds,
 			@Param("status") UserCouponStatus status);
+
+	/**
+	 * 多行插入用户卷，id已存在的行忽略
+	 */
+	int insertIgnoreBatch(@Param("userCoupons") List<UserCoupon> userCoupons);
+
+	/**
+	 * 按用户分组统计某张优惠劵的领取数量，按用户id游标分页
+	 */
+	@Select("SELECT user_id, COUNT(*) AS num FROM user_coupon WHERE coupon_id = #{couponId} AND user_id > #{lastUserId}" +
+			" GROUP BY user_id ORDER BY user_id LIMIT #{size}")
+	List<UserCouponCountDTO> countUserCoupon(@Param("couponId") Long couponId, @Param("lastUserId") Long lastUserId,
+	                                         @Param("size") int size);
 }
@@ -2,6 +2,10 @@ package com.tianji.promotion.service;
 
 import com.tianji.promotion.domain.po.CouponScope;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.tianji.promotion.util.LongIdSet;
+
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * <p>
@@ -13,4 +17,16 @@ import com.baomidou.mybatisplus.extension.service.IService;
  */
 public interface ICouponScopeService extends IService<CouponScope> {
 
+	/**
+	 * 批量查询优惠劵的限定范围（分类id），优先读本地缓存，未命中的优惠劵一次查询数据库
+	 *
+	 * @param couponIds 优惠劵id集合
+	 * @return 优惠劵id与限定分类id集合的映射，没有限定范围的优惠劵对应空集合
+	 */
+	Map<Long, LongIdSet> queryScopeIdsByCouponIds(Collection<Long> couponIds);
+
+	/**
+	 * 清除本地缓存的优惠劵限定范围
+	 */
+	void evictScopeCache(Long couponId);
 }
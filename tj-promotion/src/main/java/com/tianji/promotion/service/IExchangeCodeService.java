@@ -5,6 +5,7 @@ import com.tianji.common.domain.dto.PageDTO;
 import com.tianji.promotion.domain.po.Coupon;
 import com.tianji.promotion.domain.po.ExchangeCode;
 import com.tianji.promotion.domain.query.CodeQuery;
+import com.tianji.promotion.domain.vo.CodeGenerateProgressVO;
 import com.tianji.promotion.domain.vo.CodeVO;
 
 /**
@@ -17,7 +18,24 @@ import com.tianji.promotion.domain.vo.CodeVO;
  */
 public interface IExchangeCodeService extends IService<ExchangeCode> {
 
-	void generateCode(Coupon coupon);
+	/**
+	 * 登记兑换码生成任务，需在优惠劵发放的事务中调用
+	 */
+	void registerGenerateTask(Coupon coupon);
+
+	/**
+	 * 异步执行已登记的生成任务
+	 */
+	void generateCode(Long couponId);
+
+	void resumeGenerateTasks();
+
+	/**
+	 * 根据序列号查询兑换码对应的优惠劵id，兑换码不存在或已使用返回null
+	 */
+	Long queryCouponIdBySerial(long serialNum);
+
+	CodeGenerateProgressVO queryGenerateProgress(Long couponId);
 
 	PageDTO<CodeVO> queryCodePage(CodeQuery query);
 }
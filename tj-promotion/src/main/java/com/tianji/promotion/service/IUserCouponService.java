@@ -2,6 +2,7 @@ package com.tianji.promotion.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.tianji.common.domain.dto.PageDTO;
+import com.tianji.promotion.domain.dto.UserCouponDTO;
 import com.tianji.promotion.domain.po.Coupon;
 import com.tianji.promotion.domain.po.UserCoupon;
 import com.tianji.promotion.domain.query.UserCouponQuery;
@@ -21,6 +22,8 @@ public interface IUserCouponService extends IService<UserCoupon> {
 
 	void cacheCouponInfoWithLua(Coupon coupon);
 
+	int warmUpCouponCache(long aheadSeconds);
+
 	void receiveCoupon(Long id);
 
 	void exchangeCouponWithLua(String code);
@@ -29,9 +32,19 @@ public interface IUserCouponService extends IService<UserCoupon> {
 
 	void checkAndCreateUserCoupon(Coupon coupon, Long userId);
 
+	/**
+	 * 批量创建用户卷，返回超出总量无法发放的领取消息
+	 */
+	List<UserCouponDTO> batchCreateUserCoupon(Coupon coupon, List<UserCouponDTO> dtoList);
+
+	/**
+	 * 补偿超出总量无法发放的领取
+	 */
+	void releaseOverflowClaims(Long couponId, List<UserCouponDTO> overflow);
+
 	PageDTO<CouponVO> queryMyCoupon(UserCouponQuery query);
 
-	void checkAndCreateUserCouponWithCode(Coupon coupon, Long userId, Long serialNum);
+	boolean checkAndCreateUserCouponWithCode(Coupon coupon, Long userId, Long serialNum);
 
 	void receiveCouponImplWithLua(Long id);
 
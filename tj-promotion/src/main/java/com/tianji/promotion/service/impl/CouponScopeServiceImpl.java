@@ -1,11 +1,19 @@
 package com.tianji.promotion.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tianji.common.utils.CollUtils;
 import com.tianji.promotion.domain.po.CouponScope;
 import com.tianji.promotion.mapper.CouponScopeMapper;
 import com.tianji.promotion.service.ICouponScopeService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.tianji.promotion.util.LongIdSet;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
 /**
  * <p>
  * 优惠券作用范围信息 服务实现类
@@ -16,5 +24,43 @@ import org.springframework.stereotype.Service;
  */
 @Service
 public class CouponScopeServiceImpl extends ServiceImpl<CouponScopeMapper, CouponScope> implements ICouponScopeService {
+	// * 优惠劵id -> 限定分类id，范围变更时通过MQ清除，过期时间仅作兜底
+	private final Cache<Long, LongIdSet> scopeCache = Caffeine.newBuilder()
+			.initialCapacity(256)
+			.maximumSize(10_000)
+			.expireAfterWrite(Duration.ofMinutes(30))
+			.build();
+
+	@Override
+	public Map<Long, LongIdSet> queryScopeIdsByCouponIds(Collection<Long> couponIds) {
+		if (CollUtils.isEmpty(couponIds)) {
+			return CollUtils.emptyMap();
+		}
+		// * 未命中的优惠劵合并为一次查询
+		return scopeCache.getAll(couponIds, this::loadScopeIds);
+	}
+
+	@Override
+	public void evictScopeCache(Long couponId) {
+		if (couponId != null) {
+			scopeCache.invalidate(couponId);
+		}
+	}
 
+	private Map<Long, LongIdSet> loadScopeIds(Iterable<? extends Long> couponIds) {
+		Set<Long> ids = new HashSet<>();
+		couponIds.forEach(ids::add);
+		Map<Long, List<Long>> scopeMap = lambdaQuery()
+				.in(CouponScope::getCouponId, ids)
+				.list()
+				.stream()
+				.collect(Collectors.groupingBy(CouponScope::getCouponId,
+						Collectors.mapping(CouponScope::getBizId, Collectors.toList())));
+		// * 没有限定范围的优惠劵也缓存空集合，避免重复查询
+		Map<Long, LongIdSet> result = new HashMap<>(ids.size());
+		for (Long id : ids) {
+			result.put(id, LongIdSet.of(scopeMap.get(id)));
+		}
+		return result;
+	}
 }
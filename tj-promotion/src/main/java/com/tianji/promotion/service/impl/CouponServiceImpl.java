@@ -3,6 +3,8 @@ package com.tianji.promotion.service.impl;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.tianji.api.cache.CategoryCache;
+import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
+import com.tianji.common.constants.MqConstants;
 import com.tianji.common.domain.dto.PageDTO;
 import com.tianji.common.exceptions.BadRequestException;
 import com.tianji.common.exceptions.BizIllegalException;
@@ -28,12 +30,15 @@ import com.tianji.promotion.service.ICouponScopeService;
 import com.tianji.promotion.service.ICouponService;
 import com.tianji.promotion.service.IExchangeCodeService;
 import com.tianji.promotion.service.IUserCouponService;
+import com.tianji.promotion.utils.CouponStockShards;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -57,6 +62,8 @@ public class CouponServiceImpl extends ServiceImpl<CouponMapper, Coupon> impleme
 	private final IExchangeCodeService exchangeCodeService;
 	private final CategoryCache categoryCache;
 	private final StringRedisTemplate redisTemplate;
+	private final RabbitMqHelper rabbitMqHelper;
+	private final CouponStockShards couponStockShards;
 	@Autowired
 	private IUserCouponService userCouponService;
 
@@ -148,13 +155,17 @@ public class CouponServiceImpl extends ServiceImpl<CouponMapper, Coupon> impleme
 		if (isBegin) {
 			coupon.setIssueBeginTime(couponToUpdate.getIssueBeginTime());
 			coupon.setIssueEndTime(dto.getIssueEndTime());
+			// * 暂停后恢复发放时，库存按剩余数量写入
+			coupon.setTotalNum(coupon.getTotalNum() - NumberUtils.null2Zero(coupon.getIssueNum()));
 			userCouponService.cacheCouponInfoWithLua(coupon);
 		}
 		// * 使用兑换码获取并且未发放（暂停状态之前已生成兑换码，不应重复生成）
 		if (coupon.getObtainWay() == ObtainType.ISSUE && coupon.getStatus() == CouponStatus.DRAFT) {
 			// * 从dto补全发行结束时间（兑换码失效时间）
 			coupon.setIssueEndTime(dto.getIssueEndTime());
-			exchangeCodeService.generateCode(coupon);
+			// * 兑换码数量可能很大，在发放事务中登记生成任务，提交后异步分批写入，中断后由定时任务续传
+			exchangeCodeService.registerGenerateTask(coupon);
+			runAfterCommit(() -> exchangeCodeService.generateCode(coupon.getId()));
 		}
 	}
 
@@ -209,6 +220,8 @@ public class CouponServiceImpl extends ServiceImpl<CouponMapper, Coupon> impleme
 					.collect(Collectors.toList());
 			couponScopeService.saveBatch(couponScopeList);
 		}
+		// * 范围可能变更，通知各实例清除范围缓存
+		publishScopeChanged(couponId);
 	}
 
 	/**
@@ -232,9 +245,34 @@ public class CouponServiceImpl extends ServiceImpl<CouponMapper, Coupon> impleme
 			couponScopeService.lambdaUpdate()
 					.eq(CouponScope::getCouponId, id)
 					.remove();
+			publishScopeChanged(id);
 		}
 	}
 
+	/**
+	 * 广播优惠劵范围变更，通知各实例清除范围缓存
+	 */
+	private void publishScopeChanged(Long couponId) {
+		runAfterCommit(() -> rabbitMqHelper.send(MqConstants.Exchange.PROMOTION_EXCHANGE,
+				MqConstants.Key.COUPON_SCOPE_CHANGED, couponId));
+	}
+
+	/**
+	 * 处于事务中时等提交后再执行，避免在提交前读到旧数据或在回滚后产生副作用
+	 */
+	private static void runAfterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
 	/**
 	 * 根据id查询优惠劵详情
 	 */
@@ -322,6 +360,8 @@ public class CouponServiceImpl extends ServiceImpl<CouponMapper, Coupon> impleme
 				.update();
 		String key = PromotionConstants.COUPON_CACHE_PREFIX + id;
 		redisTemplate.opsForHash().delete(key, "issueBeginTime", "issueEndTime", "totalNum", "userLimit");
+		// * 分片库存一并清除，恢复发放时按剩余数量重新分片
+		couponStockShards.evict(id);
 	}
 
 	/**
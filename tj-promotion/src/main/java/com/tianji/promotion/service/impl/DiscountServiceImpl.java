@@ -7,23 +7,17 @@ import com.tianji.promotion.domain.dto.CouponDiscountDTO;
 import com.tianji.promotion.domain.dto.OrderCouponDTO;
 import com.tianji.promotion.domain.dto.OrderCourseDTO;
 import com.tianji.promotion.domain.po.Coupon;
-import com.tianji.promotion.domain.po.CouponScope;
 import com.tianji.promotion.enums.UserCouponStatus;
 import com.tianji.promotion.mapper.UserCouponMapper;
 import com.tianji.promotion.service.ICouponScopeService;
 import com.tianji.promotion.service.IDiscountService;
-import com.tianji.promotion.strategy.discount.Discount;
 import com.tianji.promotion.strategy.discount.DiscountStrategy;
-import com.tianji.promotion.util.PermuteUtil;
+import com.tianji.promotion.util.DiscountSolver;
+import com.tianji.promotion.util.LongIdSet;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Executor;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -35,7 +29,6 @@ import java.util.stream.Collectors;
 public class DiscountServiceImpl implements IDiscountService {
 	private final UserCouponMapper userCouponMapper;
 	private final ICouponScopeService couponScopeService;
-	private final Executor discountSolutionExecutor;
 
 	@Override
 	public List<CouponDiscountDTO> findDiscountSolution(List<OrderCourseDTO> orderCourseDTOList) {
@@ -60,37 +53,12 @@ public class DiscountServiceImpl implements IDiscountService {
 		if (CollUtils.isEmpty(validCouponMap)) {
 			return CollUtils.emptyList();
 		}
-		// * 全排列
-		validCouponList = new ArrayList<>(validCouponMap.keySet());
-		List<List<Coupon>> solutions = PermuteUtil.permute(validCouponList);
-		// * 加单卷
-		for (Coupon coupon : validCouponList) {
-			solutions.add(List.of(coupon));
-		}
-		// * 去重，防止本来就只有单卷
-		solutions = new ArrayList<>(new HashSet<>(solutions));
-		// * 遍历方案集合计算组合方案，封装dto，多线程操作
-		List<CouponDiscountDTO> couponDiscountDTOList = Collections.synchronizedList(new ArrayList<>());
-		CountDownLatch latch = new CountDownLatch(solutions.size());
-		for (List<Coupon> solution : solutions) {
-			CompletableFuture.supplyAsync(new Supplier<CouponDiscountDTO>() {
-				@Override
-				public CouponDiscountDTO get() {
-					return calculateSolution(solution, validCouponMap, orderCourseDTOList);
-				}
-			}, discountSolutionExecutor).thenAccept(
-					dto -> {
-						couponDiscountDTOList.add(dto);
-						latch.countDown();
-					}
-			);
-		}
-
-		try {
-			latch.await(1, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			throw new RuntimeException("计算方案超时");
-		}
+		// * 求解各用卷组合下优惠最高的用卷顺序（包含单卷方案）
+		List<List<Coupon>> solutions = DiscountSolver.solve(validCouponMap, orderCourseDTOList);
+		// * 计算各方案的优惠明细
+		List<CouponDiscountDTO> couponDiscountDTOList = solutions.stream()
+				.map(solution -> DiscountSolver.calculateSolution(solution, validCouponMap, orderCourseDTOList))
+				.collect(Collectors.toList());
 		// * 筛选最优解
 		return findBestSolution(couponDiscountDTOList);
 	}
@@ -112,7 +80,7 @@ public class DiscountServiceImpl implements IDiscountService {
 			return null;
 		}
 		// * 计算优惠详情 （复用原本接口，修改一条设置detailMap）
-		return calculateSolution(validCouponList, validCouponMap, orderCourseDTOList);
+		return DiscountSolver.calculateSolution(validCouponList, validCouponMap, orderCourseDTOList);
 	}
 
 	/**
@@ -151,77 +119,19 @@ public class DiscountServiceImpl implements IDiscountService {
 		return intersection.stream().sorted(Comparator.comparingInt(CouponDiscountDTO::getDiscountAmount).reversed()).collect(Collectors.toList());
 	}
 
-	/**
-	 * 根据指定方案计算优惠
-	 */
-
-	// * 计算优惠明细
-	private CouponDiscountDTO calculateSolution(List<Coupon> solution, Map<Coupon, List<OrderCourseDTO>> validCouponMap, List<OrderCourseDTO> orderCourseDTOList) {
-		// * 初始化返回dto与折扣明细Map
-		CouponDiscountDTO dto = new CouponDiscountDTO();
-		Map<Long, Integer> detailMap = orderCourseDTOList.stream()
-				.collect(Collectors.toMap(OrderCourseDTO::getId, c -> 0));
-		// * 遍历每张优惠劵计算优惠明细
-		for (Coupon coupon : solution) {
-			// * 获得优惠卷限定课程
-			List<OrderCourseDTO> validCourseList = validCouponMap.get(coupon);
-			// * 获得课程总价（原价-折扣明细）
-			int actualTotalPrice = validCourseList.stream()
-					.mapToInt(c -> c.getPrice() - detailMap.get(c.getId()))
-					.sum();
-			// * 判断是否可用
-			Discount discount = DiscountStrategy.getDiscount(coupon.getDiscountType());
-			boolean canUse = discount.canUse(actualTotalPrice, coupon);
-			if (!canUse) {
-				continue;
-			}
-			// * 计算优惠金额
-			int discountAmount = discount.calculateDiscount(actualTotalPrice, coupon);
-			// * 计算优惠明细
-			calculateDiscountDetail(detailMap, actualTotalPrice, discountAmount, validCourseList);
-			// * 填充dto（字段默认值，均不为null）
-			dto.getIds().add(coupon.getCreater());
-			dto.getRules().add(discount.getRule(coupon));
-			dto.setDiscountAmount(dto.getDiscountAmount() + discountAmount);
-		}
-		dto.setDiscountDetailMap(detailMap);
-		return dto;
-	}
-
-	// * 计算优惠明细
-	private void calculateDiscountDetail(Map<Long, Integer> detailMap, int actualTotalPrice, int discountAmount, List<OrderCourseDTO> validCourseList) {
-		// * 课程价格占总价比例 * 优惠总值（最后一个用减法）
-		int times = 0;
-		int remain = discountAmount;
-		for (OrderCourseDTO course : validCourseList) {
-			++times;
-			int discount = 0;
-			if (times == validCourseList.size()) {
-				// * 最后一门
-				discount = remain;
-			} else {
-				discount = course.getPrice() * discountAmount / actualTotalPrice;
-				remain -= discount;
-			}
-			detailMap.put(course.getId(), discount);
-		}
-	}
-
 	private Map<Coupon, List<OrderCourseDTO>> findValidCouponMap(List<Coupon> validCouponList, List<OrderCourseDTO> orderCourseDTOList) {
 		Map<Coupon, List<OrderCourseDTO>> validCouponMap = new HashMap<>();
-		// * 遍历优惠劵列表，对限定了范围的优惠劵，查询限定范围信息
+		// * 批量查询限定了范围的优惠劵的限定分类（本地缓存，未命中时一次查询）
+		Set<Long> specificCouponIds = validCouponList.stream()
+				.filter(c -> BooleanUtils.isTrue(c.getSpecific()))
+				.map(Coupon::getId)
+				.collect(Collectors.toSet());
+		Map<Long, LongIdSet> scopeMap = couponScopeService.queryScopeIdsByCouponIds(specificCouponIds);
 		for (Coupon coupon : validCouponList) {
 			List<OrderCourseDTO> validCourseList = orderCourseDTOList;
 			// * 限定范围，需要对可用课程列表进行过滤
 			if (BooleanUtils.isTrue(coupon.getSpecific())) {
-				// * 查询得到限定范围对应信息
-				List<CouponScope> scopeList = couponScopeService.lambdaQuery()
-						.eq(CouponScope::getId, coupon.getId())
-						.list();
-				// * 映射限定分类id
-				Set<Long> scopeIds = scopeList.stream()
-						.map(CouponScope::getBizId)
-						.collect(Collectors.toSet());
+				LongIdSet scopeIds = scopeMap.getOrDefault(coupon.getId(), LongIdSet.EMPTY);
 				// * 限定范围是否囊括了订单里的课程
 				validCourseList = validCourseList.stream()
 						.filter(c -> scopeIds.contains(c.getCateId()))
@@ -1,26 +1,38 @@
 package com.tianji.promotion.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.tianji.common.domain.dto.PageDTO;
 import com.tianji.common.utils.BeanUtils;
+import com.tianji.common.utils.BooleanUtils;
 import com.tianji.common.utils.CollUtils;
 import com.tianji.promotion.constants.PromotionConstants;
 import com.tianji.promotion.domain.po.Coupon;
 import com.tianji.promotion.domain.po.ExchangeCode;
+import com.tianji.promotion.domain.po.ExchangeCodeGenerateTask;
 import com.tianji.promotion.domain.query.CodeQuery;
+import com.tianji.promotion.domain.vo.CodeGenerateProgressVO;
 import com.tianji.promotion.domain.vo.CodeVO;
+import com.tianji.promotion.enums.ExchangeCodeStatus;
 import com.tianji.promotion.mapper.ExchangeCodeMapper;
+import com.tianji.promotion.mapper.ExchangeCodeGenerateTaskMapper;
 import com.tianji.promotion.service.IExchangeCodeService;
 import com.tianji.promotion.utils.CodeUtil;
 import io.lettuce.core.RedisException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * <p>
@@ -34,38 +46,202 @@ import java.util.List;
 @Slf4j
 @RequiredArgsConstructor
 public class ExchangeCodeServiceImpl extends ServiceImpl<ExchangeCodeMapper, ExchangeCode> implements IExchangeCodeService {
+	// * 每批写入数据库的行数
+	private static final int BATCH_SIZE = 1000;
+	// * 在途（已提交编码未写库）的批次数，限制内存占用
+	private static final int MAX_IN_FLIGHT_BATCHES = Runtime.getRuntime().availableProcessors() * 2;
+	// * 编码线程复用的转码缓冲区
+	private static final ThreadLocal<char[]> CODE_BUFFER = ThreadLocal.withInitial(() -> new char[CodeUtil.CODE_LENGTH]);
 	private final StringRedisTemplate redisTemplate;
+	private final ExchangeCodeGenerateTaskMapper taskMapper;
+	private final RedissonClient redissonClient;
+	@Autowired
+	@Qualifier("generateExchangeCodeExecutor")
+	private Executor generateExchangeCodeExecutor;
+	@Autowired
+	@Qualifier("exchangeCodeEncodeExecutor")
+	private Executor exchangeCodeEncodeExecutor;
 
 	/**
-	 * 生成兑换码
+	 * 登记兑换码生成任务：一次INCRBY预留整个序列号区间，任务与优惠劵发放在同一事务中写入数据库
 	 */
 	@Override
-	// @Async("generateExchangeCodeExecutor")
-	public void generateCode(Coupon coupon) {
-		log.info(">>>>> generateCode by {}", Thread.currentThread().getId());
-		// * 获得优惠劵数量（兑换码生成数量）
+	public void registerGenerateTask(Coupon coupon) {
+		Long couponId = coupon.getId();
+		// * 任务已登记（重复发放），不再重复预留序列号
+		if (taskMapper.selectById(couponId) != null) {
+			return;
+		}
+		// * 获得优惠劵数量（兑换码生成数量），一次预留整个序列号区间；事务回滚时区间作废，只留下序列号空洞
 		Integer totalNum = coupon.getTotalNum();
-		// * 遍历生成，批量保存
 		Long result = redisTemplate.opsForValue().increment(PromotionConstants.COUPON_CODE_SERIAL_KEY, totalNum);
 		if (result == null) {
 			throw new RedisException("Redis兑换码自增id获取失败");
 		}
-		// * 传入序列号与优惠劵id
-		long couponId = coupon.getId().longValue();
-		long maxId = result.longValue();
-		List<ExchangeCode> exchangeCodeList = new ArrayList<>();
-		for (long i = maxId - totalNum + 1; i <= maxId; i++) {
-			String code = CodeUtil.generateCode(i, couponId);
-			// * 约定为32位，可以强转
+		ExchangeCodeGenerateTask task = new ExchangeCodeGenerateTask()
+				.setCouponId(couponId)
+				.setBeginSerial(result - totalNum + 1)
+				.setEndSerial(result)
+				.setExpiredTime(coupon.getIssueEndTime())
+				.setGeneratedNum(0L)
+				.setFinished(false);
+		// * 主键为优惠劵id，并发登记时只有一个事务能提交
+		taskMapper.insert(task);
+	}
+
+	/**
+	 * 异步执行生成任务，失败或中断后由定时任务根据数据库中的任务续传
+	 */
+	@Override
+	public void generateCode(Long couponId) {
+		generateExchangeCodeExecutor.execute(() -> runGenerateTask(couponId));
+	}
+
+	/**
+	 * 续传未完成的兑换码生成任务
+	 */
+	@Override
+	public void resumeGenerateTasks() {
+		List<ExchangeCodeGenerateTask> tasks = taskMapper.selectList(new LambdaQueryWrapper<ExchangeCodeGenerateTask>()
+				.select(ExchangeCodeGenerateTask::getCouponId)
+				.eq(ExchangeCodeGenerateTask::getFinished, false));
+		for (ExchangeCodeGenerateTask task : tasks) {
+			generateCode(task.getCouponId());
+		}
+	}
+
+	/**
+	 * 根据序列号查询兑换码对应的优惠劵id
+	 */
+	@Override
+	public Long queryCouponIdBySerial(long serialNum) {
+		// * 取结束序列号不小于当前序列号的第一个区间
+		Set<String> ranges = redisTemplate.opsForZSet()
+				.rangeByScore(PromotionConstants.EXCHANGE_CODE_RANGE_KEY, serialNum, Double.POSITIVE_INFINITY, 0, 1);
+		if (CollUtils.isNotEmpty(ranges)) {
+			String range = ranges.iterator().next();
+			int split = range.indexOf(':');
+			if (serialNum >= Long.parseLong(range.substring(split + 1))) {
+				return Long.valueOf(range.substring(0, split));
+			}
+		}
+		// * 超出已分配的序列号，兑换码不存在
+		String maxSerial = redisTemplate.opsForValue().get(PromotionConstants.COUPON_CODE_SERIAL_KEY);
+		if (maxSerial == null || serialNum > Long.parseLong(maxSerial)) {
+			return null;
+		}
+		// * 登记区间之前生成的兑换码，回退查库
+		ExchangeCode exchangeCode = getById(serialNum);
+		if (exchangeCode == null || exchangeCode.getStatus() != ExchangeCodeStatus.UNUSED) {
+			return null;
+		}
+		return exchangeCode.getExchangeTargetId();
+	}
+
+	/**
+	 * 查询兑换码生成进度
+	 */
+	@Override
+	public CodeGenerateProgressVO queryGenerateProgress(Long couponId) {
+		CodeGenerateProgressVO vo = new CodeGenerateProgressVO();
+		vo.setCouponId(couponId);
+		ExchangeCodeGenerateTask task = taskMapper.selectById(couponId);
+		if (task == null) {
+			return vo;
+		}
+		vo.setTotal(task.getEndSerial() - task.getBeginSerial() + 1);
+		vo.setGenerated(task.getGeneratedNum());
+		vo.setFinished(task.getFinished());
+		return vo;
+	}
+
+	/**
+	 * 执行生成任务，同一优惠劵的任务同时只有一个实例在执行
+	 */
+	private void runGenerateTask(Long couponId) {
+		RLock lock = redissonClient.getLock(PromotionConstants.EXCHANGE_CODE_TASK_LOCK_PREFIX + couponId);
+		if (!lock.tryLock()) {
+			log.debug("兑换码生成任务正在执行，couponId：{}", couponId);
+			return;
+		}
+		try {
+			doGenerate(couponId);
+		} catch (Exception e) {
+			// * 已写入的进度记录在任务中，等待定时任务续传
+			log.error("兑换码生成中断，等待续传，couponId：{}", couponId, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void doGenerate(Long couponId) {
+		ExchangeCodeGenerateTask task = taskMapper.selectById(couponId);
+		if (task == null || BooleanUtils.isTrue(task.getFinished())) {
+			return;
+		}
+		long begin = task.getBeginSerial();
+		long end = task.getEndSerial();
+		long total = end - begin + 1;
+		LocalDateTime expiredTime = task.getExpiredTime();
+		// * 登记序列号区间，兑换时据此由序列号反查优惠劵，无需查库（重复登记无影响）
+		redisTemplate.opsForZSet().add(PromotionConstants.EXCHANGE_CODE_RANGE_KEY, couponId + ":" + begin, end);
+		// * 批次按序写入，已写入数量之前的序列号都已落库，从下一个批次续传
+		long generated = task.getGeneratedNum();
+		int next = (int) (generated / BATCH_SIZE);
+		int batchNum = (int) ((total - 1) / BATCH_SIZE + 1);
+		long startTime = System.currentTimeMillis();
+		long written = 0;
+		int lastReportPercent = (int) (generated * 100 / total);
+		// * 编码在线程池中并行，写库在当前线程按提交顺序进行，两者重叠执行
+		Deque<CompletableFuture<EncodedBatch>> inFlight = new ArrayDeque<>(MAX_IN_FLIGHT_BATCHES);
+		while (next < batchNum || !inFlight.isEmpty()) {
+			while (next < batchNum && inFlight.size() < MAX_IN_FLIGHT_BATCHES) {
+				int batchIndex = next++;
+				long from = begin + (long) batchIndex * BATCH_SIZE;
+				long to = Math.min(from + BATCH_SIZE - 1, end);
+				inFlight.add(CompletableFuture.supplyAsync(
+						() -> encodeBatch(batchIndex, from, to, couponId, expiredTime), exchangeCodeEncodeExecutor));
+			}
+			EncodedBatch batch = inFlight.poll().join();
+			// * 多行插入，续传时重复写入的行被忽略
+			getBaseMapper().insertIgnoreBatch(batch.codes);
+			written += batch.codes.size();
+			generated = Math.min((batch.index + 1L) * BATCH_SIZE, total);
+			// * 记录检查点，最后一批同时标记完成
+			taskMapper.updateProgress(couponId, generated, generated == total);
+			int percent = (int) (generated * 100 / total);
+			if (percent - lastReportPercent >= 10) {
+				lastReportPercent = percent;
+				log.info("兑换码生成进度，couponId：{}，{}%，已写入{}/{}条，{}条/秒", couponId, percent, generated, total,
+						written * 1000 / Math.max(System.currentTimeMillis() - startTime, 1));
+			}
+		}
+		log.info("兑换码生成完毕，couponId：{}，共{}条，本次写入{}条，耗时{}ms", couponId, total, written,
+				System.currentTimeMillis() - startTime);
+	}
+
+	private static EncodedBatch encodeBatch(int index, long from, long to, long couponId, LocalDateTime expiredTime) {
+		char[] buf = CODE_BUFFER.get();
+		List<ExchangeCode> codes = new ArrayList<>((int) (to - from + 1));
+		for (long i = from; i <= to; i++) {
 			ExchangeCode exchangeCode = new ExchangeCode();
-			exchangeCode.setCode(code);
 			exchangeCode.setId(i);
+			exchangeCode.setCode(CodeUtil.generateCode(i, couponId, buf));
 			exchangeCode.setExchangeTargetId(couponId);
-			exchangeCode.setExpiredTime(coupon.getIssueEndTime());
-			exchangeCodeList.add(exchangeCode);
+			exchangeCode.setExpiredTime(expiredTime);
+			codes.add(exchangeCode);
+		}
+		return new EncodedBatch(index, codes);
+	}
+
+	private static class EncodedBatch {
+		private final int index;
+		private final List<ExchangeCode> codes;
+
+		private EncodedBatch(int index, List<ExchangeCode> codes) {
+			this.index = index;
+			this.codes = codes;
 		}
-		// * 存入数据库
-		saveBatch(exchangeCodeList);
 	}
 
 	/**
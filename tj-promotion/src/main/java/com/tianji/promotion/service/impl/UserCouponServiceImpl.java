@@ -2,18 +2,23 @@ package com.tianji.promotion.service.impl;
 
 import cn.hutool.core.bean.copier.CopyOptions;
 import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
 import com.tianji.common.constants.MqConstants;
 import com.tianji.common.domain.dto.PageDTO;
+import com.tianji.common.exceptions.BadRequestException;
 import com.tianji.common.exceptions.BizIllegalException;
 import com.tianji.common.exceptions.DbException;
 import com.tianji.common.utils.BeanUtils;
+import com.tianji.common.utils.BooleanUtils;
 import com.tianji.common.utils.CollUtils;
+import com.tianji.common.utils.NumberUtils;
 import com.tianji.common.utils.UserContext;
 import com.tianji.promotion.constants.PromotionConstants;
 import com.tianji.promotion.constants.PromotionLuaConstants;
+import com.tianji.promotion.domain.dto.UserCouponCountDTO;
 import com.tianji.promotion.domain.dto.UserCouponDTO;
 import com.tianji.promotion.domain.po.Coupon;
 import com.tianji.promotion.domain.po.ExchangeCode;
@@ -23,24 +28,31 @@ import com.tianji.promotion.domain.vo.CouponVO;
 import com.tianji.promotion.enums.CouponStatus;
 import com.tianji.promotion.enums.ExchangeCodeStatus;
 import com.tianji.promotion.enums.UserCouponStatus;
+import com.tianji.promotion.mapper.CouponMapper;
 import com.tianji.promotion.mapper.UserCouponMapper;
 import com.tianji.promotion.service.ICouponService;
 import com.tianji.promotion.service.IExchangeCodeService;
 import com.tianji.promotion.service.IUserCouponService;
 import com.tianji.promotion.strategy.discount.DiscountStrategy;
 import com.tianji.promotion.utils.CodeUtil;
+import com.tianji.promotion.utils.CouponCacheMetrics;
+import com.tianji.promotion.utils.CouponStockShards;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.aop.framework.AopContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -48,6 +60,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -58,20 +71,35 @@ import java.util.stream.Collectors;
  * @author CamelliaV
  * @since 2024-11-26
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCoupon> implements IUserCouponService {
 	// * 必加resultType
 	private static final RedisScript<Long> RECEIVE_COUPON_SCRIPT = RedisScript.of(new ClassPathResource("lua" +
 			"/receive_coupon.lua"), Long.class);
+	private static final RedisScript<Long> RECEIVE_COUPON_SHARD_SCRIPT = RedisScript.of(new ClassPathResource("lua" +
+			"/receive_coupon_shard.lua"), Long.class);
 	private static final RedisScript<Long> WRITE_COUPON_SCRIPT = RedisScript.of(new ClassPathResource("lua" +
 			"/write_coupon.lua"), Long.class);
 	private static final RedisScript<Long> EXCHANGE_COUPON_SCRIPT = RedisScript.of(new ClassPathResource("lua" +
 			"/exchange_coupon.lua"), Long.class);
+	// * 预热时每批加载的用户数
+	private static final int WARM_UP_BATCH_SIZE = 1000;
+	// * 超出总量的领取补偿标记保留时间，覆盖消息重投的时间范围
+	private static final Duration OVERFLOW_RELEASED_TTL = Duration.ofDays(1);
+	// * 分片领劵脚本的模式
+	private static final String SHARD_MODE_HOME = "home";
+	private static final String SHARD_MODE_TAKE = "take";
+	private static final String SHARD_MODE_COMMIT = "commit";
+	private static final String SHARD_MODE_RESTOCK = "restock";
 	private final IExchangeCodeService exchangeCodeService;
 	// private final RedisLock redisLock;
 	private final RedissonClient redissonClient;
 	private final StringRedisTemplate redisTemplate;
+	private final CouponMapper couponMapper;
+	private final CouponCacheMetrics couponCacheMetrics;
+	private final CouponStockShards couponStockShards;
 	@Autowired
 	@Lazy
 	private ICouponService couponService;
@@ -114,22 +142,22 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 		if (coupon.getStatus() != CouponStatus.ISSUING) {
 			throw new BizIllegalException("该优惠劵不在发放状态");
 		}
-		// * lua脚本原子性HSETNX写入Redis，乐观锁
-		String key = PromotionConstants.COUPON_CACHE_PREFIX + couponId;
-		// * 由于Redis中lua在沙箱环境中执行，没有os等模块，需要手动转换时间字符串
-		// * 不如业务层转换为直接存为unix timestamp （单位为s，对应redis）
-		String issueBeginTime = String.valueOf(convertDateTimeToEpochSecond(coupon.getIssueBeginTime()));
-		String issueEndTime = String.valueOf(convertDateTimeToEpochSecond(coupon.getIssueEndTime()));
-		String totalNum = coupon.getTotalNum().toString();
-		String userLimit = coupon.getUserLimit().toString();
-		redisTemplate.execute(WRITE_COUPON_SCRIPT, List.of(key), issueBeginTime, issueEndTime, totalNum,
-				userLimit);
+		// * 库存按剩余数量写入
+		coupon.setTotalNum(coupon.getTotalNum() - NumberUtils.null2Zero(coupon.getIssueNum()));
+		cacheCouponInfoWithLua(coupon);
 	}
 
 	/**
 	 * （lua版本工具方法）读库写用户卷数量信息到Redis
 	 */
 	private void writeDbUserCouponCountToRedis(Long couponId, Long userId) {
+		writeDbUserCouponCountToRedis(couponId, userId, PromotionConstants.USER_COUPON_CACHE_PREFIX + couponId);
+	}
+
+	/**
+	 * （lua版本工具方法）读库写用户卷数量信息到指定的用户卷hash
+	 */
+	private void writeDbUserCouponCountToRedis(Long couponId, Long userId, String key) {
 		// * 不计状态，统计所有已领取
 		Integer count = lambdaQuery()
 				.eq(UserCoupon::getCouponId, couponId)
@@ -139,7 +167,6 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 		if (count == null) {
 			throw new DbException("用户卷数据库异常");
 		}
-		String key = PromotionConstants.USER_COUPON_CACHE_PREFIX + couponId;
 		// * HSETNX，乐观锁
 		redisTemplate.opsForHash().putIfAbsent(key, userId.toString(), count.toString());
 	}
@@ -157,6 +184,9 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 		if (result == PromotionLuaConstants.EXCEED_USER_LIMIT) {
 			throw new BizIllegalException("用户领取数量已达上限");
 		}
+		if (result == PromotionLuaConstants.CODE_USED) {
+			throw new BizIllegalException("兑换码已使用或已过期");
+		}
 	}
 
 	/**
@@ -164,10 +194,23 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 	 */
 	@Override
 	public void receiveCouponImplWithLua(Long couponId) {
+		Long userId = UserContext.getUser();
+		// * 分片数以Redis标记为准，没有标记说明优惠劵还未写入缓存，回源数据库写入后确定
+		CouponStockShards.ShardState state = couponStockShards.queryState(couponId);
+		if (state == null) {
+			couponCacheMetrics.recordColdPath(PromotionLuaConstants.ONLY_COUPON_NOT_EXIST);
+			writeDbCouponInfoToRedis(couponId);
+			state = couponStockShards.queryState(couponId);
+		}
+		// * 热点优惠劵走分片库存
+		if (state != null && state.getShards() > 1) {
+			receiveFromShards(couponId, userId, state);
+			sendCouponReceivedMessage(couponId, userId);
+			return;
+		}
 		// * 获取lua脚本入参
 		String couponKey = PromotionConstants.COUPON_CACHE_PREFIX + couponId;
 		String userCouponKey = PromotionConstants.USER_COUPON_CACHE_PREFIX + couponId;
-		Long userId = UserContext.getUser();
 		// * 第一次尝试执行脚本
 		Long result = redisTemplate.execute(RECEIVE_COUPON_SCRIPT, List.of(couponKey, userCouponKey), userId.toString());
 		// * 健壮性判断
@@ -178,7 +221,8 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 		if (result != PromotionLuaConstants.SUCCESS) {
 			// * 校验是否因为业务原因失败
 			validateReceiveCouponBiz(result);
-			// * 非业务原因失败
+			// * 非业务原因失败，缓存未预热，回源数据库
+			couponCacheMetrics.recordColdPath(result);
 			// * SETNX/HSETNX 乐观锁读库写入Redis
 			if (result == PromotionLuaConstants.ONLY_COUPON_NOT_EXIST) {
 				writeDbCouponInfoToRedis(couponId);
@@ -203,10 +247,92 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 			}
 		}
 		// * 成功，发送MQ
+		sendCouponReceivedMessage(couponId, userId);
+	}
+
+	/**
+	 * 分片库存领劵：先在用户所在分片校验限领并扣库存；该分片耗尽时依次到相邻分片只扣库存，扣到后再回到所在分片校验限领并增加领取数，
+	 * 校验不通过则退回扣掉的库存。领取数只在校验限领的同一次脚本调用中增加，不会因中途失败而残留；
+	 * 每个分片的扣减都是原子的且不会小于0，各分片库存合计即为总库存，不会超卖
+	 */
+	private void receiveFromShards(Long couponId, Long userId, CouponStockShards.ShardState state) {
+		// * 本地已记录所有分片耗尽，不再访问Redis
+		if (state.isAllExhausted()) {
+			throw new BizIllegalException("库存不足");
+		}
+		int shards = state.getShards();
+		int home = CouponStockShards.shardOf(userId, shards);
+		Long result = executeShardScript(couponId, home, userId, SHARD_MODE_HOME);
+		if (result == null) {
+			throw new BizIllegalException("领取优惠劵失败");
+		}
+		// * 缓存缺失，回源数据库后重试一次
+		if (result == PromotionLuaConstants.ONLY_COUPON_NOT_EXIST
+				|| result == PromotionLuaConstants.ONLY_USER_COUPON_NOT_EXIST) {
+			couponCacheMetrics.recordColdPath(result);
+			if (result == PromotionLuaConstants.ONLY_COUPON_NOT_EXIST) {
+				writeDbCouponInfoToRedis(couponId);
+			} else {
+				writeDbUserCouponCountToRedis(couponId, userId, CouponStockShards.userCouponShardKey(couponId, home));
+			}
+			result = executeShardScript(couponId, home, userId, SHARD_MODE_HOME);
+			if (result == null || result == PromotionLuaConstants.ONLY_COUPON_NOT_EXIST
+					|| result == PromotionLuaConstants.ONLY_USER_COUPON_NOT_EXIST) {
+				throw new BizIllegalException("领取优惠劵失败");
+			}
+		}
+		if (result == PromotionLuaConstants.SUCCESS) {
+			return;
+		}
+		if (result != PromotionLuaConstants.SHARD_EMPTY) {
+			validateReceiveCouponBiz(result);
+			throw new BizIllegalException("领取优惠劵失败");
+		}
+		// * 所在分片耗尽（未占用领取数），到相邻分片扣库存
+		state.markExhausted(home);
+		int taken = -1;
+		for (int step = 1; step < shards; step++) {
+			int shard = (home + step) % shards;
+			if (state.isExhausted(shard)) {
+				continue;
+			}
+			result = executeShardScript(couponId, shard, userId, SHARD_MODE_TAKE);
+			if (result == null || result != PromotionLuaConstants.SHARD_EMPTY) {
+				taken = result != null && result == PromotionLuaConstants.SUCCESS ? shard : -1;
+				break;
+			}
+			state.markExhausted(shard);
+		}
+		if (taken < 0) {
+			if (result != null && result != PromotionLuaConstants.SHARD_EMPTY) {
+				validateReceiveCouponBiz(result);
+			}
+			throw new BizIllegalException("库存不足");
+		}
+		// * 回到所在分片校验限领并增加领取数（期间同一用户的并发领取可能已达上限），不通过则退回库存
+		result = executeShardScript(couponId, home, userId, SHARD_MODE_COMMIT);
+		if (result != null && result == PromotionLuaConstants.SUCCESS) {
+			return;
+		}
+		executeShardScript(couponId, taken, userId, SHARD_MODE_RESTOCK);
+		couponStockShards.onRestock(couponId);
+		if (result != null) {
+			validateReceiveCouponBiz(result);
+		}
+		throw new BizIllegalException("领取优惠劵失败");
+	}
+
+	private Long executeShardScript(Long couponId, int shard, Long userId, String mode) {
+		return redisTemplate.execute(RECEIVE_COUPON_SHARD_SCRIPT,
+				List.of(CouponStockShards.couponShardKey(couponId, shard), CouponStockShards.userCouponShardKey(couponId, shard)),
+				userId.toString(), mode);
+	}
+
+	private void sendCouponReceivedMessage(Long couponId, Long userId) {
 		UserCouponDTO dto = new UserCouponDTO();
+		dto.setMessageId(IdWorker.getId());
 		dto.setCouponId(couponId);
 		dto.setUserId(userId);
-
 		rabbitMqHelper.send(MqConstants.Exchange.PROMOTION_EXCHANGE, MqConstants.Key.COUPON_RECEIVED, dto);
 	}
 
@@ -320,16 +446,94 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 	 */
 	@Override
 	public void cacheCouponInfoWithLua(Coupon coupon) {
-		// * lua脚本原子性HSETNX写入Redis，乐观锁
-		String key = PromotionConstants.COUPON_CACHE_PREFIX + coupon.getId();
 		// * 由于Redis中lua在沙箱环境中执行，没有os等模块，需要手动转换时间字符串
 		// * 不如业务层转换为直接存为unix timestamp （单位为s，对应redis）
 		String issueBeginTime = String.valueOf(convertDateTimeToEpochSecond(coupon.getIssueBeginTime()));
 		String issueEndTime = String.valueOf(convertDateTimeToEpochSecond(coupon.getIssueEndTime()));
-		String totalNum = coupon.getTotalNum().toString();
 		String userLimit = coupon.getUserLimit().toString();
-		redisTemplate.execute(WRITE_COUPON_SCRIPT, List.of(key), issueBeginTime, issueEndTime, totalNum,
-				userLimit);
+		int shards = couponStockShards.decideShardNum(coupon);
+		List<String> keys = CouponStockShards.couponKeys(coupon.getId(), shards);
+		if (shards <= 1) {
+			// * lua脚本原子性HSETNX写入Redis，乐观锁
+			redisTemplate.execute(WRITE_COUPON_SCRIPT, keys, issueBeginTime, issueEndTime,
+					coupon.getTotalNum().toString(), userLimit);
+			return;
+		}
+		// * 分片库存：任一分片已存在说明已写入过，缺失的分片（如被淘汰）不能再按数据库数量补写，否则会重复放出库存
+		for (String key : keys) {
+			if (BooleanUtils.isTrue(redisTemplate.hasKey(key))) {
+				return;
+			}
+		}
+		int[] stocks = CouponStockShards.split(coupon.getTotalNum(), shards);
+		for (int i = 0; i < shards; i++) {
+			redisTemplate.execute(WRITE_COUPON_SCRIPT, List.of(keys.get(i)), issueBeginTime, issueEndTime,
+					String.valueOf(stocks[i]), userLimit);
+		}
+		// * 重新写入了库存，清除各实例记录的已耗尽分片
+		couponStockShards.onRestock(coupon.getId());
+	}
+
+	/**
+	 * 预热即将开始发放的优惠劵：写入优惠劵信息，并批量写入已有的用户领取数，使领劵不再回源数据库
+	 *
+	 * @param aheadSeconds 提前预热的秒数
+	 * @return 本次预热的优惠劵数量
+	 */
+	@Override
+	public int warmUpCouponCache(long aheadSeconds) {
+		LocalDateTime now = LocalDateTime.now();
+		List<Coupon> coupons = couponService.lambdaQuery()
+				.in(Coupon::getStatus, CouponStatus.UN_ISSUE, CouponStatus.ISSUING)
+				.le(Coupon::getIssueBeginTime, now.plusSeconds(aheadSeconds))
+				.gt(Coupon::getIssueEndTime, now)
+				.list();
+		int warmed = 0;
+		for (Coupon coupon : coupons) {
+			// * 分片库存的优惠劵，用户领取数写入各自所在分片
+			int shards = couponStockShards.decideShardNum(coupon);
+			List<String> userCouponKeys = CouponStockShards.userCouponKeys(coupon.getId(), shards);
+			// * 已预热（加载完成标记最后写入最后一个分片）
+			if (BooleanUtils.isTrue(redisTemplate.hasKey(CouponStockShards.couponKeys(coupon.getId(), shards).get(0)))
+					&& redisTemplate.opsForHash().hasKey(userCouponKeys.get(shards - 1),
+					PromotionConstants.USER_COUPON_LOADED_FIELD)) {
+				continue;
+			}
+			try {
+				// * 优惠劵信息，HSETNX不覆盖已有数据；库存按剩余数量写入
+				coupon.setTotalNum(coupon.getTotalNum() - NumberUtils.null2Zero(coupon.getIssueNum()));
+				cacheCouponInfoWithLua(coupon);
+				// * 用户领取数，按用户id分页查库，管道批量HSETNX
+				long lastUserId = 0;
+				List<UserCouponCountDTO> counts;
+				do {
+					counts = getBaseMapper().countUserCoupon(coupon.getId(), lastUserId, WARM_UP_BATCH_SIZE);
+					if (counts.isEmpty()) {
+						break;
+					}
+					List<UserCouponCountDTO> batch = counts;
+					redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+						StringRedisConnection conn = (StringRedisConnection) connection;
+						for (UserCouponCountDTO count : batch) {
+							conn.hSetNX(userCouponKeys.get(CouponStockShards.shardOf(count.getUserId(), shards)),
+									count.getUserId().toString(), count.getNum().toString());
+						}
+						return null;
+					});
+					lastUserId = counts.get(counts.size() - 1).getUserId();
+				} while (counts.size() == WARM_UP_BATCH_SIZE);
+				// * 全部写入后再标记加载完成，之后没有条目的用户即为未领取
+				for (String userCouponKey : userCouponKeys) {
+					redisTemplate.opsForHash().put(userCouponKey, PromotionConstants.USER_COUPON_LOADED_FIELD, "1");
+				}
+				warmed++;
+				couponCacheMetrics.recordWarmUp(coupon.getId(), coupon.getIssueBeginTime());
+			} catch (RuntimeException e) {
+				// * 单张优惠劵失败不影响其他优惠劵，下次调度重试
+				couponCacheMetrics.recordWarmUpFailure(coupon.getId(), coupon.getIssueBeginTime(), e);
+			}
+		}
+		return warmed;
 	}
 
 	/**
@@ -406,9 +610,9 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 			// * 推送消息至MQ
 			if (totalNum >= 0) {
 				UserCouponDTO dto = new UserCouponDTO();
+				dto.setMessageId(IdWorker.getId());
 				dto.setCouponId(id);
 				dto.setUserId(userId);
-
 				rabbitMqHelper.send(MqConstants.Exchange.PROMOTION_EXCHANGE, MqConstants.Key.COUPON_RECEIVED, dto);
 			}
 		} finally {
@@ -460,6 +664,108 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 		save(userCoupon);
 	}
 
+	/**
+	 * 批量创建同一优惠劵的用户卷：合并发放数量为一次更新，多行插入用户卷，按消息id去重
+	 *
+	 * @return 超出总量无法发放的领取消息，由调用方在事务提交后补偿
+	 */
+	@Transactional
+	@Override
+	public List<UserCouponDTO> batchCreateUserCoupon(Coupon coupon, List<UserCouponDTO> dtoList) {
+		// * 消息id即用户卷id，重复投递的消息已经入库，需要跳过，否则会重复累加发放数量
+		Set<Long> messageIds = dtoList.stream()
+				.map(UserCouponDTO::getMessageId)
+				.collect(Collectors.toSet());
+		Set<Long> existIds = lambdaQuery()
+				.select(UserCoupon::getId)
+				.in(UserCoupon::getId, messageIds)
+				.list()
+				.stream()
+				.map(UserCoupon::getId)
+				.collect(Collectors.toSet());
+		// * 有效日期，使用天数而不是日期范围时从领取时开始计算
+		LocalDateTime termBeginTime = coupon.getTermBeginTime();
+		LocalDateTime termEndTime = coupon.getTermEndTime();
+		if (termBeginTime == null) {
+			termBeginTime = LocalDateTime.now();
+			termEndTime = termBeginTime.plusDays(coupon.getTermDays());
+		}
+		List<UserCoupon> userCoupons = new ArrayList<>(dtoList.size());
+		List<UserCouponDTO> accepted = new ArrayList<>(dtoList.size());
+		for (UserCouponDTO dto : dtoList) {
+			// * 同一窗口内重复的消息也只保留一条
+			if (!existIds.add(dto.getMessageId())) {
+				continue;
+			}
+			UserCoupon userCoupon = new UserCoupon();
+			userCoupon.setId(dto.getMessageId());
+			userCoupon.setUserId(dto.getUserId());
+			userCoupon.setCouponId(coupon.getId());
+			userCoupon.setTermBeginTime(termBeginTime);
+			userCoupon.setTermEndTime(termEndTime);
+			userCoupons.add(userCoupon);
+			accepted.add(dto);
+		}
+		if (userCoupons.isEmpty()) {
+			return CollUtils.emptyList();
+		}
+		// * 优惠劵领取数一次性累加，乐观锁解决超卖；超出总量时按剩余数量发放，先到先得
+		int issued = incrIssueNumUpTo(coupon.getId(), userCoupons.size());
+		if (issued > 0) {
+			getBaseMapper().insertIgnoreBatch(userCoupons.subList(0, issued));
+		}
+		return issued == accepted.size() ? CollUtils.emptyList() : new ArrayList<>(accepted.subList(issued, accepted.size()));
+	}
+
+	/**
+	 * 累加优惠劵发放数量，剩余数量不足时只累加剩余部分
+	 *
+	 * @return 实际累加的数量
+	 */
+	private int incrIssueNumUpTo(Long couponId, int num) {
+		if (couponMapper.incrIssueNum(couponId, num) > 0) {
+			return num;
+		}
+		// * 合并累加失败，按当前剩余数量部分累加
+		Coupon current = couponMapper.selectById(couponId);
+		int remain = current == null ? 0 : current.getTotalNum() - NumberUtils.null2Zero(current.getIssueNum());
+		if (remain <= 0) {
+			return 0;
+		}
+		int partial = Math.min(remain, num);
+		if (couponMapper.incrIssueNum(couponId, partial) > 0) {
+			return partial;
+		}
+		// * 并发更新导致剩余数量变化，逐条累加兜底
+		int issued = 0;
+		while (issued < num && couponMapper.incrIssueNum(couponId, 1) > 0) {
+			issued++;
+		}
+		return issued;
+	}
+
+	/**
+	 * 补偿超出总量的领取：Redis中已计入的用户领取数减1，让用户可以重新领取；按消息id只补偿一次
+	 */
+	@Override
+	public void releaseOverflowClaims(Long couponId, List<UserCouponDTO> overflow) {
+		CouponStockShards.ShardState state = couponStockShards.queryState(couponId);
+		int shards = state == null ? 1 : state.getShards();
+		for (UserCouponDTO dto : overflow) {
+			Boolean first = redisTemplate.opsForValue().setIfAbsent(
+					PromotionConstants.COUPON_OVERFLOW_RELEASED_PREFIX + dto.getMessageId(), "1", OVERFLOW_RELEASED_TTL);
+			if (!BooleanUtils.isTrue(first)) {
+				continue;
+			}
+			String userCouponKey = shards > 1
+					? CouponStockShards.userCouponShardKey(couponId, CouponStockShards.shardOf(dto.getUserId(), shards))
+					: PromotionConstants.USER_COUPON_CACHE_PREFIX + couponId;
+			redisTemplate.opsForHash().increment(userCouponKey, dto.getUserId().toString(), -1);
+			log.error("优惠劵发放数量已达总量，领取未入库并已退回用户领取数，couponId：{}，userId：{}，messageId：{}",
+					couponId, dto.getUserId(), dto.getMessageId());
+		}
+	}
+
 	/**
 	 * 分页查询我的优惠劵
 	 */
@@ -506,33 +812,28 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 	 */
 	@Override
 	public void exchangeCouponWithLua(String code) {
-		// * 不应用redis查询是否使用过，如果内存淘汰了bitmap，下次访问更大序列号时会给较小的位填0，并不能说明就没有使用过
-		// * 并且一张卷也就只能用一次，正常调用接口对同一张卷查询并不频繁
-		// * 由于相比领取卷，唯一额外的地方bitmap与zset只用于获取couponId与判使用与否
-		// * 此处查库已经解决这两者，故而直接复用代码
-		// * 解析兑换码
-		long id = CodeUtil.parseCode(code);
-		// * 查询兑换码
-		ExchangeCode exchangeCode = exchangeCodeService.getById(id);
-		// * 是否存在
-		if (exchangeCode == null) {
-			throw new DbException("目标兑换码不存在：" + id);
-		}
-		// * 判断是否兑换状态
-		// * 判断是否过期
-		LocalDateTime now = LocalDateTime.now();
-		if (exchangeCode.getStatus() != ExchangeCodeStatus.UNUSED || now.isAfter(exchangeCode.getExpiredTime())) {
+		// * 兑换高峰期无效与重复的兑换码都在Redis中拒绝，不查库
+		// * bitmap若被内存淘汰，重复兑换会在MQ消费时由兑换码状态的条件更新兜底
+		// * 解析兑换码（格式、字符集、校验码）
+		long payload = CodeUtil.parsePayload(code);
+		long serialNum = CodeUtil.serialOf(payload);
+		// * 已使用的兑换码
+		if (BooleanUtils.isTrue(redisTemplate.opsForValue().getBit(PromotionConstants.EXCHANGE_CODE_USED_KEY, serialNum))) {
 			throw new BizIllegalException("兑换码已使用或已过期");
 		}
-		Long couponId = exchangeCode.getExchangeTargetId();
+		// * 由序列号区间反查优惠劵，并校验新鲜值与优惠劵匹配
+		Long couponId = exchangeCodeService.queryCouponIdBySerial(serialNum);
+		if (couponId == null || !CodeUtil.matchFresh(payload, couponId)) {
+			throw new BadRequestException("无效兑换码");
+		}
 		// * 获取lua脚本入参
 		String couponKey = PromotionConstants.COUPON_CACHE_PREFIX + couponId;
 		String userCouponKey = PromotionConstants.USER_COUPON_CACHE_PREFIX + couponId;
-		String exchangeCouponKey = PromotionConstants.EXCHANGE_COUPON_CACHE_PREFIX + code;
+		String usedCodeKey = PromotionConstants.EXCHANGE_CODE_USED_KEY;
 		Long userId = UserContext.getUser();
 		// * 第一次尝试执行脚本
-		Long result = redisTemplate.execute(EXCHANGE_COUPON_SCRIPT, List.of(couponKey, userCouponKey, exchangeCouponKey),
-				userId.toString());
+		Long result = redisTemplate.execute(EXCHANGE_COUPON_SCRIPT, List.of(couponKey, userCouponKey, usedCodeKey),
+				userId.toString(), String.valueOf(serialNum));
 		// * 健壮性判断
 		if (result == null) {
 			return;
@@ -541,7 +842,8 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 		if (result != PromotionLuaConstants.SUCCESS) {
 			// * 校验是否因为业务原因失败
 			validateReceiveCouponBiz(result);
-			// * 非业务原因失败
+			// * 非业务原因失败，缓存未预热，回源数据库
+			couponCacheMetrics.recordColdPath(result);
 			// * SETNX/HSETNX 乐观锁读库写入Redis
 			if (result == PromotionLuaConstants.ONLY_COUPON_NOT_EXIST) {
 				writeDbCouponInfoToRedis(couponId);
@@ -554,8 +856,8 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 				writeDbUserCouponCountToRedis(couponId, userId);
 			}
 			// * 第二次尝试执行脚本（只在Redis操作数据，保障两边都是正确状态的数据）
-			result = redisTemplate.execute(EXCHANGE_COUPON_SCRIPT, List.of(couponKey, userCouponKey, exchangeCouponKey),
-					userId.toString());
+			result = redisTemplate.execute(EXCHANGE_COUPON_SCRIPT, List.of(couponKey, userCouponKey, usedCodeKey),
+					userId.toString(), String.valueOf(serialNum));
 			// * 健壮性判断
 			if (result == null) {
 				return;
@@ -570,7 +872,7 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 		UserCouponDTO dto = new UserCouponDTO();
 		dto.setCouponId(couponId);
 		dto.setUserId(userId);
-		dto.setSerialNum(exchangeCode.getId());
+		dto.setSerialNum(serialNum);
 		rabbitMqHelper.send(MqConstants.Exchange.PROMOTION_EXCHANGE, MqConstants.Key.COUPON_EXCHANGED, dto);
 	}
 
@@ -607,7 +909,9 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 		}
 		try {
 			IUserCouponService userCouponService = (IUserCouponService) AopContext.currentProxy();
-			userCouponService.checkAndCreateUserCouponWithCode(coupon, userId, exchangeCode.getId());
+			if (!userCouponService.checkAndCreateUserCouponWithCode(coupon, userId, exchangeCode.getId())) {
+				throw new BizIllegalException("兑换码已使用或已过期");
+			}
 		} finally {
 			lock.unlock();
 		}
@@ -615,18 +919,25 @@ public class UserCouponServiceImpl extends ServiceImpl<UserCouponMapper, UserCou
 
 	/**
 	 * 校验单人领取数量并更新卷已领取数并添加用户卷记录并更新兑换码状态（工具方法）
+	 *
+	 * @return 兑换码已使用或不存在时返回false，不做任何修改
 	 */
 	@Transactional
 	@Override
-	public void checkAndCreateUserCouponWithCode(Coupon coupon, Long userId, Long serialNum) {
-		// * 代理对象确保声明式事务有效
-		IUserCouponService userCouponService = (IUserCouponService) AopContext.currentProxy();
-		userCouponService.checkAndCreateUserCoupon(coupon, userId);
-		// * 更新兑换码状态
-		exchangeCodeService.lambdaUpdate()
+	public boolean checkAndCreateUserCouponWithCode(Coupon coupon, Long userId, Long serialNum) {
+		// * 先更新兑换码状态，仅未使用的兑换码可以更新；失败时尚未做任何修改，直接返回
+		boolean updated = exchangeCodeService.lambdaUpdate()
 				.eq(ExchangeCode::getId, serialNum)
+				.eq(ExchangeCode::getStatus, ExchangeCodeStatus.UNUSED)
 				.set(ExchangeCode::getUserId, userId)
 				.set(ExchangeCode::getStatus, ExchangeCodeStatus.USED)
 				.update();
+		if (!updated) {
+			return false;
+		}
+		// * 代理对象确保声明式事务有效，领取失败时兑换码状态一起回滚
+		IUserCouponService userCouponService = (IUserCouponService) AopContext.currentProxy();
+		userCouponService.checkAndCreateUserCoupon(coupon, userId);
+		return true;
 	}
 }
@@ -0,0 +1,28 @@
+package com.tianji.promotion.task;
+
+import com.tianji.promotion.service.IUserCouponService;
+import com.tianji.promotion.utils.CouponCacheMetrics;
+import com.xxl.job.core.handler.annotation.XxlJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 优惠劵缓存预热：在发放开始前把优惠劵信息与用户领取数写入Redis，避免开抢时大量请求回源数据库
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CouponWarmUpTask {
+	// * 提前预热的时间，需大于任务调度间隔
+	private static final long WARM_UP_AHEAD_SECONDS = 300;
+	private final IUserCouponService userCouponService;
+	private final CouponCacheMetrics couponCacheMetrics;
+
+	@XxlJob("warmUpCouponCache")
+	public void warmUpCouponCache() {
+		userCouponService.warmUpCouponCache(WARM_UP_AHEAD_SECONDS);
+		// * 预热结果与提前量由统计输出，未赶上发放开始时记录错误
+		couponCacheMetrics.logAndReset();
+	}
+}
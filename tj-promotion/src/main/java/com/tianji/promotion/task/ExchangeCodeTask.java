@@ -0,0 +1,20 @@
+package com.tianji.promotion.task;
+
+import com.tianji.promotion.service.IExchangeCodeService;
+import com.xxl.job.core.handler.annotation.XxlJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * 兑换码生成任务续传：服务重启或写库失败后，从已完成的批次之后继续生成
+ */
+@Component
+@RequiredArgsConstructor
+public class ExchangeCodeTask {
+	private final IExchangeCodeService exchangeCodeService;
+
+	@XxlJob("resumeExchangeCodeGenerate")
+	public void resumeExchangeCodeGenerate() {
+		exchangeCodeService.resumeGenerateTasks();
+	}
+}
@@ -1,11 +1,14 @@
 package com.tianji.promotion.task;
 
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.tianji.common.constants.MqConstants;
 import com.tianji.common.exceptions.BizIllegalException;
 import com.tianji.promotion.domain.dto.UserCouponDTO;
 import com.tianji.promotion.domain.po.Coupon;
+import com.tianji.promotion.service.ICouponScopeService;
 import com.tianji.promotion.service.ICouponService;
 import com.tianji.promotion.service.IUserCouponService;
+import com.tianji.promotion.utils.CouponStockShards;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.ExchangeTypes;
@@ -15,6 +18,13 @@ import org.springframework.amqp.rabbit.annotation.QueueBinding;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * @author CamelliaV
  * @since 2024/11/27 / 22:05
@@ -25,27 +35,59 @@ import org.springframework.stereotype.Component;
 public class PromotionMqHandler {
 	private final IUserCouponService userCouponService;
 	private final ICouponService couponService;
+	private final ICouponScopeService couponScopeService;
+	private final CouponStockShards couponStockShards;
 
 	@RabbitListener(
 			bindings = @QueueBinding(
 					value = @Queue(value = "coupon.received.queue", durable = "true"),
 					exchange = @Exchange(value = MqConstants.Exchange.PROMOTION_EXCHANGE, type = ExchangeTypes.TOPIC),
 					key = MqConstants.Key.COUPON_RECEIVED
-			)
+			),
+			containerFactory = "couponReceiveBatchContainerFactory"
 	)
-	public void listenCouponReceiveMessage(UserCouponDTO dto) {
-		// * 无dto结束业务
-		if (dto == null) {
-			log.error("领劵消息数据为null");
+	public void listenCouponReceiveMessage(List<UserCouponDTO> dtoList) {
+		// * 按优惠劵分组，每个优惠劵一个事务：一次更新发放数量 + 多行插入用户卷
+		Map<Long, List<UserCouponDTO>> couponMessages = new HashMap<>();
+		for (UserCouponDTO dto : dtoList) {
+			if (dto == null || dto.getCouponId() == null || dto.getUserId() == null) {
+				log.error("领劵消息数据不完整：{}", dto);
+				continue;
+			}
+			// * 兼容不带消息id的旧消息，无法去重
+			if (dto.getMessageId() == null) {
+				dto.setMessageId(IdWorker.getId());
+			}
+			couponMessages.computeIfAbsent(dto.getCouponId(), k -> new ArrayList<>()).add(dto);
+		}
+		if (couponMessages.isEmpty()) {
 			return;
 		}
 		// * 查优惠劵信息用于更新状态
-		Coupon coupon = couponService.getById(dto.getCouponId());
-		if (coupon == null) {
-			throw new BizIllegalException("目标优惠卷不存在：" + dto.getCouponId());
+		Map<Long, Coupon> couponMap = couponService.listByIds(couponMessages.keySet()).stream()
+				.collect(Collectors.toMap(Coupon::getId, Function.identity()));
+		RuntimeException failure = null;
+		for (Map.Entry<Long, List<UserCouponDTO>> entry : couponMessages.entrySet()) {
+			Coupon coupon = couponMap.get(entry.getKey());
+			if (coupon == null) {
+				log.error("目标优惠卷不存在：{}，丢弃{}条领劵消息", entry.getKey(), entry.getValue().size());
+				continue;
+			}
+			try {
+				List<UserCouponDTO> overflow = userCouponService.batchCreateUserCoupon(coupon, entry.getValue());
+				// * 超出总量的领取不再重投，事务提交后走补偿
+				if (!overflow.isEmpty()) {
+					userCouponService.releaseOverflowClaims(coupon.getId(), overflow);
+				}
+			} catch (RuntimeException e) {
+				// * 继续处理其他优惠劵，最后抛出让整批重投，已提交的消息按消息id去重
+				log.error("批量写入用户卷失败，couponId：{}，数量：{}", coupon.getId(), entry.getValue().size(), e);
+				failure = e;
+			}
+		}
+		if (failure != null) {
+			throw failure;
 		}
-		// * 调用更新
-		userCouponService.checkAndCreateUserCoupon(coupon, dto.getUserId());
 	}
 
 	@RabbitListener(
@@ -66,7 +108,38 @@ public class PromotionMqHandler {
 		if (coupon == null) {
 			throw new BizIllegalException("目标优惠卷不存在：" + dto.getCouponId());
 		}
-		// * 调用更新
-		userCouponService.checkAndCreateUserCouponWithCode(coupon, dto.getUserId(), dto.getSerialNum());
+		// * 调用更新；兑换码在库中已使用时重试也不会成功，记录后丢弃消息，避免无限重投
+		if (!userCouponService.checkAndCreateUserCouponWithCode(coupon, dto.getUserId(), dto.getSerialNum())) {
+			log.error("兑换码已使用或不存在，丢弃兑换消息，couponId：{}，userId：{}，serialNum：{}",
+					dto.getCouponId(), dto.getUserId(), dto.getSerialNum());
+		}
+	}
+
+	/**
+	 * 优惠劵范围变更，清除本地范围缓存；每个实例使用各自的匿名队列，保证都能收到
+	 */
+	@RabbitListener(
+			bindings = @QueueBinding(
+					value = @Queue,
+					exchange = @Exchange(value = MqConstants.Exchange.PROMOTION_EXCHANGE, type = ExchangeTypes.TOPIC),
+					key = MqConstants.Key.COUPON_SCOPE_CHANGED
+			)
+	)
+	public void listenCouponScopeChangeMessage(Long couponId) {
+		couponScopeService.evictScopeCache(couponId);
+	}
+
+	/**
+	 * 优惠劵分片库存重新写入或退回，清除本地记录的已耗尽分片；每个实例使用各自的匿名队列，保证都能收到
+	 */
+	@RabbitListener(
+			bindings = @QueueBinding(
+					value = @Queue,
+					exchange = @Exchange(value = MqConstants.Exchange.PROMOTION_EXCHANGE, type = ExchangeTypes.TOPIC),
+					key = MqConstants.Key.COUPON_STOCK_RESTORED
+			)
+	)
+	public void listenCouponStockRestoredMessage(Long couponId) {
+		couponStockShards.resetExhausted(couponId);
 	}
 }
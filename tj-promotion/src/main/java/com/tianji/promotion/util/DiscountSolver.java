@@ -0,0 +1,397 @@
+package com.tianji.promotion.util;
+
+import com.tianji.promotion.domain.dto.CouponDiscountDTO;
+import com.tianji.promotion.domain.dto.OrderCourseDTO;
+import com.tianji.promotion.domain.po.Coupon;
+import com.tianji.promotion.strategy.discount.Discount;
+import com.tianji.promotion.strategy.discount.DiscountStrategy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 优惠券组合方案求解器，替代对全部优惠券做全排列再逐个计算的方式
+ * <p>
+ * 按用卷顺序逐层推进状态：状态由已考虑的优惠券集合和各课程分组当前的优惠明细组成，
+ * 不同排列到达相同状态时只计算一次后续（共享前缀），同一状态下实际用卷集合相同的方案只保留优惠金额最高的（支配剪枝）。
+ * 计算过程只使用课程价格、优惠明细等基本类型数组，结果与全排列后逐个调用{@link #calculateSolution}一致。
+ * <p>
+ * 优惠券数量超过{@link #MAX_COUPON_NUM}时，按单卷优惠上界保留优惠最大的部分；
+ * 单层状态数量超过{@link #MAX_STATE_NUM}时，按已有优惠加剩余优惠券优惠上限之和作为上界，只保留上界最高的状态，保证计算时间有界。
+ */
+@Slf4j
+public class DiscountSolver {
+	/**
+	 * 参与组合的优惠券数量上限，用卷顺序以4个bit一位压缩在long中
+	 */
+	public static final int MAX_COUPON_NUM = 16;
+	/**
+	 * 单层状态数量上限
+	 */
+	public static final int MAX_STATE_NUM = 20_000;
+
+	private static final int SEQ_BITS = 4;
+
+	private final Coupon[] coupons;
+	private final Discount[] discounts;
+	// 每张优惠券的优惠上限
+	private final int[] maxDiscounts;
+	// 课程价格
+	private final int[] prices;
+	// 每张优惠券可用课程在prices中的下标，保持订单中的课程顺序
+	private final int[][] couponCourses;
+	// 课程所属的分组，可用优惠券完全相同的课程为一组，后续计算只依赖组内优惠明细之和
+	private final int[] courseAtoms;
+	// 每张优惠券可用的分组
+	private final int[][] couponAtoms;
+	// 每个分组可被哪些优惠券使用
+	private final int[] atomCouponMasks;
+
+	private DiscountSolver(List<Coupon> couponList, Map<Coupon, List<OrderCourseDTO>> validCouponMap,
+	                       List<OrderCourseDTO> orderCourseDTOList) {
+		int n = couponList.size();
+		this.coupons = couponList.toArray(new Coupon[0]);
+		this.discounts = new Discount[n];
+		this.maxDiscounts = new int[n];
+		this.prices = new int[orderCourseDTOList.size()];
+		this.couponCourses = new int[n][];
+		Map<Long, Integer> courseIndex = new HashMap<>(orderCourseDTOList.size());
+		for (int i = 0; i < prices.length; i++) {
+			OrderCourseDTO course = orderCourseDTOList.get(i);
+			prices[i] = course.getPrice();
+			courseIndex.put(course.getId(), i);
+		}
+		int[] courseCouponMasks = new int[prices.length];
+		for (int i = 0; i < n; i++) {
+			discounts[i] = DiscountStrategy.getDiscount(coupons[i].getDiscountType());
+			maxDiscounts[i] = maxDiscount(coupons[i]);
+			couponCourses[i] = validCouponMap.get(coupons[i]).stream()
+					.mapToInt(c -> courseIndex.get(c.getId()))
+					.toArray();
+			for (int c : couponCourses[i]) {
+				courseCouponMasks[c] |= 1 << i;
+			}
+		}
+		// * 按可用优惠券集合对课程分组
+		Map<Integer, Integer> atomIndex = new LinkedHashMap<>();
+		this.courseAtoms = new int[prices.length];
+		for (int c = 0; c < prices.length; c++) {
+			courseAtoms[c] = atomIndex.computeIfAbsent(courseCouponMasks[c], k -> atomIndex.size());
+		}
+		this.atomCouponMasks = atomIndex.keySet().stream().mapToInt(Integer::intValue).toArray();
+		this.couponAtoms = new int[n][];
+		for (int i = 0; i < n; i++) {
+			int mask = 1 << i;
+			couponAtoms[i] = IntStream.range(0, atomCouponMasks.length)
+					.filter(atom -> (atomCouponMasks[atom] & mask) != 0)
+					.toArray();
+		}
+	}
+
+	/**
+	 * 求出每种实际用卷组合下优惠金额最高的用卷顺序
+	 *
+	 * @param validCouponMap     可用优惠券及其可用课程
+	 * @param orderCourseDTOList 订单中的课程
+	 * @return 各用卷组合对应的最优用卷顺序（只包含实际生效的优惠券）
+	 */
+	public static List<List<Coupon>> solve(Map<Coupon, List<OrderCourseDTO>> validCouponMap,
+	                                       List<OrderCourseDTO> orderCourseDTOList) {
+		// * 固定优惠券顺序，保证结果稳定
+		List<Coupon> couponList = validCouponMap.keySet().stream()
+				.sorted(Comparator.comparing(Coupon::getCreater))
+				.collect(Collectors.toList());
+		if (couponList.size() > MAX_COUPON_NUM) {
+			couponList = keepMostValuable(couponList, validCouponMap);
+		}
+		return new DiscountSolver(couponList, validCouponMap, orderCourseDTOList).solve();
+	}
+
+	private List<List<Coupon>> solve() {
+		int n = coupons.length;
+		// * 初始状态：没有考虑任何优惠券，优惠明细全为0
+		Map<StateKey, Map<Integer, Plan>> layer = new LinkedHashMap<>();
+		Map<Integer, Plan> init = new LinkedHashMap<>();
+		init.put(0, new Plan(0, 0L));
+		layer.put(new StateKey(0, new int[atomCouponMasks.length]), init);
+		// * 逐层推进，每层多考虑一张优惠券
+		for (int depth = 0; depth < n; depth++) {
+			if (layer.size() > MAX_STATE_NUM) {
+				log.debug("优惠方案状态数量：{}，按优惠上界剪枝", layer.size());
+				layer = cutoff(layer);
+			}
+			Map<StateKey, Map<Integer, Plan>> next = new LinkedHashMap<>();
+			for (Map.Entry<StateKey, Map<Integer, Plan>> state : layer.entrySet()) {
+				StateKey key = state.getKey();
+				for (int i = 0; i < n; i++) {
+					if ((key.usedMask & (1 << i)) != 0) {
+						continue;
+					}
+					expand(key, state.getValue(), i, next);
+				}
+			}
+			layer = next;
+		}
+		// * 汇总：每种用卷组合保留优惠最高的方案
+		Map<Integer, Plan> best = new LinkedHashMap<>();
+		for (Map<Integer, Plan> plans : layer.values()) {
+			plans.forEach((appliedMask, plan) -> mergePlan(best, appliedMask, plan));
+		}
+		// * 加单卷，单卷在全价下一定可用
+		for (int i = 0; i < n; i++) {
+			int actualTotalPrice = actualTotalPrice(new int[atomCouponMasks.length], i);
+			int discountAmount = discounts[i].calculateDiscount(actualTotalPrice, coupons[i]);
+			mergePlan(best, 1 << i, new Plan(discountAmount, i));
+		}
+		List<List<Coupon>> solutions = new ArrayList<>(best.size());
+		best.forEach((appliedMask, plan) -> solutions.add(toCoupons(appliedMask, plan.seq)));
+		log.debug("优惠方案求解完成，优惠券数量：{}，方案数量：{}", n, solutions.size());
+		return solutions;
+	}
+
+	/**
+	 * 在指定状态下考虑第i张优惠券，结果合并到下一层
+	 */
+	private void expand(StateKey key, Map<Integer, Plan> plans, int i, Map<StateKey, Map<Integer, Plan>> next) {
+		int[] detail = key.detail;
+		int nextUsedMask = key.usedMask | (1 << i);
+		int actualTotalPrice = actualTotalPrice(detail, i);
+		boolean canUse = discounts[i].canUse(actualTotalPrice, coupons[i]);
+		int discountAmount = 0;
+		int[] nextDetail = Arrays.copyOf(detail, detail.length);
+		if (canUse) {
+			discountAmount = discounts[i].calculateDiscount(actualTotalPrice, coupons[i]);
+			calculateDiscountDetail(nextDetail, actualTotalPrice, discountAmount, i);
+		}
+		// * 后续优惠券都用不到的分组，明细不再影响结果，归零以合并状态
+		for (int atom = 0; atom < nextDetail.length; atom++) {
+			if ((atomCouponMasks[atom] & ~nextUsedMask) == 0) {
+				nextDetail[atom] = 0;
+			}
+		}
+		Map<Integer, Plan> nextPlans = next.computeIfAbsent(
+				new StateKey(nextUsedMask, nextDetail), k -> new LinkedHashMap<>());
+		for (Map.Entry<Integer, Plan> en : plans.entrySet()) {
+			Plan plan = en.getValue();
+			if (canUse) {
+				mergePlan(nextPlans, en.getKey() | (1 << i),
+						new Plan(plan.discountAmount + discountAmount, (plan.seq << SEQ_BITS) | i));
+			} else {
+				mergePlan(nextPlans, en.getKey(), plan);
+			}
+		}
+	}
+
+	/**
+	 * 状态过多时，按状态能达到的优惠上界保留最有希望的部分
+	 */
+	private Map<StateKey, Map<Integer, Plan>> cutoff(Map<StateKey, Map<Integer, Plan>> layer) {
+		List<Map.Entry<StateKey, Map<Integer, Plan>>> states = new ArrayList<>(layer.entrySet());
+		int[] upperBounds = new int[states.size()];
+		Integer[] order = new Integer[states.size()];
+		for (int k = 0; k < states.size(); k++) {
+			int remainBound = 0;
+			int usedMask = states.get(k).getKey().usedMask;
+			for (int i = 0; i < coupons.length; i++) {
+				if ((usedMask & (1 << i)) == 0) {
+					remainBound += maxDiscounts[i];
+				}
+			}
+			int best = Integer.MIN_VALUE;
+			for (Plan plan : states.get(k).getValue().values()) {
+				best = Math.max(best, plan.discountAmount);
+			}
+			upperBounds[k] = best + remainBound;
+			order[k] = k;
+		}
+		Arrays.sort(order, (k1, k2) -> Integer.compare(upperBounds[k2], upperBounds[k1]));
+		Map<StateKey, Map<Integer, Plan>> result = new LinkedHashMap<>();
+		for (int k = 0; k < MAX_STATE_NUM; k++) {
+			Map.Entry<StateKey, Map<Integer, Plan>> state = states.get(order[k]);
+			result.put(state.getKey(), state.getValue());
+		}
+		return result;
+	}
+
+	/**
+	 * 单张优惠券在任意价格下的优惠上限
+	 */
+	private static int maxDiscount(Coupon coupon) {
+		switch (coupon.getDiscountType()) {
+			case PER_PRICE_DISCOUNT:
+			case RATE_DISCOUNT:
+				return coupon.getMaxDiscountAmount();
+			default:
+				return coupon.getDiscountValue();
+		}
+	}
+
+	private int actualTotalPrice(int[] detail, int i) {
+		int total = 0;
+		for (int c : couponCourses[i]) {
+			total += prices[c];
+		}
+		for (int atom : couponAtoms[i]) {
+			total -= detail[atom];
+		}
+		return total;
+	}
+
+	/**
+	 * 与{@link #calculateDiscountDetail(Map, int, int, List)}相同的分摊规则，结果按分组累加
+	 */
+	private void calculateDiscountDetail(int[] detail, int actualTotalPrice, int discountAmount, int i) {
+		for (int atom : couponAtoms[i]) {
+			detail[atom] = 0;
+		}
+		int[] courses = couponCourses[i];
+		int remain = discountAmount;
+		for (int k = 0; k < courses.length; k++) {
+			int c = courses[k];
+			int discount;
+			if (k == courses.length - 1) {
+				discount = remain;
+			} else {
+				discount = prices[c] * discountAmount / actualTotalPrice;
+				remain -= discount;
+			}
+			detail[courseAtoms[c]] += discount;
+		}
+	}
+
+	private List<Coupon> toCoupons(int appliedMask, long seq) {
+		int size = Integer.bitCount(appliedMask);
+		Coupon[] order = new Coupon[size];
+		for (int k = size - 1; k >= 0; k--) {
+			order[k] = coupons[(int) (seq & ((1 << SEQ_BITS) - 1))];
+			seq >>>= SEQ_BITS;
+		}
+		return Arrays.asList(order);
+	}
+
+	private static void mergePlan(Map<Integer, Plan> plans, int appliedMask, Plan plan) {
+		// * 相同用卷组合只保留优惠更高的，优惠相同保留先到达的
+		Plan old = plans.get(appliedMask);
+		if (old == null || old.discountAmount < plan.discountAmount) {
+			plans.put(appliedMask, plan);
+		}
+	}
+
+	/**
+	 * 按全价下的单卷优惠（叠加时的优惠上界）保留优惠最大的优惠券
+	 */
+	private static List<Coupon> keepMostValuable(List<Coupon> couponList,
+	                                             Map<Coupon, List<OrderCourseDTO>> validCouponMap) {
+		Map<Coupon, Integer> upperBound = new HashMap<>(couponList.size());
+		for (Coupon coupon : couponList) {
+			int totalPrice = validCouponMap.get(coupon).stream().mapToInt(OrderCourseDTO::getPrice).sum();
+			upperBound.put(coupon,
+					DiscountStrategy.getDiscount(coupon.getDiscountType()).calculateDiscount(totalPrice, coupon));
+		}
+		log.warn("可用优惠券数量{}超过上限{}，按优惠上界保留", couponList.size(), MAX_COUPON_NUM);
+		return couponList.stream()
+				.sorted(Comparator.comparing(upperBound::get, Comparator.reverseOrder()))
+				.limit(MAX_COUPON_NUM)
+				.sorted(Comparator.comparing(Coupon::getCreater))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * 根据指定方案计算优惠明细
+	 */
+	public static CouponDiscountDTO calculateSolution(List<Coupon> solution,
+	                                                  Map<Coupon, List<OrderCourseDTO>> validCouponMap,
+	                                                  List<OrderCourseDTO> orderCourseDTOList) {
+		// * 初始化返回dto与折扣明细Map
+		CouponDiscountDTO dto = new CouponDiscountDTO();
+		Map<Long, Integer> detailMap = orderCourseDTOList.stream()
+				.collect(Collectors.toMap(OrderCourseDTO::getId, c -> 0));
+		// * 遍历每张优惠劵计算优惠明细
+		for (Coupon coupon : solution) {
+			// * 获得优惠卷限定课程
+			List<OrderCourseDTO> validCourseList = validCouponMap.get(coupon);
+			// * 获得课程总价（原价-折扣明细）
+			int actualTotalPrice = validCourseList.stream()
+					.mapToInt(c -> c.getPrice() - detailMap.get(c.getId()))
+					.sum();
+			// * 判断是否可用
+			Discount discount = DiscountStrategy.getDiscount(coupon.getDiscountType());
+			boolean canUse = discount.canUse(actualTotalPrice, coupon);
+			if (!canUse) {
+				continue;
+			}
+			// * 计算优惠金额
+			int discountAmount = discount.calculateDiscount(actualTotalPrice, coupon);
+			// * 计算优惠明细
+			calculateDiscountDetail(detailMap, actualTotalPrice, discountAmount, validCourseList);
+			// * 填充dto（字段默认值，均不为null）
+			dto.getIds().add(coupon.getCreater());
+			dto.getRules().add(discount.getRule(coupon));
+			dto.setDiscountAmount(dto.getDiscountAmount() + discountAmount);
+		}
+		dto.setDiscountDetailMap(detailMap);
+		return dto;
+	}
+
+	// * 计算优惠明细
+	private static void calculateDiscountDetail(Map<Long, Integer> detailMap, int actualTotalPrice, int discountAmount,
+	                                            List<OrderCourseDTO> validCourseList) {
+		// * 课程价格占总价比例 * 优惠总值（最后一个用减法）
+		int times = 0;
+		int remain = discountAmount;
+		for (OrderCourseDTO course : validCourseList) {
+			++times;
+			int discount = 0;
+			if (times == validCourseList.size()) {
+				// * 最后一门
+				discount = remain;
+			} else {
+				discount = course.getPrice() * discountAmount / actualTotalPrice;
+				remain -= discount;
+			}
+			detailMap.put(course.getId(), discount);
+		}
+	}
+
+	private static final class StateKey {
+		private final int usedMask;
+		private final int[] detail;
+		private final int hash;
+
+		private StateKey(int usedMask, int[] detail) {
+			this.usedMask = usedMask;
+			this.detail = detail;
+			this.hash = 31 * usedMask + Arrays.hashCode(detail);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof StateKey)) {
+				return false;
+			}
+			StateKey other = (StateKey) o;
+			return usedMask == other.usedMask && Arrays.equals(detail, other.detail);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private static final class Plan {
+		private final int discountAmount;
+		// 实际生效的优惠券下标序列，每4个bit一位
+		private final long seq;
+
+		private Plan(int discountAmount, long seq) {
+			this.discountAmount = discountAmount;
+			this.seq = seq;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.tianji.promotion.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 不可变的long型id集合，内部为排序去重后的long数组，二分查找判断是否包含
+ * <p>
+ * 用于常驻内存的缓存数据，避免Set&lt;Long&gt;的装箱与哈希节点开销
+ */
+public final class LongIdSet {
+	public static final LongIdSet EMPTY = new LongIdSet(new long[0]);
+
+	private final long[] ids;
+
+	private LongIdSet(long[] ids) {
+		this.ids = ids;
+	}
+
+	public static LongIdSet of(Collection<Long> ids) {
+		if (ids == null || ids.isEmpty()) {
+			return EMPTY;
+		}
+		long[] sorted = new long[ids.size()];
+		int n = 0;
+		for (Long id : ids) {
+			if (id != null) {
+				sorted[n++] = id;
+			}
+		}
+		Arrays.sort(sorted, 0, n);
+		// * 原地去重
+		int size = 0;
+		for (int i = 0; i < n; i++) {
+			if (size == 0 || sorted[size - 1] != sorted[i]) {
+				sorted[size++] = sorted[i];
+			}
+		}
+		return size == 0 ? EMPTY : new LongIdSet(size == sorted.length ? sorted : Arrays.copyOf(sorted, size));
+	}
+
+	public boolean contains(Long id) {
+		return id != null && Arrays.binarySearch(ids, id) >= 0;
+	}
+
+	public int size() {
+		return ids.length;
+	}
+
+	public boolean isEmpty() {
+		return ids.length == 0;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(ids);
+	}
+}
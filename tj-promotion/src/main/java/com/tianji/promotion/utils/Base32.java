@@ -2,28 +2,82 @@ package com.tianji.promotion.utils;
 
 import cn.hutool.core.text.StrBuilder;
 
+import java.util.Arrays;
+
 /**
  * 将整数转为base32字符的工具，因为是32进制，所以每5个bit位转一次
  */
 public class Base32 {
 	private final static String baseChars = "6CSB7H8DAKXZF3N95RTMVUQG2YE4JWPL";
 
+	/**
+	 * long最多64位，编码后最多13个字符
+	 */
+	public final static int MAX_LONG_LENGTH = 13;
+
 	public static String encode(long raw) {
-		StrBuilder sb = new StrBuilder();
+		char[] buf = new char[MAX_LONG_LENGTH];
+		return new String(buf, 0, encode(raw, buf));
+	}
+
+	/**
+	 * 编码到调用方提供的缓冲区中，批量编码时可以复用缓冲区
+	 *
+	 * @param raw 原始数值
+	 * @param buf 缓冲区，长度至少为编码后的长度
+	 * @return 编码后的字符数
+	 */
+	public static int encode(long raw, char[] buf) {
+		int len = 0;
 		while (raw != 0) {
-			int i = (int) (raw & 0b11111);
-			sb.append(baseChars.charAt(i));
+			buf[len++] = baseChars.charAt((int) (raw & 0b11111));
 			raw = raw >>> 5;
 		}
-		return sb.toString();
+		return len;
 	}
 
+	/**
+	 * 编码到调用方提供的缓冲区中，不足minLength时在高位补0值字符，解码结果不变
+	 *
+	 * @param raw       原始数值
+	 * @param buf       缓冲区，长度至少为max(编码后的长度, minLength)
+	 * @param minLength 最小字符数
+	 * @return 编码后的字符数
+	 */
+	public static int encode(long raw, char[] buf, int minLength) {
+		int len = encode(raw, buf);
+		while (len < minLength) {
+			buf[len++] = baseChars.charAt(0);
+		}
+		return len;
+	}
+
+	/**
+	 * 解码查找表，字符 -> 5位数值，非法字符为-1
+	 */
+	private final static byte[] DECODE_TABLE = new byte[128];
+
+	static {
+		Arrays.fill(DECODE_TABLE, (byte) -1);
+		for (int i = 0; i < baseChars.length(); i++) {
+			DECODE_TABLE[baseChars.charAt(i)] = (byte) i;
+		}
+	}
+
+	/**
+	 * 查表解码，不创建中间对象
+	 *
+	 * @return 解码结果，包含非法字符时返回-1（合法编码的结果不超过63位，不会与之冲突）
+	 */
 	public static long decode(String code) {
 		long r = 0;
-		char[] chars = code.toCharArray();
-		for (int i = chars.length - 1; i >= 0; i--) {
-			long n = baseChars.indexOf(chars[i]);
-			r = r | (n << (5 * i));
+		for (int i = code.length() - 1; i >= 0; i--) {
+			char c = code.charAt(i);
+			int n = c < DECODE_TABLE.length ? DECODE_TABLE[c] : -1;
+			if (n < 0) {
+				return -1;
+			}
+			r = r | ((long) n << (5 * i));
 		}
 		return r;
 	}
@@ -1,6 +1,5 @@
 package com.tianji.promotion.utils;
 
-import com.tianji.common.constants.RegexConstants;
 import com.tianji.common.exceptions.BadRequestException;
 
 /**
@@ -35,6 +34,14 @@ import com.tianji.common.exceptions.BadRequestException;
  * </ol>
  */
 public class CodeUtil {
+	/**
+	 * 兑换码长度，50位明文每5位转一个字符
+	 */
+	public final static int CODE_LENGTH = 10;
+	/**
+	 * 兑换码最小长度，与RegexConstants.COUPON_CODE_PATTERN一致
+	 */
+	private final static int MIN_CODE_LENGTH = 8;
 	/**
 	 * 异或密钥表，用于最后的数据混淆
 	 */
@@ -97,19 +104,36 @@ public class CodeUtil {
 	 * @return 兑换码
 	 */
 	public static String generateCode(long serialNum, long fresh) {
+		return generateCode(serialNum, fresh, new char[CODE_LENGTH]);
+	}
+
+	/**
+	 * 生成兑换码，使用调用方提供的缓冲区转码，批量生成时每个线程复用一个缓冲区
+	 * <p>
+	 * 校验码和载荷的高位可能恰好为0，转码后不足{@link #MIN_CODE_LENGTH}位时在高位补0值字符，保证兑换码能通过格式校验
+	 *
+	 * @param serialNum 递增序列号
+	 * @param buf       转码缓冲区，长度不小于{@link #CODE_LENGTH}
+	 * @return 兑换码
+	 */
+	public static String generateCode(long serialNum, long fresh, char[] buf) {
+		return new String(buf, 0, Base32.encode(encodeNum(serialNum, fresh), buf, MIN_CODE_LENGTH));
+	}
+
+	/**
+	 * 计算兑换码明文
+	 */
+	private static long encodeNum(long serialNum, long fresh) {
 		// 1.计算新鲜值
 		fresh = fresh & FRESH_MASK;
 		// 2.拼接payload，fresh（4位） + serialNum（32位）
 		long payload = fresh << FRESH_BIT_OFFSET | serialNum;
 		// 3.计算验证码
 		long checkCode = calcCheckCode(payload, (int) fresh);
-		System.out.println("checkCode = " + checkCode);
 		// 4.payload做大质数异或运算，混淆数据
 		payload ^= XOR_TABLE[(int) (checkCode & FRESH_MASK)];
 		// 5.拼接兑换码明文: 校验码（14位） + payload（36位）
-		long code = checkCode << CHECK_CODE_BIT_OFFSET | payload;
-		// 6.转码
-		return Base32.encode(code);
+		return checkCode << CHECK_CODE_BIT_OFFSET | payload;
 	}
 
 	private static long calcCheckCode(long payload, int fresh) {
@@ -125,13 +149,33 @@ public class CodeUtil {
 		return sum & CHECK_CODE_MASK;
 	}
 
+	/**
+	 * 解析兑换码得到序列号
+	 *
+	 * @param code 兑换码
+	 * @return 序列号
+	 */
 	public static long parseCode(String code) {
-		if (code == null || !code.matches(RegexConstants.COUPON_CODE_PATTERN)) {
+		return serialOf(parsePayload(code));
+	}
+
+	/**
+	 * 解析兑换码得到载荷：fresh（4位） + serialNum（32位），全程不创建中间对象
+	 *
+	 * @param code 兑换码
+	 * @return 载荷
+	 */
+	public static long parsePayload(String code) {
+		// * 长度与字符集校验等价于RegexConstants.COUPON_CODE_PATTERN，字符集即Base32码表，在解码时查表校验
+		if (code == null || code.length() < MIN_CODE_LENGTH || code.length() > CODE_LENGTH) {
 			// 兑换码格式错误
 			throw new BadRequestException("无效兑换码");
 		}
 		// 1.Base32解码
 		long num = Base32.decode(code);
+		if (num < 0) {
+			throw new BadRequestException("无效兑换码");
+		}
 		// 2.获取低36位，payload
 		long payload = num & PAYLOAD_MASK;
 		// 3.获取高14位，校验码
@@ -144,6 +188,20 @@ public class CodeUtil {
 		if (calcCheckCode(payload, fresh) != checkCode) {
 			throw new BadRequestException("无效兑换码");
 		}
+		return payload;
+	}
+
+	/**
+	 * 载荷中的序列号
+	 */
+	public static long serialOf(long payload) {
 		return payload & SERIAL_NUM_MASK;
 	}
+
+	/**
+	 * 载荷中的fresh值是否与优惠劵id匹配
+	 */
+	public static boolean matchFresh(long payload, long couponId) {
+		return (payload >>> FRESH_BIT_OFFSET & FRESH_MASK) == (couponId & FRESH_MASK);
+	}
 }
@@ -0,0 +1,91 @@
+package com.tianji.promotion.utils;
+
+import com.tianji.promotion.constants.PromotionLuaConstants;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 领劵/兑换时Redis缓存未命中、回源数据库的次数统计，预热正常时应始终为0；
+ * 以及预热完成时距发放开始的提前量，预热晚于发放开始或失败时记录错误
+ */
+@Slf4j
+@Component
+public class CouponCacheMetrics {
+	private final LongAdder couponMiss = new LongAdder();
+	private final LongAdder userCouponMiss = new LongAdder();
+	private final LongAdder warmUps = new LongAdder();
+	private final LongAdder lateWarmUps = new LongAdder();
+	private final LongAdder failedWarmUps = new LongAdder();
+	// * 本周期内预热完成时距发放开始的最小提前量，为负说明晚于发放开始
+	private final AtomicLong minLeadMillis = new AtomicLong(Long.MAX_VALUE);
+
+	/**
+	 * 根据lua脚本返回值记录一次冷路径回源
+	 */
+	public void recordColdPath(long result) {
+		if (result == PromotionLuaConstants.ONLY_COUPON_NOT_EXIST || result == PromotionLuaConstants.BOTH_NOT_EXIST) {
+			couponMiss.increment();
+		}
+		if (result == PromotionLuaConstants.ONLY_USER_COUPON_NOT_EXIST || result == PromotionLuaConstants.BOTH_NOT_EXIST) {
+			userCouponMiss.increment();
+		}
+	}
+
+	/**
+	 * 记录一张优惠劵预热完成，完成时已过发放开始时间则记录错误
+	 */
+	public void recordWarmUp(Long couponId, LocalDateTime issueBeginTime) {
+		long leadMillis = Duration.between(LocalDateTime.now(), issueBeginTime).toMillis();
+		warmUps.increment();
+		minLeadMillis.accumulateAndGet(leadMillis, Math::min);
+		if (leadMillis < 0) {
+			lateWarmUps.increment();
+			log.error("优惠劵缓存预热晚于发放开始{}ms，couponId：{}", -leadMillis, couponId);
+			return;
+		}
+		log.info("优惠劵缓存预热完成，couponId：{}，距发放开始{}ms", couponId, leadMillis);
+	}
+
+	/**
+	 * 记录一张优惠劵预热失败，下次调度时重试
+	 */
+	public void recordWarmUpFailure(Long couponId, LocalDateTime issueBeginTime, Exception e) {
+		failedWarmUps.increment();
+		long leadMillis = Duration.between(LocalDateTime.now(), issueBeginTime).toMillis();
+		log.error("优惠劵缓存预热失败，couponId：{}，距发放开始{}ms", couponId, leadMillis, e);
+	}
+
+	public long getCouponMissCount() {
+		return couponMiss.sum();
+	}
+
+	public long getUserCouponMissCount() {
+		return userCouponMiss.sum();
+	}
+
+	/**
+	 * 输出并清零本周期的统计
+	 */
+	public void logAndReset() {
+		long coupon = couponMiss.sumThenReset();
+		long userCoupon = userCouponMiss.sumThenReset();
+		if (coupon > 0 || userCoupon > 0) {
+			log.warn("优惠劵缓存冷路径回源，优惠劵信息：{}次，用户领取数：{}次", coupon, userCoupon);
+		}
+		long warmed = warmUps.sumThenReset();
+		long late = lateWarmUps.sumThenReset();
+		long failed = failedWarmUps.sumThenReset();
+		long minLead = minLeadMillis.getAndSet(Long.MAX_VALUE);
+		if (late > 0 || failed > 0) {
+			log.error("优惠劵缓存预热未赶上发放开始，完成：{}张，晚于发放开始：{}张，失败：{}张，最小提前量：{}ms",
+					warmed, late, failed, warmed == 0 ? 0 : minLead);
+		} else if (warmed > 0) {
+			log.info("优惠劵缓存预热完成：{}张，最小提前量：{}ms", warmed, minLead);
+		}
+	}
+}
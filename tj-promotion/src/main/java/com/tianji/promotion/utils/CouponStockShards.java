@@ -0,0 +1,209 @@
+package com.tianji.promotion.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
+import com.tianji.common.constants.MqConstants;
+import com.tianji.common.utils.BooleanUtils;
+import com.tianji.common.utils.NumberUtils;
+import com.tianji.promotion.config.CouponShardProperties;
+import com.tianji.promotion.constants.PromotionConstants;
+import com.tianji.promotion.domain.po.Coupon;
+import com.tianji.promotion.enums.ObtainType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 热点优惠劵的分片库存
+ * <p>
+ * 库存拆分到N个分片hash，用户领取数按用户id哈希固定在其中一个分片，单个优惠劵的领劵请求分散到N个slot。<br>
+ * 每个优惠劵的分片数以Redis中的标记为准，首次写入缓存时SETNX确定，之后所有实例都按该值路由，
+ * 保证同一优惠劵不会同时存在单key与分片两份库存。分片数为1即原有的单key模式。
+ */
+@Component
+@RequiredArgsConstructor
+public class CouponStockShards {
+	private static final int MAX_SHARD_NUM = 64;
+
+	private final StringRedisTemplate redisTemplate;
+	private final CouponShardProperties properties;
+	private final RabbitMqHelper rabbitMqHelper;
+	// * 本地缓存分片数与已耗尽分片，暂停发放后其他实例最多在过期时间内仍按旧状态路由；库存退回时广播清除已耗尽分片
+	private final Cache<Long, ShardState> stateCache = Caffeine.newBuilder()
+			.maximumSize(1_000)
+			.expireAfterWrite(Duration.ofSeconds(5))
+			.build();
+
+	/**
+	 * 查询优惠劵已确定的分片数
+	 *
+	 * @return 分片状态，优惠劵尚未写入缓存时返回null
+	 */
+	public ShardState queryState(Long couponId) {
+		ShardState state = stateCache.getIfPresent(couponId);
+		if (state != null) {
+			return state;
+		}
+		String value = redisTemplate.opsForValue().get(PromotionConstants.COUPON_SHARD_NUM_PREFIX + couponId);
+		if (value == null) {
+			return null;
+		}
+		return stateCache.get(couponId, k -> new ShardState(Integer.parseInt(value)));
+	}
+
+	/**
+	 * 确定优惠劵的分片数，已确定过的以Redis中的为准
+	 */
+	public int decideShardNum(Coupon coupon) {
+		// * 已确定过的直接使用本地缓存，只有首次才SETNX
+		ShardState state = queryState(coupon.getId());
+		if (state != null) {
+			return state.getShards();
+		}
+		String key = PromotionConstants.COUPON_SHARD_NUM_PREFIX + coupon.getId();
+		// * 已有单key缓存的优惠劵（如升级前已在发放）保持单key，避免按滞后的issue_num重复放出库存
+		int shards = BooleanUtils.isTrue(redisTemplate.hasKey(PromotionConstants.COUPON_CACHE_PREFIX + coupon.getId()))
+				? 1 : shardNumFor(coupon);
+		Boolean success = redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(shards));
+		if (!BooleanUtils.isTrue(success)) {
+			String value = redisTemplate.opsForValue().get(key);
+			shards = value == null ? shards : Integer.parseInt(value);
+		}
+		return shards;
+	}
+
+	/**
+	 * 库存重新写入或退回后调用：清除本实例记录的已耗尽分片，并广播通知其他实例
+	 */
+	public void onRestock(Long couponId) {
+		resetExhausted(couponId);
+		rabbitMqHelper.send(MqConstants.Exchange.PROMOTION_EXCHANGE, MqConstants.Key.COUPON_STOCK_RESTORED, couponId);
+	}
+
+	/**
+	 * 清除本实例记录的已耗尽分片，分片数不变
+	 */
+	public void resetExhausted(Long couponId) {
+		ShardState state = stateCache.getIfPresent(couponId);
+		if (state != null) {
+			state.resetExhausted();
+		}
+	}
+
+	/**
+	 * 按配置计算分片数，只有发放量大的手动领取优惠劵才分片，兑换码优惠劵仍走单key
+	 */
+	private int shardNumFor(Coupon coupon) {
+		if (!properties.isEnable() || coupon.getObtainWay() != ObtainType.PUBLIC
+				|| NumberUtils.null2Zero(coupon.getTotalNum()) < properties.getMinTotalNum()) {
+			return 1;
+		}
+		return Math.max(1, Math.min(properties.getShardNum(), MAX_SHARD_NUM));
+	}
+
+	/**
+	 * 清除优惠劵的分片库存与分片数标记，用户领取数保留
+	 */
+	public void evict(Long couponId) {
+		String key = PromotionConstants.COUPON_SHARD_NUM_PREFIX + couponId;
+		String value = redisTemplate.opsForValue().get(key);
+		if (value != null) {
+			int shards = Integer.parseInt(value);
+			if (shards > 1) {
+				redisTemplate.delete(couponKeys(couponId, shards));
+			}
+			redisTemplate.delete(key);
+		}
+		stateCache.invalidate(couponId);
+	}
+
+	public static List<String> couponKeys(Long couponId, int shards) {
+		if (shards <= 1) {
+			return List.of(PromotionConstants.COUPON_CACHE_PREFIX + couponId);
+		}
+		List<String> keys = new ArrayList<>(shards);
+		for (int i = 0; i < shards; i++) {
+			keys.add(couponShardKey(couponId, i));
+		}
+		return keys;
+	}
+
+	public static List<String> userCouponKeys(Long couponId, int shards) {
+		if (shards <= 1) {
+			return List.of(PromotionConstants.USER_COUPON_CACHE_PREFIX + couponId);
+		}
+		List<String> keys = new ArrayList<>(shards);
+		for (int i = 0; i < shards; i++) {
+			keys.add(userCouponShardKey(couponId, i));
+		}
+		return keys;
+	}
+
+	public static String couponShardKey(Long couponId, int shard) {
+		return PromotionConstants.COUPON_SHARD_CACHE_PREFIX + "{" + couponId + ":" + shard + "}";
+	}
+
+	public static String userCouponShardKey(Long couponId, int shard) {
+		return PromotionConstants.USER_COUPON_SHARD_CACHE_PREFIX + "{" + couponId + ":" + shard + "}";
+	}
+
+	/**
+	 * 用户所在分片，打散连续的用户id
+	 */
+	public static int shardOf(long userId, int shards) {
+		return shards <= 1 ? 0 : Math.floorMod(Long.hashCode(userId * 0x9E3779B97F4A7C15L), shards);
+	}
+
+	/**
+	 * 库存平均拆分到各分片，余数分给前几个分片，合计与总数一致
+	 */
+	public static int[] split(int totalNum, int shards) {
+		int[] stocks = new int[shards];
+		int total = Math.max(totalNum, 0);
+		for (int i = 0; i < shards; i++) {
+			stocks[i] = total / shards + (i < total % shards ? 1 : 0);
+		}
+		return stocks;
+	}
+
+	/**
+	 * 单个优惠劵的分片数与本地记录的已耗尽分片
+	 */
+	public static class ShardState {
+		private final int shards;
+		private final AtomicLong exhausted = new AtomicLong();
+
+		public ShardState(int shards) {
+			this.shards = shards;
+		}
+
+		public int getShards() {
+			return shards;
+		}
+
+		public boolean isExhausted(int shard) {
+			return (exhausted.get() & (1L << shard)) != 0;
+		}
+
+		public void markExhausted(int shard) {
+			exhausted.getAndUpdate(mask -> mask | (1L << shard));
+		}
+
+		public void resetExhausted() {
+			exhausted.set(0);
+		}
+
+		/**
+		 * 所有分片都已耗尽，可以不访问Redis直接返回库存不足
+		 */
+		public boolean isAllExhausted() {
+			return shards > 1 && exhausted.get() == (shards == MAX_SHARD_NUM ? -1L : (1L << shards) - 1);
+		}
+	}
+}
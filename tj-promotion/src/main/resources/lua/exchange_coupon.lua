@@ -6,7 +6,8 @@
   -- quick fail 查库写入redis
   3 - 判断发放时间 < begin || > end
   4 - 判断库存 <= 0
-  5 - 判断已兑换与已领取量increment 后 > userLimit(coupon)
+  5 - 判断已兑换与已领取量 + 1 > userLimit(coupon)
+  7 - 兑换码已使用（bitmap对应位已置1）
   （无失败）减少totalNum
   0 - 成功
   -- MQ异步更新时延，查库后重查redis
@@ -17,6 +18,7 @@ local BOTH_NOT_EXIST = 6
 local INVALID_TIME = 3
 local INVALID_INVENTORY = 4
 local EXCEED_USER_LIMIT = 5
+local CODE_USED = 7
 local SUCCESS = 0
 
 -- KEYS[1] coupon | keys[2] argv[1] userCoupon
@@ -24,12 +26,15 @@ local SUCCESS = 0
 -- coupon不存在
 local couponKey = KEYS[1]
 local userCouponKey = KEYS[2]
-local exchangeCouponKey = KEYS[3]
+local usedCodeKey = KEYS[3]
 local userId = ARGV[1]
+local serialNum = ARGV[2]
 -- ! 返回0如果不存在，注意lua 0为true！
 local isCouponExist = redis.call('EXISTS', couponKey) > 0 and true or false
 -- 返回nil如果不存在 nil为false
-local isUserCouponExist = redis.call('HGET', userCouponKey, userId) and true or false
+-- 预热过的用户卷hash带有加载完成标记，没有该用户的条目即为未领取过
+local isUserCouponExist = (redis.call('HGET', userCouponKey, userId)
+        or redis.call('HEXISTS', userCouponKey, 'loaded') == 1) and true or false
 -- 仅COUPON不存在
 -- redis.log(redis.LOG_WARNING, '0validation...')
 if (not isCouponExist and isUserCouponExist) then
@@ -58,16 +63,16 @@ end
 if (tonumber(redis.call('HGET', couponKey, 'totalNum')) <= 0) then
     return INVALID_INVENTORY -- 库存不足
 end
--- 校验已领取数
--- hincrby返回修改后数据
-if (tonumber(redis.call('SETNX', exchangeCouponKey, userId)) == 0 or tonumber(redis.call('HGET', couponKey, 'userLimit')
-) <
-        redis.call('HINCRBY',
-                userCouponKey,
-                userId,
-                '1')) then
+-- 校验已领取数，只读不写，失败时不留下任何修改
+local received = tonumber(redis.call('HGET', userCouponKey, userId) or '0')
+if (tonumber(redis.call('HGET', couponKey, 'userLimit')) < received + 1) then
     return EXCEED_USER_LIMIT -- 用户领取超限
 end
--- 业务正常，总数-1
+-- 校验兑换码是否已使用，SETBIT返回原来的位；此后不再有失败分支，标记不会误占有效兑换码
+if (redis.call('SETBIT', usedCodeKey, serialNum, 1) == 1) then
+    return CODE_USED
+end
+-- 业务正常，已领取数+1，总数-1
+redis.call('HINCRBY', userCouponKey, userId, '1')
 redis.call('HINCRBY', couponKey, 'totalNum', '-1')
-return SUCCESS
\ No newline at end of file
+return SUCCESS
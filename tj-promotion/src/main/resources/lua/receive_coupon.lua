@@ -56,7 +56,9 @@ local userId = ARGV[1]
 -- ! 返回0如果不存在，注意lua 0为true！
 local isCouponExist = redis.call('EXISTS', couponKey) > 0 and true or false
 -- 返回nil如果不存在 nil为false
-local isUserCouponExist = redis.call('HGET', userCouponKey, userId) and true or false
+-- 预热过的用户卷hash带有加载完成标记，没有该用户的条目即为未领取过
+local isUserCouponExist = (redis.call('HGET', userCouponKey, userId)
+        or redis.call('HEXISTS', userCouponKey, 'loaded') == 1) and true or false
 -- 仅COUPON不存在
 -- redis.log(redis.LOG_WARNING, '0validation...')
 if (not isCouponExist and isUserCouponExist) then
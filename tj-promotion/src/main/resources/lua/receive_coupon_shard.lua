@@ -0,0 +1,72 @@
+--[[
+  分片库存领劵，同一分片的库存hash与用户领取数hash在同一slot
+  KEYS[1] 库存分片 | KEYS[2] 同分片的用户领取数 | ARGV[1] userId | ARGV[2] 模式
+  模式
+  home    - 用户所在分片：校验限领，有库存时原子地扣库存并增加领取数；耗尽时不做任何写入
+  take    - 相邻分片：只扣库存
+  commit  - 用户所在分片：相邻分片扣到库存后，原子地校验限领并增加领取数
+  restock - 相邻分片：commit失败时退回take扣掉的库存
+  返回值枚举
+  1 - 所在分片不存在（未写入缓存或已暂停）
+  2 - 所在分片用户条目不存在
+  -- quick fail 查库写入redis
+  3 - 判断发放时间 < begin || > end
+  5 - 判断已领取量 + 1 > userLimit(coupon)
+  8 - 分片库存耗尽，相邻分片不存在也视为耗尽
+  0 - 成功
+  -- 领取数只在校验限领的同一次调用中增加，不存在先占用后回滚的中间状态
+]]--
+local ONLY_COUPON_NOT_EXIST = 1
+local ONLY_USER_COUPON_NOT_EXIST = 2
+local INVALID_TIME = 3
+local EXCEED_USER_LIMIT = 5
+local SHARD_EMPTY = 8
+local SUCCESS = 0
+
+local couponKey = KEYS[1]
+local userCouponKey = KEYS[2]
+local userId = ARGV[1]
+local mode = ARGV[2]
+
+if (redis.call('EXISTS', couponKey) == 0) then
+    if (mode == 'home' or mode == 'commit') then
+        return ONLY_COUPON_NOT_EXIST
+    end
+    return SHARD_EMPTY
+end
+-- 退回库存，不再校验时间
+if (mode == 'restock') then
+    redis.call('HINCRBY', couponKey, 'totalNum', '1')
+    return SUCCESS
+end
+-- 校验发放时间
+local now = tonumber(redis.call('TIME')[1])
+local issueBeginTime = tonumber(redis.call('HGET', couponKey, 'issueBeginTime'))
+local issueEndTime = tonumber(redis.call('HGET', couponKey, 'issueEndTime'))
+if (now < issueBeginTime or now > issueEndTime) then
+    return INVALID_TIME
+end
+if (mode == 'home' or mode == 'commit') then
+    -- 预热过的用户卷hash带有加载完成标记，没有该用户的条目即为未领取过
+    local count = redis.call('HGET', userCouponKey, userId)
+    if (not count and redis.call('HEXISTS', userCouponKey, 'loaded') == 0) then
+        return ONLY_USER_COUPON_NOT_EXIST
+    end
+    -- 只读校验限领
+    if (tonumber(redis.call('HGET', couponKey, 'userLimit')) < (tonumber(count) or 0) + 1) then
+        return EXCEED_USER_LIMIT
+    end
+    if (mode == 'commit') then
+        redis.call('HINCRBY', userCouponKey, userId, '1')
+        return SUCCESS
+    end
+end
+-- 校验库存
+if (tonumber(redis.call('HGET', couponKey, 'totalNum')) <= 0) then
+    return SHARD_EMPTY
+end
+redis.call('HINCRBY', couponKey, 'totalNum', '-1')
+if (mode == 'home') then
+    redis.call('HINCRBY', userCouponKey, userId, '1')
+end
+return SUCCESS
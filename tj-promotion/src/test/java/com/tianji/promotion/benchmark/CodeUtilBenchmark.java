@@ -0,0 +1,81 @@
+package com.tianji.promotion.benchmark;
+
+import com.tianji.promotion.utils.Base32;
+import com.tianji.promotion.utils.CodeUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 兑换码编码、解码吞吐量基准测试
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CodeUtilBenchmark {
+	private static final int SIZE = 1024;
+	private static final long COUPON_ID = 1864211432543014913L;
+
+	private final char[] buf = new char[CodeUtil.CODE_LENGTH];
+	private long[] serials;
+	private long[] raws;
+	private String[] codes;
+	private int index;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		serials = new long[SIZE];
+		raws = new long[SIZE];
+		codes = new String[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			serials[i] = random.nextInt(Integer.MAX_VALUE);
+			codes[i] = CodeUtil.generateCode(serials[i], COUPON_ID);
+			raws[i] = Base32.decode(codes[i]);
+		}
+	}
+
+	@Benchmark
+	public String generateCode() {
+		return CodeUtil.generateCode(serials[next()], COUPON_ID);
+	}
+
+	@Benchmark
+	public String generateCodeWithBuffer() {
+		return CodeUtil.generateCode(serials[next()], COUPON_ID, buf);
+	}
+
+	@Benchmark
+	public long parseCode() {
+		return CodeUtil.parseCode(codes[next()]);
+	}
+
+	@Benchmark
+	public String base32Encode() {
+		return Base32.encode(raws[next()]);
+	}
+
+	@Benchmark
+	public long base32Decode() {
+		return Base32.decode(codes[next()]);
+	}
+
+	private int next() {
+		return index = (index + 1) & (SIZE - 1);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(CodeUtilBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,237 @@
+package com.tianji.promotion.benchmark;
+
+import com.tianji.promotion.domain.dto.UserCouponDTO;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 抢券持久化压测：逐条消费 vs 窗口批量消费
+ * <p>
+ * 使用内存中的Redis、RabbitMQ、MySQL替身，不依赖外部环境：<br>
+ * 1.Redis替身按receive_coupon.lua的语义原子扣减库存、校验限领<br>
+ * 2.RabbitMQ替身为阻塞队列，按比例重复投递，模拟至少一次投递<br>
+ * 3.MySQL替身每条语句、每次提交都有固定耗时，更新coupon行时持有行锁，模拟热点行
+ * <p>
+ * 运行main方法，可通过参数调整：领劵数 优惠劵数 消费线程数 重投比例
+ */
+public class CouponReceiveLoadTest {
+	private static final int BATCH_SIZE = 500;
+	private static final long WINDOW_MILLIS = 200;
+	private static final long STATEMENT_MICROS = 200;
+	private static final long COMMIT_MICROS = 500;
+
+	public static void main(String[] args) throws Exception {
+		int claims = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+		int couponNum = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		int consumers = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+		double redeliverRate = args.length > 3 ? Double.parseDouble(args[3]) : 0.02;
+		System.out.printf("领劵%d次，优惠劵%d张，消费线程%d，重投比例%.2f%n", claims, couponNum, consumers, redeliverRate);
+		run("逐条消费", claims, couponNum, consumers, redeliverRate, false);
+		run("批量消费", claims, couponNum, consumers, redeliverRate, true);
+	}
+
+	private static void run(String name, int claims, int couponNum, int consumers, double redeliverRate, boolean batch)
+			throws InterruptedException {
+		RedisStandIn redis = new RedisStandIn(couponNum, claims, 1);
+		BlockingQueue<UserCouponDTO> mq = new LinkedBlockingQueue<>();
+		DbStandIn db = new DbStandIn(couponNum, claims);
+		// * 生产：模拟抢券请求，Lua成功后发消息
+		Random random = new Random(42);
+		long messageId = 1;
+		for (int i = 0; i < claims; i++) {
+			long couponId = random.nextInt(couponNum);
+			long userId = i;
+			if (redis.receive(couponId, userId)) {
+				UserCouponDTO dto = new UserCouponDTO();
+				dto.setMessageId(messageId++);
+				dto.setCouponId(couponId);
+				dto.setUserId(userId);
+				mq.add(dto);
+				if (random.nextDouble() < redeliverRate) {
+					mq.add(dto);
+				}
+			}
+		}
+		int messages = mq.size();
+		// * 消费
+		ExecutorService pool = Executors.newFixedThreadPool(consumers);
+		long begin = System.nanoTime();
+		for (int i = 0; i < consumers; i++) {
+			pool.execute(() -> {
+				try {
+					if (batch) {
+						consumeBatch(mq, db);
+					} else {
+						consumeOne(mq, db);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		pool.shutdown();
+		pool.awaitTermination(10, TimeUnit.MINUTES);
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+		System.out.printf("%s：消息%d条，耗时%dms，%d条/秒，事务%d个，语句%d条，用户卷%d条，issue_num合计%d，重复入库%d条%n",
+				name, messages, millis, messages * 1000L / Math.max(millis, 1), db.transactions.get(),
+				db.statements.get(), db.userCoupons.size(), db.issueNumSum(), db.duplicates.get());
+	}
+
+	/**
+	 * 原有方式：每条消息一个事务，issue_num + 1，单行插入
+	 */
+	private static void consumeOne(BlockingQueue<UserCouponDTO> mq, DbStandIn db) throws InterruptedException {
+		UserCouponDTO dto;
+		while ((dto = mq.poll(WINDOW_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+			UserCouponDTO message = dto;
+			db.transaction((int) (long) message.getCouponId(), () -> {
+				db.incrIssueNum(message.getCouponId(), 1);
+				db.insert(Collections.singletonList(message));
+			});
+		}
+	}
+
+	/**
+	 * 批量方式：按窗口拉取，每个优惠劵一个事务，查重 + 一次更新 + 多行插入
+	 */
+	private static void consumeBatch(BlockingQueue<UserCouponDTO> mq, DbStandIn db) throws InterruptedException {
+		List<UserCouponDTO> window = new ArrayList<>(BATCH_SIZE);
+		while (true) {
+			window.clear();
+			UserCouponDTO first = mq.poll(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+			if (first == null) {
+				return;
+			}
+			window.add(first);
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS);
+			while (window.size() < BATCH_SIZE) {
+				UserCouponDTO dto = mq.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				if (dto == null) {
+					break;
+				}
+				window.add(dto);
+			}
+			Map<Long, List<UserCouponDTO>> couponMessages = new HashMap<>();
+			for (UserCouponDTO dto : window) {
+				couponMessages.computeIfAbsent(dto.getCouponId(), k -> new ArrayList<>()).add(dto);
+			}
+			couponMessages.forEach((couponId, list) -> db.transaction((int) (long) couponId, () -> {
+				Set<Long> existIds = db.selectExisting(list);
+				List<UserCouponDTO> toInsert = new ArrayList<>(list.size());
+				for (UserCouponDTO dto : list) {
+					if (existIds.add(dto.getMessageId())) {
+						toInsert.add(dto);
+					}
+				}
+				if (!toInsert.isEmpty()) {
+					db.incrIssueNum(couponId, toInsert.size());
+					db.insert(toInsert);
+				}
+			}));
+		}
+	}
+
+	private static class RedisStandIn {
+		private final int[] stock;
+		private final int userLimit;
+		private final Map<Long, Map<Long, Integer>> received = new HashMap<>();
+
+		private RedisStandIn(int couponNum, int totalNum, int userLimit) {
+			this.stock = new int[couponNum];
+			Arrays.fill(stock, totalNum);
+			this.userLimit = userLimit;
+		}
+
+		private synchronized boolean receive(long couponId, long userId) {
+			if (stock[(int) couponId] <= 0) {
+				return false;
+			}
+			Map<Long, Integer> users = received.computeIfAbsent(couponId, k -> new HashMap<>());
+			if (users.merge(userId, 1, Integer::sum) > userLimit) {
+				return false;
+			}
+			stock[(int) couponId]--;
+			return true;
+		}
+	}
+
+	private static class DbStandIn {
+		private final ReentrantLock[] couponRowLocks;
+		private final long[] issueNum;
+		private final int totalNum;
+		private final Map<Long, UserCouponDTO> userCoupons = new ConcurrentHashMap<>();
+		private final AtomicLong statements = new AtomicLong();
+		private final AtomicLong transactions = new AtomicLong();
+		private final AtomicInteger duplicates = new AtomicInteger();
+
+		private DbStandIn(int couponNum, int totalNum) {
+			this.couponRowLocks = new ReentrantLock[couponNum];
+			for (int i = 0; i < couponNum; i++) {
+				couponRowLocks[i] = new ReentrantLock();
+			}
+			this.issueNum = new long[couponNum];
+			this.totalNum = totalNum;
+		}
+
+		/**
+		 * 更新coupon行后行锁持有到提交，事务内的其他语句都在锁内执行
+		 */
+		private void transaction(int couponId, Runnable body) {
+			ReentrantLock lock = couponRowLocks[couponId];
+			lock.lock();
+			try {
+				body.run();
+				cost(COMMIT_MICROS);
+				transactions.incrementAndGet();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void incrIssueNum(long couponId, int num) {
+			statement();
+			if (issueNum[(int) couponId] + num > totalNum) {
+				throw new IllegalStateException("优惠卷领取更新失败");
+			}
+			issueNum[(int) couponId] += num;
+		}
+
+		private Set<Long> selectExisting(List<UserCouponDTO> list) {
+			statement();
+			Set<Long> exist = new HashSet<>();
+			for (UserCouponDTO dto : list) {
+				if (userCoupons.containsKey(dto.getMessageId())) {
+					exist.add(dto.getMessageId());
+				}
+			}
+			return exist;
+		}
+
+		private void insert(List<UserCouponDTO> list) {
+			statement();
+			for (UserCouponDTO dto : list) {
+				if (userCoupons.putIfAbsent(dto.getMessageId(), dto) != null) {
+					duplicates.incrementAndGet();
+				}
+			}
+		}
+
+		private long issueNumSum() {
+			return Arrays.stream(issueNum).sum();
+		}
+
+		private void statement() {
+			statements.incrementAndGet();
+			cost(STATEMENT_MICROS);
+		}
+
+		private static void cost(long micros) {
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.tianji.promotion.benchmark;
+
+import com.tianji.promotion.domain.dto.OrderCourseDTO;
+import com.tianji.promotion.domain.po.Coupon;
+import com.tianji.promotion.enums.DiscountType;
+import com.tianji.promotion.util.DiscountSolver;
+import com.tianji.promotion.util.PermuteUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 优惠方案计算基准测试：全排列逐个计算 vs DiscountSolver
+ * <p>
+ * 全排列方式在11张及以上优惠券时方案数量超过4千万，内存无法承受，因此只测到10张
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class DiscountSolverBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class SolverState extends Order {
+		@Param({"4", "6", "8", "10", "12"})
+		public int couponNum;
+
+		@Setup
+		public void setup() {
+			init(couponNum);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class PermuteState extends Order {
+		@Param({"4", "6", "8", "10"})
+		public int couponNum;
+
+		@Setup
+		public void setup() {
+			init(couponNum);
+		}
+	}
+
+	@Benchmark
+	public void permute(PermuteState state, Blackhole bh) {
+		List<List<Coupon>> solutions = PermuteUtil.permute(new ArrayList<>(state.validCouponMap.keySet()));
+		for (Coupon coupon : state.validCouponMap.keySet()) {
+			solutions.add(List.of(coupon));
+		}
+		for (List<Coupon> solution : new HashSet<>(solutions)) {
+			bh.consume(DiscountSolver.calculateSolution(solution, state.validCouponMap, state.courses));
+		}
+	}
+
+	@Benchmark
+	public void solver(SolverState state, Blackhole bh) {
+		for (List<Coupon> solution : DiscountSolver.solve(state.validCouponMap, state.courses)) {
+			bh.consume(DiscountSolver.calculateSolution(solution, state.validCouponMap, state.courses));
+		}
+	}
+
+	/**
+	 * 模拟订单：4门课程分属2个分类，优惠券一半通用、一半限定分类
+	 */
+	public static class Order {
+		protected List<OrderCourseDTO> courses;
+		protected Map<Coupon, List<OrderCourseDTO>> validCouponMap;
+
+		protected void init(int couponNum) {
+			Random random = new Random(couponNum);
+			courses = new ArrayList<>();
+			for (long i = 0; i < 4; i++) {
+				courses.add(new OrderCourseDTO().setId(i).setCateId(i % 2).setPrice(10000 + random.nextInt(20000)));
+			}
+			List<OrderCourseDTO> scoped = courses.stream()
+					.filter(c -> c.getCateId() == 0)
+					.collect(Collectors.toList());
+			validCouponMap = new HashMap<>();
+			DiscountType[] types = DiscountType.values();
+			for (long i = 0; i < couponNum; i++) {
+				DiscountType type = types[random.nextInt(types.length)];
+				Coupon coupon = new Coupon()
+						.setId(i)
+						.setCreater(1000 + i)
+						.setDiscountType(type)
+						.setThresholdAmount(random.nextInt(5000))
+						.setDiscountValue(type == DiscountType.RATE_DISCOUNT ? 50 + random.nextInt(45) : 100 + random.nextInt(3000))
+						.setMaxDiscountAmount(500 + random.nextInt(5000));
+				validCouponMap.put(coupon, i % 2 == 0 ? courses : scoped);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DiscountSolverBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,220 @@
+package com.tianji.promotion.benchmark;
+
+import com.tianji.promotion.constants.PromotionLuaConstants;
+import com.tianji.promotion.utils.CouponStockShards;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 抢券库存压测：单key脚本 vs 分片库存脚本
+ * <p>
+ * 本地多线程模拟，不依赖外部环境：<br>
+ * 1.每个slot用一把锁模拟Redis单线程执行，脚本在锁内忙等固定耗时，单key时所有请求串行在一个slot上<br>
+ * 2.每次脚本调用在锁外有固定的网络往返耗时<br>
+ * 3.分片脚本与客户端的相邻分片扣库存、回到所在分片增加领取数、退回库存的逻辑与receive_coupon_shard.lua、UserCouponServiceImpl一致
+ * <p>
+ * 结束后校验：成功数不超过库存、各分片库存不为负、每个用户领取数不超过限领
+ * <p>
+ * 运行main方法，可通过参数调整：库存 用户数 每个用户请求次数 客户端线程数 分片数
+ */
+public class ShardedStockSimulator {
+	private static final long SCRIPT_NANOS = 20_000;
+	private static final long RTT_NANOS = 150_000;
+	private static final int USER_LIMIT = 1;
+	// * 分片脚本的模式
+	private static final int MODE_HOME = 0;
+	private static final int MODE_TAKE = 1;
+	private static final int MODE_COMMIT = 2;
+	private static final int MODE_RESTOCK = 3;
+
+	public static void main(String[] args) throws InterruptedException {
+		int totalNum = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+		int users = args.length > 1 ? Integer.parseInt(args[1]) : 80_000;
+		int tries = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : 128;
+		int shardNum = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+		System.out.printf("库存%d，用户%d，每人请求%d次，线程%d，限领%d%n", totalNum, users, tries, threads, USER_LIMIT);
+		run("单key", totalNum, users, tries, threads, 1);
+		run(shardNum + "分片", totalNum, users, tries, threads, shardNum);
+		run(shardNum * 2 + "分片", totalNum, users, tries, threads, shardNum * 2);
+	}
+
+	private static void run(String name, int totalNum, int users, int tries, int threads, int shards)
+			throws InterruptedException {
+		Slot[] slots = new Slot[shards];
+		int[] stocks = CouponStockShards.split(totalNum, shards);
+		for (int i = 0; i < shards; i++) {
+			slots[i] = new Slot(stocks[i]);
+		}
+		CouponStockShards.ShardState state = new CouponStockShards.ShardState(shards);
+		AtomicInteger success = new AtomicInteger();
+		Map<Long, AtomicInteger> userSuccess = new ConcurrentHashMap<>();
+		AtomicLong calls = new AtomicLong();
+		AtomicInteger fallback = new AtomicInteger();
+		AtomicInteger next = new AtomicInteger();
+		int requests = users * tries;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		CountDownLatch done = new CountDownLatch(threads);
+		long begin = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			pool.execute(() -> {
+				int i;
+				while ((i = next.getAndIncrement()) < requests) {
+					long userId = 1_000_000L + i % users;
+					int result = shards == 1
+							? slots[0].call(calls, s -> s.receive(userId))
+							: receiveFromShards(slots, state, userId, calls, fallback);
+					if (result == PromotionLuaConstants.SUCCESS) {
+						success.incrementAndGet();
+						userSuccess.computeIfAbsent(userId, k -> new AtomicInteger()).incrementAndGet();
+					}
+				}
+				done.countDown();
+			});
+		}
+		done.await();
+		long millis = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin), 1);
+		pool.shutdown();
+		// * 校验
+		int remain = 0;
+		boolean negative = false;
+		for (Slot slot : slots) {
+			remain += slot.stock;
+			negative |= slot.stock < 0;
+		}
+		int maxReceived = userSuccess.values().stream().mapToInt(AtomicInteger::get).max().orElse(0);
+		int expected = Math.min(totalNum, users * USER_LIMIT);
+		System.out.printf("%s：请求%d次，耗时%dms，%d次/秒，脚本调用%.2f次/请求，相邻分片回退%d次，成功%d，剩余库存%d，"
+						+ "超卖%s，分片库存为负%s，单用户最多领取%d%n",
+				name, requests, millis, requests * 1000L / millis, calls.get() / (double) requests, fallback.get(),
+				success.get(), remain, success.get() > totalNum ? "是" : "否", negative ? "是" : "否", maxReceived);
+		if (success.get() > totalNum || negative || maxReceived > USER_LIMIT
+				|| success.get() + remain != totalNum || success.get() != expected) {
+			throw new IllegalStateException(name + "校验失败");
+		}
+	}
+
+	/**
+	 * 与UserCouponServiceImpl中分片领劵的流程一致
+	 */
+	private static int receiveFromShards(Slot[] slots, CouponStockShards.ShardState state, long userId,
+			AtomicLong calls, AtomicInteger fallback) {
+		if (state.isAllExhausted()) {
+			return PromotionLuaConstants.INVALID_INVENTORY;
+		}
+		int shards = slots.length;
+		int home = CouponStockShards.shardOf(userId, shards);
+		int result = slots[home].call(calls, s -> s.receiveShard(userId, MODE_HOME));
+		if (result != PromotionLuaConstants.SHARD_EMPTY) {
+			return result;
+		}
+		state.markExhausted(home);
+		int taken = -1;
+		for (int step = 1; step < shards; step++) {
+			int shard = (home + step) % shards;
+			if (state.isExhausted(shard)) {
+				continue;
+			}
+			fallback.incrementAndGet();
+			result = slots[shard].call(calls, s -> s.receiveShard(userId, MODE_TAKE));
+			if (result != PromotionLuaConstants.SHARD_EMPTY) {
+				taken = result == PromotionLuaConstants.SUCCESS ? shard : -1;
+				break;
+			}
+			state.markExhausted(shard);
+		}
+		if (taken < 0) {
+			return PromotionLuaConstants.INVALID_INVENTORY;
+		}
+		// * 回到所在分片校验限领并增加领取数，不通过则退回库存
+		result = slots[home].call(calls, s -> s.receiveShard(userId, MODE_COMMIT));
+		if (result != PromotionLuaConstants.SUCCESS) {
+			slots[taken].call(calls, s -> s.receiveShard(userId, MODE_RESTOCK));
+			state.resetExhausted();
+		}
+		return result;
+	}
+
+	/**
+	 * 一个Redis slot：库存hash与用户领取数hash，脚本串行执行
+	 */
+	private static class Slot {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Map<Long, Integer> userCounts = new HashMap<>();
+		private int stock;
+
+		private Slot(int stock) {
+			this.stock = stock;
+		}
+
+		private int call(AtomicLong calls, Script script) {
+			calls.incrementAndGet();
+			LockSupport.parkNanos(RTT_NANOS);
+			lock.lock();
+			try {
+				long deadline = System.nanoTime() + SCRIPT_NANOS;
+				int result = script.run(this);
+				while (System.nanoTime() < deadline) {
+					Thread.onSpinWait();
+				}
+				return result;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * receive_coupon.lua
+		 */
+		private int receive(long userId) {
+			if (stock <= 0) {
+				return PromotionLuaConstants.INVALID_INVENTORY;
+			}
+			if (USER_LIMIT < userCounts.merge(userId, 1, Integer::sum)) {
+				return PromotionLuaConstants.EXCEED_USER_LIMIT;
+			}
+			stock--;
+			return PromotionLuaConstants.SUCCESS;
+		}
+
+		/**
+		 * receive_coupon_shard.lua
+		 */
+		private int receiveShard(long userId, int mode) {
+			if (mode == MODE_RESTOCK) {
+				stock++;
+				return PromotionLuaConstants.SUCCESS;
+			}
+			if ((mode == MODE_HOME || mode == MODE_COMMIT) && USER_LIMIT < userCounts.getOrDefault(userId, 0) + 1) {
+				return PromotionLuaConstants.EXCEED_USER_LIMIT;
+			}
+			if (mode == MODE_COMMIT) {
+				userCounts.merge(userId, 1, Integer::sum);
+				return PromotionLuaConstants.SUCCESS;
+			}
+			if (stock <= 0) {
+				return PromotionLuaConstants.SHARD_EMPTY;
+			}
+			stock--;
+			if (mode == MODE_HOME) {
+				userCounts.merge(userId, 1, Integer::sum);
+			}
+			return PromotionLuaConstants.SUCCESS;
+		}
+	}
+
+	@FunctionalInterface
+	private interface Script {
+		int run(Slot slot);
+	}
+}
@@ -0,0 +1,88 @@
+package com.tianji.promotion.util;
+
+import com.tianji.common.constants.RegexConstants;
+import com.tianji.common.exceptions.BadRequestException;
+import com.tianji.promotion.utils.CodeUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 兑换码生成与解析的正确性，包括复用缓冲区的批量生成方式和免正则的格式校验
+ */
+class CodeUtilTest {
+
+	private static final Pattern CODE_PATTERN = Pattern.compile(RegexConstants.COUPON_CODE_PATTERN);
+
+	@Test
+	void testRoundTrip() {
+		Random random = new Random(42);
+		char[] buf = new char[CodeUtil.CODE_LENGTH];
+		for (int i = 0; i < 100_000; i++) {
+			long serialNum = 1 + (random.nextLong() & 0xFFFFFFFFL) % 0xFFFFFFFFL;
+			long couponId = random.nextLong() & Long.MAX_VALUE;
+			String code = CodeUtil.generateCode(serialNum, couponId);
+			// * 复用缓冲区生成的兑换码与原方式一致
+			assertEquals(code, CodeUtil.generateCode(serialNum, couponId, buf));
+			assertTrue(CODE_PATTERN.matcher(code).matches(), code);
+			long payload = CodeUtil.parsePayload(code);
+			assertEquals(serialNum, CodeUtil.serialOf(payload), code);
+			assertEquals(serialNum, CodeUtil.parseCode(code), code);
+			assertTrue(CodeUtil.matchFresh(payload, couponId), code);
+			assertFalse(CodeUtil.matchFresh(payload, couponId + 1), code);
+		}
+	}
+
+	@Test
+	void testBoundaries() {
+		long[] serials = {1, 2, 15, 16, 1000, Integer.MAX_VALUE, 0xFFFFFFFFL};
+		for (long serialNum : serials) {
+			for (long couponId = 0; couponId < 16; couponId++) {
+				String code = CodeUtil.generateCode(serialNum, couponId);
+				assertEquals(serialNum, CodeUtil.parseCode(code), code);
+				assertTrue(CodeUtil.matchFresh(CodeUtil.parsePayload(code), couponId), code);
+			}
+		}
+	}
+
+	@Test
+	void testInvalidFormat() {
+		assertThrows(BadRequestException.class, () -> CodeUtil.parseCode(null));
+		assertThrows(BadRequestException.class, () -> CodeUtil.parseCode(""));
+		String code = CodeUtil.generateCode(12345, 678);
+		assertThrows(BadRequestException.class, () -> CodeUtil.parseCode(code.substring(0, 7)));
+		assertThrows(BadRequestException.class, () -> CodeUtil.parseCode(code + "A"));
+		assertThrows(BadRequestException.class, () -> CodeUtil.parseCode(code.toLowerCase()));
+		assertThrows(BadRequestException.class, () -> CodeUtil.parseCode("0" + code.substring(1)));
+		assertThrows(BadRequestException.class, () -> CodeUtil.parseCode(code.substring(1) + "I"));
+		assertThrows(BadRequestException.class, () -> CodeUtil.parseCode(code.substring(1) + "中"));
+	}
+
+	@Test
+	void testSameAsPattern() {
+		// * 不符合正则的输入一定被拒绝，符合正则的只有校验码正确时才能解析
+		Random random = new Random(7);
+		String chars = "23456789ABCDEFGHJKLMNPQRSTUVWXYZ01IOa-";
+		for (int i = 0; i < 100_000; i++) {
+			int length = 6 + random.nextInt(7);
+			StringBuilder sb = new StringBuilder(length);
+			for (int j = 0; j < length; j++) {
+				sb.append(chars.charAt(random.nextInt(random.nextInt(8) == 0 ? chars.length() : 32)));
+			}
+			String code = sb.toString();
+			if (!CODE_PATTERN.matcher(code).matches()) {
+				assertThrows(BadRequestException.class, () -> CodeUtil.parsePayload(code), code);
+				continue;
+			}
+			try {
+				long payload = CodeUtil.parsePayload(code);
+				assertTrue(payload >= 0 && payload < 1L << 36, code);
+			} catch (BadRequestException ignored) {
+				// * 校验码不匹配
+			}
+		}
+	}
+}
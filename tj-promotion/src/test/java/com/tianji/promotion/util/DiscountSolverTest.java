@@ -0,0 +1,138 @@
+package com.tianji.promotion.util;
+
+import com.tianji.promotion.domain.dto.CouponDiscountDTO;
+import com.tianji.promotion.domain.dto.OrderCourseDTO;
+import com.tianji.promotion.domain.po.Coupon;
+import com.tianji.promotion.enums.DiscountType;
+import com.tianji.promotion.strategy.discount.DiscountStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DiscountSolver与原全排列逐个计算方式的结果对比
+ * <p>
+ * 两种方式在每种实际用卷组合下的最高优惠金额应完全一致
+ */
+class DiscountSolverTest {
+
+	private static final DiscountType[] TYPES = DiscountType.values();
+
+	@Test
+	void testSameAsPermutation() {
+		Random random = new Random(42);
+		for (int round = 0; round < 300; round++) {
+			Order order = randomOrder(random, 1 + random.nextInt(7), 1 + random.nextInt(5));
+			if (order.validCouponMap.isEmpty()) {
+				continue;
+			}
+			Map<String, Integer> expected = bestByCouponSet(permute(order), order);
+			List<List<Coupon>> solutions = DiscountSolver.solve(order.validCouponMap, order.courses);
+			// * 求解结果中的优惠券都应实际生效
+			for (List<Coupon> solution : solutions) {
+				CouponDiscountDTO dto = DiscountSolver.calculateSolution(solution, order.validCouponMap, order.courses);
+				assertEquals(solution.size(), dto.getIds().size(), "round " + round);
+			}
+			assertEquals(expected, bestByCouponSet(solutions, order), "round " + round);
+		}
+	}
+
+	@Test
+	void testSingleCoupon() {
+		Random random = new Random(7);
+		Order order = randomOrder(random, 1, 3);
+		while (order.validCouponMap.isEmpty()) {
+			order = randomOrder(random, 1, 3);
+		}
+		Coupon coupon = order.validCouponMap.keySet().iterator().next();
+		assertEquals(List.of(List.of(coupon)), DiscountSolver.solve(order.validCouponMap, order.courses));
+	}
+
+	@Test
+	void testTooManyCoupons() {
+		// * 超过上限时只保留部分优惠券，每个方案的用卷数量不超过上限
+		Random random = new Random(11);
+		Order order = randomOrder(random, DiscountSolver.MAX_COUPON_NUM + 4, 4);
+		List<List<Coupon>> solutions = DiscountSolver.solve(order.validCouponMap, order.courses);
+		assertFalse(solutions.isEmpty());
+		Set<Coupon> used = new HashSet<>();
+		solutions.forEach(used::addAll);
+		assertTrue(used.size() <= DiscountSolver.MAX_COUPON_NUM);
+	}
+
+	/**
+	 * 原实现：全排列加单卷，去重后逐个计算
+	 */
+	private static List<List<Coupon>> permute(Order order) {
+		List<Coupon> couponList = new ArrayList<>(order.validCouponMap.keySet());
+		List<List<Coupon>> solutions = PermuteUtil.permute(couponList);
+		for (Coupon coupon : couponList) {
+			solutions.add(List.of(coupon));
+		}
+		return new ArrayList<>(new HashSet<>(solutions));
+	}
+
+	/**
+	 * 按实际生效的用卷组合分组，保留最高优惠金额
+	 */
+	private static Map<String, Integer> bestByCouponSet(List<List<Coupon>> solutions, Order order) {
+		Map<String, Integer> best = new HashMap<>();
+		for (List<Coupon> solution : solutions) {
+			CouponDiscountDTO dto = DiscountSolver.calculateSolution(solution, order.validCouponMap, order.courses);
+			String ids = dto.getIds().stream()
+					.sorted()
+					.map(String::valueOf)
+					.collect(Collectors.joining(","));
+			best.merge(ids, dto.getDiscountAmount(), Math::max);
+		}
+		return best;
+	}
+
+	/**
+	 * 随机订单：课程分属2个分类，优惠券随机限定分类，只保留全价下可用的优惠券
+	 * <p>
+	 * 优惠金额远小于课程价格，避免叠加后可用金额为0
+	 */
+	private static Order randomOrder(Random random, int couponNum, int courseNum) {
+		Order order = new Order();
+		order.courses = new ArrayList<>(courseNum);
+		for (long i = 0; i < courseNum; i++) {
+			order.courses.add(new OrderCourseDTO().setId(i).setCateId(i % 2).setPrice(10000 + random.nextInt(20000)));
+		}
+		order.validCouponMap = new HashMap<>();
+		for (long i = 0; i < couponNum; i++) {
+			DiscountType type = TYPES[random.nextInt(TYPES.length)];
+			Coupon coupon = new Coupon()
+					.setId(i)
+					.setCreater(1000 + i)
+					.setDiscountType(type)
+					.setThresholdAmount(type == DiscountType.PER_PRICE_DISCOUNT
+							? 1000 + random.nextInt(15000) : random.nextInt(30000))
+					.setDiscountValue(type == DiscountType.RATE_DISCOUNT ? 50 + random.nextInt(45) : 100 + random.nextInt(700))
+					.setMaxDiscountAmount(300 + random.nextInt(700));
+			List<OrderCourseDTO> courses = order.courses;
+			if (random.nextBoolean()) {
+				long cateId = random.nextInt(2);
+				courses = order.courses.stream()
+						.filter(c -> c.getCateId() == cateId)
+						.collect(Collectors.toList());
+			}
+			if (courses.isEmpty()) {
+				continue;
+			}
+			int totalPrice = courses.stream().mapToInt(OrderCourseDTO::getPrice).sum();
+			if (DiscountStrategy.getDiscount(type).canUse(totalPrice, coupon)) {
+				order.validCouponMap.put(coupon, courses);
+			}
+		}
+		return order;
+	}
+
+	private static class Order {
+		private List<OrderCourseDTO> courses;
+		private Map<Coupon, List<OrderCourseDTO>> validCouponMap;
+	}
+}
@@ -5,4 +5,19 @@ public interface RedisConstants {
     String LIKES_ALL_KEY_PREFIX = "likes:all:biz:";
     String LIKES_DEL_KEY_PREFIX = "likes:del:biz:";
     String LIKES_TIMES_KEY_PREFIX = "likes:times:type:";
+    // * 点赞计数在推送前第一次变化的时间，hash，field为业务id
+    String LIKES_TIMES_AT_KEY_PREFIX = "likes:times:at:type:";
+    // * 点赞计数补全期间累计的变化量，hash，field为业务id
+    String LIKES_SEED_PENDING_KEY_PREFIX = "likes:seed:pending:type:";
+    // * 点赞计数补全锁，同一业务id同时只有一个请求查数据库
+    String LIKES_SEED_LOCK_KEY_PREFIX = "likes:seed:lock:biz:";
+    // * 有待同步点赞记录的业务id，set，按业务id分桶：likes:dirty:type:{bizType}:{bucket}
+    String LIKES_DIRTY_KEY_PREFIX = "likes:dirty:type:";
+    // * 待同步业务id的分桶数，定时任务的各个分片按桶分配，需为2的幂
+    int LIKES_DIRTY_BUCKETS = 16;
+    // * 待同步业务id的一次性补登记：完成标记与执行锁，按业务类型
+    String LIKES_DIRTY_SEEDED_KEY_PREFIX = "likes:dirty:seeded:type:";
+    String LIKES_DIRTY_SEED_LOCK_KEY_PREFIX = "likes:dirty:seed:lock:type:";
+    // * 用户点赞过的业务id，set，'_'为加载完成标记：likes:user:{bizType}:{userId}
+    String LIKES_USER_KEY_PREFIX = "likes:user:";
 }
@@ -16,4 +16,8 @@ public class LikedTimesDTO {
      * 总的点赞次数
      */
     private Integer likedTimes;
+    /**
+     * 点赞次数在本次推送前第一次变化的时间，毫秒，未知为null
+     */
+    private Long changedAt;
 }
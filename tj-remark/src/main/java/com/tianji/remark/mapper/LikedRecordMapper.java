@@ -3,7 +3,9 @@ package com.tianji.remark.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.tianji.remark.domain.po.LikedRecord;
 import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
 import java.util.List;
 
@@ -23,4 +25,17 @@ public interface LikedRecordMapper extends BaseMapper<LikedRecord> {
             "</foreach>" +
             "</script>")
     int batchDeleteByUniqueKey(@Param("records") List<LikedRecord> recordsToUpdate);
+
+    // * 多行插入，已存在的点赞记录被忽略
+    @Insert("<script>" +
+            "INSERT IGNORE INTO tj_remark.liked_record (user_id, biz_id, biz_type) VALUES " +
+            "<foreach collection='records' item='record' separator=','>" +
+            "(#{record.userId}, #{record.bizId}, #{record.bizType})" +
+            "</foreach>" +
+            "</script>")
+    int insertIgnoreBatch(@Param("records") List<LikedRecord> records);
+
+    // * 用户在某类业务下点赞过的业务id
+    @Select("SELECT biz_id FROM tj_remark.liked_record WHERE user_id = #{userId} AND biz_type = #{bizType}")
+    List<Long> queryLikedBizIds(@Param("userId") Long userId, @Param("bizType") String bizType);
 }
@@ -25,7 +25,9 @@ public interface ILikedRecordService extends IService<LikedRecord> {
 
     void addOrDeleteLikeRecordPersistent(LikeRecordFormDTO dto);
 
-    void syncLikeRecordsToDb(String bizType, int maxKeyScanSingle, int maxAllUpdate);
+    void syncLikeRecordsToDb(String bizType, int shardIndex, int shardTotal, int maxRecordsSingle, int maxAllUpdate);
+
+    void seedDirtyIndexOnce(String bizType);
 
     Set<Long> queryLikedListByUserIdsAndBizIdsPersistent(String bizType, List<Long> bizIds);
 }
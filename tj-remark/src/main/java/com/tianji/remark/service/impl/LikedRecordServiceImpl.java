@@ -15,14 +15,15 @@ import com.tianji.remark.service.ILikedRecordService;
 import io.lettuce.core.RedisException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.core.*;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>
@@ -37,6 +38,32 @@ import java.util.stream.Collectors;
 @Slf4j
 public class LikedRecordServiceImpl extends ServiceImpl<LikedRecordMapper, LikedRecord> implements ILikedRecordService {
 
+    private static final RedisScript<Long> LIKE_TOGGLE_SCRIPT = RedisScript.of(new ClassPathResource("lua/like_toggle.lua"), Long.class);
+    private static final RedisScript<Long> LIKE_SEED_SCRIPT = RedisScript.of(new ClassPathResource("lua/like_seed.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> LIKE_USER_QUERY_SCRIPT = RedisScript.of(new ClassPathResource("lua/like_user_query.lua"), List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> LIKE_TIMES_POP_SCRIPT = RedisScript.of(new ClassPathResource("lua/like_times_pop.lua"), List.class);
+    private static final RedisScript<Long> LIKE_USER_LOAD_SCRIPT = RedisScript.of(new ClassPathResource("lua/like_user_load.lua"), Long.class);
+    // * 点赞脚本返回值：计数不存在，需要补计数
+    private static final long TOGGLE_NEED_SEED = 2;
+    // * 补计数锁过期时间，补计数的请求异常退出时由其他请求接手
+    private static final long SEED_LOCK_TTL_MILLIS = 10_000;
+    // * 用户点赞索引的过期时间，每次点赞、查询时续期，长时间不活跃的用户被淘汰
+    private static final String USER_INDEX_TTL_MILLIS = String.valueOf(TimeUnit.DAYS.toMillis(1));
+    private static final String USER_INDEX_LOADED = "1";
+    // * 点赞计数推送每条消息的最大数量
+    private static final int MAX_LIKE_TIMES_BATCH = 500;
+    // * 点赞计数推送每次执行的最大数量
+    private static final int MAX_LIKE_TIMES_PER_RUN = 5000;
+    // * 同步任务每次取出的业务id数量
+    private static final int DIRTY_BATCH_SIZE = 100;
+    // * 同步任务单条SQL的记录数
+    private static final int DB_BATCH_SIZE = 500;
+    // * 补登记待同步业务id时每次SCAN的数量
+    private static final int SEED_SCAN_COUNT = 1000;
+    private static final long SEED_DIRTY_LOCK_TTL_MINUTES = 10;
+
     private final RabbitMqHelper mqHelper;
 
     private final StringRedisTemplate redisTemplate;
@@ -115,39 +142,56 @@ public class LikedRecordServiceImpl extends ServiceImpl<LikedRecordMapper, Liked
 
     /**
      * 批量读取Redis点赞数数据，发送到MQ
+     * <p>
+     * 按积压量调整每批数量，积压多时一次执行发送多批，同一业务的多次点赞在计数zset中已合并为一条
      */
     @Override
     public void readLikeTimesAndSendMq(String bizType, int maxBizSize) {
-        // * 查询Redis点赞数
         String key = RedisConstants.LIKES_TIMES_KEY_PREFIX + bizType;
-        Set<ZSetOperations.TypedTuple<String>> typedTuples = redisTemplate.opsForZSet()
-                                                                          .popMin(key, maxBizSize);
-        // // * 随机抽maxBizSize个同步数据库，不删除Redis
-        // Set<ZSetOperations.TypedTuple<String>> typedTuples = redisTemplate.opsForZSet().distinctRandomMembersWithScore(key, maxBizSize);
+        String changedAtKey = RedisConstants.LIKES_TIMES_AT_KEY_PREFIX + bizType;
+        // * 查询积压的点赞计数数量
+        Long backlog = redisTemplate.opsForZSet()
+                                    .zCard(key);
         // * 无数据不操作
-        if (CollUtils.isEmpty(typedTuples)) {
+        if (backlog == null || backlog == 0) {
             return;
         }
-        // * 封装dto
-        List<LikedTimesDTO> dtoList = new ArrayList<>();
-        for (ZSetOperations.TypedTuple<String> tuple : typedTuples) {
-            LikedTimesDTO dto = new LikedTimesDTO();
-            String bizIdRaw = tuple.getValue();
-            Double likesRaw = tuple.getScore();
-            // * Redis数据不完整
-            if (bizIdRaw == null || likesRaw == null) {
-                continue;
+        int batchSize = (int) Math.min(Math.max(backlog / 4, maxBizSize), MAX_LIKE_TIMES_BATCH);
+        long remaining = Math.min(backlog, MAX_LIKE_TIMES_PER_RUN);
+        String routingKey = StringUtils.format(MqConstants.Key.LIKED_TIMES_KEY_TEMPLATE, bizType);
+        while (remaining > 0) {
+            // * 取出计数与第一次变化的时间，三个一组
+            List<String> popped = popLikeTimes(key, changedAtKey, (int) Math.min(batchSize, remaining));
+            if (CollUtils.isEmpty(popped)) {
+                break;
             }
-            dto.setBizId(Long.valueOf(bizIdRaw));
-            dto.setLikedTimes(likesRaw.intValue());
-            dtoList.add(dto);
+            // * 封装dto
+            List<LikedTimesDTO> dtoList = new ArrayList<>(popped.size() / 3);
+            for (int i = 0; i + 2 < popped.size(); i += 3) {
+                LikedTimesDTO dto = new LikedTimesDTO();
+                dto.setBizId(Long.valueOf(popped.get(i)));
+                dto.setLikedTimes(Double.valueOf(popped.get(i + 1))
+                                        .intValue());
+                long changedAt = Long.parseLong(popped.get(i + 2));
+                dto.setChangedAt(changedAt > 0 ? changedAt : null);
+                dtoList.add(dto);
+            }
+            // * 推送MQ
+            mqHelper.send(MqConstants.Exchange.LIKE_RECORD_EXCHANGE, routingKey, dtoList);
+            remaining -= dtoList.size();
         }
-        // * 推送MQ
-        mqHelper.send(MqConstants.Exchange.LIKE_RECORD_EXCHANGE, StringUtils.format(MqConstants.Key.LIKED_TIMES_KEY_TEMPLATE, bizType), dtoList);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> popLikeTimes(String key, String changedAtKey, int count) {
+        return redisTemplate.execute(LIKE_TIMES_POP_SCRIPT, List.of(key, changedAtKey), String.valueOf(count));
     }
 
     /**
      * 新增或取消点赞（支持数据库持久化）分离存储的Set与更新Set以实现增量更新
+     * <p>
+     * 一次脚本调用完成ALL、NEW、DEL的维护与点赞计数的修改，计数按实际变化增减；
+     * 计数不存在时只有拿到补计数锁的请求查询数据库，其余请求的变化量累计到补计数完成时一并写入
      */
     @Override
     public void addOrDeleteLikeRecordPersistent(LikeRecordFormDTO dto) {
@@ -158,233 +202,272 @@ public class LikedRecordServiceImpl extends ServiceImpl<LikedRecordMapper, Liked
         String newKey = RedisConstants.LIKES_NEW_KEY_PREFIX + bizType + ":" + bizIdString;
         String delKey = RedisConstants.LIKES_DEL_KEY_PREFIX + bizType + ":" + bizIdString;
         String allKey = RedisConstants.LIKES_ALL_KEY_PREFIX + bizType + ":" + bizIdString;
-        boolean success = false;
-        Long userId = UserContext.getUser();
-        String user = userId.toString();
-        // * 通过Set返回值进行后续业务
-        List<Object> results;
-        if (dto.getLiked()) {
-            // * 点赞
-            // * 移出DEL;加入Redis NEW与ALL;NEW作数据库更新，ALL作全数据;避免NEW与DEL冲突(用户点完就取消)
-            results = redisTemplate.executePipelined(new SessionCallback<Object>() {
-                @SuppressWarnings({"unchecked", "NullableProblems"})
-                @Override
-                public Object execute(RedisOperations operations) throws DataAccessException {
-                    operations.opsForZSet()
-                              .remove(delKey, user);
-                    operations.opsForZSet()
-                              .add(newKey, user, 0);
-                    operations.opsForSet()
-                              .add(allKey, user);
-                    return null;
-                }
-            });
-        } else {
-            // * 取消
-            // * 移出NEW;加入Redis DEL与移出ALL;DEL作数据库更新，ALL作全数据
-            results = redisTemplate.executePipelined(new SessionCallback<Object>() {
-                @SuppressWarnings({"unchecked", "NullableProblems"})
-                @Override
-                public Object execute(RedisOperations operations) throws DataAccessException {
-                    operations.opsForZSet()
-                              .remove(newKey, user);
-                    operations.opsForZSet()
-                              .add(delKey, user, 0);
-                    operations.opsForSet()
-                              .remove(allKey, user);
-                    return null;
-                }
-            });
+        String timesKey = RedisConstants.LIKES_TIMES_KEY_PREFIX + bizType;
+        String pendingKey = RedisConstants.LIKES_SEED_PENDING_KEY_PREFIX + bizType;
+        String lockKey = RedisConstants.LIKES_SEED_LOCK_KEY_PREFIX + bizType + ":" + bizIdString;
+        String dirtyKey = dirtyKey(bizType, dirtyBucket(dto.getBizId()));
+        String user = UserContext.getUser()
+                                 .toString();
+        String userKey = userKey(bizType, user);
+        String changedAtKey = RedisConstants.LIKES_TIMES_AT_KEY_PREFIX + bizType;
+        // * 点赞：移出DEL，加入NEW与ALL；取消：移出NEW，加入DEL，移出ALL；ALL有变化时修改计数
+        Long result = redisTemplate.execute(LIKE_TOGGLE_SCRIPT, List.of(allKey, newKey, delKey, timesKey, pendingKey, lockKey, dirtyKey, userKey, changedAtKey),
+                user, dto.getLiked() ? "1" : "0", bizIdString, String.valueOf(SEED_LOCK_TTL_MILLIS), USER_INDEX_TTL_MILLIS,
+                String.valueOf(System.currentTimeMillis()));
+        // * Redis操作失败
+        if (result == null) {
+            throw new RedisException("Redis修改点赞计数失败");
         }
-        success = CollUtils.isNotEmpty(results) && (Long) results.get(results.size() - 1) > 0;
-        // * 是否成功（避免操作重复）
-        if (success) {
-            String timesKey = RedisConstants.LIKES_TIMES_KEY_PREFIX + dto.getBizType();
-            // * 成功操作，修改当前点赞数
-            results = redisTemplate.executePipelined(new SessionCallback<Object>() {
-                @SuppressWarnings({"unchecked", "NullableProblems"})
-                @Override
-                public Object execute(RedisOperations operations) throws DataAccessException {
-                    operations.opsForZSet()
-                              .score(timesKey, bizIdString);
-                    operations.opsForZSet()
-                              .incrementScore(timesKey, bizIdString, dto.getLiked() ? 1 : -1);
-                    return null;
-                }
-            });
-            // * Redis操作失败
-            if (CollUtils.isEmpty(results)) {
-                throw new RedisException("Redis修改点赞计数失败");
-            }
-            // * 已有原始计数数据，业务结束
-            if (results.get(0) != null) {
-                return;
-            }
-            // * 不存在原始计数数据，查询数据库，将原始数据加上
+        // * 重复操作或已有原始计数数据，业务结束
+        if (result != TOGGLE_NEED_SEED) {
+            return;
+        }
+        // * 不存在原始计数数据，查询数据库，将原始数据加上
+        try {
             Integer count = lambdaQuery()
                     .eq(LikedRecord::getBizType, bizType)
                     .eq(LikedRecord::getBizId, dto.getBizId())
                     .count();
-            // * 数据库不存在数据，结束业务
-            if (count == null || count == 0) {
-                return;
-            }
-            // * 加入原始数据
-            redisTemplate.opsForZSet()
-                         .incrementScore(timesKey, bizIdString, count);
+            redisTemplate.execute(LIKE_SEED_SCRIPT, List.of(timesKey, pendingKey, lockKey),
+                    bizIdString, String.valueOf(count == null ? 0 : count));
+        } catch (RuntimeException e) {
+            // * 释放锁，下一次点赞重新补计数，期间的变化量保留在待补计数中
+            redisTemplate.delete(lockKey);
+            throw e;
         }
     }
 
 
+    /**
+     * 同步点赞记录到数据库，只处理点赞时登记过的业务id
+     * <p>
+     * 待同步业务id按业务id分桶，每个分片处理 bucket % shardTotal == shardIndex 的桶，多个分片并行同步
+     */
     @Override
-    public void syncLikeRecordsToDb(String bizType, int maxKeyScanSingle, int maxAllUpdate) {
-        // * 构造Redis key匹配模板
-        String newKeyAsterisk = RedisConstants.LIKES_NEW_KEY_PREFIX + bizType + ":*";
-        String delKeyAsterisk = RedisConstants.LIKES_DEL_KEY_PREFIX + bizType + ":*";
-        // * 构造Redis Scan参数，限定单个更新队列Key数量上限
-        ScanOptions newScanOptions = ScanOptions.scanOptions()
-                                                .match(newKeyAsterisk)
-                                                .count(maxKeyScanSingle)
-                                                .build();
-        ScanOptions delScanOptions = ScanOptions.scanOptions()
-                                                .match(delKeyAsterisk)
-                                                .count(maxKeyScanSingle)
-                                                .build();
-        // * 构造bizId 为 key，userId全体为集合 作 value
-        Map<Long, Set<ZSetOperations.TypedTuple<String>>> newRecords = new HashMap<>();
-        Map<Long, Set<ZSetOperations.TypedTuple<String>>> delRecords = new HashMap<>();
-        // * 取出新增数据
-        fetchRecordsFromRedisByScan(newScanOptions, newRecords, maxAllUpdate);
-        // * 剩余更新配额至少还剩 1 / 8
-        int remaining = maxAllUpdate - newRecords.size();
-        // * 取出删除数据
-        if (remaining > maxAllUpdate / 8) {
-            fetchRecordsFromRedisByScan(delScanOptions, delRecords, remaining);
-        }
-        // * 非空时操作
-        List<LikedRecord> recordsToUpdate = buildRecordsToUpdateList(bizType, newRecords);
-        if (CollUtils.isNotEmpty(recordsToUpdate)) {
-            try {
-                saveBatch(recordsToUpdate);
-            } catch (DataIntegrityViolationException e) {
-                log.debug("重复插入数据");
+    public void syncLikeRecordsToDb(String bizType, int shardIndex, int shardTotal, int maxRecordsSingle, int maxAllUpdate) {
+        long begin = System.currentTimeMillis();
+        int inserted = 0;
+        int deleted = 0;
+        for (int bucket = shardIndex; bucket < RedisConstants.LIKES_DIRTY_BUCKETS && inserted + deleted < maxAllUpdate; bucket += shardTotal) {
+            String dirtyKey = dirtyKey(bizType, bucket);
+            while (inserted + deleted < maxAllUpdate) {
+                // * 1.取出一批待同步的业务id
+                List<String> bizIds = redisTemplate.opsForSet()
+                                                   .pop(dirtyKey, DIRTY_BATCH_SIZE);
+                if (CollUtils.isEmpty(bizIds)) {
+                    break;
+                }
+                // * 2.一次往返取出这批业务的新增与删除记录，单个业务最多取maxRecordsSingle条
+                List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @SuppressWarnings({"unchecked", "NullableProblems"})
+                    @Override
+                    public Object execute(RedisOperations operations) throws DataAccessException {
+                        for (String bizId : bizIds) {
+                            operations.opsForZSet()
+                                      .popMin(RedisConstants.LIKES_NEW_KEY_PREFIX + bizType + ":" + bizId, maxRecordsSingle);
+                            operations.opsForZSet()
+                                      .popMin(RedisConstants.LIKES_DEL_KEY_PREFIX + bizType + ":" + bizId, maxRecordsSingle);
+                        }
+                        return null;
+                    }
+                });
+                List<LikedRecord> recordsToInsert = new ArrayList<>();
+                List<LikedRecord> recordsToDelete = new ArrayList<>();
+                List<String> unfinished = new ArrayList<>();
+                for (int i = 0; i < bizIds.size(); i++) {
+                    Long bizId = Long.valueOf(bizIds.get(i));
+                    Set<ZSetOperations.TypedTuple<String>> newRecords = castTuples(results.get(2 * i));
+                    Set<ZSetOperations.TypedTuple<String>> delRecords = castTuples(results.get(2 * i + 1));
+                    addRecords(recordsToInsert, bizType, bizId, newRecords);
+                    addRecords(recordsToDelete, bizType, bizId, delRecords);
+                    // * 没有取完的业务放回，下一批继续
+                    if (newRecords.size() >= maxRecordsSingle || delRecords.size() >= maxRecordsSingle) {
+                        unfinished.add(bizIds.get(i));
+                    }
+                }
+                if (!unfinished.isEmpty()) {
+                    redisTemplate.opsForSet()
+                                 .add(dirtyKey, unfinished.toArray(new String[0]));
+                }
+                // * 3.分批写入数据库
+                for (List<LikedRecord> batch : CollUtils.split(recordsToInsert, DB_BATCH_SIZE)) {
+                    likedRecordMapper.insertIgnoreBatch(batch);
+                }
+                for (List<LikedRecord> batch : CollUtils.split(recordsToDelete, DB_BATCH_SIZE)) {
+                    likedRecordMapper.batchDeleteByUniqueKey(batch);
+                }
+                inserted += recordsToInsert.size();
+                deleted += recordsToDelete.size();
             }
         }
-        // * 非空时操作
-        recordsToUpdate = buildRecordsToUpdateList(bizType, delRecords);
-        if (CollUtils.isNotEmpty(recordsToUpdate)) {
-            likedRecordMapper.batchDeleteByUniqueKey(recordsToUpdate);
+        long cost = System.currentTimeMillis() - begin;
+        if (inserted + deleted > 0) {
+            log.info("点赞记录同步完成，bizType：{}，分片：{}/{}，新增{}条，删除{}条，耗时{}ms，{}条/秒", bizType, shardIndex, shardTotal,
+                    inserted, deleted, cost, (inserted + deleted) * 1000L / Math.max(cost, 1));
         }
     }
 
-    private List<LikedRecord> buildRecordsToUpdateList(String bizType, Map<Long, Set<ZSetOperations.TypedTuple<String>>> recordsMap) {
-        List<LikedRecord> recordsToUpdate = new ArrayList<>();
-        if (CollUtils.isNotEmpty(recordsMap)) {
-            for (Long bizId : recordsMap.keySet()) {
-                Set<ZSetOperations.TypedTuple<String>> typedTuples = recordsMap.get(bizId);
-                for (ZSetOperations.TypedTuple<String> tuple : typedTuples) {
-                    String userIdString = tuple.getValue();
-                    Long userId = Long.valueOf(userIdString);
-                    LikedRecord record = new LikedRecord();
-                    record.setBizId(bizId)
-                          .setUserId(userId)
-                          .setBizType(bizType);
-                    recordsToUpdate.add(record);
+    /**
+     * 一次性补登记待同步业务id：引入分桶登记前写入的新增/删除记录没有登记，只有再次点赞才会被同步。
+     * SCAN已有的新增、删除记录key，按业务id登记到对应的桶，完成后写入标记，之后不再执行
+     */
+    @Override
+    public void seedDirtyIndexOnce(String bizType) {
+        String seededKey = RedisConstants.LIKES_DIRTY_SEEDED_KEY_PREFIX + bizType;
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(seededKey))) {
+            return;
+        }
+        String lockKey = RedisConstants.LIKES_DIRTY_SEED_LOCK_KEY_PREFIX + bizType;
+        Boolean locked = redisTemplate.opsForValue()
+                                      .setIfAbsent(lockKey, "1", SEED_DIRTY_LOCK_TTL_MINUTES, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            long seeded = seedDirtyIndex(RedisConstants.LIKES_NEW_KEY_PREFIX + bizType + ":", bizType)
+                    + seedDirtyIndex(RedisConstants.LIKES_DEL_KEY_PREFIX + bizType + ":", bizType);
+            redisTemplate.opsForValue()
+                         .set(seededKey, String.valueOf(System.currentTimeMillis()));
+            log.info("补登记待同步点赞业务id完成，bizType：{}，共{}个key", bizType, seeded);
+        } finally {
+            redisTemplate.delete(lockKey);
+        }
+    }
+
+    private long seedDirtyIndex(String keyPrefix, String bizType) {
+        long count = 0;
+        Map<Integer, List<String>> buckets = new HashMap<>();
+        ScanOptions options = ScanOptions.scanOptions()
+                                         .match(keyPrefix + "*")
+                                         .count(SEED_SCAN_COUNT)
+                                         .build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String bizId = cursor.next()
+                                     .substring(keyPrefix.length());
+                if (!StringUtils.isNumeric(bizId)) {
+                    continue;
+                }
+                buckets.computeIfAbsent(dirtyBucket(Long.valueOf(bizId)), k -> new ArrayList<>())
+                       .add(bizId);
+                if (++count % SEED_SCAN_COUNT == 0) {
+                    addDirty(bizType, buckets);
                 }
             }
         }
-        return recordsToUpdate;
+        addDirty(bizType, buckets);
+        return count;
     }
 
-    private void fetchRecordsFromRedisByScan(ScanOptions scanOptions, Map<Long, Set<ZSetOperations.TypedTuple<String>>> recordsMap, int remaining) {
-        // * 打开Redis cursor 扫描各个key，取出总计不超过总更新配额的数据用于更新
-        // * 由于已经有了全局异常处理，这里不做异常处理
-        try (Cursor<byte[]> cursor = redisTemplate.executeWithStickyConnection(connection -> connection.scan(scanOptions))) {
-            while (cursor != null && cursor.hasNext() && recordsMap.size() < remaining) {
-                String key = new String(cursor.next());
-                String[] split = key.split(":");
-                Long bizId = Long.valueOf(split[split.length - 1]);
-                int quota = remaining - recordsMap.size();
-                Set<ZSetOperations.TypedTuple<String>> records = redisTemplate.opsForZSet()
-                                                                              .popMin(key, quota);
-                if (CollUtils.isNotEmpty(records)) {
-                    Set<ZSetOperations.TypedTuple<String>> tupleSet = recordsMap.putIfAbsent(bizId, records);
-                    if (tupleSet != null) {
-                        tupleSet.addAll(records);
-                    }
+    private void addDirty(String bizType, Map<Integer, List<String>> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @SuppressWarnings({"unchecked", "NullableProblems"})
+            @Override
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Map.Entry<Integer, List<String>> entry : buckets.entrySet()) {
+                    operations.opsForSet()
+                              .add(dirtyKey(bizType, entry.getKey()), entry.getValue()
+                                                                           .toArray());
                 }
+                return null;
             }
+        });
+        buckets.clear();
+    }
+
+    private static String dirtyKey(String bizType, int bucket) {
+        return RedisConstants.LIKES_DIRTY_KEY_PREFIX + bizType + ":" + bucket;
+    }
+
+    /**
+     * 业务id所在的桶，雪花id低位分布不均，打散后取高位
+     */
+    private static int dirtyBucket(Long bizId) {
+        return (Long.hashCode(bizId) * 0x9E3779B9) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(RedisConstants.LIKES_DIRTY_BUCKETS));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<ZSetOperations.TypedTuple<String>> castTuples(Object result) {
+        return result == null ? Collections.emptySet() : (Set<ZSetOperations.TypedTuple<String>>) result;
+    }
+
+    private static void addRecords(List<LikedRecord> records, String bizType, Long bizId, Set<ZSetOperations.TypedTuple<String>> tuples) {
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            if (tuple.getValue() == null) {
+                continue;
+            }
+            records.add(new LikedRecord().setBizId(bizId)
+                                         .setUserId(Long.valueOf(tuple.getValue()))
+                                         .setBizType(bizType));
         }
     }
 
     /**
-     * 查询点赞情况，先查Redis，没有就查数据库
+     * 查询点赞情况，使用用户点赞索引，一次脚本调用判断整页业务
+     * <p>
+     * 索引在点赞时维护，长时间未访问的索引过期淘汰；索引不存在时从数据库一次加载该用户的所有点赞记录
      */
     @Override
     public Set<Long> queryLikedListByUserIdsAndBizIdsPersistent(String bizType, List<Long> bizIds) {
+        if (CollUtils.isEmpty(bizIds)) {
+            return CollUtils.emptySet();
+        }
         Long userId = UserContext.getUser();
-        String user = userId.toString();
-        // * 批量查询对应业务id项用户点赞记录
-        List<Object> objects = redisTemplate.executePipelined(new RedisCallback<Object>() {
-            @Override
-            public Object doInRedis(RedisConnection connection) throws DataAccessException {
-                for (Long bizId : bizIds) {
-                    String allKey = RedisConstants.LIKES_ALL_KEY_PREFIX + bizType + ":" + bizId;
-                    String delKey = RedisConstants.LIKES_DEL_KEY_PREFIX + bizType + ":" + bizId;
-                    // * Redis中是否有
-                    connection.sIsMember(allKey.getBytes(), user.getBytes());
-                    // * 防止删除没同步时数据库有记录
-                    connection.zScore(delKey.getBytes(), user.getBytes());
-                }
-                return null;
+        String userKey = userKey(bizType, userId.toString());
+        List<String> result = queryUserIndex(userKey, bizIds);
+        if (result == null || result.isEmpty() || !USER_INDEX_LOADED.equals(result.get(0))) {
+            // * 索引未加载，从数据库加载后重新查询
+            List<Long> likedBizIds = likedRecordMapper.queryLikedBizIds(userId, bizType);
+            List<String> args = new ArrayList<>(likedBizIds.size() + 1);
+            args.add(USER_INDEX_TTL_MILLIS);
+            for (Long likedBizId : likedBizIds) {
+                args.add(likedBizId.toString());
             }
-        });
-        // * 如果在ALL set则已点赞，如果在DEL zset存在则已取消
-        Set<Long> likedBizIds = new HashSet<>();
-        Set<Long> secondCheckBizIds = new HashSet<>();
-        // * 一次两条命令返回结果
-        for (int i = 0; i < objects.size(); i += 2) {
-            Boolean isLiked = (Boolean) objects.get(i);
-            Double isDel = (Double) objects.get(i + 1);
-            // * 确认已点赞
-            if (isLiked) {
-                likedBizIds.add(bizIds.get(i));
-                continue;
+            redisTemplate.execute(LIKE_USER_LOAD_SCRIPT, List.of(userKey), args.toArray());
+            result = queryUserIndex(userKey, bizIds);
+            if (result == null || result.isEmpty()) {
+                throw new RedisException("Redis查询点赞状态失败");
             }
-            // * 已经删除，跳过
-            if (isDel != null) {
-                continue;
-            }
-            // * Redis结束，但点赞状态仍不确定，需要二次检查数据库
-            secondCheckBizIds.add(bizIds.get(i));
+            Set<Long> pageLikedBizIds = toBizIds(result);
+            // * 数据库中的点赞写入ALL，避免重复点赞被计数
+            String user = userId.toString();
+            redisTemplate.executePipelined(new RedisCallback<Object>() {
+                @Override
+                public Object doInRedis(RedisConnection connection) throws DataAccessException {
+                    for (Long bizId : pageLikedBizIds) {
+                        String allKey = RedisConstants.LIKES_ALL_KEY_PREFIX + bizType + ":" + bizId;
+                        connection.sAdd(allKey.getBytes(), user.getBytes());
+                    }
+                    return null;
+                }
+            });
+            return pageLikedBizIds;
         }
-        // * 检查数据库
-        List<LikedRecord> records = lambdaQuery()
-                .eq(LikedRecord::getUserId, userId)
-                .eq(LikedRecord::getBizType, bizType)
-                .in(LikedRecord::getBizId, secondCheckBizIds)
-                .list();
-        // * 二次检查列表里不存在点赞过的
-        if (CollUtils.isEmpty(records)) {
-            return likedBizIds;
+        return toBizIds(result);
+    }
+
+    private static Set<Long> toBizIds(List<String> result) {
+        Set<Long> likedBizIds = new HashSet<>(result.size() * 4 / 3 + 1);
+        for (int i = 1; i < result.size(); i++) {
+            likedBizIds.add(Long.valueOf(result.get(i)));
         }
-        // * 转id返回
-        Set<Long> likedBizIdDbSet = records.stream()
-                                           .map(LikedRecord::getBizId)
-                                           .collect(Collectors.toSet());
-        // * 写入Redis避免下次查数据库
-        redisTemplate.executePipelined(new RedisCallback<Object>() {
-            @Override
-            public Object doInRedis(RedisConnection connection) throws DataAccessException {
-                for (Long bizId : likedBizIdDbSet) {
-                    String allKey = RedisConstants.LIKES_ALL_KEY_PREFIX + bizType + ":" + bizId;
-                    connection.sAdd(allKey.getBytes(), user.getBytes());
-                }
-                return null;
-            }
-        });
-        // * 补充进结果集，返回最终点赞数据
-        likedBizIds.addAll(likedBizIdDbSet);
         return likedBizIds;
     }
+
+    @SuppressWarnings("unchecked")
+    private List<String> queryUserIndex(String userKey, List<Long> bizIds) {
+        List<String> args = new ArrayList<>(bizIds.size() + 1);
+        args.add(USER_INDEX_TTL_MILLIS);
+        for (Long bizId : bizIds) {
+            args.add(bizId.toString());
+        }
+        return redisTemplate.execute(LIKE_USER_QUERY_SCRIPT, List.of(userKey), args.toArray());
+    }
+
+    private static String userKey(String bizType, String user) {
+        return RedisConstants.LIKES_USER_KEY_PREFIX + bizType + ":" + user;
+    }
 }
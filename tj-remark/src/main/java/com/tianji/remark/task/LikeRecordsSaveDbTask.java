@@ -2,6 +2,7 @@ package com.tianji.remark.task;
 
 import com.tianji.common.constants.Constant;
 import com.tianji.remark.service.ILikedRecordService;
+import com.xxl.job.core.context.XxlJobHelper;
 import com.xxl.job.core.handler.annotation.XxlJob;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -18,20 +19,26 @@ public class LikeRecordsSaveDbTask {
     // * 读取常量服务名
     private static final List<String> BIZ_TYPES = List.of(Constant.CONFIG_BIZTYPE_QA);
     private static final int MAX_ALL_UPDATE = 5000;
-    private static final int MAX_KEY_SCAN_SINGLE = 30;
+    // * 单个业务一次最多同步的记录数
+    private static final int MAX_RECORDS_SINGLE = 1000;
     private final ILikedRecordService likeService;
 
     // * SpringTask方案
 //    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.SECONDS)
 //    public void syncLikeRecordsToDb() {
 //        for (String bizType : BIZ_TYPES) {
-//            likeService.syncLikeRecordsToDb(bizType, MAX_KEY_SCAN_SINGLE, MAX_ALL_UPDATE);
+//            likeService.syncLikeRecordsToDb(bizType, 0, 1, MAX_RECORDS_SINGLE, MAX_ALL_UPDATE);
 //        }
 //    }
     @XxlJob("syncLikeRecordsToDb")
     public void syncLikeRecordsToDb() {
+        // * 分片广播，各分片处理各自的待同步分桶
+        int shardIndex = XxlJobHelper.getShardIndex();
+        int shardTotal = Math.max(XxlJobHelper.getShardTotal(), 1);
         for (String bizType : BIZ_TYPES) {
-            likeService.syncLikeRecordsToDb(bizType, MAX_KEY_SCAN_SINGLE, MAX_ALL_UPDATE);
+            // * 升级后首次执行时补登记旧数据的待同步业务id，已完成后只检查一次标记
+            likeService.seedDirtyIndexOnce(bizType);
+            likeService.syncLikeRecordsToDb(bizType, shardIndex, shardTotal, MAX_RECORDS_SINGLE, MAX_ALL_UPDATE);
         }
     }
 }
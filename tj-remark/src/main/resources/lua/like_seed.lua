@@ -0,0 +1,16 @@
+--[[
+  补点赞计数：数据库计数加上补计数期间累计的变化量，写入点赞计数
+  KEYS[1] 点赞计数zset | KEYS[2] 待补计数hash | KEYS[3] 补计数锁
+  ARGV[1] 业务id | ARGV[2] 数据库中的点赞数
+  返回 写入后的点赞数
+]]--
+local pending = tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or '0')
+redis.call('HDEL', KEYS[2], ARGV[1])
+redis.call('DEL', KEYS[3])
+-- 锁超时后已被其他请求补过计数，只补累计的变化量
+if (redis.call('ZSCORE', KEYS[1], ARGV[1])) then
+    return tonumber(redis.call('ZINCRBY', KEYS[1], pending, ARGV[1]))
+end
+local likes = math.max(tonumber(ARGV[2]) + pending, 0)
+redis.call('ZADD', KEYS[1], likes, ARGV[1])
+return likes
@@ -0,0 +1,15 @@
+--[[
+  取出一批点赞计数及其第一次变化的时间
+  KEYS[1] 点赞计数zset | KEYS[2] 点赞计数变化时间hash | ARGV[1] 数量
+  返回 {业务id, 点赞数, 变化时间（毫秒，未知为0）, ...}
+]]--
+local popped = redis.call('ZPOPMIN', KEYS[1], ARGV[1])
+local result = {}
+for i = 1, #popped, 2 do
+    local changedAt = redis.call('HGET', KEYS[2], popped[i]) or '0'
+    redis.call('HDEL', KEYS[2], popped[i])
+    result[#result + 1] = popped[i]
+    result[#result + 1] = popped[i + 1]
+    result[#result + 1] = changedAt
+end
+return result
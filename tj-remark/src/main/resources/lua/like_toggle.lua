@@ -0,0 +1,48 @@
+--[[
+  点赞/取消点赞：维护ALL、NEW、DEL，并按实际变化修改点赞计数
+  KEYS[1] ALL set | KEYS[2] NEW zset | KEYS[3] DEL zset | KEYS[4] 点赞计数zset | KEYS[5] 待补计数hash | KEYS[6] 补计数锁
+  KEYS[7] 待同步业务id set（分桶） | KEYS[8] 用户点赞索引set | KEYS[9] 点赞计数变化时间hash
+  ARGV[1] 用户id | ARGV[2] 1点赞 0取消 | ARGV[3] 业务id | ARGV[4] 补计数锁过期时间（毫秒） | ARGV[5] 用户点赞索引过期时间（毫秒）
+  ARGV[6] 当前时间（毫秒）
+  返回 0 - 重复操作，计数未变 | 1 - 已修改计数 | 2 - 计数不存在，由调用方从数据库补计数
+]]--
+local liked = ARGV[2] == '1'
+local changed
+if (liked) then
+    redis.call('ZREM', KEYS[3], ARGV[1])
+    redis.call('ZADD', KEYS[2], 0, ARGV[1])
+    changed = redis.call('SADD', KEYS[1], ARGV[1])
+else
+    redis.call('ZREM', KEYS[2], ARGV[1])
+    redis.call('ZADD', KEYS[3], 0, ARGV[1])
+    changed = redis.call('SREM', KEYS[1], ARGV[1])
+end
+-- 用户点赞索引：未加载完成（无'_'）时用'-业务id'记录取消，加载时不被数据库中未同步删除的记录覆盖
+if (liked) then
+    redis.call('SADD', KEYS[8], ARGV[3])
+    redis.call('SREM', KEYS[8], '-' .. ARGV[3])
+else
+    redis.call('SREM', KEYS[8], ARGV[3])
+    if (redis.call('SISMEMBER', KEYS[8], '_') == 0) then
+        redis.call('SADD', KEYS[8], '-' .. ARGV[3])
+    end
+end
+redis.call('PEXPIRE', KEYS[8], ARGV[5])
+-- NEW或DEL有变化，登记到待同步业务id中，由同步任务只处理登记过的业务
+redis.call('SADD', KEYS[7], ARGV[3])
+if (changed == 0) then
+    return 0
+end
+local delta = liked and 1 or -1
+-- 记录计数在本轮推送前第一次变化的时间，用于统计点赞到数据库可见的延迟
+redis.call('HSETNX', KEYS[9], ARGV[3], ARGV[6])
+if (redis.call('ZSCORE', KEYS[4], ARGV[3])) then
+    redis.call('ZINCRBY', KEYS[4], delta, ARGV[3])
+    return 1
+end
+-- 计数不存在，变化量先记到待补计数中，补计数完成前计数不出现，避免被同步任务读到不完整的值
+redis.call('HINCRBY', KEYS[5], ARGV[3], delta)
+if (redis.call('SET', KEYS[6], '1', 'NX', 'PX', ARGV[4])) then
+    return 2
+end
+return 1
@@ -0,0 +1,21 @@
+--[[
+  加载用户点赞索引：合并数据库中的点赞记录与加载前发生的点赞、取消
+  KEYS[1] 用户点赞索引set | ARGV[1] 索引过期时间（毫秒） | ARGV[2...] 数据库中点赞过的业务id
+  返回 1 - 已加载 | 0 - 已被其他请求加载
+]]--
+if (redis.call('SISMEMBER', KEYS[1], '_') == 1) then
+    return 0
+end
+for i = 2, #ARGV do
+    if (redis.call('SISMEMBER', KEYS[1], '-' .. ARGV[i]) == 0) then
+        redis.call('SADD', KEYS[1], ARGV[i])
+    end
+end
+for i, member in ipairs(redis.call('SMEMBERS', KEYS[1])) do
+    if (string.sub(member, 1, 1) == '-') then
+        redis.call('SREM', KEYS[1], member)
+    end
+end
+redis.call('SADD', KEYS[1], '_')
+redis.call('PEXPIRE', KEYS[1], ARGV[1])
+return 1
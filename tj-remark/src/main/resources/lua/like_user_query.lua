@@ -0,0 +1,16 @@
+--[[
+  查询用户点赞过哪些业务，并续期用户点赞索引
+  KEYS[1] 用户点赞索引set | ARGV[1] 索引过期时间（毫秒） | ARGV[2...] 业务id
+  返回 {'0'} - 索引未加载 | {'1', 点赞过的业务id...}
+]]--
+if (redis.call('SISMEMBER', KEYS[1], '_') == 0) then
+    return {'0'}
+end
+redis.call('PEXPIRE', KEYS[1], ARGV[1])
+local result = {'1'}
+for i = 2, #ARGV do
+    if (redis.call('SISMEMBER', KEYS[1], ARGV[i]) == 1) then
+        result[#result + 1] = ARGV[i]
+    end
+end
+return result
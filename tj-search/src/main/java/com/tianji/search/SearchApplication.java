@@ -1,5 +1,6 @@
 package com.tianji.search;
 
+import com.tianji.api.annotations.EnableCategoryCache;
 import lombok.extern.slf4j.Slf4j;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
@@ -13,6 +14,7 @@ import java.net.UnknownHostException;
 
 @MapperScan("com.tianji.search.mapper")
 @SpringBootApplication
+@EnableCategoryCache
 @EnableScheduling
 @Slf4j
 public class SearchApplication {
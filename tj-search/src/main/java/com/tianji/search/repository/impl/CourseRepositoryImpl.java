@@ -73,7 +73,7 @@ public class CourseRepositoryImpl implements CourseRepository {
         if (StringUtils.isBlank(source)) {
             return Optional.empty();
         }
-        return Optional.of(JsonUtils.toBean(source, Course.class));
+        return Optional.of(JsonUtils.fromJson(source, Course.class));
     }
 
     @Override
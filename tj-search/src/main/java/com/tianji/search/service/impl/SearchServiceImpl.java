@@ -20,6 +20,7 @@ import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.RangeQueryBuilder;
@@ -142,7 +143,7 @@ public class SearchServiceImpl implements ISearchService {
         Set<Long> teacherIds = new HashSet<>(hits.length);
         for (SearchHit hit : hits) {
             // 3.1.数据转换
-            CourseVO vo = JsonUtils.toBean(hit.getSourceAsString(), CourseVO.class);
+            CourseVO vo = JsonUtils.fromJson(BytesReference.toBytes(hit.getSourceRef()), CourseVO.class);
             // 3.2.获取分类id
             teacherIds.add(Long.valueOf(vo.getTeacher()));
             // 3.3.保存
@@ -304,9 +305,9 @@ public class SearchServiceImpl implements ISearchService {
         List<Course> list = new ArrayList<>(hits.length);
         for (SearchHit hit : hits) {
             // 5.获取某一条source
-            String jsonSource = hit.getSourceAsString();
+            byte[] jsonSource = BytesReference.toBytes(hit.getSourceRef());
             // 6.反序列化
-            Course course = JsonUtils.toBean(jsonSource, Course.class);
+            Course course = JsonUtils.fromJson(jsonSource, Course.class);
             // 7.处理高亮
             Map<String, HighlightField> highlightFields = hit.getHighlightFields();
             if (CollUtils.isNotEmpty(highlightFields)) {
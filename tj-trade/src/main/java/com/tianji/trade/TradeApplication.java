@@ -1,17 +1,21 @@
 package com.tianji.trade;
 
+import com.tianji.api.annotations.EnableCourseCache;
 import lombok.extern.slf4j.Slf4j;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 
 @MapperScan("com.tianji.trade.mapper")
 @SpringBootApplication
+@EnableScheduling
+@EnableCourseCache
 @Slf4j
 public class TradeApplication {
     public static void main(String[] args) throws UnknownHostException {
@@ -3,7 +3,7 @@ package com.tianji.trade.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.tianji.api.client.course.CourseClient;
+import com.tianji.api.cache.CourseCache;
 import com.tianji.api.dto.course.CourseFullInfoDTO;
 import com.tianji.api.dto.course.CourseSimpleInfoDTO;
 import com.tianji.common.exceptions.BadRequestException;
@@ -43,7 +43,7 @@ import static com.tianji.trade.constants.TradeErrorInfo.*;
 @RequiredArgsConstructor
 public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements ICartService {
 
-    private final CourseClient courseClient;
+    private final CourseCache courseCache;
     private final TradeProperties tradeProperties;
 
     @Override
@@ -58,7 +58,7 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements IC
         checkCartsFull(userId);
 
         // 3.根据id查询课程信息
-        CourseFullInfoDTO courseInfo = courseClient.getCourseInfoById(courseId, false, false);
+        CourseFullInfoDTO courseInfo = courseCache.getCourseInfoById(courseId, false, false);
 
         // 4.判断是否为空
         if (courseInfo == null) {
@@ -109,7 +109,7 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements IC
         }
         // 3.查询购物车中的课程
         List<Long> courseIds = carts.stream().map(Cart::getCourseId).collect(Collectors.toList());
-        List<CourseSimpleInfoDTO> courseSimpleInfos = courseClient.getSimpleInfoList(courseIds);
+        List<CourseSimpleInfoDTO> courseSimpleInfos = courseCache.getSimpleInfoList(courseIds);
         Map<Long, CourseSimpleInfoDTO> map = courseSimpleInfos.stream()
                 .collect(Collectors.toMap(CourseSimpleInfoDTO::getId, c -> c));
         // 4.组织 vo
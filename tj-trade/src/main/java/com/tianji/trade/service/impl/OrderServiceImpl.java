@@ -62,6 +62,7 @@ import static com.tianji.trade.constants.TradeErrorInfo.ORDER_NOT_EXISTS;
 @RequiredArgsConstructor
 public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements IOrderService {
 
+	// * 下单涉及价格与上架状态，直接查课程服务，不使用可能滞后的课程缓存
 	private final CourseClient courseClient;
 	private final IOrderDetailService detailService;
 	private final ICartService cartService;
@@ -66,10 +66,7 @@ public class UserController {
             @ApiParam(value = "要重置的用户的id", example = "1") @PathVariable("id") Long userId,
             @ApiParam(value = "状态", example = "1") @PathVariable("status") Integer status
     ) {
-        User user = new User();
-        user.setId(userId);
-        user.setStatus(UserStatus.of(status));
-        userService.updateById(user);
+        userService.updateUserStatus(userId, UserStatus.of(status));
     }
 
     @ApiOperation("获取当前登录用户信息")
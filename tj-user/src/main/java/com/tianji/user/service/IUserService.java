@@ -7,6 +7,7 @@ import com.tianji.common.domain.dto.LoginUserDTO;
 import com.tianji.user.domain.dto.UserFormDTO;
 import com.tianji.user.domain.po.User;
 import com.tianji.user.domain.vo.UserDetailVO;
+import com.tianji.user.enums.UserStatus;
 
 /**
  * <p>
@@ -32,4 +33,6 @@ public interface IUserService extends IService<User> {
     void updateUser(UserDTO userDTO);
 
     void updateUserWithPassword(UserFormDTO userDTO);
+
+    void updateUserStatus(Long userId, UserStatus status);
 }
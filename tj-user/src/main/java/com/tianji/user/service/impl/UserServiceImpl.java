@@ -6,6 +6,8 @@ import com.tianji.api.client.auth.AuthClient;
 import com.tianji.api.dto.auth.RoleDTO;
 import com.tianji.api.dto.user.LoginFormDTO;
 import com.tianji.api.dto.user.UserDTO;
+import com.tianji.common.autoconfigure.mq.RabbitMqHelper;
+import com.tianji.common.constants.MqConstants;
 import com.tianji.common.domain.dto.LoginUserDTO;
 import com.tianji.common.enums.UserType;
 import com.tianji.common.exceptions.BadRequestException;
@@ -28,6 +30,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import static com.tianji.user.constants.UserConstants.*;
 import static com.tianji.user.constants.UserErrorInfo.Msg.*;
@@ -52,6 +56,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
     private AuthClient authClient;
     @Autowired
     private IUserDetailService detailService;
+    @Autowired
+    private RabbitMqHelper mqHelper;
 
     @Override
     public LoginUserDTO queryUserDetail(LoginFormDTO loginDTO, boolean isStaff) {
@@ -164,6 +170,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
             user.setCellPhone(cellPhone);
             // 1.3.修改
             updateById(user);
+            sendUserUpdatedMessage(id);
         }
     }
 
@@ -209,6 +216,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         UserDetail detail = BeanUtils.toBean(userDTO, UserDetail.class);
         detail.setType(null);
         detailService.updateById(detail);
+        // 3.通知各服务清除用户缓存
+        sendUserUpdatedMessage(userDTO.getId());
     }
 
     @Override
@@ -240,6 +249,37 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         detail.setRoleId(null);
         detail.setType(null);
         detailService.updateById(detail);
+        // 3.通知各服务清除用户缓存
+        sendUserUpdatedMessage(UserContext.getUser());
+    }
+
+    @Override
+    public void updateUserStatus(Long userId, UserStatus status) {
+        User user = new User();
+        user.setId(userId);
+        user.setStatus(status);
+        updateById(user);
+        sendUserUpdatedMessage(userId);
+    }
+
+    /**
+     * 用户信息变更，通知各服务清除用户缓存；处于事务中时等提交后再发送，避免其他服务在提交前重新加载到旧数据
+     */
+    private void sendUserUpdatedMessage(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        Runnable send = () -> mqHelper.sendAsyn(MqConstants.Exchange.USER_EXCHANGE, MqConstants.Key.USER_UPDATED_KEY, userId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                send.run();
+            }
+        });
     }
 
     public User loginByPw(LoginFormDTO loginDTO) {